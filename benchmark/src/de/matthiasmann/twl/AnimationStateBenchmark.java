@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.AnimationState.StateKey;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks animation state lookups and the memory used per widget.
+ * 
+ * <p>Run with {@code -prof gc} - the {@code gc.alloc.rate.norm} of
+ * {@code createWidgetState} is the number of bytes used by the animation
+ * state of a typical widget.</p>
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimationStateBenchmark {
+
+    private static final String[] STATE_NAMES = {
+        "hover", "armed", "pressed", "selected", "disabled",
+        "keyboardFocus", "hasFocusedChild", "hasOpenPopups"
+    };
+    
+    private StateKey[] keys;
+    private StateKey unsetKey;
+    private AnimationState parent;
+    private AnimationState child;
+    
+    @Setup
+    public void setup() {
+        keys = new StateKey[STATE_NAMES.length];
+        for(int i=0 ; i<keys.length ; i++) {
+            keys[i] = StateKey.get(STATE_NAMES[i]);
+        }
+        unsetKey = StateKey.get("benchmarkUnset");
+        parent = new AnimationState();
+        child = new AnimationState(parent);
+        for(int i=0 ; i<keys.length ; i++) {
+            parent.setAnimationState(keys[i], (i & 1) == 0);
+            if(i < 4) {
+                child.setAnimationState(keys[i], (i & 2) == 0);
+            }
+        }
+    }
+    
+    @Benchmark
+    public int getAnimationState() {
+        int count = 0;
+        for(StateKey key : keys) {
+            if(child.getAnimationState(key)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public boolean getAnimationStateUnset() {
+        return child.getAnimationState(unsetKey);
+    }
+    
+    @Benchmark
+    public int getAnimationTime() {
+        return child.getAnimationTime(keys[0]) + child.getAnimationTime(keys[6]);
+    }
+    
+    @Benchmark
+    public AnimationState createWidgetState() {
+        AnimationState as = new AnimationState();
+        for(int i=0 ; i<keys.length ; i++) {
+            as.setAnimationState(keys[i], false);
+        }
+        as.setAnimationState(keys[0], true);
+        return as;
+    }
+}
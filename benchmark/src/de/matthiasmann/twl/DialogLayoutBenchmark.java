@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the relayout of a DialogLayout with 1000 widgets
+ * (100 rows with 10 widgets each).
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DialogLayoutBenchmark {
+
+    @Param({"100"})
+    public int rows;
+    
+    @Param({"10"})
+    public int columns;
+    
+    private DialogLayout dialogLayout;
+    private SizedWidget[][] widgets;
+    private int counter;
+    
+    @Setup
+    public void setup() {
+        widgets = new SizedWidget[rows][columns];
+        dialogLayout = new DialogLayout();
+        DialogLayout.Group horz = dialogLayout.createParallelGroup();
+        DialogLayout.Group vert = dialogLayout.createSequentialGroup();
+        for(int r=0 ; r<rows ; r++) {
+            DialogLayout.Group rowH = dialogLayout.createSequentialGroup();
+            DialogLayout.Group rowV = dialogLayout.createParallelGroup();
+            for(int c=0 ; c<columns ; c++) {
+                SizedWidget w = new SizedWidget();
+                w.setPrefSize(10 + c*5, 10);
+                w.setMinSize(5, 5);
+                widgets[r][c] = w;
+                rowH.addWidget(w);
+                rowV.addWidget(w);
+            }
+            horz.addGroup(rowH);
+            vert.addGroup(rowV);
+        }
+        dialogLayout.setHorizontalGroup(horz);
+        dialogLayout.setVerticalGroup(vert);
+        dialogLayout.adjustSize();
+    }
+    
+    /**
+     * Changes the preferred size of one widget and updates the layout.
+     * @return the resulting width
+     */
+    @Benchmark
+    public int relayoutAfterOneChange() {
+        int n = ++counter;
+        SizedWidget w = widgets[(n * 31) % rows][(n * 7) % columns];
+        w.setPrefSize(10 + (n & 15), 10 + (n & 3));
+        dialogLayout.adjustSize();
+        dialogLayout.validateLayout();
+        return dialogLayout.getWidth();
+    }
+    
+    /**
+     * Resizes the dialog which requires new positions for all widgets.
+     * @return the resulting height
+     */
+    @Benchmark
+    public int relayoutAfterResize() {
+        int n = ++counter;
+        dialogLayout.setSize(dialogLayout.getPreferredWidth() + (n & 1),
+                dialogLayout.getPreferredHeight() + (n & 1));
+        dialogLayout.validateLayout();
+        return dialogLayout.getHeight();
+    }
+    
+    static class SizedWidget extends Widget {
+        int prefWidth;
+        int prefHeight;
+
+        void setPrefSize(int prefWidth, int prefHeight) {
+            this.prefWidth = prefWidth;
+            this.prefHeight = prefHeight;
+            invalidateLayout();
+        }
+
+        @Override
+        public int getPreferredWidth() {
+            return prefWidth;
+        }
+
+        @Override
+        public int getPreferredHeight() {
+            return prefHeight;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the mapping of key events to actions
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputMapBenchmark {
+
+    private InputMap inputMap;
+    private Event ctrlA;
+    private Event escape;
+    private Event noMatch;
+    private Event typedChar;
+    
+    @Setup
+    public void setup() {
+        InputMap im = InputMap.empty();
+        for(char ch='A' ; ch<='Z' ; ch++) {
+            im = im.addKeyStroke(KeyStroke.parse("ctrl " + ch, "ctrl" + ch));
+            im = im.addKeyStroke(KeyStroke.parse("ctrl shift " + ch, "ctrlShift" + ch));
+        }
+        im = im.addKeyStroke(KeyStroke.parse("F1", "help"));
+        im = im.addKeyStroke(KeyStroke.parse("ESCAPE", "close"));
+        im = im.addKeyStroke(KeyStroke.parse("typed ?", "question"));
+        inputMap = im;
+        
+        ctrlA = createKeyEvent(Event.KEY_A, 'a', Event.MODIFIER_LCTRL);
+        escape = createKeyEvent(Event.KEY_ESCAPE, Event.CHAR_NONE, 0);
+        noMatch = createKeyEvent(Event.KEY_X, 'x', 0);
+        typedChar = createKeyEvent(Event.KEY_SLASH, '?', 0);
+    }
+    
+    private static Event createKeyEvent(int keyCode, char keyChar, int modifier) {
+        Event evt = new Event();
+        evt.type = Event.Type.KEY_PRESSED;
+        evt.keyCode = keyCode;
+        evt.keyChar = keyChar;
+        evt.modifier = modifier;
+        return evt;
+    }
+    
+    @Benchmark
+    public String mapCtrlA() {
+        return inputMap.mapEvent(ctrlA);
+    }
+    
+    @Benchmark
+    public String mapEscape() {
+        return inputMap.mapEvent(escape);
+    }
+    
+    @Benchmark
+    public String mapNoMatch() {
+        return inputMap.mapEvent(noMatch);
+    }
+    
+    @Benchmark
+    public String mapTypedChar() {
+        return inputMap.mapEvent(typedChar);
+    }
+}
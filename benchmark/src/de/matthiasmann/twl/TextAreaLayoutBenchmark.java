@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.FontCache;
+import de.matthiasmann.twl.renderer.FontMapper;
+import de.matthiasmann.twl.renderer.FontParameter;
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import de.matthiasmann.twl.textarea.HTMLTextAreaModel;
+import de.matthiasmann.twl.textarea.HTMLTextAreaModelBenchmark;
+import de.matthiasmann.twl.utils.StateSelect;
+import de.matthiasmann.twl.utils.StringList;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the layout of a TextArea with a HTML document.
+ * 
+ * <p>Uses a stub font with fixed glyph widths so that the result only
+ * depends on the layout code and not on font loading or rendering.</p>
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextAreaLayoutBenchmark {
+
+    @Param({"10", "200"})
+    public int numParagraphs;
+    
+    private SoftwareRenderer renderer;
+    private GUI gui;
+    private TextArea textArea;
+    private int width;
+    
+    @Setup
+    public void setup() {
+        renderer = new SoftwareRenderer(1024, 1024, 1);
+        renderer.setFontMapper(new StubFontMapper());
+        textArea = new TextArea();
+        textArea.setDefaultStyleSheet();
+        textArea.setModel(new HTMLTextAreaModel(
+                HTMLTextAreaModelBenchmark.generateHTML(numParagraphs)));
+        Widget root = new Widget();
+        root.add(textArea);
+        gui = new GUI(root, renderer, null);
+        width = 600;
+        textArea.setSize(width, 400);
+        gui.validateLayout();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        gui.destroy();
+        renderer.destroy();
+    }
+    
+    @Benchmark
+    public int relayout() {
+        // alternate the width to force a complete relayout
+        width ^= 1;
+        textArea.setSize(width, textArea.getHeight());
+        gui.validateLayout();
+        return textArea.getPreferredInnerHeight();
+    }
+    
+    static final class StubFontMapper implements FontMapper {
+        private final HashMap<Integer, StubFont> fonts = new HashMap<Integer, StubFont>();
+        
+        public Font getFont(StringList fontFamilies, int fontSize, int style, StateSelect select, FontParameter... fontParams) {
+            StubFont font = fonts.get(fontSize);
+            if(font == null) {
+                font = new StubFont(fontSize);
+                fonts.put(fontSize, font);
+            }
+            return font;
+        }
+
+        public boolean registerFont(String fontFamily, int style, URL url) {
+            return false;
+        }
+
+        public boolean registerFont(String fontFamily, URL url) {
+            return false;
+        }
+
+        public void destroy() {
+        }
+    }
+    
+    static final class StubFont implements Font {
+        private final int lineHeight;
+        private final int glyphWidth;
+        private final int spaceWidth;
+
+        StubFont(int size) {
+            this.lineHeight = size + size / 4;
+            this.glyphWidth = Math.max(1, size / 2);
+            this.spaceWidth = Math.max(1, size / 3);
+        }
+
+        private int charWidth(char ch) {
+            return (ch == ' ') ? spaceWidth : glyphWidth;
+        }
+        
+        public boolean isProportional() {
+            return true;
+        }
+
+        public int getBaseLine() {
+            return lineHeight * 4 / 5;
+        }
+
+        public int getLineHeight() {
+            return lineHeight;
+        }
+
+        public int getSpaceWidth() {
+            return spaceWidth;
+        }
+
+        public int getEM() {
+            return lineHeight;
+        }
+
+        public int getEX() {
+            return glyphWidth;
+        }
+
+        public int computeMultiLineTextWidth(CharSequence str) {
+            int maxWidth = 0;
+            int start = 0;
+            for(int i=0,n=str.length() ; i<=n ; i++) {
+                if(i == n || str.charAt(i) == '\n') {
+                    maxWidth = Math.max(maxWidth, computeTextWidth(str, start, i));
+                    start = i + 1;
+                }
+            }
+            return maxWidth;
+        }
+
+        public int computeTextWidth(CharSequence str) {
+            return computeTextWidth(str, 0, str.length());
+        }
+
+        public int computeTextWidth(CharSequence str, int start, int end) {
+            int width = 0;
+            for(int i=start ; i<end ; i++) {
+                width += charWidth(str.charAt(i));
+            }
+            return width;
+        }
+
+        public int computeVisibleGlpyhs(CharSequence str, int start, int end, int width) {
+            int i = start;
+            while(i < end) {
+                width -= charWidth(str.charAt(i));
+                if(width < 0) {
+                    break;
+                }
+                i++;
+            }
+            return i - start;
+        }
+
+        public int drawMultiLineText(AnimationState as, int x, int y, CharSequence str, int width, HAlignment align) {
+            return computeMultiLineTextWidth(str);
+        }
+
+        public int drawText(AnimationState as, int x, int y, CharSequence str) {
+            return computeTextWidth(str);
+        }
+
+        public int drawText(AnimationState as, int x, int y, CharSequence str, int start, int end) {
+            return computeTextWidth(str, start, end);
+        }
+
+        public FontCache cacheMultiLineText(FontCache prevCache, CharSequence str, int width, HAlignment align) {
+            return null;
+        }
+
+        public FontCache cacheText(FontCache prevCache, CharSequence str) {
+            return null;
+        }
+
+        public FontCache cacheText(FontCache prevCache, CharSequence str, int start, int end) {
+            return null;
+        }
+
+        public void destroy() {
+        }
+    }
+}
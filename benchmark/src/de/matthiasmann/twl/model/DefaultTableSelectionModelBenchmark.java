@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the multi selection model used by tables
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultTableSelectionModelBenchmark {
+
+    private static final int NUM_RANDOM = 1024;
+    
+    @Param({"100000"})
+    public int numRows;
+    
+    private DefaultTableSelectionModel model;
+    private int[] rows;
+    private int idx;
+    
+    @Setup
+    public void setup() {
+        Random r = new Random(0x5EED);
+        model = new DefaultTableSelectionModel();
+        // select every 3rd block of 10 rows
+        for(int i=0 ; i<numRows ; i+=30) {
+            model.addSelection(i, i+9);
+        }
+        rows = new int[NUM_RANDOM];
+        for(int i=0 ; i<NUM_RANDOM ; i++) {
+            rows[i] = r.nextInt(numRows - 100);
+        }
+    }
+    
+    private int next() {
+        return idx = (idx + 1) & (NUM_RANDOM - 1);
+    }
+    
+    @Benchmark
+    public boolean isSelected() {
+        return model.isSelected(rows[next()]);
+    }
+    
+    @Benchmark
+    public boolean invertRange() {
+        int row = rows[next()];
+        model.invertSelection(row, row + 50);
+        return model.hasSelection();
+    }
+    
+    @Benchmark
+    public int rowsInsertedDeleted() {
+        int row = rows[next()];
+        model.rowsInserted(row, 5);
+        model.rowsDeleted(row, 5);
+        return row;
+    }
+    
+    @Benchmark
+    public int[] getSelection() {
+        return model.getSelection();
+    }
+}
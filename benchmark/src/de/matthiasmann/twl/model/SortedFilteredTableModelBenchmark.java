@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.model;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks sorting and incremental maintenance of SortedFilteredTableModel
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedFilteredTableModelBenchmark {
+
+    private static final int NUM_RANDOM = 1024;
+    
+    @Param({"1000000"})
+    public int numRows;
+    
+    private SimpleTableModel source;
+    private SortedFilteredTableModel model;
+    private ExecutorService executor;
+    private Random random;
+    private int[] rows;
+    private int idx;
+    
+    @Setup
+    public void setup() {
+        random = new Random(0x5EED);
+        source = new SimpleTableModel(new String[] { "name", "size" });
+        ArrayList<Object[]> data = new ArrayList<Object[]>(numRows);
+        for(int i=0 ; i<numRows ; i++) {
+            data.add(new Object[] { "file" + random.nextInt(numRows), random.nextInt(1000000) });
+        }
+        source.addRows(data);
+        model = new SortedFilteredTableModel(source);
+        model.setSorting(0, SortOrder.ASCENDING);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        rows = new int[NUM_RANDOM];
+        for(int i=0 ; i<NUM_RANDOM ; i++) {
+            rows[i] = random.nextInt(numRows - 100);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+    
+    private int next() {
+        return rows[idx = (idx + 1) & (NUM_RANDOM - 1)];
+    }
+    
+    private SortedFilteredTableModel.RowComparator createRowComparator(int[] sourceRows) {
+        Object[] keys = new Object[numRows];
+        for(int row=0 ; row<numRows ; row++) {
+            keys[row] = source.getCell(row, 0);
+            sourceRows[row] = row;
+        }
+        return new SortedFilteredTableModel.RowComparator(0, keys,
+                new SortedFilteredTableModel.NullSafeComparator(SortedFilteredTableModel.DEFAULT_COMPARATOR));
+    }
+    
+    @Benchmark
+    public int[] sortSequential() {
+        int[] sourceRows = new int[numRows];
+        SortedFilteredTableModel.RowComparator rc = createRowComparator(sourceRows);
+        SortedFilteredTableModel.sort(sourceRows, new int[numRows], 0, numRows, rc);
+        return sourceRows;
+    }
+    
+    @Benchmark
+    public int[] sortParallel() throws InterruptedException {
+        int[] sourceRows = new int[numRows];
+        SortedFilteredTableModel.RowComparator rc = createRowComparator(sourceRows);
+        SortedFilteredTableModel.ParallelSort ps = new SortedFilteredTableModel.ParallelSort(
+                sourceRows, numRows, rc, executor);
+        final CountDownLatch latch = new CountDownLatch(1);
+        ps.completion = new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        };
+        ps.start();
+        latch.await();
+        return sourceRows;
+    }
+    
+    @Benchmark
+    public int cellChanged() {
+        int row = next();
+        source.setCell(row, 0, "file" + random.nextInt(numRows));
+        return model.getViewRow(row);
+    }
+    
+    @Benchmark
+    public int rowInsertedDeleted() {
+        int row = next();
+        source.insertRow(row, "file" + row, row);
+        source.deleteRow(row);
+        return model.getNumRows();
+    }
+}
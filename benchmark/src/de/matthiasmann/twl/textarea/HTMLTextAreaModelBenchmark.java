@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.textarea;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parsing of HTML into a HTMLTextAreaModel
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HTMLTextAreaModelBenchmark {
+
+    @Param({"10", "200"})
+    public int numParagraphs;
+    
+    private String html;
+    private HTMLTextAreaModel model;
+    
+    @Setup
+    public void setup() {
+        html = generateHTML(numParagraphs);
+        model = new HTMLTextAreaModel();
+    }
+    
+    @Benchmark
+    public HTMLTextAreaModel parseNew() {
+        return new HTMLTextAreaModel(html);
+    }
+    
+    @Benchmark
+    public HTMLTextAreaModel parseReuse() {
+        model.setHtml(html);
+        return model;
+    }
+
+    /**
+     * Generates a XHTML document with headings, paragraphs with inline styles,
+     * links, lists and a table.
+     * 
+     * @param numParagraphs the number of paragraphs
+     * @return the XHTML document
+     */
+    public static String generateHTML(int numParagraphs) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<html><head><title>Benchmark</title></head><body><div id=\"content\">");
+        for(int i=0 ; i<numParagraphs ; i++) {
+            if(i % 10 == 0) {
+                sb.append("<h1>Section ").append(i / 10).append("</h1>");
+            }
+            sb.append("<p class=\"para").append(i % 5).append("\">");
+            sb.append("Lorem ipsum dolor sit amet, <b>consectetur</b> adipisicing elit, ");
+            sb.append("sed do <i>eiusmod tempor</i> incididunt ut labore et dolore magna aliqua. ");
+            sb.append("<a href=\"#p").append(i).append("\">Ut enim</a> ad minim veniam, ");
+            sb.append("<span style=\"font: monospace\">quis nostrud</span> exercitation ullamco ");
+            sb.append("laboris nisi ut aliquip ex ea commodo consequat.</p>");
+            if(i % 7 == 3) {
+                sb.append("<ul><li>first item</li><li>second <span class=\"note\">item</span></li></ul>");
+            }
+            if(i % 13 == 5) {
+                sb.append("<table><tr><td>a</td><td>b</td></tr><tr><td>c</td><td>d</td></tr></table>");
+            }
+        }
+        sb.append("</div></body></html>");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.textarea;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the style sheet rule matching used by TextArea
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StyleSheetBenchmark {
+
+    private static final int NUM_STYLES = 64;
+    private static final String[] ELEMENTS = { "p", "span", "a", "li", "td", "pre", "h1", "h2" };
+    
+    private StyleSheet styleSheet;
+    private Style[] styles;
+    
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("body { font: default; padding: 2px }\n");
+        sb.append("a { font: link }\n");
+        sb.append("pre { font: monospace; white-space: pre }\n");
+        sb.append("h1, h2 { font: title; margin-bottom: 4px }\n");
+        sb.append("div > p { margin-left: 5px }\n");
+        sb.append("td a { font: tablelink }\n");
+        sb.append("#content p { text-indent: 10px }\n");
+        for(int i=0 ; i<50 ; i++) {
+            sb.append('.').append("class").append(i).append(" { margin-right: ").append(i).append("px }\n");
+            sb.append(ELEMENTS[i % ELEMENTS.length]).append(".class").append(i).append(" span { height: ").append(i).append("% }\n");
+        }
+        styleSheet = new StyleSheet();
+        styleSheet.parse(sb.toString());
+        
+        Style body = new Style(null, new StyleSheetKey("body", null, null));
+        Style content = new Style(body, new StyleSheetKey("div", null, "content"));
+        styles = new Style[NUM_STYLES];
+        for(int i=0 ; i<NUM_STYLES ; i++) {
+            Style parent = new Style(content, new StyleSheetKey(
+                    ELEMENTS[i % ELEMENTS.length], "class" + (i % 50), null));
+            styles[i] = new Style(parent, new StyleSheetKey(
+                    ELEMENTS[(i / ELEMENTS.length) % ELEMENTS.length], null, null));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(NUM_STYLES)
+    public int resolveUncached() {
+        final StyleSheet ss = styleSheet;
+        int count = 0;
+        ss.startLayout();
+        for(Style style : styles) {
+            if(ss.resolve(style) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(NUM_STYLES)
+    public int resolveCached() {
+        final StyleSheet ss = styleSheet;
+        int count = 0;
+        for(Style style : styles) {
+            if(ss.resolve(style) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(NUM_STYLES)
+    public int getInheritedAttribute() {
+        final StyleSheet ss = styleSheet;
+        int count = 0;
+        ss.startLayout();
+        for(Style style : styles) {
+            if(style.get(StyleAttribute.FONT_FAMILIES, ss) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks sorting of file names as done by the FileSelector
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NaturalSortComparatorBenchmark {
+
+    private static final String[] PREFIXES = {
+        "image", "Image", "screenshot_", "track", "save game ", "level-", "readme", "data"
+    };
+    private static final String[] SUFFIXES = {
+        ".png", ".PNG", ".ogg", ".txt", ".sav", ""
+    };
+    
+    @Param({"1000"})
+    public int numNames;
+    
+    private String[] names;
+    private String[] paths;
+    private String[] tmp;
+    
+    @Setup
+    public void setup() {
+        Random r = new Random(0x5EED);
+        names = new String[numNames];
+        paths = new String[numNames];
+        for(int i=0 ; i<numNames ; i++) {
+            String name = PREFIXES[r.nextInt(PREFIXES.length)] + r.nextInt(2000) +
+                    SUFFIXES[r.nextInt(SUFFIXES.length)];
+            names[i] = name;
+            paths[i] = "/home/user/dir" + r.nextInt(20) + "/sub" + r.nextInt(5) + "/" + name;
+        }
+        tmp = new String[numNames];
+    }
+    
+    @Benchmark
+    public String[] sortNames() {
+        System.arraycopy(names, 0, tmp, 0, numNames);
+        Arrays.sort(tmp, NaturalSortComparator.stringComparator);
+        return tmp;
+    }
+    
+    @Benchmark
+    public String[] sortPaths() {
+        System.arraycopy(paths, 0, tmp, 0, numNames);
+        Arrays.sort(tmp, NaturalSortComparator.stringPathComparator);
+        return tmp;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the row/column position lookups used by TableBase
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SizeSequenceBenchmark {
+
+    private static final int NUM_RANDOM = 1024;
+    
+    @Param({"1000", "100000", "500000"})
+    public int size;
+    
+    private SizeSequence seq;
+    private int[] indices;
+    private int[] positions;
+    private int[] sizes;
+    private int idx;
+    
+    @Setup
+    public void setup() {
+        Random r = new Random(0x5EED);
+        seq = new SizeSequence(size);
+        seq.setDefaultValue(20);
+        seq.initializeAll(size);
+        for(int i=0 ; i<size ; i+=7) {
+            seq.setSize(i, 10 + r.nextInt(30));
+        }
+        indices = new int[NUM_RANDOM];
+        positions = new int[NUM_RANDOM];
+        sizes = new int[NUM_RANDOM];
+        for(int i=0 ; i<NUM_RANDOM ; i++) {
+            indices[i] = r.nextInt(size);
+            positions[i] = r.nextInt(seq.getEndPosition());
+            sizes[i] = 10 + r.nextInt(30);
+        }
+    }
+    
+    private int next() {
+        return idx = (idx + 1) & (NUM_RANDOM - 1);
+    }
+    
+    @Benchmark
+    public int getPosition() {
+        return seq.getPosition(indices[next()]);
+    }
+    
+    @Benchmark
+    public int getIndex() {
+        return seq.getIndex(positions[next()]);
+    }
+    
+    @Benchmark
+    public boolean setSize() {
+        int i = next();
+        return seq.setSize(indices[i], sizes[i]);
+    }
+    
+    @Benchmark
+    public int insertRemove() {
+        int index = indices[next()];
+        seq.insert(index, 1);
+        seq.remove(index, 1);
+        return seq.size();
+    }
+    
+    @Benchmark
+    public int insertRemoveBlock() {
+        int index = indices[next()];
+        seq.insert(index, 16);
+        seq.remove(index, 16);
+        return seq.size();
+    }
+    
+    /**
+     * Simulates a streaming table which appends a few rows per frame and
+     * drops the oldest rows.
+     */
+    @Benchmark
+    public int appendStreaming() {
+        seq.insert(seq.size(), 4);
+        seq.remove(0, 4);
+        return seq.getEndPosition();
+    }
+    
+    @Benchmark
+    public int initializeAll() {
+        seq.initializeAll(size);
+        return seq.getEndPosition();
+    }
+}
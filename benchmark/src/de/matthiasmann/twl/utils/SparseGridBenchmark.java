@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the cell lookup and update of the sparse grid used by Table
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SparseGridBenchmark {
+
+    private static final int NUM_RANDOM = 1024;
+    
+    @Param({"16", "64"})
+    public int pageSize;
+    
+    @Param({"10000"})
+    public int numEntries;
+    
+    private SparseGrid grid;
+    private int[] rows;
+    private int[] columns;
+    private int idx;
+    private int visited;
+    private final SparseGrid.GridFunction countFunction = new SparseGrid.GridFunction() {
+        public void apply(int row, int column, SparseGrid.Entry e) {
+            visited++;
+        }
+    };
+    
+    @Setup
+    public void setup() {
+        Random r = new Random(0x5EED);
+        grid = new SparseGrid(pageSize);
+        int numRows = numEntries / 4;
+        for(int i=0 ; i<numEntries ; i++) {
+            grid.set(r.nextInt(numRows), r.nextInt(16), new SparseGrid.Entry());
+        }
+        rows = new int[NUM_RANDOM];
+        columns = new int[NUM_RANDOM];
+        for(int i=0 ; i<NUM_RANDOM ; i++) {
+            rows[i] = r.nextInt(numRows);
+            columns[i] = r.nextInt(16);
+        }
+    }
+    
+    private int next() {
+        return idx = (idx + 1) & (NUM_RANDOM - 1);
+    }
+    
+    @Benchmark
+    public SparseGrid.Entry get() {
+        int i = next();
+        return grid.get(rows[i], columns[i]);
+    }
+    
+    @Benchmark
+    public SparseGrid.Entry setRemove() {
+        int i = next();
+        SparseGrid.Entry old = grid.remove(rows[i], columns[i]);
+        grid.set(rows[i], columns[i], (old != null) ? old : new SparseGrid.Entry());
+        return old;
+    }
+    
+    @Benchmark
+    public int insertRemoveRows() {
+        int row = rows[next()];
+        grid.insertRows(row, 3);
+        grid.removeRows(row, 3);
+        return row;
+    }
+    
+    @Benchmark
+    public int iterateVisibleRows() {
+        int row = rows[next()];
+        visited = 0;
+        grid.iterate(row, 0, row + 40, 16, countFunction);
+        return visited;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import de.matthiasmann.twl.AnimationState;
+import de.matthiasmann.twl.renderer.AnimationState.StateKey;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the evaluation of a typical button image selection
+ *
+ * @author Matthias Mann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateSelectBenchmark {
+
+    private static final String[] EXPRESSIONS = {
+        "disabled",
+        "pressed | (armed + hover)",
+        "selected + keyboardFocus",
+        "selected",
+        "hover + !selected",
+        "keyboardFocus",
+    };
+    
+    private static final StateKey STATE_ARMED = StateKey.get("armed");
+    
+    @Param({"false", "true"})
+    public boolean useOptimizer;
+    
+    private StateSelect select;
+    private AnimationState stateNone;
+    private AnimationState stateHover;
+    private AnimationState stateChild;
+    private boolean toggle;
+    
+    @Setup
+    public void setup() throws Exception {
+        StateExpression[] expr = new StateExpression[EXPRESSIONS.length];
+        for(int i=0 ; i<expr.length ; i++) {
+            expr[i] = StateExpression.parse(EXPRESSIONS[i], false);
+        }
+        boolean oldUseOptimizer = StateSelect.isUseOptimizer();
+        StateSelect.setUseOptimizer(useOptimizer);
+        try {
+            select = new StateSelect(expr);
+        } finally {
+            StateSelect.setUseOptimizer(oldUseOptimizer);
+        }
+        
+        stateNone = new AnimationState();
+        stateHover = new AnimationState();
+        stateHover.setAnimationState("hover", true);
+        stateHover.setAnimationState("keyboardFocus", true);
+        stateChild = new AnimationState(stateHover);
+        stateChild.setAnimationState("selected", true);
+    }
+    
+    @Benchmark
+    public int evaluateNoMatch() {
+        return select.evaluate(stateNone);
+    }
+    
+    @Benchmark
+    public int evaluateHover() {
+        return select.evaluate(stateHover);
+    }
+    
+    @Benchmark
+    public int evaluateWithParent() {
+        return select.evaluate(stateChild);
+    }
+    
+    @Benchmark
+    public int evaluateWithParentUncached() {
+        return select.evaluateUncached(stateChild);
+    }
+    
+    @Benchmark
+    public int evaluateAfterChange() {
+        toggle ^= true;
+        stateHover.setAnimationState(STATE_ARMED, toggle);
+        return select.evaluate(stateChild);
+    }
+}
@@ -29,16 +29,34 @@
  */
 package de.matthiasmann.twl;
 
+import de.matthiasmann.twl.utils.StateSelect;
+
 /**
  *
  * @author Matthias Mann
  */
 public class AnimationState implements de.matthiasmann.twl.renderer.AnimationState {
 
+    // 3 words per 64 state keys: state is set, state is active, should animate
+    private static final int WORD_SET = 0;
+    private static final int WORD_ACTIVE = 1;
+    private static final int WORD_ANIMATE = 2;
+    private static final int WORDS_PER_BLOCK = 3;
+    
+    private static final long[] EMPTY_BITS = new long[0];
+    private static final int SELECT_CACHE_SIZE = 4;
+    
     private final AnimationState parent;
     
-    private State[] stateTable;
+    private long[] bits;
+    /** change times of the set states - indexed by the rank of the set bit */
+    private long[] changeTimes;
+    private int modCount;
+    private StateSelect[] selectCache;
+    private long[] selectCacheValues;
+    private int selectCacheNext;
     private GUI gui;
+    private Widget owner;
 
     /**
      * Create a new animation state with optional parent.
@@ -52,7 +70,7 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      */
     public AnimationState(AnimationState parent, int size) {
         this.parent = parent;
-        this.stateTable = new State[size];
+        this.bits = (size > 0) ? new long[((size + 63) >> 6) * WORDS_PER_BLOCK] : EMPTY_BITS;
     }
     
     /**
@@ -65,7 +83,7 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      * @param parent the parent animation state or null
      */
     public AnimationState(AnimationState parent) {
-        this(parent, 16);
+        this(parent, 0);
     }
 
     /**
@@ -80,10 +98,10 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
     public void setGUI(GUI gui) {
         this.gui = gui;
         
-        long curTime = getCurrentTime();
-        for(State s : stateTable) {
-            if(s != null) {
-                s.lastChangedTime = curTime;
+        if(changeTimes != null) {
+            long curTime = getCurrentTime();
+            for(int i=0 ; i<changeTimes.length ; i++) {
+                changeTimes[i] = curTime;
             }
         }
     }
@@ -96,9 +114,9 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      * @return time since last state change is ms.
      */
     public int getAnimationTime(StateKey stateKey) {
-        State state = getState(stateKey);
-        if(state != null) {
-            return (int)Math.min(Integer.MAX_VALUE, getCurrentTime() - state.lastChangedTime);
+        int id = stateKey.getID();
+        if(isSet(id)) {
+            return (int)Math.min(Integer.MAX_VALUE, getCurrentTime() - changeTimes[rank(id)]);
         }
         if(parent != null) {
             return parent.getAnimationTime(stateKey);
@@ -113,9 +131,13 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      * @return true if the state is set
      */
     public boolean getAnimationState(StateKey stateKey) {
-        State state = getState(stateKey);
-        if(state != null) {
-            return state.active;
+        int id = stateKey.getID();
+        int word = (id >> 6) * WORDS_PER_BLOCK;
+        if(word < bits.length) {
+            long mask = 1L << id;
+            if((bits[word + WORD_SET] & mask) != 0) {
+                return (bits[word + WORD_ACTIVE] & mask) != 0;
+            }
         }
         if(parent != null) {
             return parent.getAnimationState(stateKey);
@@ -132,9 +154,13 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      * @return true if single shot animations should run or not.
      */
     public boolean getShouldAnimateState(StateKey stateKey) {
-        State state = getState(stateKey);
-        if(state != null) {
-            return state.shouldAnimate;
+        int id = stateKey.getID();
+        int word = (id >> 6) * WORDS_PER_BLOCK;
+        if(word < bits.length) {
+            long mask = 1L << id;
+            if((bits[word + WORD_SET] & mask) != 0) {
+                return (bits[word + WORD_ANIMATE] & mask) != 0;
+            }
         }
         if(parent != null) {
             return parent.getShouldAnimateState(stateKey);
@@ -166,11 +192,15 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      * @see #resetAnimationTime(de.matthiasmann.twl.renderer.AnimationState.StateKey)
      */
     public void setAnimationState(StateKey stateKey, boolean active) {
-        State state = getOrCreate(stateKey);
-        if(state.active != active) {
-            state.active = active;
-            state.lastChangedTime = getCurrentTime();
-            state.shouldAnimate = true;
+        int id = stateKey.getID();
+        int word = getOrCreate(id);
+        long mask = 1L << id;
+        if(((bits[word + WORD_ACTIVE] & mask) != 0) != active) {
+            bits[word + WORD_ACTIVE] ^= mask;
+            modCount++;
+            bits[word + WORD_ANIMATE] |= mask;
+            changeTimes[rank(id)] = getCurrentTime();
+            requestRepaint();
         }
     }
 
@@ -196,9 +226,11 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      * @see #getShouldAnimateState(de.matthiasmann.twl.renderer.AnimationState.StateKey) 
      */
     public void resetAnimationTime(StateKey stateKey) {
-        State state = getOrCreate(stateKey);
-        state.lastChangedTime = getCurrentTime();
-        state.shouldAnimate = true;
+        int id = stateKey.getID();
+        int word = getOrCreate(id);
+        bits[word + WORD_ANIMATE] |= 1L << id;
+        changeTimes[rank(id)] = getCurrentTime();
+        requestRepaint();
     }
 
     /**
@@ -221,50 +253,139 @@ public class AnimationState implements de.matthiasmann.twl.renderer.AnimationSta
      * @see #getShouldAnimateState(de.matthiasmann.twl.renderer.AnimationState.StateKey)
      */
     public void dontAnimate(StateKey stateKey) {
-        State state = getState(stateKey);
-        if(state != null) {
-            state.shouldAnimate = false;
+        int id = stateKey.getID();
+        int word = (id >> 6) * WORDS_PER_BLOCK;
+        if(word < bits.length) {
+            bits[word + WORD_ANIMATE] &= ~(1L << id);
         }
     }
 
-    private State getState(StateKey stateKey) {
-        int id = stateKey.getID();
-        if(id < stateTable.length) {
-            return stateTable[id];
+    /**
+     * Returns a counter which changes every time an active state of this
+     * animation state or one of it's parents changes.
+     * 
+     * @return the modification counter
+     */
+    public int getModificationCount() {
+        int count = modCount;
+        for(AnimationState p=parent ; p!=null ; p=p.parent) {
+            count += p.modCount;
         }
-        return null;
+        return count;
     }
 
-    private State getOrCreate(StateKey stateKey) {
-        int id = stateKey.getID();
-        if(id < stateTable.length) {
-            State state = stateTable[id];
-            if(state != null) {
-                return state;
+    /**
+     * Evaluates the StateSelect for this animation state. The results of the
+     * last few StateSelect objects are cached until a state changes.
+     * 
+     * @param select the StateSelect to evaluate
+     * @return the index of the first matching expression
+     * @see StateSelect#evaluate(de.matthiasmann.twl.renderer.AnimationState) 
+     * @see #getModificationCount() 
+     */
+    public int evaluate(StateSelect select) {
+        final int count = getModificationCount();
+        StateSelect[] cache = selectCache;
+        if(cache == null) {
+            cache = new StateSelect[SELECT_CACHE_SIZE];
+            selectCache = cache;
+            selectCacheValues = new long[SELECT_CACHE_SIZE];
+        }
+        int slot = 0;
+        while(slot < SELECT_CACHE_SIZE && cache[slot] != select) {
+            slot++;
+        }
+        if(slot < SELECT_CACHE_SIZE) {
+            long value = selectCacheValues[slot];
+            if((int)(value >>> 32) == count) {
+                return (int)value;
             }
+        } else {
+            slot = selectCacheNext;
+            selectCacheNext = (slot + 1) & (SELECT_CACHE_SIZE - 1);
+            cache[slot] = select;
+        }
+        int result = select.evaluateUncached(this);
+        selectCacheValues[slot] = ((long)count << 32) | (result & 0xFFFFFFFFL);
+        return result;
+    }
+
+    /**
+     * Requests a repaint of the widget which owns this animation state.
+     * This is called automatically when a state changes and should be
+     * called by images while their animation is running.
+     * 
+     * @see Widget#repaint() 
+     */
+    public void requestRepaint() {
+        if(owner != null) {
+            owner.repaint();
         }
-        return createState(id);
     }
 
-    private State createState(int id) {
-        if(id >= stateTable.length) {
-            State[] newTable = new State[id+1];
-            System.arraycopy(stateTable, 0, newTable, 0, stateTable.length);
-            stateTable = newTable;
+    void setOwner(Widget owner) {
+        this.owner = owner;
+    }
+
+    private boolean isSet(int id) {
+        int word = (id >> 6) * WORDS_PER_BLOCK;
+        return word < bits.length && (bits[word + WORD_SET] & (1L << id)) != 0;
+    }
+
+    /**
+     * Computes the index of the state in the changeTimes array.
+     * @param id the state key ID of a set state
+     * @return the number of set states with a lower ID
+     */
+    private int rank(int id) {
+        int word = (id >> 6) * WORDS_PER_BLOCK;
+        int r = Long.bitCount(bits[word + WORD_SET] & ((1L << id) - 1));
+        for(int w=0 ; w<word ; w+=WORDS_PER_BLOCK) {
+            r += Long.bitCount(bits[w + WORD_SET]);
         }
-        State state = new State();
-        state.lastChangedTime = getCurrentTime();
-        stateTable[id] = state;
-        return state;
+        return r;
+    }
+    
+    /**
+     * Marks the state as set. A new state gets the current time as change time.
+     * @param id the state key ID
+     * @return the index of the first word of the state's block
+     */
+    private int getOrCreate(int id) {
+        int word = (id >> 6) * WORDS_PER_BLOCK;
+        if(word >= bits.length) {
+            long[] newBits = new long[word + WORDS_PER_BLOCK];
+            System.arraycopy(bits, 0, newBits, 0, bits.length);
+            bits = newBits;
+        }
+        long mask = 1L << id;
+        if((bits[word + WORD_SET] & mask) == 0) {
+            int numSet = 0;
+            for(int w=0 ; w<bits.length ; w+=WORDS_PER_BLOCK) {
+                numSet += Long.bitCount(bits[w + WORD_SET]);
+            }
+            int idx = rank(id);
+            long[] times = changeTimes;
+            if(times == null || numSet == times.length) {
+                // grow in small steps - only a few states are set per widget
+                times = new long[(numSet + 4) & ~3];
+                if(changeTimes != null) {
+                    System.arraycopy(changeTimes, 0, times, 0, idx);
+                }
+            }
+            if(changeTimes != null) {
+                System.arraycopy(changeTimes, idx, times, idx+1, numSet-idx);
+            }
+            changeTimes = times;
+            bits[word + WORD_SET] |= mask;
+            changeTimes[idx] = getCurrentTime();
+            // the state now hides the parent's state
+            modCount++;
+        }
+        return word;
     }
 
     private long getCurrentTime() {
         return (gui != null) ? gui.curTime : 0;
     }
-
-    static final class State {
-        long lastChangedTime;
-        boolean active;
-        boolean shouldAnimate;
-    }
 }
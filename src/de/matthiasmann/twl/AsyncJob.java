@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A job started by {@link GUI#invokeAsync(java.util.concurrent.Callable, de.matthiasmann.twl.GUI.AsyncCompletionListener) }.
+ * 
+ * <p>Once the job has completed the listener is executed on the GUI thread.
+ * When the job is canceled - even after it has completed but before the
+ * listener was executed - then the listener is not executed.</p>
+ * 
+ * @param <V> the result type of the job
+ * @author Matthias Mann
+ */
+final class AsyncJob<V> extends FutureTask<V> {
+
+    final GUI gui;
+    final Object key;
+    private final GUI.AsyncCompletionListener<V> listener;
+    private final AtomicBoolean started;
+    private volatile boolean discarded;
+    private volatile boolean fired;
+
+    AsyncJob(GUI gui, Callable<V> job, GUI.AsyncCompletionListener<V> listener, Object key) {
+        super(job);
+        this.gui = gui;
+        this.key = key;
+        this.listener = listener;
+        this.started = new AtomicBoolean();
+    }
+
+    @Override
+    public void run() {
+        if(started.compareAndSet(false, true)) {
+            gui.numQueuedAsyncJobs.decrementAndGet();
+        }
+        gui.numRunningAsyncJobs.incrementAndGet();
+        try {
+            super.run();
+        } finally {
+            gui.numRunningAsyncJobs.decrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if(!discarded) {
+            discarded = true;
+            if(isDone() && !isCancelled() && !fired) {
+                // completed but the listener has not yet been executed
+                gui.numDiscardedAsyncJobs.incrementAndGet();
+            }
+        }
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    protected void done() {
+        if(started.compareAndSet(false, true)) {
+            gui.numQueuedAsyncJobs.decrementAndGet();
+        }
+        gui.asyncJobDone(this);
+        if(isCancelled()) {
+            gui.numDiscardedAsyncJobs.incrementAndGet();
+        } else {
+            gui.invokeLater(new Runnable() {
+                public void run() {
+                    fireCompleted();
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks if the listener has been executed or the job was canceled.
+     * @return true if nothing is pending for this job
+     */
+    boolean isFinished() {
+        return fired || discarded || isCancelled();
+    }
+
+    void fireCompleted() {
+        if(discarded) {
+            return;
+        }
+        fired = true;
+        V result;
+        try {
+            result = get();
+        } catch(CancellationException ex) {
+            return;
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch(ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof Exception) {
+                listener.failed((Exception)cause);
+            } else {
+                Logger.getLogger(AsyncJob.class.getName()).log(Level.SEVERE, "Error in async job", cause);
+            }
+            return;
+        }
+        listener.completed(result);
+    }
+}
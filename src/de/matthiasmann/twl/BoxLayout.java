@@ -144,7 +144,7 @@ public class BoxLayout extends Widget {
         final int n = container.getNumChildren();
         int minWidth = Math.max(0, n-1) * spacing;
         for(int i=0 ; i<n ; i++) {
-            minWidth += container.getChild(i).getMinWidth();
+            minWidth += container.getChild(i).getCachedMinWidth();
         }
         return minWidth;
     }
@@ -153,7 +153,7 @@ public class BoxLayout extends Widget {
         final int n = container.getNumChildren();
         int minHeight = 0;
         for(int i=0 ; i<n ; i++) {
-            minHeight = Math.max(minHeight, container.getChild(i).getMinHeight());
+            minHeight = Math.max(minHeight, container.getChild(i).getCachedMinHeight());
         }
         return minHeight;
     }
@@ -180,7 +180,7 @@ public class BoxLayout extends Widget {
         final int n = container.getNumChildren();
         int minWidth = 0;
         for(int i=0 ; i<n ; i++) {
-            minWidth = Math.max(minWidth, container.getChild(i).getMinWidth());
+            minWidth = Math.max(minWidth, container.getChild(i).getCachedMinWidth());
         }
         return minWidth;
     }
@@ -189,7 +189,7 @@ public class BoxLayout extends Widget {
         final int n = container.getNumChildren();
         int minHeight = Math.max(0, n-1) * spacing;
         for(int i=0 ; i<n ; i++) {
-            minHeight += container.getChild(i).getMinHeight();
+            minHeight += container.getChild(i).getCachedMinHeight();
         }
         return minHeight;
     }
@@ -276,11 +276,11 @@ public class BoxLayout extends Widget {
     }
 
     private static int getPrefChildWidth(Widget child) {
-        return computeSize(child.getMinWidth(), child.getPreferredWidth(), child.getMaxWidth());
+        return computeSize(child.getCachedMinWidth(), child.getCachedPreferredWidth(), child.getCachedMaxWidth());
     }
 
     private static int getPrefChildHeight(Widget child) {
-        return computeSize(child.getMinHeight(), child.getPreferredHeight(), child.getMaxHeight());
+        return computeSize(child.getCachedMinHeight(), child.getCachedPreferredHeight(), child.getCachedMaxHeight());
     }
 
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+/**
+ * Accumulates the screen areas which need to be repainted.
+ * 
+ * <p>The region is stored as a small list of rectangles. Overlapping
+ * rectangles are merged. When the list is full the two rectangles whose
+ * union adds the least area are merged.</p>
+ * 
+ * @author Matthias Mann
+ */
+final class DamageRegion {
+
+    static final int MAX_RECTS = 8;
+    
+    // x0, y0, x1, y1 per rectangle
+    private final int[] rects;
+    private int numRects;
+
+    DamageRegion() {
+        this.rects = new int[(MAX_RECTS+1) * 4];
+    }
+
+    boolean isEmpty() {
+        return numRects == 0;
+    }
+    
+    int getNumRects() {
+        return numRects;
+    }
+    
+    int getX(int idx) {
+        return rects[idx*4];
+    }
+    
+    int getY(int idx) {
+        return rects[idx*4+1];
+    }
+    
+    int getWidth(int idx) {
+        return rects[idx*4+2] - rects[idx*4];
+    }
+    
+    int getHeight(int idx) {
+        return rects[idx*4+3] - rects[idx*4+1];
+    }
+    
+    int getArea() {
+        int area = 0;
+        for(int i=0 ; i<numRects ; i++) {
+            area += getWidth(i) * getHeight(i);
+        }
+        return area;
+    }
+
+    void clear() {
+        numRects = 0;
+    }
+    
+    void set(DamageRegion src) {
+        System.arraycopy(src.rects, 0, rects, 0, src.numRects*4);
+        numRects = src.numRects;
+    }
+    
+    void add(int x, int y, int width, int height) {
+        if(width <= 0 || height <= 0) {
+            return;
+        }
+        int x0 = x;
+        int y0 = y;
+        int x1 = x + width;
+        int y1 = y + height;
+        
+        for(int i=0 ; i<numRects ;) {
+            final int off = i*4;
+            if(x0 <= rects[off+2] && y0 <= rects[off+3] &&
+                    x1 >= rects[off] && y1 >= rects[off+1]) {
+                if(x0 >= rects[off] && y0 >= rects[off+1] &&
+                        x1 <= rects[off+2] && y1 <= rects[off+3]) {
+                    return; // already covered
+                }
+                // merge with the touching rectangle and check again
+                x0 = Math.min(x0, rects[off]);
+                y0 = Math.min(y0, rects[off+1]);
+                x1 = Math.max(x1, rects[off+2]);
+                y1 = Math.max(y1, rects[off+3]);
+                remove(i);
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        
+        int off = numRects++ * 4;
+        rects[off  ] = x0;
+        rects[off+1] = y0;
+        rects[off+2] = x1;
+        rects[off+3] = y1;
+        
+        if(numRects > MAX_RECTS) {
+            mergeCheapest();
+        }
+    }
+    
+    void clip(int x0, int y0, int x1, int y1) {
+        for(int i=numRects ; i-->0 ;) {
+            final int off = i*4;
+            rects[off  ] = Math.max(rects[off  ], x0);
+            rects[off+1] = Math.max(rects[off+1], y0);
+            rects[off+2] = Math.min(rects[off+2], x1);
+            rects[off+3] = Math.min(rects[off+3], y1);
+            if(rects[off] >= rects[off+2] || rects[off+1] >= rects[off+3]) {
+                remove(i);
+            }
+        }
+    }
+    
+    boolean intersects(int idx, int x0, int y0, int x1, int y1) {
+        final int off = idx*4;
+        return x0 < rects[off+2] && y0 < rects[off+3] &&
+                x1 > rects[off] && y1 > rects[off+1];
+    }
+    
+    private void remove(int idx) {
+        int last = --numRects;
+        System.arraycopy(rects, last*4, rects, idx*4, 4);
+    }
+    
+    private void mergeCheapest() {
+        int bestA = 0;
+        int bestB = 1;
+        long bestCost = Long.MAX_VALUE;
+        for(int a=0 ; a<numRects ; a++) {
+            for(int b=a+1 ; b<numRects ; b++) {
+                long cost = unionArea(a, b) - area(a) - area(b);
+                if(cost < bestCost) {
+                    bestCost = cost;
+                    bestA = a;
+                    bestB = b;
+                }
+            }
+        }
+        int offA = bestA*4;
+        int offB = bestB*4;
+        int x0 = Math.min(rects[offA  ], rects[offB  ]);
+        int y0 = Math.min(rects[offA+1], rects[offB+1]);
+        int x1 = Math.max(rects[offA+2], rects[offB+2]);
+        int y1 = Math.max(rects[offA+3], rects[offB+3]);
+        remove(bestB);
+        remove(bestA);
+        add(x0, y0, x1-x0, y1-y0);
+    }
+    
+    private long area(int idx) {
+        return (long)getWidth(idx) * getHeight(idx);
+    }
+    
+    private long unionArea(int a, int b) {
+        int offA = a*4;
+        int offB = b*4;
+        long w = Math.max(rects[offA+2], rects[offB+2]) - Math.min(rects[offA], rects[offB]);
+        long h = Math.max(rects[offA+3], rects[offB+3]) - Math.min(rects[offA+1], rects[offB+1]);
+        return w * h;
+    }
+}
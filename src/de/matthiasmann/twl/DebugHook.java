@@ -139,6 +139,19 @@ public class DebugHook {
         }
     }
 
+    /**
+     * Called after {@link #guiLayoutValidated(int, java.util.Collection) } with
+     * statistics about the layout pass. Only subtrees which contain an invalid
+     * layout are visited, so the cost of a pass depends on what has changed.
+     * 
+     * @param iterations the number of iterations required to solve layout
+     * @param numLayouts the number of {@link Widget#layout() } calls
+     * @param numVisits the number of visited widgets
+     * @param nanos the time spent in the layout pass in nanoseconds
+     */
+    public void guiLayoutStatistics(int iterations, int numLayouts, int numVisits, long nanos) {
+    }
+
     /**
      * Called when wildcard resolution failed to find a theme and the fallback theme was specified
      * @param themePath the requested theme name
@@ -122,6 +122,12 @@ public class DialogLayout extends Widget {
     protected boolean isPrepared;
     protected boolean blockInvalidateLayoutTree;
     protected boolean warnOnIncomplete;
+    
+    /**
+     * Incremented when the group structure or gap sizes have changed.
+     * Invalidates the cached sizes of all groups.
+     */
+    int structureSerial;
 
     private Group horz;
     private Group vert;
@@ -316,6 +322,7 @@ public class DialogLayout extends Widget {
             setLargeGap(themeInfo.getParameterValue("largeGap", true, Dimension.class, Dimension.ZERO));
             setDefaultGap(themeInfo.getParameterValue("defaultGap", true, Dimension.class, Dimension.ZERO));
             namedGaps = themeInfo.getParameterMap("namedGaps");
+            structureSerial++;
         } finally {
             blockInvalidateLayoutTree = false;
         }
@@ -404,6 +411,7 @@ public class DialogLayout extends Widget {
             }
             redoDefaultGaps = false;
             isPrepared = false;
+            structureSerial++;
         }
         if(!isPrepared) {
             for(WidgetSpring s : widgetSprings.values()) {
@@ -587,6 +595,7 @@ public class DialogLayout extends Widget {
     }
     
     protected void maybeInvalidateLayoutTree() {
+        structureSerial++;
         if(horz != null && vert != null && !blockInvalidateLayoutTree) {
             invalidateLayout();
         }
@@ -672,10 +681,12 @@ public class DialogLayout extends Widget {
         int prefWidth;
         int prefHeight;
         int flags;
+        final ArrayList<Group> groups;
 
         WidgetSpring(Widget w) {
             this.w = w;
             this.alignment = Alignment.FILL;
+            this.groups = new ArrayList<Group>(2);
         }
 
         void prepare() {
@@ -683,12 +694,25 @@ public class DialogLayout extends Widget {
             this.y = w.getY();
             this.width = w.getWidth();
             this.height = w.getHeight();
-            this.minWidth = w.getMinWidth();
-            this.minHeight = w.getMinHeight();
-            this.maxWidth = w.getMaxWidth();
-            this.maxHeight = w.getMaxHeight();
-            this.prefWidth = computeSize(minWidth, w.getPreferredWidth(), maxWidth);
-            this.prefHeight = computeSize(minHeight, w.getPreferredHeight(), maxHeight);
+            int newMinWidth = w.getCachedMinWidth();
+            int newMinHeight = w.getCachedMinHeight();
+            int newMaxWidth = w.getCachedMaxWidth();
+            int newMaxHeight = w.getCachedMaxHeight();
+            int newPrefWidth = computeSize(newMinWidth, w.getCachedPreferredWidth(), newMaxWidth);
+            int newPrefHeight = computeSize(newMinHeight, w.getCachedPreferredHeight(), newMaxHeight);
+            if(minWidth != newMinWidth || minHeight != newMinHeight ||
+                    maxWidth != newMaxWidth || maxHeight != newMaxHeight ||
+                    prefWidth != newPrefWidth || prefHeight != newPrefHeight) {
+                this.minWidth = newMinWidth;
+                this.minHeight = newMinHeight;
+                this.maxWidth = newMaxWidth;
+                this.maxHeight = newMaxHeight;
+                this.prefWidth = newPrefWidth;
+                this.prefHeight = newPrefHeight;
+                for(int i=0,n=groups.size() ; i<n ; i++) {
+                    groups.get(i).invalidateCache();
+                }
+            }
             this.flags = 0;
         }
 
@@ -879,6 +903,69 @@ public class DialogLayout extends Widget {
     public abstract class Group extends Spring {
         final ArrayList<Spring> springs = new ArrayList<Spring>();
         boolean alreadyAdded;
+        Group parent;
+        
+        private static final int CACHE_MIN  = 0;
+        private static final int CACHE_PREF = 1;
+        private static final int CACHE_MAX  = 2;
+        
+        private final int[] sizeCache = new int[6];
+        int cacheValid;
+        private int cacheSerial;
+        
+        abstract int computeMinSize(int axis);
+        abstract int computePrefSize(int axis);
+        abstract int computeMaxSize(int axis);
+
+        @Override
+        final int getMinSize(int axis) {
+            return getCachedSize(axis, CACHE_MIN);
+        }
+
+        @Override
+        final int getPrefSize(int axis) {
+            return getCachedSize(axis, CACHE_PREF);
+        }
+
+        @Override
+        final int getMaxSize(int axis) {
+            return getCachedSize(axis, CACHE_MAX);
+        }
+        
+        private int getCachedSize(int axis, int what) {
+            checkCacheSerial();
+            final int idx = axis*3 + what;
+            final int mask = 1 << idx;
+            if((cacheValid & mask) == 0) {
+                int size;
+                switch(what) {
+                case CACHE_MIN:  size = computeMinSize(axis); break;
+                case CACHE_PREF: size = computePrefSize(axis); break;
+                default:         size = computeMaxSize(axis); break;
+                }
+                sizeCache[idx] = size;
+                cacheValid |= mask;
+            }
+            return sizeCache[idx];
+        }
+        
+        final void checkCacheSerial() {
+            if(cacheSerial != structureSerial) {
+                cacheSerial = structureSerial;
+                cacheValid = 0;
+            }
+        }
+        
+        /**
+         * Invalidates the cached sizes of this group and all it's parents.
+         * Stops at the first group which has nothing cached as all it's
+         * parents can't have cached sizes based on it either.
+         */
+        final void invalidateCache() {
+            for(Group g=this ; g!=null && g.cacheValid!=0 ; g=g.parent) {
+                g.cacheValid = 0;
+            }
+        }
 
         void checkGroup(DialogLayout owner) {
             if(DialogLayout.this != owner) {
@@ -900,6 +987,7 @@ public class DialogLayout extends Widget {
         public Group addGroup(Group g) {
             g.checkGroup(DialogLayout.this);
             g.alreadyAdded = true;
+            g.parent = this;
             addSpring(g);
             return this;
         }
@@ -1118,6 +1206,7 @@ public class DialogLayout extends Widget {
             for(int i=0 ; i<springs.size() ; i++) {
                 if(springs.get(i) == g) {
                     springs.remove(i);
+                    g.parent = null;
                     if(removeWidgets) {
                         g.removeWidgets();
                         DialogLayout.this.recheckWidgets();
@@ -1139,6 +1228,14 @@ public class DialogLayout extends Widget {
             if(removeWidgets) {
                 removeWidgets();
             }
+            for(int i=0,n=springs.size() ; i<n ; i++) {
+                Spring s = springs.get(i);
+                if(s instanceof WidgetSpring) {
+                    ((WidgetSpring)s).groups.remove(this);
+                } else if(s instanceof Group) {
+                    ((Group)s).parent = null;
+                }
+            }
             springs.clear();
             if(removeWidgets) {
                 DialogLayout.this.recheckWidgets();
@@ -1148,6 +1245,9 @@ public class DialogLayout extends Widget {
 
         void addSpring(Spring s) {
             springs.add(s);
+            if(s instanceof WidgetSpring) {
+                ((WidgetSpring)s).groups.add(this);
+            }
             DialogLayout.this.layoutGroupsChanged();
         }
 
@@ -1157,6 +1257,7 @@ public class DialogLayout extends Widget {
                 if(s instanceof WidgetSpring) {
                     if(!widgetSprings.containsKey(((WidgetSpring)s).w)) {
                         springs.remove(i);
+                        ((WidgetSpring)s).groups.remove(this);
                     }
                 } else if(s instanceof Group) {
                     ((Group)s).recheckWidgets();
@@ -1191,11 +1292,15 @@ public class DialogLayout extends Widget {
     }
 
     class SequentialGroup extends Group {
+        private static final int CACHE_DELTAS = 6;
+        
+        private final SpringDelta[][] deltaCache = new SpringDelta[4][];
+        
         SequentialGroup() {
         }
 
         @Override
-        int getMinSize(int axis) {
+        int computeMinSize(int axis) {
             int size = 0;
             for(int i=0,n=springs.size() ; i<n ; i++) {
                 Spring s = springs.get(i);
@@ -1207,7 +1312,7 @@ public class DialogLayout extends Widget {
         }
 
         @Override
-        int getPrefSize(int axis) {
+        int computePrefSize(int axis) {
             int size = 0;
             for(int i=0,n=springs.size() ; i<n ; i++) {
                 Spring s = springs.get(i);
@@ -1219,7 +1324,7 @@ public class DialogLayout extends Widget {
         }
 
         @Override
-        int getMaxSize(int axis) {
+        int computeMaxSize(int axis) {
             int size = 0;
             boolean hasMax = false;
             for(int i=0,n=springs.size() ; i<n ; i++) {
@@ -1285,23 +1390,9 @@ public class DialogLayout extends Widget {
                 delta = -delta;
             }
 
-            SpringDelta[] deltas = new SpringDelta[springs.size()];
-            int resizeable = 0;
-            for(int i=0 ; i<springs.size() ; i++) {
-                Spring s = springs.get(i);
-                if(includeInvisibleWidgets || s.isVisible()) {
-                    int sdelta = useMin
-                            ? s.getPrefSize(axis) - s.getMinSize(axis)
-                            : s.getMaxSize(axis) - s.getPrefSize(axis);
-                    if(sdelta > 0)  {
-                        deltas[resizeable++] = new SpringDelta(i, sdelta);
-                    }
-                }
-            }
+            SpringDelta[] deltas = getSortedDeltas(axis, useMin);
+            int resizeable = deltas.length;
             if(resizeable > 0) {
-                if(resizeable > 1) {
-                    Arrays.sort(deltas, 0, resizeable);
-                }
                 
                 int sizes[] = new int[springs.size()];
 
@@ -1346,6 +1437,43 @@ public class DialogLayout extends Widget {
                 }
             }
         }
+        
+        /**
+         * Returns the resizeable springs sorted by the amount they can shrink
+         * or grow. The result is cached until the sizes of this group change.
+         */
+        private SpringDelta[] getSortedDeltas(int axis, boolean useMin) {
+            checkCacheSerial();
+            final int idx = axis*2 + (useMin ? 1 : 0);
+            final int mask = 1 << (CACHE_DELTAS + idx);
+            if((cacheValid & mask) != 0) {
+                return deltaCache[idx];
+            }
+            SpringDelta[] deltas = new SpringDelta[springs.size()];
+            int resizeable = 0;
+            for(int i=0 ; i<springs.size() ; i++) {
+                Spring s = springs.get(i);
+                if(includeInvisibleWidgets || s.isVisible()) {
+                    int sdelta = useMin
+                            ? s.getPrefSize(axis) - s.getMinSize(axis)
+                            : s.getMaxSize(axis) - s.getPrefSize(axis);
+                    if(sdelta > 0)  {
+                        deltas[resizeable++] = new SpringDelta(i, sdelta);
+                    }
+                }
+            }
+            if(resizeable > 1) {
+                Arrays.sort(deltas, 0, resizeable);
+            }
+            if(resizeable < deltas.length) {
+                SpringDelta[] tmp = new SpringDelta[resizeable];
+                System.arraycopy(deltas, 0, tmp, 0, resizeable);
+                deltas = tmp;
+            }
+            deltaCache[idx] = deltas;
+            cacheValid |= mask;
+            return deltas;
+        }
     }
 
     class ParallelGroup extends Group {
@@ -1353,7 +1481,7 @@ public class DialogLayout extends Widget {
         }
 
         @Override
-        int getMinSize(int axis) {
+        int computeMinSize(int axis) {
             int size = 0;
             for(int i=0,n=springs.size() ; i<n ; i++) {
                 Spring s = springs.get(i);
@@ -1365,7 +1493,7 @@ public class DialogLayout extends Widget {
         }
 
         @Override
-        int getPrefSize(int axis) {
+        int computePrefSize(int axis) {
             int size = 0;
             for(int i=0,n=springs.size() ; i<n ; i++) {
                 Spring s = springs.get(i);
@@ -1377,7 +1505,7 @@ public class DialogLayout extends Widget {
         }
 
         @Override
-        int getMaxSize(int axis) {
+        int computeMaxSize(int axis) {
             int size = 0;
             for(int i=0,n=springs.size() ; i<n ; i++) {
                 Spring s = springs.get(i);
@@ -220,8 +220,12 @@ public class EditFieldAutoCompletionWindow extends InfoWindow {
                 }
                 if(result == null) {
                     if(gui != null && (useInvokeAsync || executorService != null)) {
-                        future = (useInvokeAsync ? gui.executorService : executorService).submit(
-                                (Callable<AutoCompletionResult>)new AsyncQuery(gui, dataSource, text, cursorPos, listModel.result));
+                        AsyncQuery query = new AsyncQuery(gui, dataSource, text, cursorPos, listModel.result);
+                        if(useInvokeAsync) {
+                            future = gui.executeAsync(query);
+                        } else {
+                            future = executorService.submit((Callable<AutoCompletionResult>)query);
+                        }
                     } else {
                         try {
                             result = dataSource.collectSuggestions(text, cursorPos, listModel.result);
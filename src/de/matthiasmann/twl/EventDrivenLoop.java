@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+/**
+ * A main loop which only renders the GUI when something has changed and
+ * sleeps until the next timer, animation or input event otherwise.
+ * 
+ * <p>Example using LWJGL:</p><pre>
+ * new EventDrivenLoop(gui, new EventDrivenLoop.Host() {
+ *     public boolean isCloseRequested() {
+ *         return Display.isCloseRequested();
+ *     }
+ *     public void presentFrame() {
+ *         Display.update();
+ *     }
+ *     public void processMessages() {
+ *         Display.processMessages();
+ *     }
+ * }).run();
+ * </pre>
+ * 
+ * @author Matthias Mann
+ * @see GUI#updateIfNeeded() 
+ * @see GUI#waitForWakeup(int) 
+ */
+public class EventDrivenLoop {
+
+    /**
+     * The interface to the window system
+     */
+    public interface Host {
+        /**
+         * Checks if the loop should exit
+         * @return true if the loop should exit
+         */
+        public boolean isCloseRequested();
+
+        /**
+         * Displays the frame which has just been rendered (eg swap buffers)
+         */
+        public void presentFrame();
+
+        /**
+         * Processes OS messages without displaying a new frame. This is
+         * called when no frame was rendered to keep the input flowing.
+         */
+        public void processMessages();
+    }
+    
+    private final GUI gui;
+    private final Host host;
+    private int maxSleepTime = 16;
+    private volatile boolean running;
+    private int numFramesRendered;
+    private int numFramesSkipped;
+
+    /**
+     * Creates a new loop for the given GUI
+     * 
+     * @param gui the GUI instance
+     * @param host the window system interface
+     * @throws NullPointerException when gui or host is null
+     */
+    public EventDrivenLoop(GUI gui, Host host) {
+        if(gui == null) {
+            throw new NullPointerException("gui");
+        }
+        if(host == null) {
+            throw new NullPointerException("host");
+        }
+        this.gui = gui;
+        this.host = host;
+    }
+
+    public GUI getGUI() {
+        return gui;
+    }
+
+    public int getMaxSleepTime() {
+        return maxSleepTime;
+    }
+
+    /**
+     * Sets the maximum time the loop sleeps before polling input again.
+     * This limits the latency of polled input. The default is 16 ms.
+     * 
+     * @param maxSleepTime the maximum sleep time in ms
+     * @throws IllegalArgumentException if maxSleepTime < 1
+     */
+    public void setMaxSleepTime(int maxSleepTime) {
+        if(maxSleepTime < 1) {
+            throw new IllegalArgumentException("maxSleepTime < 1");
+        }
+        this.maxSleepTime = maxSleepTime;
+    }
+
+    /**
+     * Returns the number of frames which have been rendered.
+     * @return the number of frames which have been rendered
+     */
+    public int getNumFramesRendered() {
+        return numFramesRendered;
+    }
+
+    /**
+     * Returns the number of iterations where rendering was skipped because
+     * nothing has changed.
+     * @return the number of skipped frames
+     */
+    public int getNumFramesSkipped() {
+        return numFramesSkipped;
+    }
+
+    /**
+     * Runs the loop until {@link Host#isCloseRequested() } returns true or
+     * {@link #stop() } is called.
+     */
+    public void run() {
+        running = true;
+        while(running && !host.isCloseRequested()) {
+            runOnce();
+            gui.waitForWakeup(maxSleepTime);
+        }
+    }
+
+    /**
+     * Performs one iteration of the loop without waiting.
+     * 
+     * @return true if a frame was rendered
+     */
+    public boolean runOnce() {
+        if(gui.updateIfNeeded()) {
+            numFramesRendered++;
+            host.presentFrame();
+            return true;
+        } else {
+            numFramesSkipped++;
+            host.processMessages();
+            return false;
+        }
+    }
+
+    /**
+     * Requests the loop to exit. This method is thread safe.
+     */
+    public void stop() {
+        running = false;
+        gui.wakeup();
+    }
+}
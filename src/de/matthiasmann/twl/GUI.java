@@ -33,12 +33,18 @@ import de.matthiasmann.twl.input.Input;
 import de.matthiasmann.twl.renderer.AnimationState.StateKey;
 import de.matthiasmann.twl.renderer.MouseCursor;
 import de.matthiasmann.twl.renderer.Renderer;
+import de.matthiasmann.twl.renderer.SupportsClipRect;
+import de.matthiasmann.twl.renderer.SupportsPartialRepaint;
 import de.matthiasmann.twl.theme.ThemeManager;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -56,6 +62,20 @@ public final class GUI extends Widget {
         public void mouseExitIdle();
     }
 
+    /**
+     * The priority lanes for {@link #invokeLater(java.lang.Runnable, de.matthiasmann.twl.GUI.InvokePriority) }.
+     * All runnables of a higher priority lane are executed before those of
+     * a lower priority lane. Within a lane runnables are executed in FIFO order.
+     */
+    public enum InvokePriority {
+        /** For input related work which should not be delayed */
+        HIGH,
+        /** The priority used by {@link GUI#invokeLater(java.lang.Runnable) } */
+        NORMAL,
+        /** For bulk work like loading results from background threads */
+        LOW
+    }
+
     /**
      * A completion listener for async jobs. It is invoked via
      * {@link #invokeLater(java.lang.Runnable) }
@@ -123,6 +143,15 @@ public final class GUI extends Widget {
     
     private Widget rootPane;
     boolean hasInvalidLayouts;
+    int numLayouts;
+    int numLayoutVisits;
+    int numSizeCacheHits;
+    int numSizeCacheMisses;
+    int layoutPassSerial;
+    int sizeCacheFillSerial;
+    int positionEpoch;
+    boolean inLayoutPass;
+    WidgetProfiler profiler;
 
     final Event event;
     private boolean wasInside;
@@ -161,13 +190,38 @@ public final class GUI extends Widget {
     private boolean hadOpenTooltip;
     private long tooltipClosedTime;
     
-    final ArrayList<Timer> activeTimers;
-    final ExecutorService executorService;
+    final TimerWheel timerWheel;
+    private final Executor defaultAsyncExecutor;
+    private volatile Executor asyncExecutor;
+    private final ConcurrentHashMap<Object, AsyncJob<?>> keyedAsyncJobs;
+    final AtomicInteger numQueuedAsyncJobs;
+    final AtomicInteger numRunningAsyncJobs;
+    final AtomicInteger numDiscardedAsyncJobs;
+    
+    private final InvokeQueue[] invokeQueues;
+    private int invokeTimeBudget;
+    private int numInvokedRunnables;
+    private long totalInvokeLatency;
+    private long maxInvokeLatency;
+    
+    private final Object wakeupLock;
+    private volatile boolean waitingForWakeup;
+    private boolean wakeupRequested;
     
-    private final Object invokeLock;
-    private Runnable[] invokeLaterQueue;
-    private int invokeLaterQueueSize;
-    private Runnable[] invokeRunnables;
+    private boolean redrawRequested = true;
+    
+    private boolean damageTracking;
+    private boolean repaintAll;
+    private final DamageRegion damageRegion;
+    private final DamageRegion paintRegion;
+    private int paintRectIdx = -1;
+    private int lastRepaintArea;
+    
+    private final SupportsClipRect clipQuery;
+    private final Rect cullRect;
+    private boolean clipCulling = true;
+    int numPaintedWidgets;
+    int numCulledWidgets;
     
     /**
      * Constructs a new GUI manager with the given renderer and a default root
@@ -227,11 +281,22 @@ public final class GUI extends Widget {
         this.tooltipWindow = new TooltipWindow();
         this.tooltipWindow.setVisible(false);
         
-        this.activeTimers = new ArrayList<Timer>();
-        this.executorService =  Executors.newSingleThreadExecutor(new TF());    // thread creatation is lazy
-        this.invokeLock = new Object();
-        this.invokeLaterQueue = new Runnable[16];
-        this.invokeRunnables = new Runnable[16];
+        this.timerWheel = new TimerWheel();
+        this.defaultAsyncExecutor = createDefaultAsyncExecutor();
+        this.asyncExecutor = defaultAsyncExecutor;
+        this.keyedAsyncJobs = new ConcurrentHashMap<Object, AsyncJob<?>>();
+        this.numQueuedAsyncJobs = new AtomicInteger();
+        this.numRunningAsyncJobs = new AtomicInteger();
+        this.numDiscardedAsyncJobs = new AtomicInteger();
+        this.invokeQueues = new InvokeQueue[InvokePriority.values().length];
+        for(int i=0 ; i<invokeQueues.length ; i++) {
+            invokeQueues[i] = new InvokeQueue();
+        }
+        this.wakeupLock = new Object();
+        this.damageRegion = new DamageRegion();
+        this.paintRegion = new DamageRegion();
+        this.clipQuery = (renderer instanceof SupportsClipRect) ? (SupportsClipRect)renderer : null;
+        this.cullRect = new Rect();
         
         setTheme("");
         setFocusKeyEnabled(false);
@@ -332,23 +397,159 @@ public final class GUI extends Widget {
      * @see Widget#getGUI()
      */
     public void invokeLater(Runnable runnable) {
+        invokeLater(runnable, InvokePriority.NORMAL);
+    }
+
+    /**
+     * Queues a Runnable to be executed in the GUI main loop.
+     * This method is thread safe and does not block.
+     * 
+     * @param runnable the Runnable to execute
+     * @param priority the priority lane
+     * @see #invokeRunables() 
+     */
+    public void invokeLater(Runnable runnable, InvokePriority priority) {
         if(runnable == null) {
             throw new IllegalArgumentException("runnable is null");
         }
-        synchronized(invokeLock) {
-            if(invokeLaterQueueSize == invokeLaterQueue.length) {
-                growInvokeLaterQueue();
+        if(priority == null) {
+            throw new IllegalArgumentException("priority is null");
+        }
+        invokeQueues[priority.ordinal()].add(runnable);
+        if(waitingForWakeup) {
+            synchronized(wakeupLock) {
+                wakeupLock.notifyAll();
             }
-            invokeLaterQueue[invokeLaterQueueSize++] = runnable;
         }
     }
 
+    /**
+     * Returns the number of runnables which are queued for execution.
+     * This method is thread safe.
+     * 
+     * @return the number of queued runnables
+     */
+    public int getInvokeLaterQueueSize() {
+        int size = 0;
+        for(InvokeQueue queue : invokeQueues) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    public int getInvokeTimeBudget() {
+        return invokeTimeBudget;
+    }
+
+    /**
+     * Limits the time spend in {@link #invokeRunables() } per frame. Once the
+     * budget is used up the remaining runnables are executed in the next
+     * frame. At least one runnable is executed per frame.
+     * 
+     * @param invokeTimeBudget the time budget in ms or 0 for no limit (the default)
+     * @throws IllegalArgumentException if invokeTimeBudget < 0
+     */
+    public void setInvokeTimeBudget(int invokeTimeBudget) {
+        if(invokeTimeBudget < 0) {
+            throw new IllegalArgumentException("invokeTimeBudget < 0");
+        }
+        this.invokeTimeBudget = invokeTimeBudget;
+    }
+
+    /**
+     * Returns the number of runnables executed since the last call to
+     * {@link #resetInvokeStatistics() }.
+     * 
+     * @return the number of executed runnables
+     */
+    public int getNumInvokedRunnables() {
+        return numInvokedRunnables;
+    }
+
+    /**
+     * Returns the sum of the time between queuing and executing all runnables
+     * since the last call to {@link #resetInvokeStatistics() }.
+     * 
+     * @return the total latency in ns
+     * @see #getNumInvokedRunnables() 
+     */
+    public long getTotalInvokeLatencyNanos() {
+        return totalInvokeLatency;
+    }
+
+    /**
+     * Returns the longest time between queuing and executing a runnable
+     * since the last call to {@link #resetInvokeStatistics() }.
+     * 
+     * @return the maximum latency in ns
+     */
+    public long getMaxInvokeLatencyNanos() {
+        return maxInvokeLatency;
+    }
+
+    public void resetInvokeStatistics() {
+        numInvokedRunnables = 0;
+        totalInvokeLatency = 0;
+        maxInvokeLatency = 0;
+    }
+
+    /**
+     * Returns the executor used by {@code invokeAsync}.
+     * @return the executor used by {@code invokeAsync}
+     * @see #setAsyncExecutor(java.util.concurrent.Executor) 
+     */
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Sets the executor used by {@code invokeAsync}. This can be used to
+     * bound the number of concurrent jobs or to share a thread pool.
+     * 
+     * <p>The default executor uses virtual threads when they are available
+     * (Java 21 and later), otherwise a single background thread.</p>
+     * 
+     * <p>Jobs which have already been submitted are not affected.</p>
+     * 
+     * @param asyncExecutor the executor or null to use the default executor
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = (asyncExecutor != null) ? asyncExecutor : defaultAsyncExecutor;
+    }
+
+    /**
+     * Returns the number of async jobs which have been submitted but not yet started.
+     * @return the number of queued async jobs
+     */
+    public int getNumQueuedAsyncJobs() {
+        return numQueuedAsyncJobs.get();
+    }
+
+    /**
+     * Returns the number of async jobs which are currently executing.
+     * @return the number of running async jobs
+     */
+    public int getNumRunningAsyncJobs() {
+        return numRunningAsyncJobs.get();
+    }
+
+    /**
+     * Returns the number of async jobs which have been canceled, replaced
+     * by a newer job with the same key or whose owner was removed before
+     * their completion listener was executed.
+     * 
+     * @return the total number of discarded async jobs
+     */
+    public int getNumDiscardedAsyncJobs() {
+        return numDiscardedAsyncJobs.get();
+    }
+    
     /**
      * Performs a job async in the background. After the job has completed (normally
      * or by throwing an exception) the completion listener is executed via
      * {@link #invokeLater(java.lang.Runnable) }
      *
-     * If the job is canceled before it is started then the listener is not executed.
+     * If the job is canceled then the listener is not executed.
      *
      * This method is thread safe.
      *
@@ -357,15 +558,10 @@ public final class GUI extends Widget {
      * @param listener the listener which will be called once the job is finished
      * @return a Future representing pending completion of the job
      * @see Widget#getGUI() 
+     * @see #setAsyncExecutor(java.util.concurrent.Executor) 
      */
     public<V> Future<V> invokeAsync(Callable<V> job, AsyncCompletionListener<V> listener) {
-        if(job == null) {
-            throw new IllegalArgumentException("job is null");
-        }
-        if(listener == null) {
-            throw new IllegalArgumentException("listener is null");
-        }
-        return executorService.submit((Callable<V>)new AC<V>(job, null, listener));
+        return submitAsync(null, null, job, listener);
     }
 
     /**
@@ -373,7 +569,7 @@ public final class GUI extends Widget {
      * or by throwing an exception) the completion listener is executed via
      * {@link #invokeLater(java.lang.Runnable) }
      *
-     * If the job is canceled before it is started then the listener is not executed.
+     * If the job is canceled then the listener is not executed.
      *
      * This method is thread safe.
      *
@@ -384,13 +580,127 @@ public final class GUI extends Widget {
      * @see Widget#getGUI() 
      */
     public<V> Future<V> invokeAsync(Runnable job, AsyncCompletionListener<V> listener) {
+        return submitAsync(null, null, GUI.<V>wrapRunnable(job), listener);
+    }
+
+    /**
+     * Performs a job async in the background which is owned by a widget.
+     * The job is canceled when the owner is removed from the GUI or destroyed.
+     * 
+     * @param <V> the result type of the job
+     * @param owner the widget which owns this job
+     * @param job the job to execute
+     * @param listener the listener which will be called once the job is finished
+     * @return a Future representing pending completion of the job
+     * @see #invokeAsync(java.util.concurrent.Callable, de.matthiasmann.twl.GUI.AsyncCompletionListener) 
+     * @see Widget#cancelAsyncJobs() 
+     */
+    public<V> Future<V> invokeAsync(Widget owner, Callable<V> job, AsyncCompletionListener<V> listener) {
+        if(owner == null) {
+            throw new IllegalArgumentException("owner is null");
+        }
+        return submitAsync(null, owner, job, listener);
+    }
+
+    /**
+     * Performs a job async in the background which is owned by a widget.
+     * The job is canceled when the owner is removed from the GUI or destroyed.
+     * 
+     * @param <V> the result type of the listener. The job always returns null.
+     * @param owner the widget which owns this job
+     * @param job the job to execute
+     * @param listener the listener which will be called once the job is finished
+     * @return a Future representing pending completion of the job
+     * @see Widget#cancelAsyncJobs() 
+     */
+    public<V> Future<V> invokeAsync(Widget owner, Runnable job, AsyncCompletionListener<V> listener) {
+        if(owner == null) {
+            throw new IllegalArgumentException("owner is null");
+        }
+        return submitAsync(null, owner, GUI.<V>wrapRunnable(job), listener);
+    }
+
+    /**
+     * Performs a job async in the background and cancels the previous job
+     * which was submitted with the same key. Only the listener of the latest
+     * job is executed. This is useful for repeated requests like type ahead
+     * queries.
+     * 
+     * <p>This method is thread safe.</p>
+     * 
+     * @param <V> the result type of the job
+     * @param key the key which identifies the request - compared using equals()
+     * @param owner the widget which owns this job, can be null
+     * @param job the job to execute
+     * @param listener the listener which will be called once the job is finished
+     * @return a Future representing pending completion of the job
+     * @see #invokeAsync(de.matthiasmann.twl.Widget, java.util.concurrent.Callable, de.matthiasmann.twl.GUI.AsyncCompletionListener) 
+     */
+    public<V> Future<V> invokeAsyncLatest(Object key, Widget owner, Callable<V> job, AsyncCompletionListener<V> listener) {
+        if(key == null) {
+            throw new IllegalArgumentException("key is null");
+        }
+        return submitAsync(key, owner, job, listener);
+    }
+    
+    private<V> Future<V> submitAsync(Object key, Widget owner, Callable<V> job, AsyncCompletionListener<V> listener) {
         if(job == null) {
             throw new IllegalArgumentException("job is null");
         }
         if(listener == null) {
             throw new IllegalArgumentException("listener is null");
         }
-        return executorService.submit((Callable<V>)new AC<V>(null, job, listener));
+        AsyncJob<V> asyncJob = new AsyncJob<V>(this, job, listener, key);
+        if(owner != null) {
+            owner.addAsyncJob(asyncJob);
+        }
+        if(key != null) {
+            AsyncJob<?> prevJob = keyedAsyncJobs.put(key, asyncJob);
+            if(prevJob != null) {
+                prevJob.cancel(true);
+            }
+        }
+        numQueuedAsyncJobs.incrementAndGet();
+        try {
+            asyncExecutor.execute(asyncJob);
+        } catch(RejectedExecutionException ex) {
+            asyncJob.cancel(false);
+            throw ex;
+        }
+        return asyncJob;
+    }
+    
+    /**
+     * Executes a job on the async executor without a completion listener.
+     * The caller is responsible to check the returned Future.
+     */
+    <V> Future<V> executeAsync(Callable<V> job) {
+        FutureTask<V> task = new FutureTask<V>(job);
+        asyncExecutor.execute(task);
+        return task;
+    }
+    
+    void asyncJobDone(AsyncJob<?> job) {
+        if(job.key != null) {
+            keyedAsyncJobs.remove(job.key, job);
+        }
+    }
+    
+    private static<V> Callable<V> wrapRunnable(Runnable job) {
+        if(job == null) {
+            throw new IllegalArgumentException("job is null");
+        }
+        return Executors.<V>callable(job, null);
+    }
+    
+    private static Executor createDefaultAsyncExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor)m.invoke(null);
+        } catch(Exception ex) {
+            // virtual threads are not available before Java 21
+            return Executors.newSingleThreadExecutor(new TF());    // thread creatation is lazy
+        }
     }
     
     public boolean requestToolTip(Widget widget, int x, int y,
@@ -545,21 +855,76 @@ public final class GUI extends Widget {
     public void validateLayout() {
         if(hasInvalidLayouts) {
             final int MAX_ITERATIONS = 1000;
+            final long startTime = System.nanoTime();
             int iterations = 0;
-            while(hasInvalidLayouts && iterations < MAX_ITERATIONS) {
-                hasInvalidLayouts = false;
-                super.validateLayout();
-                iterations++;
+            numLayouts = 0;
+            numLayoutVisits = 0;
+            layoutPassSerial++;
+            inLayoutPass = true;
+            try {
+                while(hasInvalidLayouts && iterations < MAX_ITERATIONS) {
+                    hasInvalidLayouts = false;
+                    super.validateLayout();
+                    iterations++;
+                }
+            } finally {
+                inLayoutPass = false;
             }
             ArrayList<Widget> widgetsInLoop = null;
             if(hasInvalidLayouts) {
                 widgetsInLoop = new ArrayList<Widget>();
                 collectLayoutLoop(widgetsInLoop);
             }
-            DebugHook.getDebugHook().guiLayoutValidated(iterations, widgetsInLoop);
+            DebugHook debugHook = DebugHook.getDebugHook();
+            debugHook.guiLayoutValidated(iterations, widgetsInLoop);
+            debugHook.guiLayoutStatistics(iterations, numLayouts,
+                    numLayoutVisits, System.nanoTime() - startTime);
         }
     }
 
+    public WidgetProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Installs a profiler which measures the time spent in each widget.
+     * A frame is completed at the end of {@link #draw() }.
+     * 
+     * @param profiler the profiler or null to disable profiling
+     * @see WidgetProfiler
+     */
+    public void setProfiler(WidgetProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Returns the number of size queries of widgets in this GUI which were
+     * answered from the size cache since the last call to
+     * {@link #resetSizeCacheStatistics() }.
+     * 
+     * @return the number of size cache hits
+     * @see Widget#setSizeCacheEnabled(boolean) 
+     */
+    public int getNumSizeCacheHits() {
+        return numSizeCacheHits;
+    }
+
+    /**
+     * Returns the number of size queries of widgets in this GUI which had to
+     * be computed since the last call to {@link #resetSizeCacheStatistics() }.
+     * 
+     * @return the number of size cache misses
+     * @see Widget#setSizeCacheEnabled(boolean) 
+     */
+    public int getNumSizeCacheMisses() {
+        return numSizeCacheMisses;
+    }
+
+    public void resetSizeCacheStatistics() {
+        numSizeCacheHits = 0;
+        numSizeCacheMisses = 0;
+    }
+
     /**
      * Sets the size of the GUI based on the OpenGL viewport.
      */
@@ -585,6 +950,8 @@ public final class GUI extends Widget {
      * 
      * <p>When not using this method care must be taken to invoke the methods
      * in the right order. See the javadoc of the individual methods for details.</p>
+     * 
+     * @see #updateIfNeeded() 
      */
     public void update() {
         setSize();
@@ -599,6 +966,136 @@ public final class GUI extends Widget {
         setCursor();
     }
 
+    /**
+     * Like {@link #update() } but only calls {@link #draw() } when
+     * {@link #needsRedraw() } returns true.
+     * 
+     * <p>When this method returns false the content of the screen has not
+     * changed and the host application should not swap buffers. It can
+     * instead sleep until {@link #getNextWakeupTime() } - for example by
+     * calling {@link #waitForWakeup(int) }.</p>
+     * 
+     * @return true if the GUI was rendered
+     * @see EventDrivenLoop
+     */
+    public boolean updateIfNeeded() {
+        setSize();
+        updateTime();
+        handleInput();
+        handleKeyRepeat();
+        handleTooltips();
+        updateTimers();
+        invokeRunables();
+        // validateLayout() clears hasInvalidLayouts - so check before and after
+        boolean redraw = needsRedraw();
+        validateLayout();
+        redraw |= needsRedraw();
+        if(redraw) {
+            draw();
+        }
+        setCursor();
+        return redraw;
+    }
+
+    /**
+     * Checks if the next call to {@link #draw() } would render anything
+     * different from the last frame.
+     * 
+     * <p>This relies on the same change reports as damage tracking: widgets
+     * report changes of position, size, visibility, theme, layout and
+     * animation state automatically. Running animations request a repaint
+     * while they are drawn. Custom widgets which draw state that is not
+     * covered by this must call {@link Widget#repaint() }.</p>
+     * 
+     * <p>After the content of the screen was lost (eg after the window was
+     * restored) {@link #repaintAll() } must be called.</p>
+     * 
+     * @return true if the GUI needs to be rendered
+     * @see #getNextWakeupTime() 
+     */
+    public boolean needsRedraw() {
+        return redrawRequested || repaintAll || hasInvalidLayouts || dragActive;
+    }
+
+    /**
+     * Computes the time when the GUI needs to be updated again when no new
+     * input arrives. This takes the active timers, queued runnables, key
+     * repeat, tooltips, mouse idle detection and pending repaints into account.
+     * 
+     * <p>The returned time uses the same time base as {@link #getCurrentTime() }.
+     * If something is already pending then {@code getCurrentTime()} is returned.</p>
+     * 
+     * @return the time for the next update or {@code Long.MAX_VALUE} if
+     *         the GUI only needs to be updated on new input.
+     * @see #waitForWakeup(int) 
+     */
+    public long getNextWakeupTime() {
+        if(needsRedraw()) {
+            return curTime;
+        }
+        if(getInvokeLaterQueueSize() > 0) {
+            return curTime;
+        }
+        long wakeup = getNextTimerExpirationTime();
+        if(keyRepeatDelay != NO_REPEAT) {
+            wakeup = Math.min(wakeup, keyEventTime + keyRepeatDelay + 1);
+        }
+        if(!mouseIdleState) {
+            wakeup = Math.min(wakeup, mouseEventTime + mouseIdleTime + 1);
+        }
+        long tooltipTime = tooltipEventTime + tooltipDelay + 1;
+        Widget widgetUnderMouse = getWidgetUnderMouse();
+        if(tooltipTime > curTime && widgetUnderMouse != null && widgetUnderMouse != tooltipOwner) {
+            wakeup = Math.min(wakeup, tooltipTime);
+        }
+        return Math.max(curTime, wakeup);
+    }
+
+    /**
+     * Blocks the calling thread until the next update is due. Returns early
+     * when a runnable is queued with {@link #invokeLater(java.lang.Runnable) }
+     * or {@link #wakeup() } is called.
+     * 
+     * <p>If the input is polled then {@code maxWaitMillis} limits the latency
+     * of input events.</p>
+     * 
+     * @param maxWaitMillis the maximum time to wait in milliseconds
+     * @return true if the thread waited, false if an update is already due
+     * @see #getNextWakeupTime() 
+     */
+    public boolean waitForWakeup(int maxWaitMillis) {
+        long delay = Math.min(maxWaitMillis, getNextWakeupTime() - renderer.getTimeMillis());
+        synchronized(wakeupLock) {
+            // invokeLater only notifies when this flag is set
+            waitingForWakeup = true;
+            try {
+                if(delay <= 0 || getInvokeLaterQueueSize() > 0 || wakeupRequested) {
+                    return false;
+                }
+                wakeupLock.wait(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waitingForWakeup = false;
+                wakeupRequested = false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wakes up a thread blocked in {@link #waitForWakeup(int) }. This should
+     * be called when input is pushed from another thread.
+     * 
+     * <p>This method is thread safe.</p>
+     */
+    public void wakeup() {
+        synchronized(wakeupLock) {
+            wakeupRequested = true;
+            wakeupLock.notifyAll();
+        }
+    }
+
     /**
      * When calls to updateTime where stopped then this method should be called
      * before calling updateTime again to prevent a large delta jump.
@@ -628,45 +1125,77 @@ public final class GUI extends Widget {
 
     /**
      * Updates all active timers with the delta time computed by {@code updateTime}.
+     * Only timers which expire are processed.
      * 
      * <p>This method must be called exactly once after a call to {@code updateTime}.</p>
      * 
      * @see #updateTime() 
      */
     public void updateTimers() {
-        for(int i=0 ; i<activeTimers.size() ;) {
-            if(!activeTimers.get(i).tick(deltaTime)) {
-                activeTimers.remove(i);
-            } else {
-                i++;
-            }
+        timerWheel.advance(deltaTime);
+    }
+
+    /**
+     * Returns the number of running timers.
+     * @return the number of running timers
+     * @see Timer#start() 
+     */
+    public int getNumActiveTimers() {
+        return timerWheel.size();
+    }
+
+    /**
+     * Returns the time when the next timer will expire.
+     * 
+     * <p>The returned time uses the same time base as {@link #getCurrentTime() }.</p>
+     * 
+     * @return the expiration time or {@code Long.MAX_VALUE} if no timer is running
+     * @see #getNextWakeupTime() 
+     */
+    public long getNextTimerExpirationTime() {
+        long expirationTime = timerWheel.getNextExpirationTime();
+        if(expirationTime == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
         }
+        return curTime + Math.max(0, expirationTime - timerWheel.getCurrentTime());
     }
 
     /**
-     * Invokes all queued {@code Runnable} objects.
+     * Invokes the queued {@code Runnable} objects in order of their priority.
+     * 
+     * <p>Runnables which are queued while this method executes are executed
+     * in the next frame. When a time budget is set then the remaining
+     * runnables are also executed in the next frame once it is used up.</p>
      * 
      * @see #invokeLater(java.lang.Runnable) 
+     * @see #setInvokeTimeBudget(int) 
      */
     public void invokeRunables() {
-        Runnable[] runnables = null;
-        int count;
-        synchronized(invokeLock) {
-            count = invokeLaterQueueSize;
-            if(count > 0) {
-                invokeLaterQueueSize = 0;
-                runnables = invokeLaterQueue;
-                invokeLaterQueue = invokeRunnables;
-                invokeRunnables = runnables;
-            }
-        }
-        for(int i=0 ; i<count ;) {
-            Runnable r = runnables[i];
-            runnables[i++] = null;
-            try {
-                r.run();
-            } catch (Throwable ex) {
-                Logger.getLogger(GUI.class.getName()).log(Level.SEVERE, "Exception in runnable", ex);
+        final long startTime = System.nanoTime();
+        final long budget = invokeTimeBudget * 1000000L;
+        int numExecuted = 0;
+        for(InvokeQueue queue : invokeQueues) {
+            for(int count=queue.size() ; count>0 ; count--) {
+                long now = System.nanoTime();
+                if(budget > 0 && numExecuted > 0 && now - startTime >= budget) {
+                    return;
+                }
+                InvokeQueue.Node node = queue.poll();
+                if(node == null) {
+                    break;
+                }
+                Runnable r = node.runnable;
+                node.runnable = null;
+                long latency = now - node.enqueueTime;
+                totalInvokeLatency += latency;
+                maxInvokeLatency = Math.max(maxInvokeLatency, latency);
+                numInvokedRunnables++;
+                numExecuted++;
+                try {
+                    r.run();
+                } catch (Throwable ex) {
+                    Logger.getLogger(GUI.class.getName()).log(Level.SEVERE, "Exception in runnable", ex);
+                }
             }
         }
     }
@@ -679,7 +1208,30 @@ public final class GUI extends Widget {
      * @see Renderer#endRendering() 
      */
     public void draw() {
+        final WidgetProfiler p = profiler;
+        if(p != null) {
+            try {
+                drawImpl();
+            } finally {
+                p.endFrame();
+            }
+        } else {
+            drawImpl();
+        }
+    }
+    
+    private void drawImpl() {
+        numPaintedWidgets = 0;
+        numCulledWidgets = 0;
+        // repaints requested while painting cause another frame
+        redrawRequested = false;
+        if(damageTracking && drawDamaged()) {
+            return;
+        }
         if(renderer.startRendering()) {
+            damageRegion.clear();
+            repaintAll = false;
+            lastRepaintArea = getWidth() * getHeight();
             try {
                 drawWidget(this);
                 
@@ -693,6 +1245,165 @@ public final class GUI extends Widget {
         }
     }
 
+    /**
+     * Enables or disables damage tracking.
+     * 
+     * <p>When damage tracking is enabled and the renderer implements
+     * {@link SupportsPartialRepaint} then {@link #draw() } only repaints the
+     * areas which were reported by {@link Widget#repaint() } since the last
+     * frame. The rest of the screen is kept from the previous frame.</p>
+     * 
+     * <p>Widgets report changes of position, size, visibility, theme, layout
+     * and animation state automatically. Custom widgets which draw state that
+     * is not covered by this must call {@link Widget#repaint() }.</p>
+     * 
+     * <p>A full repaint is done when the renderer could not keep the
+     * previous frame, after {@link #repaintAll() } and while a drag
+     * operation is active.</p>
+     * 
+     * @param damageTracking true to enable damage tracking
+     */
+    public void setDamageTracking(boolean damageTracking) {
+        this.damageTracking = damageTracking;
+        this.repaintAll = true;
+        damageRegion.clear();
+        if(renderer instanceof SupportsPartialRepaint) {
+            ((SupportsPartialRepaint)renderer).setPreserveContent(damageTracking);
+        }
+    }
+
+    public boolean isDamageTracking() {
+        return damageTracking;
+    }
+    
+    /**
+     * Forces a repaint on the next frame. When damage tracking is enabled
+     * the whole screen is repainted.
+     * @see #setDamageTracking(boolean) 
+     * @see #needsRedraw() 
+     */
+    public void repaintAll() {
+        repaintAll = true;
+        redrawRequested = true;
+    }
+
+    /**
+     * Returns the number of pixels which have been repainted by the last
+     * call to {@link #draw() }. Areas where repainted rectangles overlap
+     * are counted only once per rectangle.
+     * 
+     * @return the number of repainted pixels
+     */
+    public int getLastRepaintArea() {
+        return lastRepaintArea;
+    }
+
+    void addDamage(int x, int y, int width, int height) {
+        redrawRequested = true;
+        if(damageTracking && !repaintAll) {
+            damageRegion.add(x, y, width, height);
+        }
+    }
+
+    /**
+     * Enables or disables skipping of widgets which are completely outside
+     * of the active clip region. Widgets which draw outside of their bounds
+     * must declare this area with {@link Widget#setOffscreenExtra(int, int, int, int) }.
+     * 
+     * <p>Culling requires a renderer which implements {@link SupportsClipRect}.
+     * It is enabled by default.</p>
+     * 
+     * @param clipCulling true to enable clip culling
+     */
+    public void setClipCulling(boolean clipCulling) {
+        this.clipCulling = clipCulling;
+    }
+
+    public boolean isClipCulling() {
+        return clipCulling;
+    }
+
+    /**
+     * Returns the number of widgets which have been painted by the last call
+     * to {@link #draw() }.
+     * 
+     * @return the number of painted widgets
+     * @see #getNumCulledWidgets() 
+     */
+    public int getNumPaintedWidgets() {
+        return numPaintedWidgets;
+    }
+
+    /**
+     * Returns the number of widgets which have been skipped by the last call
+     * to {@link #draw() } because they were outside of the clip region.
+     * Children of skipped widgets are not counted.
+     * 
+     * @return the number of culled widgets
+     * @see #setClipCulling(boolean) 
+     */
+    public int getNumCulledWidgets() {
+        return numCulledWidgets;
+    }
+
+    /**
+     * Checks if the area intersects the rectangle which is currently repainted
+     * and the active clip region of the renderer.
+     */
+    boolean isInsidePaintArea(int x0, int y0, int x1, int y1) {
+        if(paintRectIdx >= 0 && !paintRegion.intersects(paintRectIdx, x0, y0, x1, y1)) {
+            numCulledWidgets++;
+            return false;
+        }
+        if(clipCulling && clipQuery != null && clipQuery.getClipRect(cullRect)) {
+            if(x0 >= cullRect.getRight() || y0 >= cullRect.getBottom() ||
+                    x1 <= cullRect.getX() || y1 <= cullRect.getY() ||
+                    cullRect.isEmpty()) {
+                numCulledWidgets++;
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean drawDamaged() {
+        if(repaintAll || dragActive || !(renderer instanceof SupportsPartialRepaint)) {
+            return false;
+        }
+        final SupportsPartialRepaint spr = (SupportsPartialRepaint)renderer;
+        if(!spr.isContentPreserved()) {
+            return false;
+        }
+        damageRegion.clip(0, 0, renderer.getWidth(), renderer.getHeight());
+        if(!spr.startPartialRendering()) {
+            return true;
+        }
+        // damage reported while painting is repainted in the next frame
+        paintRegion.set(damageRegion);
+        damageRegion.clear();
+        lastRepaintArea = paintRegion.getArea();
+        try {
+            for(int i=0,n=paintRegion.getNumRects() ; i<n ; i++) {
+                int x = paintRegion.getX(i);
+                int y = paintRegion.getY(i);
+                int w = paintRegion.getWidth(i);
+                int h = paintRegion.getHeight(i);
+                spr.clearRect(x, y, w, h);
+                renderer.clipEnter(x, y, w, h);
+                paintRectIdx = i;
+                try {
+                    drawWidget(this);
+                } finally {
+                    paintRectIdx = -1;
+                    renderer.clipLeave();
+                }
+            }
+        } finally {
+            renderer.endRendering();
+        }
+        return true;
+    }
+
     /**
      * Sets the cursor from the widget under the mouse
      *
@@ -753,6 +1464,19 @@ public final class GUI extends Widget {
      * @return true if the event was handled by a widget
      */
     public final boolean handleMouse(int mouseX, int mouseY, int button, boolean pressed) {
+        final WidgetProfiler p = profiler;
+        if(p != null) {
+            p.enter(this, WidgetProfiler.Phase.MOUSE);
+            try {
+                return handleMouseImpl(mouseX, mouseY, button, pressed);
+            } finally {
+                p.leave();
+            }
+        }
+        return handleMouseImpl(mouseX, mouseY, button, pressed);
+    }
+    
+    private boolean handleMouseImpl(int mouseX, int mouseY, int button, boolean pressed) {
         mouseEventTime = curTime;
         tooltipEventTime = curTime;
         event.mouseButton = button;
@@ -977,6 +1701,19 @@ public final class GUI extends Widget {
      * @return true if the event was handled by a widget
      */
     public final boolean handleKey(int keyCode, char keyChar, boolean pressed) {
+        final WidgetProfiler p = profiler;
+        if(p != null) {
+            p.enter(this, WidgetProfiler.Phase.KEY);
+            try {
+                return handleKeyImpl(keyCode, keyChar, pressed);
+            } finally {
+                p.leave();
+            }
+        }
+        return handleKeyImpl(keyCode, keyChar, pressed);
+    }
+    
+    private boolean handleKeyImpl(int keyCode, char keyChar, boolean pressed) {
         event.keyCode = keyCode;
         event.keyChar = keyChar;
         event.keyRepeated = false;
@@ -1091,7 +1828,7 @@ public final class GUI extends Widget {
         
         if(target != null) {
             if(target.isEnabled() || !isMouseAction(event)) {
-                target.handleEvent(target.translateMouseEvent(event));
+                target.dispatchEvent(target.translateMouseEvent(event));
             }
             return target;
         } else {
@@ -1129,7 +1866,7 @@ public final class GUI extends Widget {
         focusKeyWidget = null;
         event.type = type;
         event.dragEvent = false;
-        boolean handled = getTopPane().handleEvent(event);
+        boolean handled = getTopPane().dispatchEvent(event);
         if(!handled && focusKeyWidget != null) {
             focusKeyWidget.handleFocusKeyEvent(event);
             handled = true;
@@ -1414,12 +2151,6 @@ public final class GUI extends Widget {
         }
     }
     
-    private void growInvokeLaterQueue() {
-        Runnable[] tmp = new Runnable[invokeLaterQueueSize*2];
-        System.arraycopy(invokeLaterQueue, 0, tmp, 0, invokeLaterQueueSize);
-        invokeLaterQueue = tmp;
-    }
-
     static class TooltipWindow extends Container {
         public static final StateKey STATE_FADE = StateKey.get("fade");
         private int fadeInTime;
@@ -1440,6 +2171,7 @@ public final class GUI extends Widget {
         protected void paint(GUI gui) {
             int time = getAnimationState().getAnimationTime(STATE_FADE);
             if(time < fadeInTime) {
+                repaint();
                 float alpha = time / (float)fadeInTime;
                 gui.getRenderer().pushGlobalTintColor(1f, 1f, 1f, alpha);
                 try {
@@ -1453,44 +2185,6 @@ public final class GUI extends Widget {
         }
     }
 
-    class AC<V> implements Callable<V>, Runnable {
-        private final Callable<V> jobC;
-        private final Runnable jobR;
-        private final AsyncCompletionListener<V> listener;
-        private V result;
-        private Exception exception;
-
-        AC(Callable<V> jobC, Runnable jobR, AsyncCompletionListener<V> listener) {
-            this.jobC = jobC;
-            this.jobR = jobR;
-            this.listener = listener;
-        }
-
-        public V call() throws Exception {
-            try {
-                if(jobC != null) {
-                    result = jobC.call();
-                } else {
-                    jobR.run();
-                }
-                invokeLater(this);
-                return result;
-            } catch(Exception ex) {
-                exception = ex;
-                invokeLater(this);
-                throw ex;
-            }
-        }
-
-        public void run() {
-            if(exception != null) {
-                listener.failed(exception);
-            } else {
-                listener.completed(result);
-            }
-        }
-    }
-
     static class TF implements ThreadFactory {
         static final AtomicInteger poolNumber = new AtomicInteger(1);
         final AtomicInteger threadNumber = new AtomicInteger(1);
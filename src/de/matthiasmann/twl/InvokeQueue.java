@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock free multi producer single consumer queue for the runnables passed
+ * to {@link GUI#invokeLater(java.lang.Runnable) }.
+ * 
+ * <p>Producers link new nodes with a single atomic swap of the head. The
+ * consumer (the GUI thread) follows the next pointers from the tail. Each
+ * node records the enqueue time for latency statistics.</p>
+ * 
+ * @author Matthias Mann
+ */
+final class InvokeQueue {
+
+    static final class Node {
+        Runnable runnable;
+        long enqueueTime;
+        volatile Node next;
+    }
+    
+    private final AtomicReference<Node> head;
+    private final AtomicInteger size;
+    private Node tail;
+
+    InvokeQueue() {
+        Node stub = new Node();
+        this.head = new AtomicReference<Node>(stub);
+        this.size = new AtomicInteger();
+        this.tail = stub;
+    }
+
+    /**
+     * Adds a runnable to the queue. This method is thread safe.
+     * @param runnable the runnable
+     */
+    void add(Runnable runnable) {
+        Node node = new Node();
+        node.runnable = runnable;
+        node.enqueueTime = System.nanoTime();
+        size.incrementAndGet();
+        Node prev = head.getAndSet(node);
+        prev.next = node;
+    }
+
+    /**
+     * Removes the oldest node from the queue. Must only be called from the GUI thread.
+     * 
+     * @return the node or null if the queue is empty or the oldest add() is still in progress
+     */
+    Node poll() {
+        Node next = tail.next;
+        if(next == null) {
+            return null;
+        }
+        // the returned node becomes the new stub - it's runnable must be
+        // cleared by the caller
+        tail = next;
+        size.decrementAndGet();
+        return next;
+    }
+
+    /**
+     * Returns the number of queued runnables. This method is thread safe.
+     * @return the number of queued runnables
+     */
+    int size() {
+        return size.get();
+    }
+}
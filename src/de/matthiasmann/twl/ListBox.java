@@ -193,6 +193,7 @@ public class ListBox<T> extends Widget {
             throw new IllegalArgumentException("cellHeight < 1");
         }
         this.cellHeight = cellHeight;
+        invalidateSizeCache();
     }
 
     public int getCellWidth() {
@@ -581,11 +582,15 @@ public class ListBox<T> extends Widget {
         scrollbar.setPosition(getInnerRight() - scrollbar.getWidth(), getInnerY());
         
         int numRows = Math.max(1, getInnerHeight() / cellHeight);
+        int oldNumCols = numCols;
         if(cellWidth != SINGLE_COLUMN) {
             numCols = Math.max(1, (scrollbar.getX() - getInnerX()) / cellWidth);
         } else {
             numCols = 1;
         }
+        if(numCols != oldNumCols) {
+            invalidateSizeCache();
+        }
         setVisibleCells(numRows);
         
         needUpdate = true;
@@ -745,6 +750,7 @@ public class ListBox<T> extends Widget {
         int delta = last - first + 1;
         int prevNumEntries = numEntries;
         numEntries += delta;
+        invalidateSizeCache();
         int fv = getFirstVisible();
         if(fv >= first && prevNumEntries >= labels.length) {
             fv += delta;
@@ -762,6 +768,7 @@ public class ListBox<T> extends Widget {
     void entriesDeleted(int first, int last) {
         int delta = last - first + 1;
         numEntries -= delta;
+        invalidateSizeCache();
         int fv = getFirstVisible();
         int lv = getLastVisible();
         if(fv > last) {
@@ -787,6 +794,7 @@ public class ListBox<T> extends Widget {
 
     void allChanged() {
         numEntries = (model != null) ? model.getNumEntries() : 0;
+        invalidateSizeCache();
         setSelected(NO_SELECTION, false, CallbackReason.MODEL_CHANGED);
         setFirstVisible(0);
         needUpdate = true;
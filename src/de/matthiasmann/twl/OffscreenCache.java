@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.OffscreenSurface;
+
+/**
+ * A {@link Widget.RenderOffscreen} which caches the rendered widget tree in
+ * an offscreen surface and reuses it as long as the widget tree is static.
+ *
+ * <p>The cached surface is updated when</p><ul>
+ * <li>{@link #invalidate() } was called - this is done by {@link Widget#repaint() }
+ *     of the widget or one of its children</li>
+ * <li>the widget or one of its children has keyboard focus</li>
+ * <li>the mouse is over the widget or one of its children</li>
+ * <li>the size of the widget has changed</li>
+ * <li>the surface is older than the configured maximum age</li>
+ * </ul>
+ *
+ * <p>This is useful for complex widget trees which rarely change, like
+ * inactive frames in a {@link DesktopArea}. Moving the widget does not
+ * require an update.</p>
+ * 
+ * @author Matthias Mann
+ * @see Widget#setRenderOffscreen(de.matthiasmann.twl.Widget.RenderOffscreen) 
+ */
+public class OffscreenCache implements Widget.RenderOffscreen {
+
+    private boolean dirty;
+    private int invalidateCount;
+    private int paintInvalidateCount;
+    private int maxAge;
+    private long renderTime;
+    private int renderWidth;
+    private int renderHeight;
+    private int numCacheHits;
+    private int numRepaints;
+
+    public OffscreenCache() {
+        this.dirty = true;
+    }
+
+    /**
+     * Forces an update of the cached surface on the next frame.
+     */
+    public void invalidate() {
+        dirty = true;
+        invalidateCount++;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets the maximum age of the cached surface. This can be used to
+     * update animated content at a lower rate.
+     * 
+     * @param maxAge the maximum age in milliseconds or 0 for no limit
+     * @throws IllegalArgumentException if maxAge is negative
+     */
+    public void setMaxAge(int maxAge) {
+        if(maxAge < 0) {
+            throw new IllegalArgumentException("maxAge");
+        }
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns the number of frames where the cached surface was used.
+     * @return the number of cache hits
+     */
+    public int getNumCacheHits() {
+        return numCacheHits;
+    }
+
+    /**
+     * Returns the number of frames where the surface was updated.
+     * @return the number of repaints
+     */
+    public int getNumRepaints() {
+        return numRepaints;
+    }
+
+    public void resetStatistics() {
+        numCacheHits = 0;
+        numRepaints = 0;
+    }
+
+    public boolean needPainting(GUI gui, Widget widget, OffscreenSurface surface) {
+        if(dirty || isActive(gui, widget) ||
+                widget.getWidth() != renderWidth ||
+                widget.getHeight() != renderHeight ||
+                (maxAge > 0 && gui.getCurrentTime() - renderTime >= maxAge)) {
+            dirty = true;
+            paintInvalidateCount = invalidateCount;
+            return true;
+        }
+        numCacheHits++;
+        return false;
+    }
+
+    public void paintOffscreenSurface(GUI gui, Widget widget, OffscreenSurface surface) {
+        if(dirty) {
+            // an invalidate() while painting (eg by a running animation)
+            // requires another update in the next frame
+            dirty = paintInvalidateCount != invalidateCount;
+            renderTime = gui.getCurrentTime();
+            renderWidth = widget.getWidth();
+            renderHeight = widget.getHeight();
+            numRepaints++;
+        }
+        surface.draw(widget.getAnimationState(),
+                widget.getX() - widget.getOffscreenExtraLeft(),
+                widget.getY() - widget.getOffscreenExtraTop());
+    }
+
+    public void offscreenRenderingFailed(Widget widget) {
+        dirty = true;
+    }
+
+    public int[] getEffectExtraArea(Widget widget) {
+        return null;
+    }
+
+    /**
+     * Checks if the widget is interacting with the user and needs to be
+     * rendered every frame.
+     * 
+     * @param gui the GUI instance
+     * @param widget the widget
+     * @return true if the widget or one of its children has focus or is under the mouse
+     */
+    protected boolean isActive(GUI gui, Widget widget) {
+        if(widget.hasKeyboardFocus()) {
+            return true;
+        }
+        for(Widget w=gui.getWidgetUnderMouse() ; w!=null ; w=w.getParent()) {
+            if(w == widget) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
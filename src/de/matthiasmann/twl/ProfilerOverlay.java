@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.model.SimpleGraphLineModel;
+import de.matthiasmann.twl.model.SimpleGraphModel;
+import java.util.List;
+
+/**
+ * Displays the results of a {@link WidgetProfiler}: a graph with the frame
+ * time and the time spent in profiled widget calls and a list of the most
+ * expensive widgets or widget classes sorted by exclusive time.
+ * 
+ * <p>The graph uses the line styles "frametime" and "profiledtime".</p>
+ * 
+ * @author Matthias Mann
+ */
+public class ProfilerOverlay extends Widget {
+
+    private final WidgetProfiler profiler;
+    private final SimpleGraphLineModel frameTimeLine;
+    private final SimpleGraphLineModel profiledTimeLine;
+    private final Graph graph;
+    private final Label hotList;
+    private final StringBuilder sb;
+    private final Runnable frameCB;
+    
+    private int numHotEntries = 10;
+    private int updateInterval = 30;
+    private boolean showClasses;
+    private int framesUntilUpdate;
+
+    public ProfilerOverlay(WidgetProfiler profiler) {
+        if(profiler == null) {
+            throw new NullPointerException("profiler");
+        }
+        this.profiler = profiler;
+        this.frameTimeLine = new SimpleGraphLineModel("frametime", 100, 0, 33.3f);
+        this.profiledTimeLine = new SimpleGraphLineModel("profiledtime", 100, 0, 33.3f);
+        this.graph = new Graph(new SimpleGraphModel(frameTimeLine, profiledTimeLine));
+        this.hotList = new Label();
+        this.sb = new StringBuilder();
+        this.frameCB = new Runnable() {
+            public void run() {
+                frameCompleted();
+            }
+        };
+        
+        graph.setTheme("graph");
+        hotList.setTheme("hotlist");
+        hotList.setClip(true);
+        add(graph);
+        add(hotList);
+    }
+
+    public WidgetProfiler getProfiler() {
+        return profiler;
+    }
+
+    public int getNumHotEntries() {
+        return numHotEntries;
+    }
+
+    /**
+     * Sets the number of entries which are displayed in the hot list.
+     * @param numHotEntries the number of entries
+     */
+    public void setNumHotEntries(int numHotEntries) {
+        if(numHotEntries < 0) {
+            throw new IllegalArgumentException("numHotEntries");
+        }
+        this.numHotEntries = numHotEntries;
+    }
+
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    /**
+     * Sets after how many frames the hot list is updated.
+     * @param updateInterval the number of frames - must be &gt;= 1
+     */
+    public void setUpdateInterval(int updateInterval) {
+        if(updateInterval < 1) {
+            throw new IllegalArgumentException("updateInterval");
+        }
+        this.updateInterval = updateInterval;
+    }
+
+    public boolean isShowClasses() {
+        return showClasses;
+    }
+
+    /**
+     * Selects if the hot list shows individual widgets or widget classes.
+     * @param showClasses true to show widget classes
+     */
+    public void setShowClasses(boolean showClasses) {
+        this.showClasses = showClasses;
+        this.framesUntilUpdate = 0;
+    }
+
+    /**
+     * Sets the value range of the frame time graph.
+     * @param maxMillis the frame time in milliseconds at the top of the graph
+     */
+    public void setGraphMaxMillis(float maxMillis) {
+        frameTimeLine.setMaxValue(maxMillis);
+        profiledTimeLine.setMaxValue(maxMillis);
+    }
+
+    /**
+     * Returns the text of the hot list
+     * @return the text of the hot list
+     */
+    public String getHotListText() {
+        return hotList.getText();
+    }
+
+    @Override
+    protected void afterAddToGUI(GUI gui) {
+        super.afterAddToGUI(gui);
+        profiler.addFrameCallback(frameCB);
+    }
+
+    @Override
+    protected void beforeRemoveFromGUI(GUI gui) {
+        profiler.removeFrameCallback(frameCB);
+        super.beforeRemoveFromGUI(gui);
+    }
+
+    @Override
+    public int getPreferredInnerWidth() {
+        return Math.max(graph.getPreferredWidth(), hotList.getPreferredWidth());
+    }
+
+    @Override
+    public int getPreferredInnerHeight() {
+        return graph.getPreferredHeight() + hotList.getPreferredHeight();
+    }
+
+    @Override
+    protected void layout() {
+        int graphHeight = Math.min(graph.getPreferredHeight(), getInnerHeight());
+        graph.setPosition(getInnerX(), getInnerY());
+        graph.setSize(getInnerWidth(), graphHeight);
+        hotList.setPosition(getInnerX(), getInnerY() + graphHeight);
+        hotList.setSize(getInnerWidth(), Math.max(0, getInnerHeight() - graphHeight));
+    }
+
+    void frameCompleted() {
+        frameTimeLine.addPoint(profiler.getLastFrameNanos() * 1e-6f);
+        profiledTimeLine.addPoint(profiler.getLastFrameProfiledNanos() * 1e-6f);
+        
+        if(--framesUntilUpdate <= 0) {
+            framesUntilUpdate = updateInterval;
+            updateHotList();
+        }
+    }
+    
+    private void updateHotList() {
+        final List<WidgetProfiler.Entry> entries = showClasses ?
+                profiler.getClassEntries() : profiler.getWidgetEntries();
+        sb.setLength(0);
+        sb.append("frame ");
+        appendMillis(profiler.getLastFrameNanos());
+        sb.append(" ms, widgets ");
+        appendMillis(profiler.getLastFrameProfiledNanos());
+        sb.append(" ms");
+        for(int i=0,n=Math.min(numHotEntries, entries.size()) ; i<n ; i++) {
+            WidgetProfiler.Entry e = entries.get(i);
+            sb.append('\n');
+            appendMillis(e.getExclusiveNanos());
+            sb.append(" / ");
+            appendMillis(e.getInclusiveNanos());
+            sb.append(" ms ").append(e.getNumCalls()).append("x ").append(e.getName());
+        }
+        hotList.setText(sb.toString());
+    }
+    
+    private void appendMillis(long nanos) {
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        int frac = (int)(micros % 1000);
+        sb.append((char)('0' + frac / 100)).append((char)('0' + (frac / 10) % 10));
+    }
+}
@@ -442,7 +442,7 @@ public class ScrollPane extends Widget {
         //minWidth = Math.max(minWidth, scrollbarH.getMinWidth() + border);
         if(fixed == Fixed.HORIZONTAL && content != null) {
             int sbWidth = scrollbarV.isVisible() ? scrollbarV.getMinWidth() : 0;
-            minWidth = Math.max(minWidth, content.getMinWidth() + border + sbWidth);
+            minWidth = Math.max(minWidth, content.getCachedMinWidth() + border + sbWidth);
         }
         return minWidth;
     }
@@ -454,7 +454,7 @@ public class ScrollPane extends Widget {
         //minHeight = Math.max(minHeight, scrollbarV.getMinHeight() + border);
         if(fixed == Fixed.VERTICAL && content != null) {
             int sbHeight = scrollbarH.isVisible() ? scrollbarH.getMinHeight() : 0;
-            minHeight = Math.max(minHeight, content.getMinHeight() + border + sbHeight);
+            minHeight = Math.max(minHeight, content.getCachedMinHeight() + border + sbHeight);
         }
         return minHeight;
     }
@@ -465,15 +465,15 @@ public class ScrollPane extends Widget {
             switch(fixed) {
             case HORIZONTAL:
                 int prefWidth = computeSize(
-                        content.getMinWidth(),
-                        content.getPreferredWidth(),
-                        content.getMaxWidth());
+                        content.getCachedMinWidth(),
+                        content.getCachedPreferredWidth(),
+                        content.getCachedMaxWidth());
                 if(scrollbarV.isVisible()) {
                     prefWidth += scrollbarV.getPreferredWidth();
                 }
                 return prefWidth;
             case VERTICAL:
-                return content.getPreferredWidth();
+                return content.getCachedPreferredWidth();
             }
         }
         return 0;
@@ -484,12 +484,12 @@ public class ScrollPane extends Widget {
         if(content != null) {
             switch(fixed) {
             case HORIZONTAL:
-                return content.getPreferredHeight();
+                return content.getCachedPreferredHeight();
             case VERTICAL:
                 int prefHeight = computeSize(
-                        content.getMinHeight(),
-                        content.getPreferredHeight(),
-                        content.getMaxHeight());
+                        content.getCachedMinHeight(),
+                        content.getCachedPreferredHeight(),
+                        content.getCachedMaxHeight());
                 if(scrollbarH.isVisible()) {
                     prefHeight += scrollbarH.getPreferredHeight();
                 }
@@ -650,15 +650,15 @@ public class ScrollPane extends Widget {
             switch(fixed) {
             case HORIZONTAL:
                 requiredWidth = availWidth;
-                requiredHeight = content.getPreferredHeight();
+                requiredHeight = content.getCachedPreferredHeight();
                 break;
             case VERTICAL:
-                requiredWidth = content.getPreferredWidth();
+                requiredWidth = content.getCachedPreferredWidth();
                 requiredHeight = availHeight;
                 break;
             default:
-                requiredWidth = content.getPreferredWidth();
-                requiredHeight = content.getPreferredHeight();
+                requiredWidth = content.getCachedPreferredWidth();
+                requiredHeight = content.getCachedPreferredHeight();
                 break;
             }
 
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * A uniform grid which indexes the bounds of the children of a widget.
+ * 
+ * <p>Coordinates are relative to the owning widget so that the index stays
+ * valid when the owner is moved. Children which cover many cells are kept
+ * in a separate list which is always checked.</p>
+ * 
+ * @author Matthias Mann
+ */
+final class SpatialGrid {
+
+    static final int CELL_SHIFT = 6;
+    static final int MAX_CELLS_PER_ENTRY = 64;
+    
+    private final HashMap<Integer, ArrayList<Widget>> cells;
+    private final IdentityHashMap<Widget, Entry> entries;
+    private final ArrayList<Widget> oversized;
+    private final ArrayList<Widget> tmp;
+    final ArrayList<Widget> candidates;
+    private boolean orderDirty;
+
+    SpatialGrid() {
+        this.cells = new HashMap<Integer, ArrayList<Widget>>();
+        this.entries = new IdentityHashMap<Widget, Entry>();
+        this.oversized = new ArrayList<Widget>();
+        this.tmp = new ArrayList<Widget>();
+        this.candidates = new ArrayList<Widget>();
+    }
+
+    int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Marks the z order as dirty. Must be called when the order of the
+     * children has changed.
+     */
+    void invalidateOrder() {
+        orderDirty = true;
+    }
+    
+    /**
+     * Adds or updates the bounds of a widget.
+     * 
+     * @param w the widget
+     * @param x the left edge relative to the owner
+     * @param y the top edge relative to the owner
+     * @param width the width
+     * @param height the height
+     */
+    void update(Widget w, int x, int y, int width, int height) {
+        Entry e = entries.get(w);
+        if(e == null) {
+            e = new Entry();
+            entries.put(w, e);
+            orderDirty = true;
+        }
+        int x0, y0, x1, y1;
+        if(width > 0 && height > 0) {
+            x0 = x >> CELL_SHIFT;
+            y0 = y >> CELL_SHIFT;
+            x1 = (x + width - 1) >> CELL_SHIFT;
+            y1 = (y + height - 1) >> CELL_SHIFT;
+        } else {
+            // empty widgets can't be hit - don't put them into cells
+            x0 = y0 = 0;
+            x1 = y1 = -1;
+        }
+        if(e.x0 == x0 && e.y0 == y0 && e.x1 == x1 && e.y1 == y1) {
+            return;
+        }
+        unlink(w, e);
+        e.x0 = x0;
+        e.y0 = y0;
+        e.x1 = x1;
+        e.y1 = y1;
+        link(w, e);
+    }
+    
+    void remove(Widget w) {
+        Entry e = entries.remove(w);
+        if(e != null) {
+            unlink(w, e);
+        }
+    }
+    
+    void clear() {
+        cells.clear();
+        entries.clear();
+        oversized.clear();
+    }
+
+    /**
+     * Collects all widgets which may contain the specified point ordered
+     * from top to bottom (reverse child index order).
+     * 
+     * @param owner the owning widget - used to compute the z order
+     * @param x the x coordinate relative to the owner
+     * @param y the y coordinate relative to the owner
+     * @param result the list which receives the candidates
+     */
+    void collect(Widget owner, int x, int y, ArrayList<Widget> result) {
+        updateOrder(owner);
+        int start = result.size();
+        ArrayList<Widget> cell = cells.get(key(x >> CELL_SHIFT, y >> CELL_SHIFT));
+        if(cell != null) {
+            result.addAll(cell);
+        }
+        result.addAll(oversized);
+        // insertion sort by descending z - the lists are small
+        for(int i=start+1,n=result.size() ; i<n ; i++) {
+            Widget w = result.get(i);
+            int z = entries.get(w).z;
+            int j = i;
+            while(j > start && entries.get(result.get(j-1)).z < z) {
+                result.set(j, result.get(j-1));
+                j--;
+            }
+            result.set(j, w);
+        }
+    }
+    
+    /**
+     * Returns the topmost visible child which contains the specified point.
+     * 
+     * @param owner the owning widget
+     * @param x the x coordinate relative to the owner
+     * @param y the y coordinate relative to the owner
+     * @param absX the absolute x coordinate
+     * @param absY the absolute y coordinate
+     * @return the child or null
+     */
+    Widget findChildAt(Widget owner, int x, int y, int absX, int absY) {
+        tmp.clear();
+        collect(owner, x, y, tmp);
+        try {
+            for(int i=0,n=tmp.size() ; i<n ; i++) {
+                Widget w = tmp.get(i);
+                if(w.isVisible() && w.isInside(absX, absY)) {
+                    return w;
+                }
+            }
+            return null;
+        } finally {
+            tmp.clear();
+        }
+    }
+    
+    private void updateOrder(Widget owner) {
+        if(orderDirty) {
+            for(int i=0,n=owner.getNumChildren() ; i<n ; i++) {
+                Entry e = entries.get(owner.getChild(i));
+                if(e != null) {
+                    e.z = i;
+                }
+            }
+            orderDirty = false;
+        }
+    }
+
+    private void link(Widget w, Entry e) {
+        int numCells = (e.x1 - e.x0 + 1) * (e.y1 - e.y0 + 1);
+        if(numCells <= 0) {
+            return;
+        }
+        if(numCells > MAX_CELLS_PER_ENTRY) {
+            e.oversized = true;
+            oversized.add(w);
+            return;
+        }
+        for(int cy=e.y0 ; cy<=e.y1 ; cy++) {
+            for(int cx=e.x0 ; cx<=e.x1 ; cx++) {
+                Integer k = key(cx, cy);
+                ArrayList<Widget> cell = cells.get(k);
+                if(cell == null) {
+                    cell = new ArrayList<Widget>(4);
+                    cells.put(k, cell);
+                }
+                cell.add(w);
+            }
+        }
+    }
+    
+    private void unlink(Widget w, Entry e) {
+        if(e.oversized) {
+            e.oversized = false;
+            oversized.remove(w);
+            return;
+        }
+        for(int cy=e.y0 ; cy<=e.y1 ; cy++) {
+            for(int cx=e.x0 ; cx<=e.x1 ; cx++) {
+                Integer k = key(cx, cy);
+                ArrayList<Widget> cell = cells.get(k);
+                if(cell != null) {
+                    removeIdentity(cell, w);
+                    if(cell.isEmpty()) {
+                        cells.remove(k);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static void removeIdentity(ArrayList<Widget> list, Widget w) {
+        for(int i=list.size() ; i-->0 ;) {
+            if(list.get(i) == w) {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+    
+    private static Integer key(int cx, int cy) {
+        return (cy << 16) ^ (cx & 0xFFFF);
+    }
+    
+    static final class Entry {
+        int x0;
+        int y0;
+        int x1 = -1;
+        int y1 = -1;
+        int z;
+        boolean oversized;
+    }
+}
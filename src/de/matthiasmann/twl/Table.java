@@ -29,8 +29,10 @@
  */
 package de.matthiasmann.twl;
 
+import de.matthiasmann.twl.model.BulkTableModel;
 import de.matthiasmann.twl.model.TableModel;
 import de.matthiasmann.twl.model.TreeTableNode;
+import de.matthiasmann.twl.model.VisibleRowsListener;
 
 /**
  * A table widget.
@@ -85,6 +87,36 @@ public class Table extends TableBase {
         return model.getCell(row, column);
     }
 
+    /**
+     * Returns true when the model implements {@link BulkTableModel}.
+     * 
+     * <p>Subclasses which override {@link #getCellData(int, int, de.matthiasmann.twl.model.TreeTableNode) }
+     * or {@link #getCellRenderer(int, int, de.matthiasmann.twl.model.TreeTableNode) }
+     * must override this method and return false.</p>
+     * 
+     * @return true when the model implements BulkTableModel
+     */
+    @Override
+    protected boolean useBulkCellData() {
+        return model instanceof BulkTableModel;
+    }
+
+    @Override
+    protected boolean getCellDataBulk(int row, int column, int numRows, int numColumns, Object[] dst) {
+        if(model instanceof BulkTableModel) {
+            ((BulkTableModel)model).getCells(row, column, numRows, numColumns, dst);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void visibleRowsChanged(int firstRow, int lastRow) {
+        if(model instanceof VisibleRowsListener) {
+            ((VisibleRowsListener)model).visibleRowsChanged(firstRow, lastRow);
+        }
+    }
+
     @Override
     protected TreeTableNode getNodeFromRow(int row) {
         return null;
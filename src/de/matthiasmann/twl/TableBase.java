@@ -42,6 +42,7 @@ import de.matthiasmann.twl.utils.SizeSequence;
 import de.matthiasmann.twl.utils.SparseGrid;
 import de.matthiasmann.twl.utils.SparseGrid.Entry;
 import de.matthiasmann.twl.utils.TypeMapping;
+import java.util.Arrays;
 
 /**
  * Base class for Table and TreeTable.
@@ -228,6 +229,7 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
     protected int numRows;
     protected int numColumns;
     protected int rowHeight = 32;
+    protected int estimatedRowHeight;
     protected int defaultColumnWidth = 256;
     protected boolean autoSizeAllRows;
     protected boolean updateAllCellWidgets;
@@ -247,10 +249,15 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
     protected boolean dropMarkerBeforeRow;
     
     protected static final int LAST_MOUSE_Y_OUTSIDE = Integer.MIN_VALUE;
+    protected static final int MEASURE_AHEAD_ROWS = 8;
     
     protected int lastMouseY = LAST_MOUSE_Y_OUTSIDE;
     protected int lastMouseRow = -1;
     protected int lastMouseColumn = -1;
+    
+    private Object[] cellDataBuffer;
+    private int reportedFirstVisibleRow = -1;
+    private int reportedLastVisibleRow = -1;
 
     protected TableBase() {
         this.cellRenderers = new TypeMapping<CellRenderer>();
@@ -379,6 +386,71 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         }
     }
 
+    /**
+     * Returns the row height which is assumed for rows which have not yet
+     * been measured in variable row height mode.
+     * 
+     * @return the estimated row height
+     * @see #setEstimatedRowHeight(int) 
+     */
+    public int getEstimatedRowHeight() {
+        return (estimatedRowHeight > 0) ? estimatedRowHeight : rowHeight;
+    }
+
+    /**
+     * Sets the row height which is assumed for rows which have not yet been
+     * measured in variable row height mode. Rows are only measured when
+     * they become visible or are close to the visible area.
+     * 
+     * @param estimatedRowHeight the estimated row height or 0 to use the
+     *                           row height from the theme
+     */
+    public void setEstimatedRowHeight(int estimatedRowHeight) {
+        if(estimatedRowHeight < 0) {
+            throw new IllegalArgumentException("estimatedRowHeight");
+        }
+        if(this.estimatedRowHeight != estimatedRowHeight) {
+            this.estimatedRowHeight = estimatedRowHeight;
+            if(rowModel != null) {
+                autoSizeAllRows = true;
+                invalidateLayout();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows for which the real row height has been
+     * computed in variable row height mode.
+     * 
+     * @return the number of measured rows or 0 in fixed row height mode
+     */
+    public int getNumMeasuredRows() {
+        if(rowModel instanceof RowSizeSequence) {
+            return ((RowSizeSequence)rowModel).getNumMeasured();
+        }
+        return 0;
+    }
+
+    /**
+     * Computes the height of all rows which have not yet been measured.
+     * This can be slow for large tables.
+     */
+    public void measureAllRows() {
+        if(rowModel instanceof RowSizeSequence) {
+            if(autoSizeAllRows) {
+                autoSizeAllRows();
+            }
+            RowSizeSequence rsm = (RowSizeSequence)rowModel;
+            boolean changed = false;
+            for(int row=0 ; row<numRows ; row++) {
+                changed |= rsm.measure(row);
+            }
+            if(changed) {
+                invalidateLayout();
+            }
+        }
+    }
+
     public int getNumRows() {
         return numRows;
     }
@@ -477,6 +549,9 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         ScrollPane scrollPane = ScrollPane.getContainingScrollPane(this);
         if(scrollPane != null && numRows > 0) {
             scrollPane.validateLayout();
+            if(rowModel instanceof RowSizeSequence && ((RowSizeSequence)rowModel).measure(row)) {
+                invalidateLayout();
+            }
             int rowStart = getRowStartPosition(row);
             int rowEnd = getRowEndPosition(row);
             int height = rowEnd - rowStart;
@@ -732,6 +807,9 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         if(updateAllCellWidgets) {
             updateAllCellWidgets();
         }
+        if(rowModel instanceof RowSizeSequence && numRows > 0) {
+            measureVisibleRows(innerHeight);
+        }
 
         final int scrollEndX = scrollPosX + innerWidth;
         final int scrollEndY = scrollPosY + innerHeight;
@@ -764,6 +842,12 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         firstVisibleColumn = startColumn;
         lastVisibleRow = endRow;
         lastVisibleColumn = endColumn;
+        
+        if(numRows > 0 && (startRow != reportedFirstVisibleRow || endRow != reportedLastVisibleRow)) {
+            reportedFirstVisibleRow = startRow;
+            reportedLastVisibleRow = endRow;
+            visibleRowsChanged(startRow, endRow);
+        }
 
         if(numColumns > 0) {
             final int offsetX = getOffsetX();
@@ -832,18 +916,25 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
                 }
             }
 
+            final int numVisibleRows = lastVisibleRow - firstVisibleRow + 1;
+            final int numVisibleColumns = lastVisibleColumn - firstVisibleColumn + 1;
+            final Object[] cellData = fetchCellData(firstVisibleRow, firstVisibleColumn, numVisibleRows, numVisibleColumns);
+            
             int rowStartPos = getRowStartPosition(firstVisibleRow);
             for(int row=firstVisibleRow ; row<=lastVisibleRow ; row++) {
                 final int rowEndPos = getRowEndPosition(row);
                 final int curRowHeight = rowEndPos - rowStartPos;
                 final int curY = offsetY + rowStartPos;
-                final TreeTableNode rowNode = getNodeFromRow(row);
+                final TreeTableNode rowNode = (cellData == null) ? getNodeFromRow(row) : null;
                 final boolean isRowSelected = !isCellSelection && isRowSelected(row);
+                final int cellDataIdx = (row - firstVisibleRow) * numVisibleColumns - firstVisibleColumn;
                 
                 int colStartPos = getColumnStartPosition(firstVisibleColumn);
                 for(int col=firstVisibleColumn ; col<=lastVisibleColumn ;) {
                     int colEndPos = getColumnEndPosition(col);
-                    final CellRenderer cellRenderer = getCellRenderer(row, col, rowNode);
+                    final CellRenderer cellRenderer = (cellData != null)
+                            ? getCellRendererForData(row, col, cellData[cellDataIdx + col])
+                            : getCellRenderer(row, col, rowNode);
                     final boolean isCellSelected = isRowSelected || isCellSelected(row, col);
 
                     int curX = offsetX + colStartPos;
@@ -872,6 +963,10 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
 
                 rowStartPos = rowEndPos;
             }
+            
+            if(cellData != null) {
+                Arrays.fill(cellData, 0, numVisibleRows * numVisibleColumns, null);
+            }
 
             if(imageRowOverlay != null) {
                 paintRowImage(imageRowOverlay, leadRow);
@@ -920,6 +1015,44 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
 
     protected abstract TreeTableNode getNodeFromRow(int row);
     protected abstract Object getCellData(int row, int column, TreeTableNode node);
+
+    /**
+     * Returns true if the cell data should be fetched with
+     * {@link #getCellDataBulk(int, int, int, int, java.lang.Object[]) }.
+     * 
+     * <p>The bulk fetch bypasses
+     * {@link #getCellData(int, int, de.matthiasmann.twl.model.TreeTableNode) }
+     * and {@link #getCellRenderer(int, int, de.matthiasmann.twl.model.TreeTableNode) }.
+     * A subclass which overrides one of these methods must also override this
+     * method and return false.</p>
+     * 
+     * <p>The default implementation returns false.</p>
+     * 
+     * @return true if getCellDataBulk should be used
+     */
+    protected boolean useBulkCellData() {
+        return false;
+    }
+
+    /**
+     * Fetches the data of a rectangular cell range with one call. This is
+     * used to fetch all visible cells once per frame.
+     * 
+     * <p>This method is only called when {@link #useBulkCellData() } returns
+     * true. The default implementation returns false.</p>
+     * 
+     * @param row the first row
+     * @param column the first column
+     * @param numRows the number of rows
+     * @param numColumns the number of columns
+     * @param dst the destination array in row major order
+     * @return true if dst has been filled, false if the cells must be fetched
+     *         using {@link #getCellData(int, int, de.matthiasmann.twl.model.TreeTableNode) }
+     * @see de.matthiasmann.twl.model.BulkTableModel
+     */
+    protected boolean getCellDataBulk(int row, int column, int numRows, int numColumns, Object[] dst) {
+        return false;
+    }
     protected abstract Object getTooltipContentFromRow(int row, int column);
 
     protected boolean isRowSelected(int row) {
@@ -987,7 +1120,10 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
     }
 
     protected CellRenderer getCellRenderer(int row, int col, TreeTableNode node) {
-        final Object data = getCellData(row, col, node);
+        return getCellRendererForData(row, col, getCellData(row, col, node));
+    }
+
+    private CellRenderer getCellRendererForData(int row, int col, Object data) {
         if(data != null) {
             CellRenderer cellRenderer = getCellRenderer(data, col);
             cellRenderer.setCellData(row, col, data);
@@ -996,16 +1132,50 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         return null;
     }
 
+    private Object[] fetchCellData(int row, int column, int numRows, int numColumns) {
+        if(numRows <= 0 || numColumns <= 0 || !useBulkCellData()) {
+            return null;
+        }
+        final int count = numRows * numColumns;
+        Object[] buffer = cellDataBuffer;
+        if(buffer == null || buffer.length < count) {
+            buffer = new Object[count];
+            cellDataBuffer = buffer;
+        }
+        if(getCellDataBulk(row, column, numRows, numColumns, buffer)) {
+            return buffer;
+        }
+        return null;
+    }
+
+    /**
+     * Called from {@link #layout() } when the range of visible rows has changed.
+     * 
+     * <p>The default implementation does nothing.</p>
+     * 
+     * @param firstRow the first visible row
+     * @param lastRow the last visible row (inclusive)
+     * @see de.matthiasmann.twl.model.VisibleRowsListener
+     */
+    protected void visibleRowsChanged(int firstRow, int lastRow) {
+    }
+
     protected int computeRowHeight(int row) {
-        final TreeTableNode rowNode = getNodeFromRow(row);
+        final Object[] cellData = fetchCellData(row, 0, 1, numColumns);
+        final TreeTableNode rowNode = (cellData == null) ? getNodeFromRow(row) : null;
         int height = 0;
         for(int column = 0; column < numColumns; column++) {
-            CellRenderer cellRenderer = getCellRenderer(row, column, rowNode);
+            CellRenderer cellRenderer = (cellData != null)
+                    ? getCellRendererForData(row, column, cellData[column])
+                    : getCellRenderer(row, column, rowNode);
             if(cellRenderer != null) {
                 height = Math.max(height, cellRenderer.getPreferredHeight());
                 column += Math.max(cellRenderer.getColumnSpan() - 1, 0);
             }
         }
+        if(cellData != null) {
+            Arrays.fill(cellData, 0, numColumns, null);
+        }
         return height;
     }
 
@@ -1018,10 +1188,65 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
     }
 
     protected boolean autoSizeRow(int row) {
+        if(rowModel instanceof RowSizeSequence) {
+            return ((RowSizeSequence)rowModel).update(row);
+        }
         int height = computeRowHeight(row);
         return rowModel.setSize(row, height);
     }
 
+    /**
+     * Recomputes the row height if the row is visible, otherwise it will
+     * be measured again when it becomes visible.
+     * 
+     * @param row the row which has changed
+     * @return true if the row height has changed
+     */
+    private boolean rowContentChanged(int row) {
+        if(rowModel instanceof RowSizeSequence && (row < firstVisibleRow || row > lastVisibleRow)) {
+            ((RowSizeSequence)rowModel).invalidate(row);
+            return false;
+        }
+        return autoSizeRow(row);
+    }
+
+    /**
+     * Measures the rows in the visible area plus {@link #MEASURE_AHEAD_ROWS}
+     * rows before and after it. When rows above the first visible row change
+     * their height the scroll position is adjusted so that the visible rows
+     * don't move.
+     * 
+     * @param innerHeight the height of the visible area
+     */
+    private void measureVisibleRows(int innerHeight) {
+        final RowSizeSequence rsm = (RowSizeSequence)rowModel;
+        final int anchorRow = Math.min(numRows-1, rsm.getIndex(Math.max(0, scrollPosY)));
+        final int anchorPos = rsm.getPosition(anchorRow);
+        boolean changed = false;
+        for(int row=Math.max(0, anchorRow-MEASURE_AHEAD_ROWS) ; row<anchorRow ; row++) {
+            changed |= rsm.measure(row);
+        }
+        final int scrollDelta = rsm.getPosition(anchorRow) - anchorPos;
+        final int scrollEndY = scrollPosY + scrollDelta + innerHeight;
+        int row = anchorRow;
+        while(row < numRows && rsm.getPosition(row) < scrollEndY) {
+            changed |= rsm.measure(row++);
+        }
+        for(int end=Math.min(numRows, row+MEASURE_AHEAD_ROWS) ; row<end ; row++) {
+            changed |= rsm.measure(row);
+        }
+        if(changed) {
+            // the preferred height has changed
+            invalidateLayout();
+        }
+        if(scrollDelta != 0) {
+            ScrollPane sp = ScrollPane.getContainingScrollPane(this);
+            if(sp != null) {
+                sp.setScrollPositionY(scrollPosY + scrollDelta);
+            }
+        }
+    }
+
     protected void autoSizeAllRows() {
         if(rowModel != null) {
             rowModel.initializeAll(numRows);
@@ -1479,6 +1704,8 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         }
 
         dropMarkerRow = -1;
+        reportedFirstVisibleRow = -1;
+        reportedLastVisibleRow = -1;
         columnHeaders = new ColumnHeader[numColumns];
         for(int i=0 ; i<numColumns ; i++) {
             columnHeaders[i] = createColumnHeader(i);
@@ -1495,7 +1722,7 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
 
     protected void modelRowChanged(int row) {
         if(rowModel != null) {
-            if(autoSizeRow(row)) {
+            if(rowContentChanged(row)) {
                 invalidateLayout();
             }
         }
@@ -1510,7 +1737,7 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         boolean rowHeightChanged = false;
         for(int i=0 ; i<count ; i++) {
             if(rowModel != null) {
-                rowHeightChanged |= autoSizeRow(idx+i);
+                rowHeightChanged |= rowContentChanged(idx+i);
             }
             for(int col=0 ; col<numColumns ; col++) {
                 updateCellWidget(idx+i, col);
@@ -1526,7 +1753,7 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
         checkRowIndex(row);
         checkColumnIndex(column);
         if(rowModel != null) {
-            autoSizeRow(row);
+            rowContentChanged(row);
         }
         updateCellWidget(row, column);
         invalidateLayout();
@@ -1666,11 +1893,36 @@ public abstract class TableBase extends Widget implements ScrollPane.Scrollable,
             super(initialCapacity);
         }
 
-        @Override
-        protected void initializeSizes(int index, int count) {
-            for(int i=0 ; i<count ; i++,index++) {
-                table[index] = computeRowHeight(index);
+        int getNumMeasured() {
+            return getNumFlags();
+        }
+
+        boolean measure(int row) {
+            if(getFlag(row)) {
+                return false;
             }
+            return update(row);
+        }
+        
+        boolean update(int row) {
+            setFlag(row, true);
+            return setSize(row, computeRowHeight(row));
+        }
+        
+        void invalidate(int row) {
+            setFlag(row, false);
+        }
+
+        @Override
+        public void insert(int index, int count) {
+            setDefaultValue(getEstimatedRowHeight());
+            super.insert(index, count);
+        }
+
+        @Override
+        public void initializeAll(int count) {
+            setDefaultValue(getEstimatedRowHeight());
+            super.initializeAll(count);
         }
     }
 
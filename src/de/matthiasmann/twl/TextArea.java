@@ -472,6 +472,7 @@ public class TextArea extends Widget {
             
             if(layoutRoot.height != requiredHeight) {
                 layoutRoot.height = requiredHeight;
+                invalidateSizeCache();
                 if(getInnerHeight() != requiredHeight) {
                     // call outside of inLayoutCode range
                     invalidateLayout();
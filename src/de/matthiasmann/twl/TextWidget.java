@@ -91,6 +91,7 @@ public class TextWidget extends Widget {
         }
         this.font = font;
         this.cachedTextWidth = NOT_CACHED;
+        invalidateSizeCache();
         if(useCache) {
             this.cacheDirty = true;
         }
@@ -111,6 +112,7 @@ public class TextWidget extends Widget {
         this.cachedTextWidth = NOT_CACHED;
         this.numTextLines = TextUtil.countNumLines(text);
         this.cacheDirty = true;
+        invalidateSizeCache();
         getAnimationState().resetAnimationTime(STATE_TEXT_CHANGED);
     }
 
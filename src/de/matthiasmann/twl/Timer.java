@@ -39,15 +39,23 @@ import java.util.logging.Logger;
  */
 public final class Timer {
 
-    private static final int TIMER_COUNTER_IN_CALLBACK = -1;
-    private static final int TIMER_COUNTER_DO_START = -2;
-    private static final int TIMER_COUNTER_DO_STOP = -3;
+    private static final int TIMER_STATE_STOPPED = 0;
+    private static final int TIMER_STATE_RUNNING = 1;
+    private static final int TIMER_STATE_IN_CALLBACK = -1;
+    private static final int TIMER_STATE_DO_START = -2;
+    private static final int TIMER_STATE_DO_STOP = -3;
 
     final GUI gui;
-    int counter;
+    int state;
     int delay = 10;
     boolean continuous;
     Runnable callback;
+    
+    // managed by TimerWheel
+    long expireTime;
+    Timer wheelPrev;
+    Timer wheelNext;
+    int wheelSlot = -1;
 
     /**
      * Constructs a new timer
@@ -67,7 +75,7 @@ public final class Timer {
      * @return true if the timer is already running.
      */
     public boolean isRunning() {
-        return counter > 0 || (continuous && counter == TIMER_COUNTER_IN_CALLBACK);
+        return state > 0 || (continuous && state == TIMER_STATE_IN_CALLBACK);
     }
     
     /**
@@ -87,11 +95,11 @@ public final class Timer {
      * Starts the timer. If it is already running then this method does nothing.
      */
     public void start() {
-        if(counter == 0) {
-            counter = delay;
-            gui.activeTimers.add(this);
-        } else if(counter < 0) {
-            counter = TIMER_COUNTER_DO_START;
+        if(state == TIMER_STATE_STOPPED) {
+            state = TIMER_STATE_RUNNING;
+            gui.timerWheel.add(this, gui.timerWheel.getCurrentTime() + delay);
+        } else if(state < 0) {
+            state = TIMER_STATE_DO_START;
         }
     }
     
@@ -99,11 +107,11 @@ public final class Timer {
      * Stops the timer. If the timer is not running then this method does nothing.
      */
     public void stop() {
-        if(counter > 0) {
-            counter = 0;
-            gui.activeTimers.remove(this);
-        } else if(counter < 0) {
-            counter = TIMER_COUNTER_DO_STOP;
+        if(state > 0) {
+            state = TIMER_STATE_STOPPED;
+            gui.timerWheel.remove(this);
+        } else if(state < 0) {
+            state = TIMER_STATE_DO_STOP;
         }
     }
     
@@ -131,26 +139,21 @@ public final class Timer {
         this.continuous = continuous;
     }
     
-    boolean tick(int delta) {
-        int newCounter = counter - delta;
-        if(newCounter <= 0) {
-            boolean doStop = !continuous;
-            counter = TIMER_COUNTER_IN_CALLBACK;
-            doCallback();
-            if(counter == TIMER_COUNTER_DO_STOP) {
-                counter = 0;
-                return false;
-            }
-            if(doStop && counter != TIMER_COUNTER_DO_START) {
-                counter = 0;
-                return false;
-            }
-            // timer is already running
-            counter = Math.max(1, newCounter + delay);
-        } else {
-            counter = newCounter;
+    /**
+     * Called by the TimerWheel after the timer has been removed from the wheel.
+     * @param time the time to which the wheel is advanced
+     */
+    void expired(long time) {
+        boolean doStop = !continuous;
+        state = TIMER_STATE_IN_CALLBACK;
+        doCallback();
+        if(state == TIMER_STATE_DO_STOP || (doStop && state != TIMER_STATE_DO_START)) {
+            state = TIMER_STATE_STOPPED;
+            return;
         }
-        return true;
+        // timer is still running - a late expiration shortens the next interval
+        state = TIMER_STATE_RUNNING;
+        gui.timerWheel.add(this, time + Math.max(1, expireTime - time + delay));
     }
 
     private void doCallback() {
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+/**
+ * A hierarchical timing wheel for the {@link Timer} instances of a GUI.
+ * 
+ * <p>Each level has 64 slots. Level 0 has a resolution of 1 ms, each
+ * further level covers 64 times the range of the previous one. A timer is
+ * placed in the lowest level which can hold it's expiration time and
+ * cascades to lower levels as time advances. Timers are linked into their
+ * slot with a doubly linked list so starting and stopping is O(1).</p>
+ * 
+ * <p>The time of the wheel is advanced by the frame delta time and not by
+ * the absolute time, so timers are suspended while the GUI is paused.</p>
+ * 
+ * @author Matthias Mann
+ */
+final class TimerWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int NUM_SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = NUM_SLOTS - 1;
+    private static final int NUM_LEVELS = 6;    // covers 2^36 ms
+    
+    private final Timer[] slots;
+    private final long[] occupied;
+    private long cursor;
+    private long currentTime;
+    private int size;
+
+    TimerWheel() {
+        this.slots = new Timer[NUM_LEVELS * NUM_SLOTS];
+        this.occupied = new long[NUM_LEVELS];
+    }
+
+    /**
+     * Returns the current time of the wheel. While timers are processed
+     * this is the time the wheel is advanced to.
+     * @return the current time in ms
+     */
+    long getCurrentTime() {
+        return currentTime;
+    }
+    
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the timer. The timer must not already be scheduled.
+     * 
+     * @param timer the timer
+     * @param expireTime the expiration time, must be after the current time
+     */
+    void add(Timer timer, long expireTime) {
+        assert timer.wheelSlot < 0 : "timer already scheduled";
+        assert expireTime > cursor;
+        timer.expireTime = expireTime;
+        insert(timer);
+        size++;
+    }
+
+    /**
+     * Removes the timer from the wheel. Does nothing if it is not scheduled.
+     * @param timer the timer
+     */
+    void remove(Timer timer) {
+        if(timer.wheelSlot >= 0) {
+            unlink(timer);
+            size--;
+        }
+    }
+
+    /**
+     * Advances the time and expires all timers which are due.
+     * Only slots which contain timers are visited.
+     * 
+     * @param delta the time delta in ms
+     */
+    void advance(int delta) {
+        final long targetTime = currentTime + delta;
+        currentTime = targetTime;
+        while(cursor < targetTime) {
+            int idx = (int)cursor & SLOT_MASK;
+            long pending = (idx == SLOT_MASK) ? 0 : occupied[0] & (-1L << (idx + 1));
+            long next;
+            if(pending != 0) {
+                next = (cursor & ~SLOT_MASK) + Long.numberOfTrailingZeros(pending);
+            } else {
+                next = (cursor | SLOT_MASK) + 1;
+            }
+            if(next > targetTime) {
+                cursor = targetTime;
+                break;
+            }
+            cursor = next;
+            idx = (int)cursor & SLOT_MASK;
+            if(idx == 0) {
+                cascade(1);
+            }
+            Timer timer;
+            while((timer = slots[idx]) != null) {
+                unlink(timer);
+                size--;
+                timer.expired(targetTime);
+            }
+        }
+    }
+
+    /**
+     * Returns the time when the next timer expires.
+     * @return the expiration time or {@code Long.MAX_VALUE} if no timer is scheduled
+     */
+    long getNextExpirationTime() {
+        long result = Long.MAX_VALUE;
+        if(size > 0) {
+            for(int level=0 ; level<NUM_LEVELS ; level++) {
+                long bits = occupied[level];
+                if(bits != 0) {
+                    // the slot of the current index contains only timers of the next round
+                    int idx = (int)(cursor >>> (level * SLOT_BITS)) & SLOT_MASK;
+                    int shift = (idx + 1) & SLOT_MASK;
+                    long rotated = Long.rotateRight(bits, shift);
+                    int slot = (Long.numberOfTrailingZeros(rotated) + shift) & SLOT_MASK;
+                    for(Timer t=slots[level*NUM_SLOTS + slot] ; t!=null ; t=t.wheelNext) {
+                        result = Math.min(result, t.expireTime);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    private void cascade(int level) {
+        if(level >= NUM_LEVELS) {
+            return;
+        }
+        int idx = (int)(cursor >>> (level * SLOT_BITS)) & SLOT_MASK;
+        if(idx == 0) {
+            cascade(level + 1);
+        }
+        int slot = level*NUM_SLOTS + idx;
+        Timer timer;
+        while((timer = slots[slot]) != null) {
+            unlink(timer);
+            insert(timer);
+        }
+    }
+    
+    private void insert(Timer timer) {
+        long expireTime = timer.expireTime;
+        long delta = expireTime - cursor;
+        int level = 0;
+        while(level < NUM_LEVELS-1 && delta >= (1L << ((level+1) * SLOT_BITS))) {
+            level++;
+        }
+        int idx = (int)(expireTime >>> (level * SLOT_BITS)) & SLOT_MASK;
+        int slot = level*NUM_SLOTS + idx;
+        Timer head = slots[slot];
+        timer.wheelPrev = null;
+        timer.wheelNext = head;
+        if(head != null) {
+            head.wheelPrev = timer;
+        }
+        slots[slot] = timer;
+        timer.wheelSlot = slot;
+        occupied[level] |= 1L << idx;
+    }
+    
+    private void unlink(Timer timer) {
+        int slot = timer.wheelSlot;
+        Timer prev = timer.wheelPrev;
+        Timer next = timer.wheelNext;
+        if(prev != null) {
+            prev.wheelNext = next;
+        } else {
+            slots[slot] = next;
+            if(next == null) {
+                occupied[slot >> SLOT_BITS] &= ~(1L << (slot & SLOT_MASK));
+            }
+        }
+        if(next != null) {
+            next.wheelPrev = prev;
+        }
+        timer.wheelPrev = null;
+        timer.wheelNext = null;
+        timer.wheelSlot = -1;
+    }
+}
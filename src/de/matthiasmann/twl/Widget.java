@@ -46,6 +46,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -93,13 +95,39 @@ public class Widget {
     
     private static final int LAYOUT_INVALID_LOCAL  = 1;
     private static final int LAYOUT_INVALID_GLOBAL = 3;
+
+    /** position epoch of widgets which are not part of a GUI */
+    private static final AtomicInteger detachedPositionEpoch = new AtomicInteger();
+    
+    private static final WeakHashMap<Class<?>, Boolean> positionChangedOverrides = new WeakHashMap<Class<?>, Boolean>();
+    
+    private static final int SIZE_MIN_WIDTH   = 0;
+    private static final int SIZE_MIN_HEIGHT  = 1;
+    private static final int SIZE_PREF_WIDTH  = 2;
+    private static final int SIZE_PREF_HEIGHT = 3;
+    private static final int SIZE_MAX_WIDTH   = 4;
+    private static final int SIZE_MAX_HEIGHT  = 5;
     
     private Widget parent;
     private int posX;
     private int posY;
+    private int relX;
+    private int relY;
+    private int posSerial;
+    private int parentPosSerial;
+    private int posEpoch;
+    private boolean positionListener;
+    private int numPositionListeners;
     private int width;
     private int height;
     private int layoutInvalid;
+    private boolean childLayoutInvalid;
+    private boolean sizeCacheEnabled = true;
+    private int sizeCacheValid;
+    private int sizeCacheSerial;
+    private int sizeCacheInvalidSerial;
+    private int[] sizeCache;
+    private SpatialGrid spatialIndex;
     private boolean clip;
     private boolean visible = true;
     private boolean hasOpenPopup;
@@ -118,6 +146,7 @@ public class Widget {
     volatile GUI guiInstance;
     private OffscreenSurface offscreenSurface;
     private RenderOffscreen renderOffscreen;
+    private ArrayList<AsyncJob<?>> asyncJobs;
 
     private final AnimationState animState;
     private final boolean sharedAnimState;
@@ -205,11 +234,17 @@ public class Widget {
 
         if(animState == null || inherit) {
             this.animState = new AnimationState(animState);
+            this.animState.setOwner(this);
             this.sharedAnimState = false;
         } else {
             this.animState = animState;
             this.sharedAnimState = true;
         }
+        
+        if(overridesPositionChanged(getClass())) {
+            positionListener = true;
+            numPositionListeners = 1;
+        }
     }
 
     /**
@@ -219,6 +254,7 @@ public class Widget {
      * @see PropertyChangeSupport#addPropertyChangeListener(java.beans.PropertyChangeListener)
      */
     public void addPropertyChangeListener(PropertyChangeListener listener) {
+        addPositionListener();
         createPropertyChangeSupport().addPropertyChangeListener(listener);
     }
 
@@ -230,6 +266,9 @@ public class Widget {
      * @see PropertyChangeSupport#addPropertyChangeListener(java.lang.String, java.beans.PropertyChangeListener) 
      */
     public void addPropertyChangeListener(String propertyName, PropertyChangeListener listener) {
+        if("x".equals(propertyName) || "y".equals(propertyName)) {
+            addPositionListener();
+        }
         createPropertyChangeSupport().addPropertyChangeListener(propertyName, listener);
     }
 
@@ -332,6 +371,7 @@ public class Widget {
     public void setVisible(boolean visible) {
         if(this.visible != visible) {
             this.visible = visible;
+            repaintBounds(this);
             if(!visible) {
                 GUI gui = getGUI();
                 if(gui != null) {
@@ -415,6 +455,7 @@ public class Widget {
      * @see #addPropertyChangeListener(java.lang.String, java.beans.PropertyChangeListener)
      */
     public final int getX() {
+        validatePosition();
         return posX;
     }
 
@@ -429,6 +470,7 @@ public class Widget {
      * @see #addPropertyChangeListener(java.lang.String, java.beans.PropertyChangeListener)
      */
     public final int getY() {
+        validatePosition();
         return posY;
     }
     
@@ -463,7 +505,7 @@ public class Widget {
      * @return getX() + getWidth()
      */
     public final int getRight() {
-        return posX + width;
+        return getX() + width;
     }
     
     /**
@@ -471,7 +513,7 @@ public class Widget {
      * @return getY() + getHeight()
      */
     public final int getBottom() {
-        return posY + height;
+        return getY() + height;
     }
 
     /**
@@ -479,7 +521,7 @@ public class Widget {
      * @return getX() + getBorderLeft()
      */
     public final int getInnerX() {
-        return posX + borderLeft;
+        return getX() + borderLeft;
     }
 
     /**
@@ -487,7 +529,7 @@ public class Widget {
      * @return getY() + getBorderTop()
      */
     public final int getInnerY() {
-        return posY + borderTop;
+        return getY() + borderTop;
     }
     
     /**
@@ -511,7 +553,7 @@ public class Widget {
      * @return getInnerX() + getInnerWidth()
      */
     public final int getInnerRight() {
-        return posX + Math.max(borderLeft, width - borderRight);
+        return getX() + Math.max(borderLeft, width - borderRight);
     }
     
     /**
@@ -519,7 +561,7 @@ public class Widget {
      * @return getInnerY() + getInnerHeight()
      */
     public final int getInnerBottom() {
-        return posY + Math.max(borderTop, height - borderBottom);
+        return getY() + Math.max(borderTop, height - borderBottom);
     }
     
     /**
@@ -530,6 +572,7 @@ public class Widget {
      * @return true if it was inside
      */
     public boolean isInside(int x, int y) {
+        validatePosition();
         return (x >= posX) && (y >= posY) && (x < posX + width) && (y < posY + height);
     }
 
@@ -537,7 +580,7 @@ public class Widget {
      * Changes the position of this widget.
      * 
      * <p>When the position has changed then<ul>
-     * <li>The positions of all children are updated</li>
+     * <li>The positions of all children are updated (lazily)</li>
      * <li>{@link #positionChanged()} is called</li>
      * <li>{@link PropertyChangeEvent} are fired for "x" and "y"</li>
      * </ul></p>
@@ -554,6 +597,12 @@ public class Widget {
      * @see #layout()
      */
     public boolean setPosition(int x, int y) {
+        if(visible && (x != getX() || y != getY())) {
+            repaintBounds(parent);
+            setPositionImpl(x, y);
+            repaintBounds(parent);
+            return true;
+        }
         return setPositionImpl(x, y);
     }
     
@@ -585,9 +634,17 @@ public class Widget {
         int oldWidth = this.width;
         int oldHeight = this.height;
         if(oldWidth != width || oldHeight != height) {
+            if(visible) {
+                repaint();
+            }
             this.width = width;
             this.height = height;
+            invalidateSizeCache();
+            updateSpatialIndex();
 
+            if(visible) {
+                repaint();
+            }
             sizeChanged();
             
             if(propertyChangeSupport != null) {
@@ -659,6 +716,7 @@ public class Widget {
             this.borderTop = (short)top;
             this.borderRight = (short)right;
             this.borderBottom = (short)bottom;
+            invalidateSizeCache();
             
             // first adjust child position
             if(children != null && (deltaLeft != 0 || deltaTop != 0)) {
@@ -805,6 +863,7 @@ public class Widget {
         }
         minWidth = (short)Math.min(width, Short.MAX_VALUE);
         minHeight = (short)Math.min(height, Short.MAX_VALUE);
+        invalidateSizeCache();
     }
 
     /**
@@ -936,6 +995,7 @@ public class Widget {
         }
         maxWidth = (short)Math.min(width, Short.MAX_VALUE);
         maxHeight = (short)Math.min(height, Short.MAX_VALUE);
+        invalidateSizeCache();
     }
 
     /**
@@ -957,6 +1017,192 @@ public class Widget {
         return Math.max(min, preferred);
     }
 
+    /**
+     * Returns the minimum width using the size cache.
+     * Layout code should use this method instead of {@link #getMinWidth() }.
+     *
+     * @return the minimum width
+     * @see #setSizeCacheEnabled(boolean) 
+     */
+    public final int getCachedMinWidth() {
+        return getCachedSize(SIZE_MIN_WIDTH);
+    }
+
+    /**
+     * Returns the minimum height using the size cache.
+     * Layout code should use this method instead of {@link #getMinHeight() }.
+     *
+     * @return the minimum height
+     * @see #setSizeCacheEnabled(boolean) 
+     */
+    public final int getCachedMinHeight() {
+        return getCachedSize(SIZE_MIN_HEIGHT);
+    }
+
+    /**
+     * Returns the preferred width using the size cache.
+     * Layout code should use this method instead of {@link #getPreferredWidth() }.
+     *
+     * @return the preferred width
+     * @see #setSizeCacheEnabled(boolean) 
+     */
+    public final int getCachedPreferredWidth() {
+        return getCachedSize(SIZE_PREF_WIDTH);
+    }
+
+    /**
+     * Returns the preferred height using the size cache.
+     * Layout code should use this method instead of {@link #getPreferredHeight() }.
+     *
+     * @return the preferred height
+     * @see #setSizeCacheEnabled(boolean) 
+     */
+    public final int getCachedPreferredHeight() {
+        return getCachedSize(SIZE_PREF_HEIGHT);
+    }
+
+    /**
+     * Returns the maximum width using the size cache.
+     * Layout code should use this method instead of {@link #getMaxWidth() }.
+     *
+     * @return the maximum width
+     * @see #setSizeCacheEnabled(boolean) 
+     */
+    public final int getCachedMaxWidth() {
+        return getCachedSize(SIZE_MAX_WIDTH);
+    }
+
+    /**
+     * Returns the maximum height using the size cache.
+     * Layout code should use this method instead of {@link #getMaxHeight() }.
+     *
+     * @return the maximum height
+     * @see #setSizeCacheEnabled(boolean) 
+     */
+    public final int getCachedMaxHeight() {
+        return getCachedSize(SIZE_MAX_HEIGHT);
+    }
+
+    public boolean isSizeCacheEnabled() {
+        return sizeCacheEnabled;
+    }
+
+    /**
+     * Enables or disables the caching of the min, preferred and max size.
+     * 
+     * <p>The cache is only used during {@link GUI#validateLayout() } and is
+     * discarded after each layout pass. Inside a layout pass it is cleared by
+     * {@link #invalidateLayout() }, theme and text changes and when the size,
+     * border, background or size constraints of this widget or the size or
+     * position of a child changes. Widgets which compute their size from other
+     * state which changes during layout must call {@link #invalidateSizeCache() }
+     * - or disable the cache.</p>
+     * 
+     * <p>The cache is enabled by default.</p>
+     *
+     * @param sizeCacheEnabled true to enable the size cache
+     * @see GUI#getNumSizeCacheHits() 
+     */
+    public void setSizeCacheEnabled(boolean sizeCacheEnabled) {
+        this.sizeCacheEnabled = sizeCacheEnabled;
+        this.sizeCacheValid = 0;
+    }
+
+    public boolean isSpatialIndexEnabled() {
+        return spatialIndex != null;
+    }
+
+    /**
+     * Enables or disables a spatial index for the children of this widget.
+     * 
+     * <p>The index speeds up {@link #getChildAt(int, int) } and the routing of
+     * mouse events in containers with many children. It is updated when a child
+     * is added, removed, moved or resized.</p>
+     * 
+     * <p>When the index is enabled the hit area of each child must be inside
+     * it's bounds - children which override {@link #isInside(int, int) } to
+     * accept points outside of their bounds won't be found.</p>
+     * 
+     * @param enabled true to enable the spatial index
+     */
+    public void setSpatialIndexEnabled(boolean enabled) {
+        if(enabled != (spatialIndex != null)) {
+            if(enabled) {
+                spatialIndex = new SpatialGrid();
+                if(children != null) {
+                    for(int i=0,n=children.size() ; i<n ; i++) {
+                        children.get(i).updateSpatialIndex();
+                    }
+                }
+            } else {
+                spatialIndex = null;
+            }
+        }
+    }
+
+    /**
+     * Clears the cached size of this widget and all it's parents.
+     * 
+     * @see #setSizeCacheEnabled(boolean) 
+     */
+    public void invalidateSizeCache() {
+        final GUI gui = guiInstance;
+        if(gui == null) {
+            for(Widget w=this ; w!=null ; w=w.parent) {
+                w.sizeCacheValid = 0;
+            }
+            return;
+        }
+        // When no size was cached in this GUI since a widget was invalidated
+        // then all it's parents are still invalid and the walk can stop.
+        final int fillSerial = gui.sizeCacheFillSerial;
+        for(Widget w=this ; w!=null ; w=w.parent) {
+            if(w.sizeCacheValid == 0 && w.sizeCacheInvalidSerial == fillSerial) {
+                break;
+            }
+            w.sizeCacheValid = 0;
+            w.sizeCacheInvalidSerial = fillSerial;
+        }
+    }
+
+    private int getCachedSize(int what) {
+        final GUI gui = guiInstance;
+        final boolean useCache = sizeCacheEnabled && gui != null && gui.inLayoutPass;
+        final int mask = 1 << what;
+        if(useCache) {
+            if(sizeCacheSerial != gui.layoutPassSerial) {
+                sizeCacheSerial = gui.layoutPassSerial;
+                sizeCacheValid = 0;
+            } else if((sizeCacheValid & mask) != 0) {
+                gui.numSizeCacheHits++;
+                return sizeCache[what];
+            }
+            gui.numSizeCacheMisses++;
+        }
+        int value;
+        switch(what) {
+            case SIZE_MIN_WIDTH:   value = getMinWidth(); break;
+            case SIZE_MIN_HEIGHT:  value = getMinHeight(); break;
+            case SIZE_PREF_WIDTH:  value = getPreferredWidth(); break;
+            case SIZE_PREF_HEIGHT: value = getPreferredHeight(); break;
+            case SIZE_MAX_WIDTH:   value = getMaxWidth(); break;
+            case SIZE_MAX_HEIGHT:  value = getMaxHeight(); break;
+            default:
+                throw new AssertionError();
+        }
+        if(useCache) {
+            if(sizeCache == null) {
+                sizeCache = new int[6];
+            }
+            sizeCache[what] = value;
+            if(sizeCacheValid == 0) {
+                gui.sizeCacheFillSerial++;
+            }
+            sizeCacheValid |= mask;
+        }
+        return value;
+    }
+
     /**
      * Auto adjust the size of this widget based on it's preferred size.
      * 
@@ -985,6 +1231,7 @@ public class Widget {
      */
     public void invalidateLayout() {
         if(layoutInvalid < LAYOUT_INVALID_GLOBAL) {
+            repaint();
             invalidateLayoutLocally();
             if(parent != null) {
                 layoutInvalid = LAYOUT_INVALID_GLOBAL;
@@ -994,21 +1241,50 @@ public class Widget {
     }
     
     /**
-     * Calls layout() if the layout is marked invalid.
+     * Calls layout() if the layout is marked invalid and then validates the
+     * layout of all children. Only children which have an invalid layout in
+     * their subtree are visited.
      * @see #invalidateLayout()
      * @see #layout()
      */
     public void validateLayout() {
+        final GUI gui = guiInstance;
+        if(gui != null) {
+            gui.numLayoutVisits++;
+            final WidgetProfiler profiler = gui.profiler;
+            if(profiler != null) {
+                profiler.enter(this, WidgetProfiler.Phase.LAYOUT);
+                try {
+                    validateLayoutImpl(gui);
+                } finally {
+                    profiler.leave();
+                }
+                return;
+            }
+        }
+        validateLayoutImpl(gui);
+    }
+    
+    private void validateLayoutImpl(GUI gui) {
         if(layoutInvalid != 0) {
             /* Reset the flag first so that widgets like TextArea can invalidate
              * their layout from inside layout()
              */
             layoutInvalid = 0;
+            if(gui != null) {
+                gui.numLayouts++;
+            }
             layout();
         }
-        if(children != null) {
-            for(int i=0,n=children.size() ; i<n ; i++) {
-                children.get(i).validateLayout();
+        if(childLayoutInvalid) {
+            childLayoutInvalid = false;
+            if(children != null) {
+                for(int i=0,n=children.size() ; i<n ; i++) {
+                    Widget child = children.get(i);
+                    if(child.layoutInvalid != 0 || child.childLayoutInvalid) {
+                        child.validateLayout();
+                    }
+                }
             }
         }
     }
@@ -1142,7 +1418,11 @@ public class Widget {
      * @see #paintBackground(de.matthiasmann.twl.GUI)
      */
     public void setBackground(Image background) {
-        this.background = background;
+        if(this.background != background) {
+            this.background = background;
+            invalidateSizeCache();
+            repaint();
+        }
     }
 
     /**
@@ -1160,7 +1440,10 @@ public class Widget {
      * @see #paintOverlay(de.matthiasmann.twl.GUI)
      */
     public void setOverlay(Image overlay) {
-        this.overlay = overlay;
+        if(this.overlay != overlay) {
+            this.overlay = overlay;
+            repaint();
+        }
     }
     
     /**
@@ -1251,11 +1534,24 @@ public class Widget {
         }
         child.setParent(this);  // can throw exception - see PopupWindow
         children.add(index, child);
+        addNumPositionListeners(this, child.numPositionListeners);
+        if(child.layoutInvalid != 0 || child.childLayoutInvalid) {
+            markChildLayoutInvalid(this);
+        }
         GUI gui = getGUI();
         if(gui != null) {
             child.recursivelySetGUI(gui);
         }
-        adjustChildPosition(child, posX + borderLeft, posY + borderTop);
+        validatePosition();
+        child.relX = child.posX + borderLeft;
+        child.relY = child.posY + borderTop;
+        child.parentPosSerial = posSerial;
+        child.posEpoch = posEpoch;
+        child.setPositionImpl(posX + child.relX, posY + child.relY);
+        if(spatialIndex != null) {
+            spatialIndex.update(child, child.relX, child.relY, child.width, child.height);
+            spatialIndex.invalidateOrder();
+        }
         child.recursivelyEnabledChanged(null, enabled);
         if(gui != null) {
             child.recursivelyAddToGUI(gui);
@@ -1268,6 +1564,7 @@ public class Widget {
         } catch(Exception ex) {
             getLogger().log(Level.SEVERE, "Exception in childAdded()", ex);
         }
+        child.repaint();
         // A newly added child can't have open popups
         // because it needs a GUI for this - and it had no parent up to now
     }
@@ -1358,8 +1655,46 @@ public class Widget {
         }
     }
     
+    /**
+     * Cancels all async jobs owned by this widget. Their completion listeners
+     * are not executed. This is called automatically when the widget is
+     * removed from the GUI or destroyed.
+     * 
+     * @see GUI#invokeAsync(de.matthiasmann.twl.Widget, java.util.concurrent.Callable, de.matthiasmann.twl.GUI.AsyncCompletionListener) 
+     */
+    public void cancelAsyncJobs() {
+        AsyncJob<?>[] jobs;
+        synchronized(this) {
+            if(asyncJobs == null || asyncJobs.isEmpty()) {
+                return;
+            }
+            jobs = asyncJobs.toArray(new AsyncJob<?>[asyncJobs.size()]);
+            asyncJobs.clear();
+        }
+        for(AsyncJob<?> job : jobs) {
+            job.cancel(true);
+        }
+    }
+
+    synchronized void addAsyncJob(AsyncJob<?> job) {
+        if(asyncJobs == null) {
+            asyncJobs = new ArrayList<AsyncJob<?>>();
+        }
+        // remove finished jobs to keep the list short
+        for(int i=asyncJobs.size() ; i-->0 ;) {
+            if(asyncJobs.get(i).isFinished()) {
+                asyncJobs.remove(i);
+            }
+        }
+        asyncJobs.add(job);
+    }
+
     /**
      * Clean up GL resources. When overwritten then super method must be called.
+     * 
+     * <p>This also cancels all async jobs owned by this widget.</p>
+     * 
+     * @see #cancelAsyncJobs() 
      */
     public void destroy() {
         if(children != null) {
@@ -1367,6 +1702,7 @@ public class Widget {
                 children.get(i).destroy();
             }
         }
+        cancelAsyncJobs();
         if(offscreenSurface != null) {
             offscreenSurface.destroy();
             offscreenSurface = null;
@@ -1489,6 +1825,7 @@ public class Widget {
      */
     public void setTintAnimator(TintAnimator tintAnimator) {
         this.tintAnimator = tintAnimator;
+        repaint();
     }
 
     /**
@@ -1824,6 +2161,9 @@ public class Widget {
         }
         Widget child = children.remove(from);
         children.add(to, child);
+        if(spatialIndex != null) {
+            spatialIndex.invalidateOrder();
+        }
     }
     
     /**
@@ -1917,9 +2257,10 @@ public class Widget {
      * Called when the position of this widget was changed.
      * The default implementation does nothing.
      * 
-     * Child positions are already updated to retain the absolute
-     * coordinate system. This has the side effect of firing child's
-     * positionChanged before the parent's.
+     * <p>NOTE: When a parent widget is moved then the absolute positions of
+     * it's descendants are updated lazily. Widgets which override this method
+     * or have a {@link PropertyChangeListener} for "x" or "y" are still
+     * notified from within {@link #setPosition(int, int) } of the ancestor.</p>
      */
     protected void positionChanged() {
     }
@@ -2087,7 +2428,7 @@ public class Widget {
     protected void paintBackground(GUI gui) {
         Image bgImage = getBackground();
         if(bgImage != null) {
-            bgImage.draw(getAnimationState(), posX, posY, width, height);
+            bgImage.draw(getAnimationState(), getX(), getY(), width, height);
         }
     }
 
@@ -2099,12 +2440,13 @@ public class Widget {
     protected void paintOverlay(GUI gui) {
         Image ovImage = getOverlay();
         if(ovImage != null) {
-            ovImage.draw(getAnimationState(), posX, posY, width, height);
+            ovImage.draw(getAnimationState(), getX(), getY(), width, height);
         }
     }
 
     /**
-     * Paints all children in index order. Invisible children are skipped.
+     * Paints all children in index order. Invisible children and children
+     * which are completely outside of the active clip region are skipped.
      * @param gui the GUI object
      * @see #paint(de.matthiasmann.twl.GUI) 
      */
@@ -2112,7 +2454,7 @@ public class Widget {
         if(children != null) {
             for(int i=0,n=children.size() ; i<n ; i++) {
                 Widget child = children.get(i);
-                if(child.visible) {
+                if(child.visible && child.isInsidePaintArea(gui)) {
                     child.drawWidget(gui);
                 }
             }
@@ -2143,21 +2485,64 @@ public class Widget {
      */
     protected void paintDragOverlay(GUI gui, int mouseX, int mouseY, int modifier) {
     }
+
+    /**
+     * Requests a repaint of this widget including it's offscreen extra area.
+     * 
+     * <p>Changes of position, size, visibility, background, overlay, layout
+     * and animation state are reported automatically. A widget needs to call
+     * this method when it changes what it draws in any other way.</p>
+     * 
+     * <p>This also invalidates all {@link OffscreenCache} instances of this
+     * widget and it's parents.</p>
+     * 
+     * @see GUI#setDamageTracking(boolean) 
+     */
+    public void repaint() {
+        if(visible) {
+            repaintBounds(this);
+        }
+    }
+
+    /**
+     * Requests a repaint of the specified area.
+     * 
+     * @param x the left edge in absolute coordinates
+     * @param y the top edge in absolute coordinates
+     * @param width the width of the area
+     * @param height the height of the area
+     * @see #repaint() 
+     */
+    public void repaint(int x, int y, int width, int height) {
+        if(visible) {
+            invalidateOffscreenCaches(this);
+            GUI gui = guiInstance;
+            if(gui != null) {
+                gui.addDamage(x, y, width, height);
+            }
+        }
+    }
     
     /**
      * Invalidates only the layout of this widget. Does not invalidate the layout of the parent.
      * Should only be used for things like scrolling.
      *
+     * <p>As the widget will be laid out again it's area is also reported
+     * as damaged, see {@link #repaint() }.</p>
+     *
      * This method is called by sizeChanged()
      * 
      * @see #sizeChanged()
      */
     protected final void invalidateLayoutLocally() {
+        invalidateSizeCache();
         if(layoutInvalid < LAYOUT_INVALID_LOCAL) {
             layoutInvalid = LAYOUT_INVALID_LOCAL;
+            markChildLayoutInvalid(parent);
             GUI gui = getGUI();
             if(gui != null) {
                 gui.hasInvalidLayouts = true;
+                repaint();
             }
         }
     }
@@ -2281,6 +2666,10 @@ public class Widget {
      */
     protected final Widget getChildAt(int x, int y) {
         if(children != null) {
+            if(spatialIndex != null) {
+                validatePosition();
+                return spatialIndex.findChildAt(this, x - posX, y - posY, x, y);
+            }
             for(int i=children.size(); i-->0 ;) {
                 Widget child = children.get(i);
                 if(child.visible && child.isInside(x, y)) {
@@ -2364,6 +2753,7 @@ public class Widget {
     }
     
     private void unparentChild(Widget child) {
+        child.repaint();
         GUI gui = getGUI();
         if(child.hasOpenPopup) { 
             assert(gui != null);
@@ -2374,19 +2764,27 @@ public class Widget {
             child.recursivelyRemoveFromGUI(gui);
         }
         child.recursivelyClearGUI(gui);
+        child.validatePosition();
+        if(spatialIndex != null) {
+            spatialIndex.remove(child);
+        }
+        addNumPositionListeners(this, -child.numPositionListeners);
         child.parent = null;
         try {
             child.destroy();
         } catch(Exception ex) {
             getLogger().log(Level.SEVERE, "Exception in destroy()", ex);
         }
-        adjustChildPosition(child, -posX, -posY);
+        child.setPositionImpl(child.relX, child.relY);
         child.recursivelyEnabledChanged(null, child.locallyEnabled);
     }
 
     private void recursivelySetGUI(GUI gui) {
         assert guiInstance == null : "guiInstance must be null";
         guiInstance = gui;
+        // the position epoch and size cache serial are per GUI - force revalidation
+        posEpoch = gui.positionEpoch - 1;
+        sizeCacheInvalidSerial = gui.sizeCacheFillSerial - 1;
         if(children != null) {
             for(int i=children.size() ; i-->0 ;) {
                 children.get(i).recursivelySetGUI(gui);
@@ -2418,6 +2816,7 @@ public class Widget {
         assert guiInstance == gui : "guiInstance must be null";
         guiInstance = null;
         themeManager = null;
+        posEpoch = detachedPositionEpoch.get() - 1;
         if(children != null) {
             for(int i=children.size() ; i-->0 ;) {
                 children.get(i).recursivelyClearGUI(gui);
@@ -2436,6 +2835,7 @@ public class Widget {
         if(!sharedAnimState) {
             animState.setGUI(null);
         }
+        cancelAsyncJobs();
         try {
             beforeRemoveFromGUI(gui);
         } catch(Exception ex) {
@@ -2543,7 +2943,47 @@ public class Widget {
         return layoutInvalid != 0;
     }
     
+    private void repaintBounds(Widget offscreenCacheWidget) {
+        invalidateOffscreenCaches(offscreenCacheWidget);
+        GUI gui = guiInstance;
+        if(gui != null) {
+            validatePosition();
+            gui.addDamage(posX - offscreenExtraLeft, posY - offscreenExtraTop,
+                    width + offscreenExtraLeft + offscreenExtraRight,
+                    height + offscreenExtraTop + offscreenExtraBottom);
+        }
+    }
+    
+    private static void invalidateOffscreenCaches(Widget w) {
+        for(; w != null ; w = w.parent) {
+            if(w.renderOffscreen instanceof OffscreenCache) {
+                ((OffscreenCache)w.renderOffscreen).invalidate();
+            }
+        }
+    }
+    
+    final boolean isInsidePaintArea(GUI gui) {
+        validatePosition();
+        return gui.isInsidePaintArea(posX - offscreenExtraLeft, posY - offscreenExtraTop,
+                posX + width + offscreenExtraRight, posY + height + offscreenExtraBottom);
+    }
+    
     final void drawWidget(GUI gui) {
+        final WidgetProfiler profiler = gui.profiler;
+        if(profiler != null) {
+            profiler.enter(this, WidgetProfiler.Phase.DRAW);
+            try {
+                drawWidgetImpl(gui);
+            } finally {
+                profiler.leave();
+            }
+        } else {
+            drawWidgetImpl(gui);
+        }
+    }
+    
+    private void drawWidgetImpl(GUI gui) {
+        gui.numPaintedWidgets++;
         if(renderOffscreen != null) {
             drawWidgetOffscreen(gui);
             return;
@@ -2562,6 +3002,7 @@ public class Widget {
     private void drawWidgetTint(GUI gui) {
         if(tintAnimator.isFadeActive()) {
             updateTintAnimation();
+            repaint();
         }
         final Renderer renderer = gui.getRenderer();
         tintAnimator.paintWithTint(renderer);
@@ -2578,7 +3019,7 @@ public class Widget {
 
     private void drawWidgetClip(GUI gui) {
         Renderer renderer = gui.getRenderer();
-        renderer.clipEnter(posX, posY, width, height);
+        renderer.clipEnter(getX(), getY(), width, height);
         try {
             paint(gui);
         } finally {
@@ -2602,12 +3043,12 @@ public class Widget {
                 extraRight += effectExtra[2];
                 extraBottom += effectExtra[3];
             }
-            if(offscreenSurface != null && !ro.needPainting(gui, parent, offscreenSurface)) {
+            if(offscreenSurface != null && !ro.needPainting(gui, this, offscreenSurface)) {
                 ro.paintOffscreenSurface(gui, this, offscreenSurface);
                 return;
             }
             offscreenSurface = offscreenRenderer.startOffscreenRendering(
-                    this, offscreenSurface, posX-extraLeft, posY-extraTop,
+                    this, offscreenSurface, getX()-extraLeft, getY()-extraTop,
                     width+extraLeft+extraRight, height+extraTop+extraBottom);
             if(offscreenSurface != null) {
                 try {
@@ -2640,35 +3081,151 @@ public class Widget {
     }
     
     private static void adjustChildPosition(Widget child, int deltaX, int deltaY) {
-        child.setPositionImpl(child.posX + deltaX, child.posY + deltaY);
+        child.setPositionImpl(child.getX() + deltaX, child.getY() + deltaY);
+    }
+
+    private void updateSpatialIndex() {
+        final Widget p = parent;
+        if(p != null && p.spatialIndex != null) {
+            p.spatialIndex.update(this, relX, relY, width, height);
+        }
     }
 
     final boolean setPositionImpl(int x, int y) {
-        int deltaX = x - posX;
-        int deltaY = y - posY;
-        if(deltaX != 0 || deltaY != 0) {
-            this.posX = x;
-            this.posY = y;
+        validatePosition();
+        int oldX = posX;
+        int oldY = posY;
+        if(x != oldX || y != oldY) {
+            if(parent != null) {
+                relX = x - parent.posX;
+                relY = y - parent.posY;
+            }
+            // children pick up the new position lazily - see validatePosition()
+            absolutePositionChanged(oldX, oldY, x, y, children != null);
+            if(numPositionListeners > (positionListener ? 1 : 0)) {
+                notifyChildPositionListeners();
+            }
+            if(parent != null) {
+                // the default preferred size is based on the child positions
+                parent.invalidateSizeCache();
+                updateSpatialIndex();
+            }
+            return true;
+        }
+        return false;
+    }
 
-            if(children != null) {
-                for(int i=0,n=children.size() ; i<n ; i++) {
-                    adjustChildPosition(children.get(i), deltaX, deltaY);
+    /**
+     * Updates the cached absolute position when the position of a parent
+     * has changed since the last call. This makes moving a widget independent
+     * of the number of widgets in it's subtree: a move only increments the
+     * position epoch of the GUI and each descendant recomputes it's position
+     * from the parent when it is accessed the next time.
+     */
+    final void validatePosition() {
+        final GUI gui = guiInstance;
+        final int epoch = (gui != null) ? gui.positionEpoch : detachedPositionEpoch.get();
+        if(posEpoch != epoch) {
+            posEpoch = epoch;
+            final Widget p = parent;
+            if(p != null) {
+                p.validatePosition();
+                if(parentPosSerial != p.posSerial) {
+                    parentPosSerial = p.posSerial;
+                    int x = p.posX + relX;
+                    int y = p.posY + relY;
+                    if(x != posX || y != posY) {
+                        absolutePositionChanged(posX, posY, x, y, false);
+                    }
                 }
             }
+        }
+    }
 
-            positionChanged();
-
-            if(propertyChangeSupport != null) {
-                firePropertyChange("x", x - deltaX, x);
-                firePropertyChange("y", y - deltaY, y);
+    /**
+     * Validates the position of all descendants which need to be notified
+     * of position changes immediately. Subtrees without such widgets are
+     * skipped and stay lazy.
+     */
+    private void notifyChildPositionListeners() {
+        final ArrayList<Widget> c = children;
+        if(c != null) {
+            // positionChanged() may modify the children list
+            for(int i=0 ; i<c.size() ; i++) {
+                Widget child = c.get(i);
+                if(child.numPositionListeners > 0) {
+                    child.validatePosition();
+                    if(child.numPositionListeners > (child.positionListener ? 1 : 0)) {
+                        child.notifyChildPositionListeners();
+                    }
+                }
+            }
+        }
+    }
+    
+    private void addPositionListener() {
+        if(!positionListener) {
+            // deliver pending lazy position changes before the listener is added
+            validatePosition();
+            positionListener = true;
+            addNumPositionListeners(this, 1);
+        }
+    }
+    
+    private static void addNumPositionListeners(Widget w, int count) {
+        if(count != 0) {
+            for(; w != null ; w = w.parent) {
+                w.numPositionListeners += count;
+            }
+        }
+    }
+    
+    private static boolean overridesPositionChanged(Class<?> clazz) {
+        synchronized(positionChangedOverrides) {
+            Boolean result = positionChangedOverrides.get(clazz);
+            if(result == null) {
+                result = findPositionChangedOverride(clazz);
+                positionChangedOverrides.put(clazz, result);
+            }
+            return result;
+        }
+    }
+    
+    private static boolean findPositionChangedOverride(Class<?> clazz) {
+        for(; clazz != Widget.class ; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("positionChanged");
+                return true;
+            } catch(NoSuchMethodException ex) {
+                // not declared in this class
+            } catch(SecurityException ex) {
+                // can't check - assume it is overridden
+                return true;
             }
-            return true;
         }
         return false;
     }
+
+    private void absolutePositionChanged(int oldX, int oldY, int x, int y, boolean invalidateChildren) {
+        this.posX = x;
+        this.posY = y;
+        this.posSerial++;
+        if(invalidateChildren) {
+            final GUI gui = guiInstance;
+            posEpoch = (gui != null) ? ++gui.positionEpoch : detachedPositionEpoch.incrementAndGet();
+        }
+        
+        positionChanged();
+
+        if(propertyChangeSupport != null) {
+            firePropertyChange("x", oldX, x);
+            firePropertyChange("y", oldY, y);
+        }
+    }
     
     void applyTheme(ThemeManager themeManager) {
         this.themeManager = themeManager;
+        invalidateSizeCache();
         
         final String themePath = getThemePath();
         if(themePath.length() == 0) {
@@ -2688,7 +3245,7 @@ public class Widget {
             themeInfo = themeManager.findThemeInfo(themePath);
             if(themeInfo != null && theme.length() > 0) {
                 try {
-                    applyTheme(themeInfo);
+                    applyThemeProfiled(themeInfo);
                 } catch(Exception ex) {
                     getLogger().log(Level.SEVERE, "Exception in applyTheme()", ex);
                 }
@@ -2723,7 +3280,7 @@ public class Widget {
                 }
                 if(themeInfo != null) {
                     try {
-                        applyTheme(themeInfo);
+                        applyThemeProfiled(themeInfo);
                     } catch(Exception ex) {
                         getLogger().log(Level.SEVERE, "Exception in applyTheme()", ex);
                     }
@@ -2735,6 +3292,21 @@ public class Widget {
         applyThemeToChildren(themeManager, themeInfo, hook);
     }
 
+    private void applyThemeProfiled(ThemeInfo themeInfo) {
+        final GUI gui = guiInstance;
+        final WidgetProfiler profiler = (gui != null) ? gui.profiler : null;
+        if(profiler != null) {
+            profiler.enter(this, WidgetProfiler.Phase.THEME);
+            try {
+                applyTheme(themeInfo);
+            } finally {
+                profiler.leave();
+            }
+        } else {
+            applyTheme(themeInfo);
+        }
+    }
+
     private void applyThemeToChildren(ThemeManager themeManager, ThemeInfo themeInfo, DebugHook hook) {
         if(children != null && themeInfo != null) {
             for(int i=0,n=children.size() ; i<n ; i++) {
@@ -2770,40 +3342,72 @@ public class Widget {
         return evt;
     }
     
+    private Widget routeMouseEventToChild(Widget child, Event evt) {
+        if(child.visible && child.isMouseInside(evt)) {
+            // we send the real event only only if we can transfer the mouse "focus" to this child
+            if(setMouseOverChild(child, evt)) {
+                if(evt.getType() == Event.Type.MOUSE_ENTERED ||
+                        evt.getType() == Event.Type.MOUSE_EXITED) {
+                    return child;
+                }
+                Widget result = child.routeMouseEvent(evt);
+                if(result != null) {
+                    // need to check if the focus was transfered to this child or its descendants
+                    // if not we need to transfer focus on mouse click here
+                    // this can happen if we click on a widget which doesn't want the keyboard focus itself
+                    if(evt.getType() == Event.Type.MOUSE_BTNDOWN && focusChild != child) {
+                        try {
+                            child.focusGainedCause = FocusGainedCause.MOUSE_BTNDOWN;
+                            if(child.isEnabled() && child.canAcceptKeyboardFocus()) {
+                                requestKeyboardFocus(child);
+                            }
+                        } finally {
+                            child.focusGainedCause = null;
+                        }
+                    }
+                    return result;
+                }
+                // widget no longer wants mouse events
+            }
+            // found a widget - but it doesn't want mouse events
+            // so assumes it's "invisible" for the mouse
+        }
+        return null;
+    }
+
     Widget routeMouseEvent(Event evt) {
         assert !evt.isMouseDragEvent();
         evt = translateMouseEvent(evt);
         if(children != null) {
-            for(int i=children.size(); i-->0 ;) {
-                Widget child = children.get(i);
-                if(child.visible && child.isMouseInside(evt)) {
-                    // we send the real event only only if we can transfer the mouse "focus" to this child
-                    if(setMouseOverChild(child, evt)) {
-                        if(evt.getType() == Event.Type.MOUSE_ENTERED ||
-                                evt.getType() == Event.Type.MOUSE_EXITED) {
-                            return child;
-                        }
-                        Widget result = child.routeMouseEvent(evt);
-                        if(result != null) {
-                            // need to check if the focus was transfered to this child or its descendants
-                            // if not we need to transfer focus on mouse click here
-                            // this can happen if we click on a widget which doesn't want the keyboard focus itself
-                            if(evt.getType() == Event.Type.MOUSE_BTNDOWN && focusChild != child) {
-                                try {
-                                    child.focusGainedCause = FocusGainedCause.MOUSE_BTNDOWN;
-                                    if(child.isEnabled() && child.canAcceptKeyboardFocus()) {
-                                        requestKeyboardFocus(child);
-                                    }
-                                } finally {
-                                    child.focusGainedCause = null;
-                                }
+            if(spatialIndex != null) {
+                validatePosition();
+                // the buffer is used like a stack in case an event handler
+                // causes a nested mouse event
+                final ArrayList<Widget> candidates = spatialIndex.candidates;
+                final int start = candidates.size();
+                try {
+                    spatialIndex.collect(this, evt.getMouseX() - posX, evt.getMouseY() - posY, candidates);
+                    for(int i=start,n=candidates.size() ; i<n ; i++) {
+                        Widget child = candidates.get(i);
+                        // an event handler could have removed the child
+                        if(child.parent == this) {
+                            Widget result = routeMouseEventToChild(child, evt);
+                            if(result != null) {
+                                return result;
                             }
-                            return result;
                         }
-                        // widget no longer wants mouse events
                     }
-                    // found a widget - but it doesn't want mouse events
-                    // so assumes it's "invisible" for the mouse
+                } finally {
+                    for(int i=candidates.size() ; i-->start ;) {
+                        candidates.remove(i);
+                    }
+                }
+            } else {
+                for(int i=children.size(); i-->0 ;) {
+                    Widget result = routeMouseEventToChild(children.get(i), evt);
+                    if(result != null) {
+                        return result;
+                    }
                 }
             }
         }
@@ -2829,12 +3433,27 @@ public class Widget {
         if(!isEnabled() && isMouseAction(evt)) {
             return this;
         }
-        if(handleEvent(evt)) {
+        if(dispatchEvent(evt)) {
             return this;
         }
         return null;
     }
 
+    final boolean dispatchEvent(Event evt) {
+        final GUI gui = guiInstance;
+        final WidgetProfiler profiler = (gui != null) ? gui.profiler : null;
+        if(profiler != null) {
+            profiler.enter(this, evt.isMouseEvent() ? WidgetProfiler.Phase.MOUSE :
+                evt.isKeyEvent() ? WidgetProfiler.Phase.KEY : WidgetProfiler.Phase.EVENT);
+            try {
+                return handleEvent(evt);
+            } finally {
+                profiler.leave();
+            }
+        }
+        return handleEvent(evt);
+    }
+
     static boolean isMouseAction(Event evt) {
         Event.Type type = evt.getType();
         return type == Event.Type.MOUSE_BTNDOWN ||
@@ -2868,7 +3487,7 @@ public class Widget {
                 guiInstance.setFocusKeyWidget(this);
             }
             if(focusChild != null && focusChild.isVisible()) {
-                if(focusChild.handleEvent(evt)) {
+                if(focusChild.dispatchEvent(evt)) {
                     return true;
                 }
             }
@@ -2924,6 +3543,16 @@ public class Widget {
         return true;
     }
     
+    /**
+     * Marks the path from the specified widget to the root so that
+     * validateLayout() only needs to visit subtrees with invalid layouts.
+     */
+    private static void markChildLayoutInvalid(Widget w) {
+        for(; w != null && !w.childLayoutInvalid ; w = w.parent) {
+            w.childLayoutInvalid = true;
+        }
+    }
+    
     void collectLayoutLoop(ArrayList<Widget> result) {
         if(layoutInvalid != 0) {
             result.add(this);
@@ -0,0 +1,528 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.utils.CallbackSupport;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Measures the time spent in widgets while drawing, validating the layout,
+ * applying themes and dispatching events.
+ * 
+ * <p>The profiler is enabled by installing it with
+ * {@link GUI#setProfiler(de.matthiasmann.twl.WidgetProfiler) }. When no
+ * profiler is installed the only cost is a null check per hook.</p>
+ * 
+ * <p>For each frame the number of calls, the inclusive and the exclusive time
+ * is collected per widget and per widget class. A frame ends after
+ * {@link GUI#draw() } and the results are then available via
+ * {@link #getWidgetEntries() } and {@link #getClassEntries() }.</p>
+ * 
+ * <p>Optionally all measured calls can be recorded and written in the
+ * Chrome trace event format which can be viewed with {@code chrome://tracing}.</p>
+ * 
+ * <p>This class must only be used from the GUI thread.</p>
+ * 
+ * @author Matthias Mann
+ * @see ProfilerOverlay
+ */
+public class WidgetProfiler {
+
+    public enum Phase {
+        DRAW,
+        LAYOUT,
+        THEME,
+        MOUSE,
+        KEY,
+        EVENT
+    }
+    
+    /**
+     * The statistics of a widget or a widget class for one frame.
+     */
+    public static final class Entry {
+        final Widget widget;
+        final Class<?> widgetClass;
+        int numCalls;
+        long inclusiveNanos;
+        long exclusiveNanos;
+        int active;
+
+        Entry(Widget widget, Class<?> widgetClass) {
+            this.widget = widget;
+            this.widgetClass = widgetClass;
+        }
+
+        /**
+         * Returns the widget or null if this is an entry for a widget class
+         * @return the widget or null
+         */
+        public Widget getWidget() {
+            return widget;
+        }
+
+        public Class<?> getWidgetClass() {
+            return widgetClass;
+        }
+
+        public int getNumCalls() {
+            return numCalls;
+        }
+
+        /**
+         * Returns the time spent in this widget including all nested calls.
+         * Nested calls for the same entry are only counted once.
+         * @return the inclusive time in nanoseconds
+         */
+        public long getInclusiveNanos() {
+            return inclusiveNanos;
+        }
+
+        /**
+         * Returns the time spent in this widget excluding all nested calls
+         * to other profiled widgets.
+         * @return the exclusive time in nanoseconds
+         */
+        public long getExclusiveNanos() {
+            return exclusiveNanos;
+        }
+
+        public String getName() {
+            return (widget != null) ? getWidgetName(widget) : getClassName(widgetClass);
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+    
+    private static final Comparator<Entry> EXCLUSIVE_TIME_COMPARATOR = new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+            if(a.exclusiveNanos != b.exclusiveNanos) {
+                return (a.exclusiveNanos < b.exclusiveNanos) ? 1 : -1;
+            }
+            return b.numCalls - a.numCalls;
+        }
+    };
+    
+    private IdentityHashMap<Widget, Entry> widgetEntries;
+    private HashMap<Class<?>, Entry> classEntries;
+    private List<Entry> lastWidgetEntries;
+    private List<Entry> lastClassEntries;
+    
+    private Entry[] stackWidget;
+    private Entry[] stackClass;
+    private Phase[] stackPhase;
+    private long[] stackStart;
+    private long[] stackChild;
+    private int depth;
+    
+    private long frameStart;
+    private long frameProfiledNanos;
+    private long lastFrameNanos;
+    private long lastFrameProfiledNanos;
+    private int frameNumber;
+    private Runnable[] frameCallbacks;
+    
+    private boolean traceEnabled;
+    private int maxTraceEvents = 100000;
+    private int numTraceEvents;
+    private int numDroppedTraceEvents;
+    private long traceStart;
+    private Widget[] traceWidget;
+    private Phase[] tracePhase;
+    private long[] traceStartNanos;
+    private long[] traceDuration;
+    
+    public WidgetProfiler() {
+        this.widgetEntries = new IdentityHashMap<Widget, Entry>();
+        this.classEntries = new HashMap<Class<?>, Entry>();
+        this.lastWidgetEntries = Collections.<Entry>emptyList();
+        this.lastClassEntries = Collections.<Entry>emptyList();
+        this.stackWidget = new Entry[32];
+        this.stackClass = new Entry[32];
+        this.stackPhase = new Phase[32];
+        this.stackStart = new long[32];
+        this.stackChild = new long[32];
+        this.frameStart = System.nanoTime();
+    }
+
+    /**
+     * Returns the per widget statistics of the last completed frame sorted
+     * by exclusive time - most expensive first.
+     * @return an unmodifiable list
+     */
+    public List<Entry> getWidgetEntries() {
+        return lastWidgetEntries;
+    }
+
+    /**
+     * Returns the per widget class statistics of the last completed frame
+     * sorted by exclusive time - most expensive first.
+     * @return an unmodifiable list
+     */
+    public List<Entry> getClassEntries() {
+        return lastClassEntries;
+    }
+
+    /**
+     * Returns the wall clock time of the last completed frame. This is the
+     * time between the end of the previous and the last frame.
+     * @return the frame time in nanoseconds
+     */
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    /**
+     * Returns the time spent in profiled widget calls in the last completed frame.
+     * @return the profiled time in nanoseconds
+     */
+    public long getLastFrameProfiledNanos() {
+        return lastFrameProfiledNanos;
+    }
+
+    /**
+     * Returns the number of completed frames
+     * @return the number of completed frames
+     */
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * Adds a callback which is called after each completed frame.
+     * @param cb the callback
+     */
+    public void addFrameCallback(Runnable cb) {
+        frameCallbacks = CallbackSupport.addCallbackToList(frameCallbacks, cb, Runnable.class);
+    }
+
+    public void removeFrameCallback(Runnable cb) {
+        frameCallbacks = CallbackSupport.removeCallbackFromList(frameCallbacks, cb);
+    }
+
+    public boolean isTraceEnabled() {
+        return traceEnabled;
+    }
+
+    /**
+     * Enables or disables recording of trace events.
+     * 
+     * @param traceEnabled true to record trace events
+     * @see #writeChromeTrace(java.io.Writer) 
+     */
+    public void setTraceEnabled(boolean traceEnabled) {
+        if(traceEnabled && numTraceEvents == 0) {
+            traceStart = System.nanoTime();
+        }
+        this.traceEnabled = traceEnabled;
+    }
+
+    public int getMaxTraceEvents() {
+        return maxTraceEvents;
+    }
+
+    /**
+     * Sets the maximum number of trace events which are recorded. Further
+     * events are dropped.
+     * 
+     * @param maxTraceEvents the maximum number of trace events
+     */
+    public void setMaxTraceEvents(int maxTraceEvents) {
+        if(maxTraceEvents < 0) {
+            throw new IllegalArgumentException("maxTraceEvents");
+        }
+        this.maxTraceEvents = maxTraceEvents;
+    }
+
+    public int getNumTraceEvents() {
+        return numTraceEvents;
+    }
+
+    public int getNumDroppedTraceEvents() {
+        return numDroppedTraceEvents;
+    }
+
+    /**
+     * Discards all recorded trace events
+     */
+    public void clearTrace() {
+        if(traceWidget != null) {
+            Arrays.fill(traceWidget, 0, numTraceEvents, null);
+        }
+        numTraceEvents = 0;
+        numDroppedTraceEvents = 0;
+        traceStart = System.nanoTime();
+    }
+
+    /**
+     * Writes all recorded trace events as Chrome trace event JSON.
+     * 
+     * @param w the writer
+     * @throws IOException if an IO error occured
+     */
+    public void writeChromeTrace(Writer w) throws IOException {
+        w.write("{\"traceEvents\":[");
+        for(int i=0 ; i<numTraceEvents ; i++) {
+            if(i > 0) {
+                w.write(',');
+            }
+            final Widget widget = traceWidget[i];
+            final Phase phase = tracePhase[i];
+            w.write("\n{\"name\":");
+            writeJSONString(w, (widget != null) ? getWidgetName(widget) : "Frame");
+            w.write(",\"cat\":");
+            writeJSONString(w, (phase != null) ? phase.name() : "FRAME");
+            w.write(",\"ph\":\"X\",\"pid\":1,\"tid\":1,\"ts\":");
+            writeMicros(w, traceStartNanos[i] - traceStart);
+            w.write(",\"dur\":");
+            writeMicros(w, traceDuration[i]);
+            w.write('}');
+        }
+        w.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+    }
+    
+    /**
+     * Starts a profiled call for the given widget. Must be followed by
+     * exactly one call to {@link #leave() }.
+     * 
+     * @param widget the widget
+     * @param phase the phase
+     */
+    public void enter(Widget widget, Phase phase) {
+        if(depth == stackWidget.length) {
+            growStack();
+        }
+        Entry we = widgetEntries.get(widget);
+        if(we == null) {
+            we = new Entry(widget, widget.getClass());
+            widgetEntries.put(widget, we);
+        }
+        Entry ce = classEntries.get(we.widgetClass);
+        if(ce == null) {
+            ce = new Entry(null, we.widgetClass);
+            classEntries.put(we.widgetClass, ce);
+        }
+        we.numCalls++;
+        we.active++;
+        ce.numCalls++;
+        ce.active++;
+        final int d = depth++;
+        stackWidget[d] = we;
+        stackClass[d] = ce;
+        stackPhase[d] = phase;
+        stackChild[d] = 0;
+        stackStart[d] = System.nanoTime();
+    }
+
+    /**
+     * Ends the profiled call which was started by the last call to
+     * {@link #enter(de.matthiasmann.twl.Widget, de.matthiasmann.twl.WidgetProfiler.Phase) }.
+     */
+    public void leave() {
+        final long now = System.nanoTime();
+        if(depth == 0) {
+            throw new IllegalStateException("leave() without enter()");
+        }
+        final int d = --depth;
+        final Entry we = stackWidget[d];
+        final Entry ce = stackClass[d];
+        final long start = stackStart[d];
+        final long duration = now - start;
+        final long exclusive = duration - stackChild[d];
+        stackWidget[d] = null;
+        stackClass[d] = null;
+        
+        we.exclusiveNanos += exclusive;
+        ce.exclusiveNanos += exclusive;
+        if(--we.active == 0) {
+            we.inclusiveNanos += duration;
+        }
+        if(--ce.active == 0) {
+            ce.inclusiveNanos += duration;
+        }
+        if(d > 0) {
+            stackChild[d-1] += duration;
+        } else {
+            frameProfiledNanos += duration;
+        }
+        if(traceEnabled) {
+            addTraceEvent(we.widget, stackPhase[d], start, duration);
+        }
+    }
+
+    /**
+     * Completes the current frame and makes it's statistics available.
+     * This is called by {@link GUI#draw() }.
+     */
+    public void endFrame() {
+        final long now = System.nanoTime();
+        lastFrameNanos = now - frameStart;
+        lastFrameProfiledNanos = frameProfiledNanos;
+        if(traceEnabled) {
+            addTraceEvent(null, null, frameStart, lastFrameNanos);
+        }
+        frameStart = now;
+        frameProfiledNanos = 0;
+        frameNumber++;
+        
+        lastWidgetEntries = sortEntries(widgetEntries.values());
+        lastClassEntries = sortEntries(classEntries.values());
+        if(depth == 0) {
+            widgetEntries = new IdentityHashMap<Widget, Entry>();
+            classEntries = new HashMap<Class<?>, Entry>();
+        }
+        
+        if(frameCallbacks != null) {
+            for(Runnable cb : frameCallbacks) {
+                cb.run();
+            }
+        }
+    }
+    
+    static String getWidgetName(Widget widget) {
+        String theme = widget.getTheme();
+        String name = getClassName(widget.getClass());
+        if(theme.length() > 0 && !theme.equalsIgnoreCase(name)) {
+            return name.concat(" (").concat(theme).concat(")");
+        }
+        return name;
+    }
+    
+    static String getClassName(Class<?> clazz) {
+        String name = clazz.getSimpleName();
+        if(name.length() == 0) {
+            // anonymous class
+            name = clazz.getName();
+            name = name.substring(name.lastIndexOf('.') + 1);
+        }
+        return name;
+    }
+    
+    private static List<Entry> sortEntries(java.util.Collection<Entry> entries) {
+        Entry[] array = entries.toArray(new Entry[entries.size()]);
+        Arrays.sort(array, EXCLUSIVE_TIME_COMPARATOR);
+        return Collections.unmodifiableList(Arrays.asList(array));
+    }
+    
+    private void growStack() {
+        final int size = stackWidget.length;
+        Entry[] newStackWidget = new Entry[size * 2];
+        Entry[] newStackClass = new Entry[size * 2];
+        Phase[] newStackPhase = new Phase[size * 2];
+        long[] newStackStart = new long[size * 2];
+        long[] newStackChild = new long[size * 2];
+        System.arraycopy(stackWidget, 0, newStackWidget, 0, size);
+        System.arraycopy(stackClass, 0, newStackClass, 0, size);
+        System.arraycopy(stackPhase, 0, newStackPhase, 0, size);
+        System.arraycopy(stackStart, 0, newStackStart, 0, size);
+        System.arraycopy(stackChild, 0, newStackChild, 0, size);
+        stackWidget = newStackWidget;
+        stackClass = newStackClass;
+        stackPhase = newStackPhase;
+        stackStart = newStackStart;
+        stackChild = newStackChild;
+    }
+    
+    private void addTraceEvent(Widget widget, Phase phase, long start, long duration) {
+        final int idx = numTraceEvents;
+        if(idx >= maxTraceEvents) {
+            numDroppedTraceEvents++;
+            return;
+        }
+        if(traceWidget == null || idx == traceWidget.length) {
+            int newSize = Math.min(maxTraceEvents, Math.max(1024, idx * 2));
+            Widget[] newTraceWidget = new Widget[newSize];
+            Phase[] newTracePhase = new Phase[newSize];
+            long[] newTraceStartNanos = new long[newSize];
+            long[] newTraceDuration = new long[newSize];
+            if(idx > 0) {
+                System.arraycopy(traceWidget, 0, newTraceWidget, 0, idx);
+                System.arraycopy(tracePhase, 0, newTracePhase, 0, idx);
+                System.arraycopy(traceStartNanos, 0, newTraceStartNanos, 0, idx);
+                System.arraycopy(traceDuration, 0, newTraceDuration, 0, idx);
+            }
+            traceWidget = newTraceWidget;
+            tracePhase = newTracePhase;
+            traceStartNanos = newTraceStartNanos;
+            traceDuration = newTraceDuration;
+        }
+        traceWidget[idx] = widget;
+        tracePhase[idx] = phase;
+        traceStartNanos[idx] = start;
+        traceDuration[idx] = duration;
+        numTraceEvents = idx + 1;
+    }
+    
+    private static void writeMicros(Writer w, long nanos) throws IOException {
+        if(nanos < 0) {
+            w.write('-');
+            nanos = -nanos;
+        }
+        w.write(Long.toString(nanos / 1000));
+        int frac = (int)(nanos % 1000);
+        w.write('.');
+        w.write((char)('0' + frac / 100));
+        w.write((char)('0' + (frac / 10) % 10));
+        w.write((char)('0' + frac % 10));
+    }
+    
+    private static void writeJSONString(Writer w, String str) throws IOException {
+        w.write('"');
+        for(int i=0,n=str.length() ; i<n ; i++) {
+            char ch = str.charAt(i);
+            switch(ch) {
+                case '"':
+                case '\\':
+                    w.write('\\');
+                    w.write(ch);
+                    break;
+                default:
+                    if(ch < 0x20) {
+                        w.write(String.format("\\u%04x", (int)ch));
+                    } else {
+                        w.write(ch);
+                    }
+                    break;
+            }
+        }
+        w.write('"');
+    }
+}
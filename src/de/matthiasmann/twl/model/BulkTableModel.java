@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.model;
+
+/**
+ * An optional extension of the TableModel which allows to fetch a range
+ * of cells with one call.
+ * 
+ * <p>The Table uses this interface to fetch all visible cells once per
+ * frame instead of calling {@link #getCell(int, int) } for every cell.</p>
+ *
+ * @author Matthias Mann
+ */
+public interface BulkTableModel extends TableModel {
+
+    /**
+     * Copies the data of a rectangular cell range into the destination
+     * array in row major order. The cell {@code (row+r, column+c)} is stored
+     * at {@code dst[r*numColumns + c]}.
+     * 
+     * @param row the first row
+     * @param column the first column
+     * @param numRows the number of rows
+     * @param numColumns the number of columns
+     * @param dst the destination array, must have atleast {@code numRows*numColumns} entries
+     * @see #getCell(int, int) 
+     */
+    public void getCells(int row, int column, int numRows, int numColumns, Object[] dst);
+    
+}
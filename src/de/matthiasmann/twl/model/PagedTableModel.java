@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.model;
+
+import de.matthiasmann.twl.GUI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A table model which loads it's rows in fixed size pages in the background.
+ * 
+ * <p>Rows are loaded using {@link #loadRows(int, int) } on the async executor
+ * of the GUI. Until a page has been loaded {@link #getPlaceholder(int, int) }
+ * is returned for it's cells. When a page arrives {@code rowsChanged} is
+ * fired for exactly the loaded rows.</p>
+ * 
+ * <p>Only the most recently used pages are kept in memory. The Table reports
+ * the visible rows and additional pages are prefetched in the scroll
+ * direction. Pending loads for pages far away from the visible rows are
+ * canceled.</p>
+ * 
+ * <p>All methods except {@link #loadRows(int, int) } must be called from
+ * the GUI thread.</p>
+ *
+ * @author Matthias Mann
+ */
+public abstract class PagedTableModel extends AbstractTableModel implements BulkTableModel, VisibleRowsListener {
+
+    private static final Object[][] FAILED_PAGE = new Object[0][];
+    
+    private final GUI gui;
+    private final int pageSize;
+    private final int maxPages;
+    private final LinkedHashMap<Integer, Object[][]> pages;
+    private final HashMap<Integer, Future<Object[][]>> pendingPages;
+    
+    private int numPrefetchPages = 2;
+    private int generation;
+    private int lastFirstVisibleRow;
+    private int scrollDirection = 1;
+
+    /**
+     * Creates a new PagedTableModel.
+     * 
+     * @param gui the GUI used to load the pages in the background
+     * @param pageSize the number of rows per page
+     * @param maxPages the maximum number of pages kept in memory. Must be
+     *                 large enough to hold the visible and prefetched pages.
+     */
+    @SuppressWarnings("serial")
+    protected PagedTableModel(GUI gui, int pageSize, int maxPages) {
+        if(gui == null) {
+            throw new NullPointerException("gui");
+        }
+        if(pageSize < 1) {
+            throw new IllegalArgumentException("pageSize");
+        }
+        if(maxPages < 1) {
+            throw new IllegalArgumentException("maxPages");
+        }
+        this.gui = gui;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+                return size() > PagedTableModel.this.maxPages;
+            }
+        };
+        this.pendingPages = new HashMap<Integer, Future<Object[][]>>();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public int getNumPrefetchPages() {
+        return numPrefetchPages;
+    }
+
+    /**
+     * Sets the number of pages which are loaded ahead of the visible rows
+     * in the scroll direction. The default is 2.
+     * 
+     * @param numPrefetchPages the number of pages to prefetch
+     */
+    public void setNumPrefetchPages(int numPrefetchPages) {
+        if(numPrefetchPages < 0) {
+            throw new IllegalArgumentException("numPrefetchPages");
+        }
+        this.numPrefetchPages = numPrefetchPages;
+    }
+
+    /**
+     * Returns the number of pages currently held in memory
+     * @return the number of cached pages
+     */
+    public int getNumCachedPages() {
+        return pages.size();
+    }
+
+    /**
+     * Returns the number of pages which are currently being loaded
+     * @return the number of pending pages
+     */
+    public int getNumPendingPages() {
+        return pendingPages.size();
+    }
+
+    /**
+     * Checks if the row is currently loaded. Does not start a load.
+     * 
+     * @param row the row
+     * @return true if the row is loaded
+     */
+    public boolean isRowLoaded(int row) {
+        Object[][] page = pages.get(row / pageSize);
+        return page != null && (row % pageSize) < page.length;
+    }
+
+    public Object getCell(int row, int column) {
+        final Object[][] page = getPage(row / pageSize);
+        final int pageRow = row % pageSize;
+        if(page != null && pageRow < page.length && page[pageRow] != null) {
+            return page[pageRow][column];
+        }
+        return getPlaceholder(row, column);
+    }
+
+    public void getCells(int row, int column, int numRows, int numColumns, Object[] dst) {
+        int dstIdx = 0;
+        int r = 0;
+        while(r < numRows) {
+            final int pageIdx = (row + r) / pageSize;
+            final Object[][] page = getPage(pageIdx);
+            final int pageEnd = Math.min(numRows, (pageIdx + 1) * pageSize - row);
+            for(; r<pageEnd ; r++,dstIdx+=numColumns) {
+                final int pageRow = (row + r) - pageIdx * pageSize;
+                if(page != null && pageRow < page.length && page[pageRow] != null) {
+                    System.arraycopy(page[pageRow], column, dst, dstIdx, numColumns);
+                } else {
+                    for(int c=0 ; c<numColumns ; c++) {
+                        dst[dstIdx + c] = getPlaceholder(row + r, column + c);
+                    }
+                }
+            }
+        }
+    }
+
+    public void visibleRowsChanged(int firstRow, int lastRow) {
+        if(firstRow != lastFirstVisibleRow) {
+            scrollDirection = (firstRow > lastFirstVisibleRow) ? 1 : -1;
+            lastFirstVisibleRow = firstRow;
+        }
+        
+        final int numPages = getNumPages();
+        final int firstPage = firstRow / pageSize;
+        final int lastPage = lastRow / pageSize;
+        final int keepStart = firstPage - numPrefetchPages;
+        final int keepEnd = lastPage + numPrefetchPages;
+        
+        // loads for pages which were scrolled past are no longer needed
+        for(Iterator<Map.Entry<Integer, Future<Object[][]>>> iter=pendingPages.entrySet().iterator() ; iter.hasNext() ;) {
+            Map.Entry<Integer, Future<Object[][]>> e = iter.next();
+            int pageIdx = e.getKey();
+            if(pageIdx < keepStart || pageIdx > keepEnd) {
+                e.getValue().cancel(false);
+                iter.remove();
+            }
+        }
+        
+        for(int pageIdx=firstPage ; pageIdx<=lastPage ; pageIdx++) {
+            getPage(pageIdx);
+        }
+        for(int i=1 ; i<=numPrefetchPages ; i++) {
+            int pageIdx = (scrollDirection > 0) ? lastPage + i : firstPage - i;
+            if(pageIdx >= 0 && pageIdx < numPages && !pages.containsKey(pageIdx)) {
+                requestPage(pageIdx);
+            }
+        }
+    }
+
+    /**
+     * Discards all cached pages and pending loads and fires {@code allChanged}.
+     * Call this when the underlying data has changed.
+     */
+    public void invalidateCache() {
+        generation++;
+        for(Future<Object[][]> f : pendingPages.values()) {
+            f.cancel(false);
+        }
+        pendingPages.clear();
+        pages.clear();
+        fireAllChanged();
+    }
+
+    /**
+     * Loads the specified rows. This method is called on a background thread.
+     * 
+     * @param firstRow the first row to load
+     * @param numRows the number of rows to load
+     * @return the loaded rows as {@code result[row][column]} - can contain
+     *         less then numRows rows.
+     * @throws Exception if the rows could not be loaded
+     */
+    protected abstract Object[][] loadRows(int firstRow, int numRows) throws Exception;
+
+    /**
+     * Returns the cell data shown while the row is not yet loaded.
+     * The default implementation returns null.
+     * 
+     * @param row the row
+     * @param column the column
+     * @return the placeholder cell data
+     */
+    protected Object getPlaceholder(int row, int column) {
+        return null;
+    }
+
+    /**
+     * Called when {@link #loadRows(int, int) } has thrown an exception. The
+     * page is not loaded again until {@link #invalidateCache() } is called.
+     * 
+     * <p>The default implementation logs the exception.</p>
+     * 
+     * @param firstRow the first row of the page
+     * @param numRows the number of rows in the page
+     * @param ex the exception
+     */
+    protected void pageLoadFailed(int firstRow, int numRows, Exception ex) {
+        Logger.getLogger(PagedTableModel.class.getName()).log(Level.SEVERE,
+                "Could not load rows " + firstRow + " to " + (firstRow+numRows-1), ex);
+    }
+    
+    private int getNumPages() {
+        return (getNumRows() + pageSize - 1) / pageSize;
+    }
+    
+    private Object[][] getPage(int pageIdx) {
+        Object[][] page = pages.get(pageIdx);
+        if(page == null) {
+            requestPage(pageIdx);
+        }
+        return page;
+    }
+    
+    private void requestPage(final int pageIdx) {
+        final int firstRow = pageIdx * pageSize;
+        final int numRows = Math.min(pageSize, getNumRows() - firstRow);
+        if(numRows <= 0 || pendingPages.containsKey(pageIdx)) {
+            return;
+        }
+        final int expectedGeneration = generation;
+        Future<Object[][]> f = gui.invokeAsync(new Callable<Object[][]>() {
+            public Object[][] call() throws Exception {
+                return loadRows(firstRow, numRows);
+            }
+        }, new GUI.AsyncCompletionListener<Object[][]>() {
+            public void completed(Object[][] result) {
+                if(expectedGeneration == generation) {
+                    pageLoaded(pageIdx, firstRow, numRows, result);
+                }
+            }
+            public void failed(Exception ex) {
+                if(expectedGeneration == generation) {
+                    pendingPages.remove(pageIdx);
+                    pages.put(pageIdx, FAILED_PAGE);
+                    pageLoadFailed(firstRow, numRows, ex);
+                }
+            }
+        });
+        // the listener is executed via invokeLater so it can't run before this
+        pendingPages.put(pageIdx, f);
+    }
+    
+    void pageLoaded(int pageIdx, int firstRow, int numRows, Object[][] rows) {
+        pendingPages.remove(pageIdx);
+        if(rows == null) {
+            rows = FAILED_PAGE;
+        }
+        pages.put(pageIdx, rows);
+        int numLoaded = Math.min(numRows, rows.length);
+        if(numLoaded > 0) {
+            fireRowsChanged(firstRow, numLoaded);
+        }
+    }
+}
@@ -0,0 +1,1035 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.model;
+
+import de.matthiasmann.twl.GUI;
+import de.matthiasmann.twl.TableBase;
+import de.matthiasmann.twl.Event;
+import de.matthiasmann.twl.renderer.AnimationState.StateKey;
+import de.matthiasmann.twl.utils.NaturalSortComparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A sorted and filtered view of another table model.
+ * 
+ * <p>The view is an {@code int[]} permutation of the accepted source rows.
+ * Changes of the source model are applied incrementally using binary search
+ * and only the affected view rows are reported to the listeners of this
+ * model.</p>
+ * 
+ * <p>When a GUI is specified large tables are sorted in the background using
+ * a parallel merge sort on the async executor of the GUI. The old view stays
+ * active until the sort has completed. Changes of the source model during the
+ * sort are applied to the old view and recorded, they are replayed on the
+ * sorted result when it is applied. The cell values of the sort column are
+ * read on the GUI thread before the sort is started, only the column
+ * comparator is called from the background threads - it must be thread
+ * safe.</p>
+ * 
+ * <p>All methods of this class must be called from the GUI thread.</p>
+ *
+ * @author Matthias Mann
+ * @see #installSortingCallback(de.matthiasmann.twl.TableBase) 
+ */
+public class SortedFilteredTableModel extends AbstractTableModel {
+
+    /**
+     * A row filter
+     */
+    public interface Filter {
+        /**
+         * Checks if the row should be visible
+         * 
+         * @param model the source table model
+         * @param row the row in the source model
+         * @return true if the row is visible
+         */
+        public boolean accept(TableModel model, int row);
+    }
+    
+    /**
+     * The default comparator. Uses natural sort order for Strings, compareTo
+     * for Comparable objects of the same class and the natural sort order of
+     * {@code toString()} otherwise.
+     */
+    public static final Comparator<Object> DEFAULT_COMPARATOR = new Comparator<Object>() {
+        @SuppressWarnings("unchecked")
+        public int compare(Object o1, Object o2) {
+            if(o1 instanceof String && o2 instanceof String) {
+                return NaturalSortComparator.stringComparator.compare((String)o1, (String)o2);
+            }
+            if(o1 instanceof Comparable && o1.getClass() == o2.getClass()) {
+                return ((Comparable<Object>)o1).compareTo(o2);
+            }
+            return NaturalSortComparator.stringComparator.compare(o1.toString(), o2.toString());
+        }
+    };
+    
+    private static final int[] EMPTY = new int[0];
+    private static final int ASYNC_SORT_THRESHOLD = 20000;
+    private static final int PARALLEL_SORT_THRESHOLD = 8192;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int MAX_INCREMENTAL_ROWS = 64;
+    
+    private final TableModel model;
+    private final GUI gui;
+    
+    private Comparator<?>[] columnComparators;
+    private Filter filter;
+    private int sortColumn = -1;
+    private SortOrder sortOrder = SortOrder.ASCENDING;
+    
+    private View view;
+    /** the sort column and order of the rows in view */
+    private int viewSortColumn = -1;
+    private SortOrder viewSortOrder = SortOrder.ASCENDING;
+    private View pendingView;
+    private ArrayList<Change> pendingChanges;
+    private int generation;
+
+    /**
+     * Creates a sorted view which sorts synchronously.
+     * 
+     * @param model the source model
+     */
+    public SortedFilteredTableModel(TableModel model) {
+        this(model, null);
+    }
+
+    /**
+     * Creates a sorted view which sorts large tables in the background.
+     * 
+     * @param model the source model
+     * @param gui the GUI used to sort in the background or null to sort synchronously
+     */
+    @SuppressWarnings("OverridableMethodCallInConstructor")
+    public SortedFilteredTableModel(TableModel model, GUI gui) {
+        if(model == null) {
+            throw new NullPointerException("model");
+        }
+        this.model = model;
+        this.gui = gui;
+        this.columnComparators = new Comparator<?>[0];
+        this.view = new View(EMPTY, 0, null, 0);
+        model.addChangeListener(new ModelChangeListener());
+        rebuild();
+    }
+
+    public TableModel getModel() {
+        return model;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the row filter and rebuilds the view.
+     * 
+     * @param filter the new filter or null to show all rows
+     */
+    public void setFilter(Filter filter) {
+        this.filter = filter;
+        rebuild();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Changes the sort column and order.
+     * 
+     * @param column the sort column or -1 to show the rows in source order
+     * @param order the sort order
+     */
+    public void setSorting(int column, SortOrder order) {
+        if(column < -1 || column >= model.getNumColumns()) {
+            throw new IndexOutOfBoundsException("column");
+        }
+        if(order == null) {
+            throw new NullPointerException("order");
+        }
+        if(sortColumn != column || sortOrder != order) {
+            sortColumn = column;
+            sortOrder = order;
+            rebuild();
+        }
+    }
+
+    /**
+     * Sorts by the specified column. If it is already the sort column then
+     * the sort order is inverted.
+     * 
+     * @param column the column
+     */
+    public void toggleSorting(int column) {
+        if(column == sortColumn) {
+            setSorting(column, sortOrder.invert());
+        } else {
+            setSorting(column, SortOrder.ASCENDING);
+        }
+    }
+
+    public Comparator<?> getColumnComparator(int column) {
+        if(column < columnComparators.length && columnComparators[column] != null) {
+            return columnComparators[column];
+        }
+        return DEFAULT_COMPARATOR;
+    }
+
+    /**
+     * Sets the comparator for the specified column. The comparator is not
+     * called with null values. It must be thread safe when a GUI was
+     * specified.
+     * 
+     * @param column the column
+     * @param comparator the comparator or null to use {@link #DEFAULT_COMPARATOR}
+     * @see NaturalSortComparator
+     */
+    public void setColumnComparator(int column, Comparator<?> comparator) {
+        if(column < 0) {
+            throw new IndexOutOfBoundsException("column");
+        }
+        if(column >= columnComparators.length) {
+            Comparator<?>[] tmp = new Comparator<?>[column + 1];
+            System.arraycopy(columnComparators, 0, tmp, 0, columnComparators.length);
+            columnComparators = tmp;
+        }
+        columnComparators[column] = comparator;
+        if(column == sortColumn) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Adds a callback to the table which sorts by the column when it's
+     * header is clicked and updates the sort order animation state of the
+     * column headers.
+     * 
+     * @param table the table which displays this model
+     */
+    public void installSortingCallback(final TableBase table) {
+        addChangeListener(new SortStateListener(table));
+        table.addCallback(new TableBase.Callback() {
+            public void columnHeaderClicked(int column) {
+                toggleSorting(column);
+                table.setColumnSortOrderAnimationState(sortColumn, sortOrder);
+            }
+            public void mouseDoubleClicked(int row, int column) {
+            }
+            public void mouseRightClick(int row, int column, Event evt) {
+            }
+        });
+        table.setColumnSortOrderAnimationState(sortColumn, sortOrder);
+    }
+
+    /**
+     * Returns true while a background sort is running.
+     * @return true while a background sort is running
+     */
+    public boolean isSorting() {
+        return pendingView != null;
+    }
+
+    /**
+     * Applies the filter and sort order again to all rows. Call this when
+     * the result of the filter has changed.
+     */
+    public void refresh() {
+        rebuild();
+    }
+
+    /**
+     * Maps a row of this model to the source model.
+     * 
+     * @param row the row in this model
+     * @return the row in the source model
+     */
+    public int getSourceRow(int row) {
+        if(row < 0 || row >= view.size) {
+            throw new IndexOutOfBoundsException("row");
+        }
+        return view.rows[row];
+    }
+
+    /**
+     * Maps a row of the source model to this model.
+     * 
+     * @param sourceRow the row in the source model
+     * @return the row in this model or -1 if the row is filtered
+     */
+    public int getViewRow(int sourceRow) {
+        return Math.max(-1, view.find(sourceRow));
+    }
+
+    public int getNumRows() {
+        return view.size;
+    }
+
+    public int getNumColumns() {
+        return model.getNumColumns();
+    }
+
+    public String getColumnHeaderText(int column) {
+        return model.getColumnHeaderText(column);
+    }
+
+    @Override
+    public StateKey[] getColumnHeaderStates() {
+        return model.getColumnHeaderStates();
+    }
+
+    @Override
+    public boolean getColumnHeaderState(int column, int stateIdx) {
+        return model.getColumnHeaderState(column, stateIdx);
+    }
+
+    public Object getCell(int row, int column) {
+        return model.getCell(view.rows[row], column);
+    }
+
+    @Override
+    public Object getTooltipContent(int row, int column) {
+        return model.getTooltipContent(view.rows[row], column);
+    }
+    
+    private boolean accept(int row) {
+        return filter == null || filter.accept(model, row);
+    }
+    
+    private boolean[] accept(int idx, int count) {
+        boolean[] accepted = new boolean[count];
+        for(int i=0 ; i<count ; i++) {
+            accepted[i] = accept(idx + i);
+        }
+        return accepted;
+    }
+    
+    private Object[] readKeys(RowComparator rc, int idx, int count) {
+        if(rc == null) {
+            return null;
+        }
+        Object[] keys = new Object[count];
+        for(int i=0 ; i<count ; i++) {
+            keys[i] = model.getCell(idx + i, rc.column);
+        }
+        return keys;
+    }
+    
+    private Object readKey(RowComparator rc, int row, int column) {
+        if(rc != null && (column < 0 || column == rc.column)) {
+            return model.getCell(row, rc.column);
+        }
+        return null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private RowComparator createRowComparator(int numRows) {
+        if(sortColumn < 0) {
+            return null;
+        }
+        Object[] keys = new Object[numRows];
+        for(int row=0 ; row<numRows ; row++) {
+            keys[row] = model.getCell(row, sortColumn);
+        }
+        Comparator<Object> c = (Comparator<Object>)getColumnComparator(sortColumn);
+        return new RowComparator(sortColumn, keys, sortOrder.map(new NullSafeComparator(c)));
+    }
+    
+    private void rebuild() {
+        final int numRows = model.getNumRows();
+        final int[] rows = new int[numRows];
+        int numAccepted = 0;
+        for(int row=0 ; row<numRows ; row++) {
+            if(accept(row)) {
+                rows[numAccepted++] = row;
+            }
+        }
+        final RowComparator rc = createRowComparator(numRows);
+        final View newView = new View(rows, numAccepted, rc, numRows);
+        
+        generation++;
+        pendingView = null;
+        pendingChanges = null;
+        if(rc != null && gui != null && numAccepted >= ASYNC_SORT_THRESHOLD) {
+            startAsyncSort(newView);
+        } else {
+            if(rc != null) {
+                sort(rows, new int[numAccepted], 0, numAccepted, rc);
+            }
+            setView(newView);
+            fireAllChanged();
+        }
+    }
+    
+    private void startAsyncSort(View newView) {
+        final int expectedGeneration = generation;
+        pendingView = newView;
+        pendingChanges = new ArrayList<Change>();
+        final ParallelSort ps = new ParallelSort(newView.rows, newView.size, newView.rc, gui.getAsyncExecutor());
+        ps.completion = new Runnable() {
+            public void run() {
+                gui.invokeLater(new Runnable() {
+                    public void run() {
+                        sortCompleted(expectedGeneration, ps);
+                    }
+                });
+            }
+        };
+        ps.start();
+    }
+    
+    void sortCompleted(int expectedGeneration, ParallelSort ps) {
+        if(pendingView == null || expectedGeneration != generation) {
+            // superseded by a newer sort
+            return;
+        }
+        final View newView = pendingView;
+        final ArrayList<Change> changes = pendingChanges;
+        pendingView = null;
+        pendingChanges = null;
+        if(ps.failure != null) {
+            Logger.getLogger(SortedFilteredTableModel.class.getName()).log(
+                    Level.SEVERE, "Exception while sorting", ps.failure);
+            // the old view is still shown - report it's sort order
+            sortColumn = viewSortColumn;
+            sortOrder = viewSortOrder;
+            fireAllChanged();
+            return;
+        }
+        // apply the source changes which happened while sorting
+        for(Change c : changes) {
+            switch(c.type) {
+                case Change.INSERTED:
+                    rowsInserted(newView, c.idx, c.count, c.keys, c.accepted, false);
+                    break;
+                case Change.DELETED:
+                    rowsDeleted(newView, c.idx, c.count, false);
+                    break;
+                default:
+                    rowChanged(newView, c.idx, c.column, c.keys[0], c.accepted[0], false);
+                    break;
+            }
+        }
+        setView(newView);
+        fireAllChanged();
+    }
+    
+    private void setView(View newView) {
+        view = newView;
+        viewSortColumn = (newView.rc != null) ? sortColumn : -1;
+        viewSortOrder = sortOrder;
+    }
+    
+    void sourceRowsInserted(int idx, int count) {
+        final boolean[] accepted = accept(idx, count);
+        rowsInserted(view, idx, count, readKeys(view.rc, idx, count), accepted, true);
+        if(pendingView != null) {
+            pendingChanges.add(new Change(Change.INSERTED, idx, count, -1,
+                    readKeys(pendingView.rc, idx, count), accepted));
+        }
+    }
+    
+    void sourceRowsDeleted(int idx, int count) {
+        rowsDeleted(view, idx, count, true);
+        if(pendingView != null) {
+            pendingChanges.add(new Change(Change.DELETED, idx, count, -1, null, null));
+        }
+    }
+    
+    void sourceRowChanged(int row, int column) {
+        final boolean accepted = accept(row);
+        rowChanged(view, row, column, readKey(view.rc, row, column), accepted, true);
+        if(pendingView != null) {
+            pendingChanges.add(new Change(Change.CHANGED, row, 1, column,
+                    new Object[] { readKey(pendingView.rc, row, column) },
+                    new boolean[] { accepted }));
+        }
+    }
+    
+    private void rowsInserted(View v, int idx, int count, Object[] keys, boolean[] accepted, boolean fire) {
+        v.sourceRowsInserted(idx, count, keys);
+        if(count <= MAX_INCREMENTAL_ROWS) {
+            for(int i=0 ; i<count ; i++) {
+                if(accepted[i]) {
+                    int row = idx + i;
+                    int pos = -(v.find(row) + 1);
+                    v.insertAt(pos, row);
+                    if(fire) {
+                        fireRowsInserted(pos, 1);
+                    }
+                }
+            }
+        } else {
+            int[] rows = new int[count];
+            int numAccepted = 0;
+            for(int i=0 ; i<count ; i++) {
+                if(accepted[i]) {
+                    rows[numAccepted++] = idx + i;
+                }
+            }
+            if(v.rc != null) {
+                sort(rows, new int[numAccepted], 0, numAccepted, v.rc);
+            }
+            v.merge(rows, numAccepted);
+            if(fire) {
+                fireAllChanged();
+            }
+        }
+    }
+    
+    private void rowsDeleted(View v, int idx, int count, boolean fire) {
+        final int end = idx + count;
+        if(count <= MAX_INCREMENTAL_ROWS) {
+            int[] positions = new int[count];
+            int numPositions = 0;
+            for(int row=idx ; row<end ; row++) {
+                int pos = v.find(row);
+                if(pos >= 0) {
+                    positions[numPositions++] = pos;
+                }
+            }
+            Arrays.sort(positions, 0, numPositions);
+            v.sourceRowsDeleted(idx, count);
+            // remove from the end to keep the positions valid
+            for(int i=numPositions ; i-- > 0 ;) {
+                int last = positions[i];
+                int first = last;
+                while(i > 0 && positions[i-1] == first-1) {
+                    first = positions[--i];
+                }
+                v.removeAt(first, last - first + 1);
+                if(fire) {
+                    fireRowsDeleted(first, last - first + 1);
+                }
+            }
+        } else {
+            v.removeRange(idx, end);
+            v.sourceRowsDeleted(idx, count);
+            if(fire) {
+                fireAllChanged();
+            }
+        }
+    }
+    
+    private void rowChanged(View v, int row, int column, Object key, boolean accepted, boolean fire) {
+        final int oldPos = v.find(row);
+        if(v.rc != null && (column < 0 || column == v.rc.column)) {
+            v.rc.keys[row] = key;
+        }
+        if(oldPos >= 0) {
+            v.removeAt(oldPos, 1);
+            if(!accepted) {
+                if(fire) {
+                    fireRowsDeleted(oldPos, 1);
+                }
+                return;
+            }
+            int newPos = -(v.find(row) + 1);
+            if(newPos == oldPos) {
+                v.insertAt(newPos, row);
+                if(!fire) {
+                    return;
+                }
+                if(column < 0) {
+                    fireRowsChanged(newPos, 1);
+                } else {
+                    fireCellChanged(newPos, column);
+                }
+            } else {
+                if(fire) {
+                    fireRowsDeleted(oldPos, 1);
+                }
+                v.insertAt(newPos, row);
+                if(fire) {
+                    fireRowsInserted(newPos, 1);
+                }
+            }
+        } else if(accepted) {
+            int pos = -(v.find(row) + 1);
+            v.insertAt(pos, row);
+            if(fire) {
+                fireRowsInserted(pos, 1);
+            }
+        }
+    }
+    
+    void sourceColumnsChanged(int idx, int count, boolean inserted) {
+        sortColumn = adjustColumn(sortColumn, idx, count, inserted);
+        viewSortColumn = adjustColumn(viewSortColumn, idx, count, inserted);
+        if(inserted) {
+            fireColumnInserted(idx, count);
+        } else {
+            fireColumnDeleted(idx, count);
+        }
+        rebuild();
+    }
+    
+    private static int adjustColumn(int column, int idx, int count, boolean inserted) {
+        if(column >= idx) {
+            if(inserted) {
+                return column + count;
+            } else if(column < idx + count) {
+                return -1;
+            } else {
+                return column - count;
+            }
+        }
+        return column;
+    }
+    
+    /**
+     * Sorts a[lo..hi) using a stable merge sort.
+     */
+    static void sort(int[] a, int[] tmp, int lo, int hi, RowComparator rc) {
+        if(hi - lo <= INSERTION_SORT_THRESHOLD) {
+            for(int i=lo+1 ; i<hi ; i++) {
+                int v = a[i];
+                int j = i;
+                while(j > lo && rc.compare(a[j-1], v) > 0) {
+                    a[j] = a[j-1];
+                    j--;
+                }
+                a[j] = v;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sort(a, tmp, lo, mid, rc);
+        sort(a, tmp, mid, hi, rc);
+        merge(a, tmp, lo, mid, hi, rc);
+    }
+    
+    static void merge(int[] a, int[] tmp, int lo, int mid, int hi, RowComparator rc) {
+        if(rc.compare(a[mid-1], a[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, lo, tmp, lo, mid-lo);
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while(i < mid && j < hi) {
+            a[k++] = (rc.compare(tmp[i], a[j]) <= 0) ? tmp[i++] : a[j++];
+        }
+        while(i < mid) {
+            a[k++] = tmp[i++];
+        }
+    }
+    
+    /**
+     * Compares source rows by their key and then by their index
+     */
+    static final class RowComparator {
+        final int column;
+        final Comparator<Object> comparator;
+        Object[] keys;
+
+        RowComparator(int column, Object[] keys, Comparator<Object> comparator) {
+            this.column = column;
+            this.keys = keys;
+            this.comparator = comparator;
+        }
+        
+        int compare(int a, int b) {
+            int cmp = comparator.compare(keys[a], keys[b]);
+            if(cmp == 0) {
+                cmp = (a < b) ? -1 : (a > b) ? 1 : 0;
+            }
+            return cmp;
+        }
+        
+        void insertKeys(int idx, int count, Object[] values, int numKeys) {
+            if(numKeys + count > keys.length) {
+                Object[] newKeys = new Object[Math.max(numKeys + count, keys.length * 3 / 2)];
+                System.arraycopy(keys, 0, newKeys, 0, idx);
+                System.arraycopy(keys, idx, newKeys, idx+count, numKeys-idx);
+                keys = newKeys;
+            } else {
+                System.arraycopy(keys, idx, keys, idx+count, numKeys-idx);
+            }
+            System.arraycopy(values, 0, keys, idx, count);
+        }
+        
+        void removeKeys(int idx, int count, int numKeys) {
+            System.arraycopy(keys, idx+count, keys, idx, numKeys-idx-count);
+            Arrays.fill(keys, numKeys-count, numKeys, null);
+        }
+    }
+    
+    /**
+     * The sorted and filtered source rows and the sort keys
+     */
+    static final class View {
+        int[] rows;
+        int size;
+        int numSourceRows;
+        final RowComparator rc;
+
+        View(int[] rows, int size, RowComparator rc, int numSourceRows) {
+            this.rows = rows;
+            this.size = size;
+            this.rc = rc;
+            this.numSourceRows = numSourceRows;
+        }
+        
+        int compare(int a, int b) {
+            if(rc != null) {
+                return rc.compare(a, b);
+            }
+            return (a < b) ? -1 : (a > b) ? 1 : 0;
+        }
+
+        /**
+         * Searches the source row using binary search.
+         * 
+         * @return the index or {@code -(insertionPoint+1)}
+         */
+        int find(int sourceRow) {
+            int low = 0;
+            int high = size - 1;
+            while(low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(rows[mid], sourceRow);
+                if(cmp < 0) {
+                    low = mid + 1;
+                } else if(cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+        
+        void insertAt(int pos, int sourceRow) {
+            if(size == rows.length) {
+                int[] tmp = new int[Math.max(16, size * 3 / 2)];
+                System.arraycopy(rows, 0, tmp, 0, size);
+                rows = tmp;
+            }
+            System.arraycopy(rows, pos, rows, pos+1, size-pos);
+            rows[pos] = sourceRow;
+            size++;
+        }
+        
+        void removeAt(int pos, int count) {
+            System.arraycopy(rows, pos+count, rows, pos, size-pos-count);
+            size -= count;
+        }
+        
+        /**
+         * Removes all source rows in the range [idx, end)
+         */
+        void removeRange(int idx, int end) {
+            int k = 0;
+            for(int i=0 ; i<size ; i++) {
+                int row = rows[i];
+                if(row < idx || row >= end) {
+                    rows[k++] = row;
+                }
+            }
+            size = k;
+        }
+        
+        /**
+         * Merges the sorted source rows into this view.
+         */
+        void merge(int[] src, int count) {
+            int[] merged = new int[size + count];
+            int i = 0, j = 0, k = 0;
+            while(i < size && j < count) {
+                merged[k++] = (compare(rows[i], src[j]) <= 0) ? rows[i++] : src[j++];
+            }
+            while(i < size) {
+                merged[k++] = rows[i++];
+            }
+            while(j < count) {
+                merged[k++] = src[j++];
+            }
+            rows = merged;
+            size = k;
+        }
+        
+        /**
+         * Renumbers the source rows and inserts the sort keys of the new
+         * rows. Appended rows don't require to renumber the rows.
+         */
+        void sourceRowsInserted(int idx, int count, Object[] keys) {
+            if(idx < numSourceRows) {
+                for(int i=0 ; i<size ; i++) {
+                    if(rows[i] >= idx) {
+                        rows[i] += count;
+                    }
+                }
+            }
+            if(rc != null) {
+                rc.insertKeys(idx, count, keys, numSourceRows);
+            }
+            numSourceRows += count;
+        }
+        
+        /**
+         * Renumbers the source rows and removes the sort keys of the deleted
+         * rows. The deleted rows must already be removed from the view.
+         */
+        void sourceRowsDeleted(int idx, int count) {
+            final int end = idx + count;
+            if(end < numSourceRows) {
+                for(int i=0 ; i<size ; i++) {
+                    if(rows[i] >= end) {
+                        rows[i] -= count;
+                    }
+                }
+            }
+            if(rc != null) {
+                rc.removeKeys(idx, count, numSourceRows);
+            }
+            numSourceRows -= count;
+        }
+    }
+    
+    /**
+     * A change of the source model which happened during a background sort.
+     * The filter result and the sort keys are captured when the change
+     * happens as the source rows are renumbered by later changes.
+     */
+    static final class Change {
+        static final int INSERTED = 0;
+        static final int DELETED = 1;
+        static final int CHANGED = 2;
+        
+        final int type;
+        final int idx;
+        final int count;
+        final int column;
+        final Object[] keys;
+        final boolean[] accepted;
+
+        Change(int type, int idx, int count, int column, Object[] keys, boolean[] accepted) {
+            this.type = type;
+            this.idx = idx;
+            this.count = count;
+            this.column = column;
+            this.keys = keys;
+            this.accepted = accepted;
+        }
+    }
+    
+    static final class NullSafeComparator implements Comparator<Object> {
+        final Comparator<Object> comparator;
+
+        NullSafeComparator(Comparator<Object> comparator) {
+            this.comparator = comparator;
+        }
+
+        public int compare(Object o1, Object o2) {
+            if(o1 == o2) {
+                return 0;
+            }
+            if(o1 == null) {
+                return -1;
+            }
+            if(o2 == null) {
+                return 1;
+            }
+            return comparator.compare(o1, o2);
+        }
+    }
+    
+    /**
+     * A parallel merge sort which splits the range into tasks for the
+     * executor. Tasks never wait - the last finished child merges the
+     * halves - so it also works with a single threaded executor.
+     */
+    static final class ParallelSort {
+        final int[] rows;
+        final int numRows;
+        final int[] tmp;
+        final RowComparator rc;
+        final Executor executor;
+        final int chunkSize;
+        Runnable completion;
+        volatile Throwable failure;
+
+        ParallelSort(int[] rows, int numRows, RowComparator rc, Executor executor) {
+            this.rows = rows;
+            this.numRows = numRows;
+            this.tmp = new int[numRows];
+            this.rc = rc;
+            this.executor = executor;
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            this.chunkSize = Math.max(PARALLEL_SORT_THRESHOLD, numRows / (parallelism * 4) + 1);
+        }
+        
+        void start() {
+            execute(new Task(null, 0, numRows));
+        }
+        
+        void execute(Task task) {
+            try {
+                executor.execute(task);
+            } catch(RejectedExecutionException ex) {
+                task.run();
+            }
+        }
+        
+        final class Task implements Runnable {
+            final Task parent;
+            final int lo;
+            final int hi;
+            final AtomicInteger pendingChildren;
+
+            Task(Task parent, int lo, int hi) {
+                this.parent = parent;
+                this.lo = lo;
+                this.hi = hi;
+                this.pendingChildren = new AtomicInteger(2);
+            }
+
+            public void run() {
+                if(hi - lo <= chunkSize || failure != null) {
+                    if(failure == null) {
+                        try {
+                            sort(rows, tmp, lo, hi, rc);
+                        } catch(Throwable ex) {
+                            failure = ex;
+                        }
+                    }
+                    done();
+                } else {
+                    int mid = (lo + hi) >>> 1;
+                    execute(new Task(this, lo, mid));
+                    new Task(this, mid, hi).run();
+                }
+            }
+            
+            void childDone() {
+                if(pendingChildren.decrementAndGet() == 0) {
+                    if(failure == null) {
+                        try {
+                            merge(rows, tmp, lo, (lo + hi) >>> 1, hi, rc);
+                        } catch(Throwable ex) {
+                            failure = ex;
+                        }
+                    }
+                    done();
+                }
+            }
+            
+            private void done() {
+                if(parent != null) {
+                    parent.childDone();
+                } else {
+                    completion.run();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Updates the sort order animation state of the column headers when
+     * the sort column or order changes without a click on a header, eg when
+     * a background sort failed.
+     */
+    class SortStateListener implements ChangeListener {
+        final TableBase table;
+
+        SortStateListener(TableBase table) {
+            this.table = table;
+        }
+
+        public void rowsInserted(int idx, int count) {
+        }
+        public void rowsDeleted(int idx, int count) {
+        }
+        public void rowsChanged(int idx, int count) {
+        }
+        public void cellChanged(int row, int column) {
+        }
+        public void allChanged() {
+            table.setColumnSortOrderAnimationState(sortColumn, sortOrder);
+        }
+        public void columnInserted(int idx, int count) {
+            table.setColumnSortOrderAnimationState(sortColumn, sortOrder);
+        }
+        public void columnDeleted(int idx, int count) {
+            table.setColumnSortOrderAnimationState(sortColumn, sortOrder);
+        }
+        public void columnHeaderChanged(int column) {
+        }
+    }
+    
+    class ModelChangeListener implements ChangeListener {
+        public void rowsInserted(int idx, int count) {
+            sourceRowsInserted(idx, count);
+        }
+        public void rowsDeleted(int idx, int count) {
+            sourceRowsDeleted(idx, count);
+        }
+        public void rowsChanged(int idx, int count) {
+            for(int i=0 ; i<count ; i++) {
+                sourceRowChanged(idx+i, -1);
+            }
+        }
+        public void cellChanged(int row, int column) {
+            sourceRowChanged(row, column);
+        }
+        public void allChanged() {
+            if(sortColumn >= model.getNumColumns()) {
+                sortColumn = -1;
+            }
+            if(viewSortColumn >= model.getNumColumns()) {
+                viewSortColumn = -1;
+            }
+            rebuild();
+        }
+        public void columnInserted(int idx, int count) {
+            sourceColumnsChanged(idx, count, true);
+        }
+        public void columnDeleted(int idx, int count) {
+            sourceColumnsChanged(idx, count, false);
+        }
+        public void columnHeaderChanged(int column) {
+            fireColumnHeaderChanged(column);
+        }
+    }
+}
@@ -29,8 +29,7 @@
  */
 package de.matthiasmann.twl.renderer;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Time source for animations.
@@ -74,10 +73,10 @@ public interface AnimationState {
         private final String name;
         private final int id;
 
-        private static final HashMap<String, StateKey> keys =
-                new HashMap<String, AnimationState.StateKey>();
-        private static final ArrayList<StateKey> keysByID =
-                new ArrayList<StateKey>();
+        // lookups are lock free - only the creation of new keys is synchronized
+        private static final ConcurrentHashMap<String, StateKey> keys =
+                new ConcurrentHashMap<String, AnimationState.StateKey>();
+        private static volatile StateKey[] keysByID = new StateKey[0];
 
         private StateKey(String name, int id) {
             this.name = name;
@@ -126,15 +125,28 @@ public interface AnimationState {
          * @throws IllegalArgumentException if name is empty
          * @throws NullPointerException if name is {@code null}
          */
-        public synchronized static StateKey get(String name) {
+        public static StateKey get(String name) {
+            StateKey key = keys.get(name);
+            if(key == null) {
+                key = create(name);
+            }
+            return key;
+        }
+        
+        private synchronized static StateKey create(String name) {
             if(name.length() == 0) {
                 throw new IllegalArgumentException("name");
             }
             StateKey key = keys.get(name);
             if(key == null) {
-                key = new StateKey(name, keys.size());
+                StateKey[] oldKeys = keysByID;
+                StateKey[] newKeys = new StateKey[oldKeys.length + 1];
+                System.arraycopy(oldKeys, 0, newKeys, 0, oldKeys.length);
+                key = new StateKey(name, oldKeys.length);
+                newKeys[oldKeys.length] = key;
+                // publish the ID first so that getNumStateKeys() covers all keys returned by get()
+                keysByID = newKeys;
                 keys.put(name, key);
-                keysByID.add(key);
             }
             return key;
         }
@@ -145,12 +157,16 @@ public interface AnimationState {
          * @return the StateKey
          * @throws IndexOutOfBoundsException if the ID is invalid
          */
-        public synchronized static StateKey get(int id) {
-            return keysByID.get(id);
+        public static StateKey get(int id) {
+            StateKey[] keysByID = StateKey.keysByID;
+            if(id < 0 || id >= keysByID.length) {
+                throw new IndexOutOfBoundsException("id: " + id);
+            }
+            return keysByID[id];
         }
 
-        public synchronized static int getNumStateKeys() {
-            return keys.size();
+        public static int getNumStateKeys() {
+            return keysByID.length;
         }
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer;
+
+/**
+ * Optional interface for renderers which can keep the rendered content
+ * between frames. This allows the GUI to repaint only the changed areas.
+ *
+ * @author Matthias Mann
+ * @see de.matthiasmann.twl.GUI#setDamageTracking(boolean) 
+ */
+public interface SupportsPartialRepaint {
+
+    /**
+     * Enables or disables keeping the rendered content for the next frame.
+     * 
+     * @param preserveContent true to keep the content
+     */
+    public void setPreserveContent(boolean preserveContent);
+    
+    /**
+     * Checks if the content of the previous frame is available and
+     * {@link #startPartialRendering() } can be used.
+     * 
+     * @return true if the previous frame content is available
+     */
+    public boolean isContentPreserved();
+    
+    /**
+     * Like {@link Renderer#startRendering() } but keeps the content of the
+     * previous frame. Only valid when {@link #isContentPreserved() } returned true.
+     * 
+     * @return true if rendering was started, false if the frame should be skipped
+     * @see Renderer#endRendering() 
+     */
+    public boolean startPartialRendering();
+    
+    /**
+     * Resets the specified area to the background before it is repainted.
+     * Can only be called between {@link #startPartialRendering() } and
+     * {@link Renderer#endRendering() }
+     * 
+     * @param x the left edge
+     * @param y the top edge
+     * @param width the width
+     * @param height the height
+     */
+    public void clearRect(int x, int y, int width, int height);
+}
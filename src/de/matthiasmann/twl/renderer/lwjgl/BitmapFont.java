@@ -32,18 +32,13 @@ package de.matthiasmann.twl.renderer.lwjgl;
 import de.matthiasmann.twl.HAlignment;
 import de.matthiasmann.twl.utils.TextUtil;
 import de.matthiasmann.twl.renderer.FontCache;
-import de.matthiasmann.twl.utils.ParameterStringParser;
+import de.matthiasmann.twl.utils.BitmapFontDefinition;
 import de.matthiasmann.twl.utils.XMLParser;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
 import java.nio.FloatBuffer;
-import java.util.HashMap;
 import org.lwjgl.opengl.GL11;
-import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 /**
@@ -71,6 +66,10 @@ public class BitmapFont {
         void draw(int x, int y) {
             drawQuad(x+xoffset, y+yoffset, width, height);
         }
+        
+        void draw(QuadBatch batch, int x, int y) {
+            drawQuad(batch, x+xoffset, y+yoffset, width, height);
+        }
     
         void draw(FloatBuffer va, int x, int y) {
             x += xoffset;
@@ -110,199 +109,44 @@ public class BitmapFont {
     private final int spaceWidth;
     private final int ex;
     private final boolean proportional;
+    private QuadBatch batch;
 
     public BitmapFont(LWJGLRenderer renderer, XMLParser xmlp, URL baseUrl) throws XmlPullParserException, IOException {
-        xmlp.require(XmlPullParser.START_TAG, null, "font");
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.START_TAG, null, "info");
-        xmlp.ignoreOtherAttributes();
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.END_TAG, null, "info");
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.START_TAG, null, "common");
-        lineHeight = xmlp.parseIntFromAttribute("lineHeight");
-        baseLine = xmlp.parseIntFromAttribute("base");
-        if(xmlp.parseIntFromAttribute("pages", 1) != 1) {
-            throw new UnsupportedOperationException("multi page fonts not supported");
-        }
-        if(xmlp.parseIntFromAttribute("packed", 0) != 0) {
-            throw new UnsupportedOperationException("packed fonts not supported");
-        }
-        xmlp.ignoreOtherAttributes();
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.END_TAG, null, "common");
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.START_TAG, null, "pages");
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.START_TAG, null, "page");
-        int pageId = Integer.parseInt(xmlp.getAttributeValue(null, "id"));
-        if(pageId != 0) {
-            throw new UnsupportedOperationException("only page id 0 supported");
-        }
-        String textureName = xmlp.getAttributeValue(null, "file");
-        this.texture = renderer.load(new URL(baseUrl, textureName), LWJGLTexture.Format.ALPHA, LWJGLTexture.Filter.NEAREST);
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.END_TAG, null, "page");
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.END_TAG, null, "pages");
-        xmlp.nextTag();
-        xmlp.require(XmlPullParser.START_TAG, null, "chars");
-        xmlp.ignoreOtherAttributes();
-        xmlp.nextTag();
-        
-        int firstXAdvance = Integer.MIN_VALUE;
-        boolean prop = true;
-        
-        glyphs = new Glyph[PAGES][];
-        while(!xmlp.isEndTag()) {
-            xmlp.require(XmlPullParser.START_TAG, null, "char");
-            int idx = xmlp.parseIntFromAttribute("id");
-            int x = xmlp.parseIntFromAttribute("x");
-            int y = xmlp.parseIntFromAttribute("y");
-            int w = xmlp.parseIntFromAttribute("width");
-            int h = xmlp.parseIntFromAttribute("height");
-            if(xmlp.parseIntFromAttribute("page", 0) != 0) {
-                throw xmlp.error("Multiple pages not supported");
-            }
-            int chnl = xmlp.parseIntFromAttribute("chnl", 0);
-            Glyph g = new Glyph(x, y, w, h, texture.getTexWidth(), texture.getTexHeight());
-            g.xoffset = Short.parseShort(xmlp.getAttributeNotNull("xoffset"));
-            g.yoffset = Short.parseShort(xmlp.getAttributeNotNull("yoffset"));
-            g.xadvance = Short.parseShort(xmlp.getAttributeNotNull("xadvance"));
-            addGlyph(idx, g);
-            xmlp.nextTag();
-            xmlp.require(XmlPullParser.END_TAG, null, "char");
-            xmlp.nextTag();
-            if(g.xadvance != firstXAdvance && g.xadvance > 0) {
-                if(firstXAdvance == Integer.MIN_VALUE) {
-                    firstXAdvance = g.xadvance;
-                } else {
-                    prop = false;
-                }
-            }
-        }
-        
-        xmlp.require(XmlPullParser.END_TAG, null, "chars");
-        xmlp.nextTag();
-        if(xmlp.isStartTag()) {
-            xmlp.require(XmlPullParser.START_TAG, null, "kernings");
-            xmlp.ignoreOtherAttributes();
-            xmlp.nextTag();
-            while(!xmlp.isEndTag()) {
-                xmlp.require(XmlPullParser.START_TAG, null, "kerning");
-                int first = xmlp.parseIntFromAttribute("first");
-                int second = xmlp.parseIntFromAttribute("second");
-                int amount = xmlp.parseIntFromAttribute("amount");
-                addKerning(first, second, amount);
-                xmlp.nextTag();
-                xmlp.require(XmlPullParser.END_TAG, null, "kerning");
-                xmlp.nextTag();
-            }
-            xmlp.require(XmlPullParser.END_TAG, null, "kernings");
-            xmlp.nextTag();
-        }
-        xmlp.require(XmlPullParser.END_TAG, null, "font");
-
-        Glyph g = getGlyph(' ');
-        spaceWidth = (g != null) ? g.xadvance + g.width : 1;
-
-        Glyph gx = getGlyph('x');
-        ex = (gx != null) ? gx.height : 1;
-        
-        proportional = prop;
+        this(renderer, new BitmapFontDefinition(xmlp), baseUrl);
     }
 
     public BitmapFont(LWJGLRenderer renderer, Reader reader, URL baseUrl) throws IOException {
-        BufferedReader br = new BufferedReader(reader);
-        HashMap<String, String> params = new HashMap<String, String>();
-        parseFntLine(br, "info");
-        parseFntLine(parseFntLine(br, "common"), params);
-        lineHeight = parseInt(params, "lineHeight");
-        baseLine = parseInt(params, "base");
-        if(parseInt(params, "pages", 1) != 1) {
-            throw new UnsupportedOperationException("multi page fonts not supported");
-        }
-        if(parseInt(params, "packed", 0) != 0) {
-            throw new UnsupportedOperationException("packed fonts not supported");
-        }
-        parseFntLine(parseFntLine(br, "page"), params);
-        if(parseInt(params, "id", 0) != 0) {
-            throw new UnsupportedOperationException("only page id 0 supported");
-        }
-        this.texture = renderer.load(new URL(baseUrl, getParam(params, "file")),
+        this(renderer, new BitmapFontDefinition(reader), baseUrl);
+    }
+
+    public BitmapFont(LWJGLRenderer renderer, BitmapFontDefinition def, URL baseUrl) throws IOException {
+        lineHeight = def.getLineHeight();
+        baseLine = def.getBaseLine();
+        texture = renderer.load(new URL(baseUrl, def.getTextureFile()),
                 LWJGLTexture.Format.ALPHA, LWJGLTexture.Filter.NEAREST);
-        this.glyphs = new Glyph[PAGES][];
-        parseFntLine(parseFntLine(br, "chars"), params);
-        int charCount = parseInt(params, "count");
-        int firstXAdvance = Integer.MIN_VALUE;
-        boolean prop = true;
-        for(int charIdx=0 ; charIdx<charCount ; charIdx++) {
-            parseFntLine(parseFntLine(br, "char"), params);
-            int idx = parseInt(params, "id");
-            int x = parseInt(params, "x");
-            int y = parseInt(params, "y");
-            int w = parseInt(params, "width");
-            int h = parseInt(params, "height");
-            if(parseInt(params, "page", 0) != 0) {
-                throw new IOException("Multiple pages not supported");
-            }
-            Glyph g = new Glyph(x, y, w, h, texture.getTexWidth(), texture.getTexHeight());
-            g.xoffset = parseShort(params, "xoffset");
-            g.yoffset = parseShort(params, "yoffset");
-            g.xadvance = parseShort(params, "xadvance");
-            addGlyph(idx, g);
-            
-            if(g.xadvance != firstXAdvance && g.xadvance > 0) {
-                if(firstXAdvance == Integer.MIN_VALUE) {
-                    firstXAdvance = g.xadvance;
-                } else {
-                    prop = false;
-                }
-            }
+        glyphs = new Glyph[PAGES][];
+        for(BitmapFontDefinition.Glyph gd : def.getGlyphs()) {
+            Glyph g = new Glyph(gd.x, gd.y, gd.width, gd.height, texture.getTexWidth(), texture.getTexHeight());
+            g.xoffset = gd.xoffset;
+            g.yoffset = gd.yoffset;
+            g.xadvance = gd.xadvance;
+            addGlyph(gd.id, g);
         }
-        parseFntLine(parseFntLine(br, "kernings"), params);
-        int kerningCount = parseInt(params, "count");
-        for(int kerningIdx=0 ; kerningIdx<kerningCount ; kerningIdx++) {
-            parseFntLine(parseFntLine(br, "kerning"), params);
-            int first = parseInt(params, "first");
-            int second = parseInt(params, "second");
-            int amount = parseInt(params, "amount");
-            addKerning(first, second, amount);
+        for(BitmapFontDefinition.Kerning k : def.getKernings()) {
+            addKerning(k.first, k.second, k.amount);
         }
-        
+
         Glyph g = getGlyph(' ');
         spaceWidth = (g != null) ? g.xadvance + g.width : 1;
 
         Glyph gx = getGlyph('x');
         ex = (gx != null) ? gx.height : 1;
-        
-        this.proportional = prop;
+
+        proportional = def.isProportional();
     }
 
     public static BitmapFont loadFont(LWJGLRenderer renderer, URL url) throws IOException {
-        boolean startTagSeen = false;
-        try {
-            XMLParser xmlp = new XMLParser(url);
-            try {
-                xmlp.require(XmlPullParser.START_DOCUMENT, null, null);
-                xmlp.nextTag();
-                startTagSeen = true;
-                return new BitmapFont(renderer, xmlp, url);
-            } finally {
-                xmlp.close();
-            }
-        } catch (XmlPullParserException ex) {
-            if(startTagSeen) {
-                throw (IOException)(new IOException().initCause(ex));
-            }
-            InputStream is = url.openStream();
-            try {
-                InputStreamReader isr = new InputStreamReader(is, "UTF8");
-                return new BitmapFont(renderer, isr, url);
-            } finally {
-                is.close();
-            }
-        }
+        return new BitmapFont(renderer, BitmapFontDefinition.load(url), url);
     }
 
     public boolean isProportional() {
@@ -418,7 +262,7 @@ public class BitmapFont {
             lastGlyph = getGlyph(str.charAt(start++));
             if(lastGlyph != null) {
                 if(lastGlyph.width > 0) {
-                    lastGlyph.draw(x, y);
+                    drawGlyph(lastGlyph, x, y);
                 }
                 x += lastGlyph.xadvance;
                 break;
@@ -431,7 +275,7 @@ public class BitmapFont {
                 x += lastGlyph.getKerning(ch);
                 lastGlyph = g;
                 if(g.width > 0) {
-                    g.draw(x, y);
+                    drawGlyph(g, x, y);
                 }
                 x += g.xadvance;
             }
@@ -477,14 +321,41 @@ public class BitmapFont {
         }
     }
     
+    final void drawGlyph(Glyph g, int x, int y) {
+        if(batch != null) {
+            g.draw(batch, x, y);
+        } else {
+            g.draw(x, y);
+        }
+    }
+    
     protected void beginLine() {
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        GL11.glBegin(GL11.GL_QUADS);
+        if(batch != null) {
+            batch.beginUntextured();
+        } else {
+            GL11.glDisable(GL11.GL_TEXTURE_2D);
+            GL11.glBegin(GL11.GL_QUADS);
+        }
     }
 
     protected void endLine() {
-        GL11.glEnd();
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        if(batch != null) {
+            texture.bind(batch);
+        } else {
+            GL11.glEnd();
+            GL11.glEnable(GL11.GL_TEXTURE_2D);
+        }
+    }
+    
+    private void drawLineQuad(int x0, int y, int x1) {
+        if(batch != null) {
+            batch.quad(x0, y, x1, y+1, 0, 0, 0, 0);
+        } else {
+            GL11.glVertex2i(x0, y);
+            GL11.glVertex2i(x1, y);
+            GL11.glVertex2i(x1, y+1);
+            GL11.glVertex2i(x0, y+1);
+        }
     }
 
     public void drawMultiLineLines(int x, int y, int[] multiLineInfo, int numLines) {
@@ -494,10 +365,7 @@ public class BitmapFont {
                 int info = multiLineInfo[i];
                 int xoff = x + (short)info;
                 int lineWidth = info >>> 16;
-                GL11.glVertex2i(xoff, y);
-                GL11.glVertex2i(xoff + lineWidth, y);
-                GL11.glVertex2i(xoff + lineWidth, y+1);
-                GL11.glVertex2i(xoff, y+1);
+                drawLineQuad(xoff, y, xoff + lineWidth);
                 y += lineHeight;
             }
         } finally {
@@ -507,10 +375,7 @@ public class BitmapFont {
 
     public void drawLine(int x0, int y, int x1) {
         beginLine();
-        GL11.glVertex2i(x0, y);
-        GL11.glVertex2i(x1, y);
-        GL11.glVertex2i(x1, y+1);
-        GL11.glVertex2i(x0, y+1);
+        drawLineQuad(x0, y, x1);
         endLine();
     }
     
@@ -569,6 +434,10 @@ public class BitmapFont {
         return texture.bind();
     }
 
+    /**
+     * Prepares rendering in immediate mode - used to compile display lists.
+     * @return true if the font can be rendered
+     */
     protected boolean prepare() {
         if(texture.bind()) {
             GL11.glBegin(GL11.GL_QUADS);
@@ -577,66 +446,25 @@ public class BitmapFont {
         return false;
     }
 
-    protected void cleanup() {
-        GL11.glEnd();
-    }
-
-    private static String parseFntLine(BufferedReader br, String tag) throws IOException {
-        String line = br.readLine();
-        if(line == null || line.length() <= tag.length() ||
-                line.charAt(tag.length()) != ' ' || !line.startsWith(tag)) {
-            throw new IOException("'" + tag + "' line expected");
-        }
-        return line;
-    }
-    
-    private static void parseFntLine(String line, HashMap<String, String> params) {
-        params.clear();
-        ParameterStringParser psp = new ParameterStringParser(line, ' ', '=');
-        while(psp.next()) {
-            params.put(psp.getKey(), psp.getValue());
-        }
-    }
-
-    private static String getParam(HashMap<String, String> params, String key) throws IOException {
-        String value = params.get(key);
-        if(value == null) {
-            throw new IOException("Required parameter '" + key + "' not found");
-        }
-        return value;
-    }
-
-    private static int parseInt(HashMap<String, String> params, String key) throws IOException {
-        String value = getParam(params, key);
-        try {
-            return Integer.parseInt(value);
-        } catch(IllegalArgumentException ex) {
-            throw canParseParam(key, value, ex);
-        }
-    }
-
-    private static int parseInt(HashMap<String, String> params, String key, int defaultValue) throws IOException {
-        String value = params.get(key);
-        if(value == null) {
-            return defaultValue;
-        }
-        try {
-            return Integer.parseInt(value);
-        } catch(IllegalArgumentException ex) {
-            throw canParseParam(key, value, ex);
+    /**
+     * Prepares rendering into the specified quad batch.
+     * @param batch the quad batch
+     * @return true if the font can be rendered
+     */
+    protected boolean prepare(QuadBatch batch) {
+        if(texture.bind(batch)) {
+            this.batch = batch;
+            return true;
         }
+        return false;
     }
 
-    private static short parseShort(HashMap<String, String> params, String key) throws IOException {
-        String value = getParam(params, key);
-        try {
-            return Short.parseShort(value);
-        } catch(IllegalArgumentException ex) {
-            throw canParseParam(key, value, ex);
+    protected void cleanup() {
+        if(batch != null) {
+            batch.end();
+            batch = null;
+        } else {
+            GL11.glEnd();
         }
     }
-
-    private static IOException canParseParam(String key, String value, IllegalArgumentException ex) {
-        return (IOException)(new IOException("Can't parse parameter: " + key + '=' + value).initCause(ex));
-    }
 }
@@ -36,7 +36,6 @@ import de.matthiasmann.twl.renderer.Gradient.Stop;
 import de.matthiasmann.twl.renderer.Gradient.Type;
 import de.matthiasmann.twl.renderer.Gradient.Wrap;
 import de.matthiasmann.twl.renderer.Image;
-import org.lwjgl.opengl.GL11;
 
 /**
  *
@@ -120,106 +119,95 @@ public class GradientImage implements Image {
 
     public void draw(AnimationState as, int x, int y) {
         if(isHorz()) {
-            drawHorz(x, y, getLastPos(), 1);
+            draw(x, y, getLastPos(), 1);
         } else {
-            drawVert(x, y, 1, getLastPos());
+            draw(x, y, 1, getLastPos());
         }
     }
 
     public void draw(AnimationState as, int x, int y, int width, int height) {
-        if(isHorz()) {
-            drawHorz(x, y, width, height);
-        } else {
-            drawVert(x, y, width, height);
-        }
+        draw(x, y, width, height);
     }
     
-    private void drawHorz(int x, int y, int width, int height) {
+    private void draw(int x, int y, int width, int height) {
         if(width <= 0 || height <= 0) {
             return;
         }
-        TintStack tintStack = renderer.tintStack.push(tint);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        GL11.glBegin(GL11.GL_QUAD_STRIP);
+        final boolean horz = isHorz();
+        final int size = horz ? width : height;
+        final QuadBatch batch = renderer.quadBatch;
+        final TintStack tintStack = renderer.tintStack.push(tint);
+        batch.beginUntextured();
         if(wrap == Wrap.SCALE) {
-            for(Stop stop : stops) {
-                tintStack.setColor(stop.getColor());
-                float pos = stop.getPos() * width / endPos;
-                GL11.glVertex2f(x + pos, y);
-                GL11.glVertex2f(x + pos, y + height);
+            for(int i=1 ; i<stops.length ; i++) {
+                Stop stop0 = stops[i-1];
+                Stop stop1 = stops[i];
+                batch.setColor(tintStack, stop0.getColor());
+                drawEdge(batch, horz, x, y, width, height, stop0.getPos() * size / endPos, true);
+                batch.setColor(tintStack, stop1.getColor());
+                drawEdge(batch, horz, x, y, width, height, stop1.getPos() * size / endPos, false);
             }
         } else {
             float lastPos = 0;
             float offset = 0;
             Color lastColor = stops[0].getColor();
+            boolean first = true;
             outer: do{
                 for(Stop stop : stops) {
                     float pos = stop.getPos() + offset;
                     Color color = stop.getColor();
-                    if(pos >= width) {
-                        float t = (width - lastPos) / (pos - lastPos);
-                        setColor(tintStack, lastColor, color, t);
-                        break outer;
+                    if(pos >= size) {
+                        if(!first) {
+                            float t = (size - lastPos) / (pos - lastPos);
+                            batch.setColor(tintStack, lastColor);
+                            drawEdge(batch, horz, x, y, width, height, lastPos, true);
+                            setColor(batch, tintStack, lastColor, color, t);
+                            drawEdge(batch, horz, x, y, width, height, size, false);
+                        }
+                        batch.end();
+                        return;
                     }
-                    tintStack.setColor(color);
-                    GL11.glVertex2f(x + pos, y);
-                    GL11.glVertex2f(x + pos, y + height);
+                    if(!first) {
+                        batch.setColor(tintStack, lastColor);
+                        drawEdge(batch, horz, x, y, width, height, lastPos, true);
+                        batch.setColor(tintStack, color);
+                        drawEdge(batch, horz, x, y, width, height, pos, false);
+                    }
+                    first = false;
                     lastPos = pos;
                     lastColor = color;
                 }
                 offset += endPos;
             }while(wrap == Wrap.REPEAT);
-            GL11.glVertex2f(x + width, y);
-            GL11.glVertex2f(x + width, y + height);
+            batch.setColor(tintStack, lastColor);
+            drawEdge(batch, horz, x, y, width, height, lastPos, true);
+            drawEdge(batch, horz, x, y, width, height, size, false);
         }
-        GL11.glEnd();
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        batch.end();
     }
     
-    private void drawVert(int x, int y, int width, int height) {
-        if(width <= 0 || height <= 0) {
-            return;
-        }
-        TintStack tintStack = renderer.tintStack.push(tint);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        GL11.glBegin(GL11.GL_QUAD_STRIP);
-        if(wrap == Wrap.SCALE) {
-            for(Stop stop : stops) {
-                tintStack.setColor(stop.getColor());
-                float pos = stop.getPos() * height / endPos;
-                GL11.glVertex2f(x        , y + pos);
-                GL11.glVertex2f(x + width, y + pos);
+    private static void drawEdge(QuadBatch batch, boolean horz, int x, int y, int width, int height, float pos, boolean leading) {
+        if(horz) {
+            if(leading) {
+                batch.vertex(0, 0, x + pos, y);
+                batch.vertex(0, 0, x + pos, y + height);
+            } else {
+                batch.vertex(0, 0, x + pos, y + height);
+                batch.vertex(0, 0, x + pos, y);
             }
         } else {
-            float lastPos = 0;
-            float offset = 0;
-            Color lastColor = stops[0].getColor();
-            outer: do{
-                for(Stop stop : stops) {
-                    float pos = stop.getPos() + offset;
-                    Color color = stop.getColor();
-                    if(pos >= height) {
-                        float t = (height - lastPos) / (pos - lastPos);
-                        setColor(tintStack, lastColor, color, t);
-                        break outer;
-                    }
-                    tintStack.setColor(color);
-                    GL11.glVertex2f(x        , y + pos);
-                    GL11.glVertex2f(x + width, y + pos);
-                    lastPos = pos;
-                    lastColor = color;
-                }
-                offset += endPos;
-            }while(wrap == Wrap.REPEAT);
-            GL11.glVertex2f(x        , y + height);
-            GL11.glVertex2f(x + width, y + height);
+            if(leading) {
+                batch.vertex(0, 0, x        , y + pos);
+                batch.vertex(0, 0, x + width, y + pos);
+            } else {
+                batch.vertex(0, 0, x + width, y + pos);
+                batch.vertex(0, 0, x        , y + pos);
+            }
         }
-        GL11.glEnd();
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
     }
     
-    private static void setColor(TintStack tintStack, Color a, Color b, float t) {
-        tintStack.setColor(
+    private static void setColor(QuadBatch batch, TintStack tintStack, Color a, Color b, float t) {
+        batch.setColor(tintStack,
                 mix(a.getRed(),   b.getRed(),   t),
                 mix(a.getGreen(), b.getGreen(), t),
                 mix(a.getBlue(),  b.getBlue(),  t),
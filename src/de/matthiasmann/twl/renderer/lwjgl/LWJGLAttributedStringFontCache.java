@@ -90,6 +90,7 @@ class LWJGLAttributedStringFontCache extends VertexArray implements AttributedSt
     }
     
     public void draw(int x, int y) {
+        renderer.quadBatch.flush();
         if(font.bind()) {
             bind();
             GL11.glPushMatrix();
@@ -48,13 +48,16 @@ public class LWJGLCacheContext implements CacheContext {
 
     final LWJGLRenderer renderer;
     final HashMap<String, LWJGLTexture> textures;
+    final HashMap<String, LWJGLTexture> atlasTextures;
     final HashMap<String, BitmapFont> fontCache;
     final ArrayList<LWJGLTexture> allTextures;
+    TextureAtlas atlas;
     boolean valid;
 
     protected LWJGLCacheContext(LWJGLRenderer renderer) {
         this.renderer = renderer;
         this.textures = new HashMap<String, LWJGLTexture>();
+        this.atlasTextures = new HashMap<String, LWJGLTexture>();
         this.fontCache = new HashMap<String, BitmapFont>();
         this.allTextures = new ArrayList<LWJGLTexture>();
         valid = true;
@@ -64,25 +67,59 @@ public class LWJGLCacheContext implements CacheContext {
         String urlString = url.toString();
         LWJGLTexture texture = textures.get(urlString);
         if(texture == null) {
-            texture = createTexture(url, fmt, filter, null);
+            texture = createTexture(url, fmt, filter, null, false);
             textures.put(urlString, texture);
         }
         return texture;
     }
 
+    /**
+     * Loads a texture which may be packed into a texture atlas page.
+     * Small images are packed when the renderer has a texture atlas page size
+     * set, otherwise this is the same as {@link #loadTexture(java.net.URL, de.matthiasmann.twl.renderer.lwjgl.LWJGLTexture.Format, de.matthiasmann.twl.renderer.lwjgl.LWJGLTexture.Filter) }
+     * 
+     * <p>Only packed textures are stored in {@link #atlasTextures}, all other
+     * textures share the {@link #textures} cache with {@code loadTexture}.</p>
+     * 
+     * @see LWJGLRenderer#setTextureAtlasPageSize(int) 
+     */
+    LWJGLTexture loadAtlasTexture(URL url, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter) throws IOException {
+        if(getAtlas() == null) {
+            return loadTexture(url, fmt, filter);
+        }
+        String urlString = url.toString();
+        LWJGLTexture texture = atlasTextures.get(urlString);
+        if(texture == null) {
+            texture = textures.get(urlString);
+            if(texture == null) {
+                texture = createTexture(url, fmt, filter, null, true);
+                if(texture.isPacked()) {
+                    atlasTextures.put(urlString, texture);
+                } else {
+                    textures.put(urlString, texture);
+                }
+            }
+        }
+        return texture;
+    }
+
     LWJGLTexture createTexture(URL textureUrl, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter, TexturePostProcessing tpp) throws IOException {
+        return createTexture(textureUrl, fmt, filter, tpp, false);
+    }
+    
+    private LWJGLTexture createTexture(URL textureUrl, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter, TexturePostProcessing tpp, boolean pack) throws IOException {
         if(!valid) {
             throw new IllegalStateException("CacheContext already destroyed");
         }
         TextureDecoder decoder = (TextureDecoder)textureUrl.getContent(new Class<?>[]{TextureDecoder.class});
         if(decoder != null) {
-            return createDecoderTexture(textureUrl, decoder, fmt, filter, tpp);
+            return createDecoderTexture(textureUrl, decoder, fmt, filter, tpp, pack);
         } else {
-            return createPNGTexture(textureUrl, fmt, filter, tpp);
+            return createPNGTexture(textureUrl, fmt, filter, tpp, pack);
         }
     }
     
-    private LWJGLTexture createDecoderTexture(URL textureUrl, TextureDecoder dec, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter, TexturePostProcessing tpp) throws IOException {
+    private LWJGLTexture createDecoderTexture(URL textureUrl, TextureDecoder dec, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter, TexturePostProcessing tpp, boolean pack) throws IOException {
         dec.open();
         try {
             fmt = dec.decideTextureFormat(fmt);
@@ -106,9 +143,7 @@ public class LWJGLCacheContext implements CacheContext {
                 tpp.process(buf, stride, width, height, fmt);
             }
 
-            LWJGLTexture texture = new LWJGLTexture(renderer, width, height, buf, fmt, filter);
-            allTextures.add(texture);
-            return texture;
+            return createTexture(width, height, buf, fmt, filter, pack);
         } catch (IOException ex) {
             throw (IOException)(new IOException("Unable to load texture via decoder: " + textureUrl).initCause(ex));
         } finally {
@@ -119,7 +154,48 @@ public class LWJGLCacheContext implements CacheContext {
         }
     }
     
-    private LWJGLTexture createPNGTexture(URL textureUrl, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter, TexturePostProcessing tpp) throws IOException {
+    private LWJGLTexture createTexture(int width, int height, ByteBuffer buf, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter, boolean pack) {
+        if(pack) {
+            TextureAtlas ta = getAtlas();
+            if(ta != null) {
+                LWJGLTexture texture = ta.add(width, height, buf, fmt, filter);
+                if(texture != null) {
+                    return texture;
+                }
+            }
+        }
+        LWJGLTexture texture = new LWJGLTexture(renderer, width, height, buf, fmt, filter);
+        allTextures.add(texture);
+        return texture;
+    }
+    
+    private TextureAtlas getAtlas() {
+        if(atlas == null) {
+            int pageSize = Math.min(renderer.getTextureAtlasPageSize(), renderer.maxTextureSize);
+            if(pageSize <= 0) {
+                return null;
+            }
+            atlas = new TextureAtlas(this, Integer.highestOneBit(pageSize));
+        }
+        return atlas;
+    }
+    
+    LWJGLTexture createAtlasPage(int pageSize, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter) {
+        LWJGLTexture texture = new LWJGLTexture(renderer, pageSize, pageSize, null, fmt, filter);
+        allTextures.add(texture);
+        return texture;
+    }
+    
+    /**
+     * Returns the number of texture atlas pages which have been created.
+     * @return the number of texture atlas pages
+     * @see LWJGLRenderer#setTextureAtlasPageSize(int) 
+     */
+    public int getNumTextureAtlasPages() {
+        return (atlas != null) ? atlas.getNumPages() : 0;
+    }
+    
+    private LWJGLTexture createPNGTexture(URL textureUrl, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter, TexturePostProcessing tpp, boolean pack) throws IOException {
         InputStream is = textureUrl.openStream();
         try {
             PNGDecoder dec = new PNGDecoder(is);
@@ -149,9 +225,7 @@ public class LWJGLCacheContext implements CacheContext {
                 tpp.process(buf, stride, width, height, fmt);
             }
 
-            LWJGLTexture texture = new LWJGLTexture(renderer, width, height, buf, fmt, filter);
-            allTextures.add(texture);
-            return texture;
+            return createTexture(width, height, buf, fmt, filter, pack);
         } catch (IOException ex) {
             throw (IOException)(new IOException("Unable to load PNG file: " + textureUrl).initCause(ex));
         } finally {
@@ -186,8 +260,10 @@ public class LWJGLCacheContext implements CacheContext {
             }
         } finally {
             textures.clear();
+            atlasTextures.clear();
             fontCache.clear();
             allTextures.clear();
+            atlas = null;
             valid = false;
         }
     }
@@ -70,6 +70,7 @@ public class LWJGLDynamicImage extends TextureAreaBase implements DynamicImage {
 
     public void destroy() {
         if(id != 0) {
+            renderer.quadBatch.flush();
             GL11.glDeleteTextures(id);
             renderer.dynamicImages.remove(this);
         }
@@ -113,6 +114,8 @@ public class LWJGLDynamicImage extends TextureAreaBase implements DynamicImage {
             throw new IllegalArgumentException("Not enough data remaining in the buffer");
         }
         int glFormat = (format == Format.RGBA) ? GL11.GL_RGBA : GL12.GL_BGRA;
+        // pending quads must be rendered with the old content
+        renderer.quadBatch.flush();
         bind();
         GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, stride/4);
         GL11.glTexSubImage2D(target, 0, xoffset, yoffset, width, height, glFormat, GL11.GL_UNSIGNED_BYTE, data);
@@ -135,19 +138,14 @@ public class LWJGLDynamicImage extends TextureAreaBase implements DynamicImage {
     }
 
     public void draw(AnimationState as, int x, int y, int width, int height) {
-        bind();
-        renderer.tintStack.setColor(tintColor);
-        if(target != GL11.GL_TEXTURE_2D) {
-            GL11.glDisable(GL11.GL_TEXTURE_2D);
-            GL11.glEnable(target);
-        }
-        GL11.glBegin(GL11.GL_QUADS);
-        drawQuad(x, y, width, height);
-        GL11.glEnd();
-        if(target != GL11.GL_TEXTURE_2D) {
-            GL11.glDisable(target);
-            GL11.glEnable(GL11.GL_TEXTURE_2D);
+        if(id == 0) {
+            throw new IllegalStateException("destroyed");
         }
+        final QuadBatch batch = renderer.quadBatch;
+        batch.begin(target, id);
+        batch.setColor(renderer.tintStack, tintColor);
+        drawQuad(batch, x, y, width, height);
+        batch.end();
     }
 
     private void bind() {
@@ -116,16 +116,16 @@ public class LWJGLFont implements Font, Font2 {
         x += fontState.offsetX;
         y += fontState.offsetY;
         int width;
-        if(!font.prepare()) {
+        if(!font.prepare(renderer.quadBatch)) {
             return 0;
         }
         try {
-            renderer.tintStack.setColor(fontState.color);
+            renderer.quadBatch.setColor(renderer.tintStack, fontState.color);
             width = font.drawText(x, y, str, start, end);
+            drawLine(fontState, x, y, width);
         } finally {
             font.cleanup();
         }
-        drawLine(fontState, x, y, width);
         return width;
     }
 
@@ -134,20 +134,20 @@ public class LWJGLFont implements Font, Font2 {
         x += fontState.offsetX;
         y += fontState.offsetY;
         int numLines;
-        if(!font.prepare()) {
+        if(!font.prepare(renderer.quadBatch)) {
             return 0;
         }
         try {
-            renderer.tintStack.setColor(fontState.color);
+            renderer.quadBatch.setColor(renderer.tintStack, fontState.color);
             numLines = font.drawMultiLineText(x, y, str, width, align);
+            if(fontState.style != 0) {
+                int[] info = getMultiLineInfo(numLines);
+                font.computeMultiLineInfo(str, width, align, info);
+                drawLines(fontState, x, y, info, numLines);
+            }
         } finally {
             font.cleanup();
         }
-        if(fontState.style != 0) {
-            int[] info = getMultiLineInfo(numLines);
-            font.computeMultiLineInfo(str, width, align, info);
-            drawLines(fontState, x, y, info, numLines);
-        }
         return numLines * font.getLineHeight();
     }
 
@@ -224,7 +224,7 @@ public class LWJGLFont implements Font, Font2 {
     private int drawText(int x, int y, AttributedString attributedString, int start, int end, boolean multiLine) {
         int startX = x;
         attributedString.setPosition(start);
-        if(!font.prepare()) {
+        if(!font.prepare(renderer.quadBatch)) {
             return 0;
         }
         try {
@@ -234,7 +234,7 @@ public class LWJGLFont implements Font, Font2 {
                 x += fontState.offsetX;
                 y += fontState.offsetY;
                 int runStart = x;
-                renderer.tintStack.setColor(fontState.color);
+                renderer.quadBatch.setColor(renderer.tintStack, fontState.color);
                 int nextStop = Math.min(end, attributedString.advance());
                 if(multiLine) {
                     nextStop = TextUtil.indexOf(attributedString, '\n', start, nextStop);
@@ -248,7 +248,7 @@ public class LWJGLFont implements Font, Font2 {
                         }
                         lastGlyph = g;
                         if(g.width > 0) {
-                            g.draw(x, y);
+                            font.drawGlyph(g, x, y);
                         }
                         x += g.xadvance;
                     }
@@ -56,6 +56,7 @@ public class LWJGLFontCache implements FontCache {
     
     public void draw(AnimationState as, int x, int y) {
         if(id != 0) {
+            renderer.quadBatch.flush();
             LWJGLFont.FontState fontState = font.evalFontState(as);
             renderer.tintStack.setColor(fontState.color);
             GL11.glPushMatrix();
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.lwjgl;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.Widget;
+import de.matthiasmann.twl.renderer.OffscreenRenderer;
+import de.matthiasmann.twl.renderer.OffscreenSurface;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import org.lwjgl.opengl.EXTFramebufferObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GLContext;
+
+/**
+ * An offscreen renderer which renders into a texture using EXT_framebuffer_object.
+ *
+ * <p>Surface textures are allocated in power of two sizes and are returned
+ * into a small pool when a surface is destroyed or resized, so that widgets
+ * which are rendered offscreen every frame don't allocate new textures.</p>
+ *
+ * <p>When OpenGL 1.4 is available the surface content is stored with
+ * premultiplied alpha which allows to composite the cached surface with the
+ * same result as rendering the widget directly.</p>
+ *
+ * <p>Offscreen rendering can be nested.</p>
+ * 
+ * @author Matthias Mann
+ */
+public class LWJGLOffscreenRenderer implements OffscreenRenderer {
+
+    static final int MIN_TEXTURE_SIZE = 32;
+    static final int MAX_POOLED_TEXTURES = 8;
+
+    private final LWJGLRenderer renderer;
+    private final boolean premultipliedAlpha;
+    private final ArrayList<SurfaceTexture> texturePool;
+    private final ArrayList<RenderTarget> targets;
+    private int depth;
+    private int screenFBO;
+
+    LWJGLOffscreenRenderer(LWJGLRenderer renderer) {
+        this.renderer = renderer;
+        this.premultipliedAlpha = GLContext.getCapabilities().OpenGL14;
+        this.texturePool = new ArrayList<SurfaceTexture>();
+        this.targets = new ArrayList<RenderTarget>();
+    }
+
+    /**
+     * Checks if the current GL context supports FBO based offscreen rendering.
+     * @return true if EXT_framebuffer_object is supported
+     */
+    public static boolean isSupported() {
+        return GLContext.getCapabilities().GL_EXT_framebuffer_object;
+    }
+
+    /**
+     * Returns true if the surface textures store premultiplied alpha.
+     * @return true if the surface textures store premultiplied alpha.
+     */
+    public boolean isPremultipliedAlpha() {
+        return premultipliedAlpha;
+    }
+
+    /**
+     * Returns the number of textures which are currently in the pool.
+     * @return the number of unused textures
+     */
+    public int getNumPooledTextures() {
+        return texturePool.size();
+    }
+
+    /**
+     * Destroys all pooled textures and the frame buffer objects.
+     * Surfaces which are still in use are not affected.
+     * 
+     * @throws IllegalStateException when offscreen rendering is active
+     */
+    public void destroy() {
+        if(depth > 0) {
+            throw new IllegalStateException("offscreen rendering is active");
+        }
+        renderer.quadBatch.flush();
+        for(SurfaceTexture tex : texturePool) {
+            GL11.glDeleteTextures(tex.id);
+        }
+        texturePool.clear();
+        for(RenderTarget target : targets) {
+            EXTFramebufferObject.glDeleteFramebuffersEXT(target.fbo);
+        }
+        targets.clear();
+    }
+
+    public OffscreenSurface startOffscreenRendering(Widget widget, OffscreenSurface oldSurface, int x, int y, int width, int height) {
+        return start(oldSurface, x, y, width, height, true);
+    }
+
+    LWJGLOffscreenSurface start(OffscreenSurface oldSurface, int x, int y, int width, int height, boolean clear) {
+        if(width <= 0 || height <= 0) {
+            return null;
+        }
+        int texWidth = bucketSize(width);
+        int texHeight = bucketSize(height);
+        if(texWidth > renderer.maxTextureSize || texHeight > renderer.maxTextureSize) {
+            return null;
+        }
+
+        LWJGLOffscreenSurface surface = null;
+        SurfaceTexture tex = null;
+        if(oldSurface instanceof LWJGLOffscreenSurface) {
+            LWJGLOffscreenSurface old = (LWJGLOffscreenSurface)oldSurface;
+            if(old.offscreenRenderer == this) {
+                if(old.getWidth() == width && old.getHeight() == height && old.texture != null) {
+                    surface = old;
+                } else {
+                    tex = old.releaseTexture();
+                    if(tex != null && (tex.width != texWidth || tex.height != texHeight)) {
+                        releaseTexture(tex);
+                        tex = null;
+                    }
+                }
+            } else {
+                oldSurface.destroy();
+            }
+        } else if(oldSurface != null) {
+            oldSurface.destroy();
+        }
+
+        if(surface == null) {
+            if(tex == null) {
+                tex = acquireTexture(texWidth, texHeight);
+            }
+            surface = new LWJGLOffscreenSurface(this, tex, width, height);
+        }
+
+        if(!begin(surface.texture, x, y, width, height, clear)) {
+            surface.destroy();
+            return null;
+        }
+        return surface;
+    }
+
+    public void endOffscreenRendering() {
+        if(depth == 0) {
+            throw new IllegalStateException("no offscreen rendering active");
+        }
+        renderer.quadBatch.flush();
+        renderer.popGlobalTintColor();
+        renderer.clipStack.pop();
+        renderer.clipStack.pop();
+
+        RenderTarget target = targets.get(--depth);
+        target.texture = null;
+        renderer.viewportX = target.savedViewportX;
+        renderer.viewportBottom = target.savedViewportBottom;
+
+        if(depth > 0) {
+            RenderTarget outer = targets.get(depth - 1);
+            EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, outer.fbo);
+            setViewport(outer);
+        } else {
+            EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, screenFBO);
+            GL11.glViewport(renderer.getViewportX(), renderer.getViewportY(), renderer.getWidth(), renderer.getHeight());
+            setProjection(0, 0, renderer.getWidth(), renderer.getHeight());
+        }
+        restoreBlendFunc();
+
+        GL11.glDisable(GL11.GL_SCISSOR_TEST);
+        renderer.hasScissor = false;
+        renderer.setClipRect();
+    }
+
+    void drawSurface(LWJGLOffscreenSurface surface, SurfaceTexture tex, Color tintColor, int x, int y, int width, int height) {
+        QuadBatch batch = renderer.quadBatch;
+        TintStack tintStack = renderer.tintStack;
+        if(premultipliedAlpha) {
+            batch.flush();
+            GL11.glBlendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+            float a = tintStack.a * tintColor.getAlpha();
+            batch.begin(GL11.GL_TEXTURE_2D, tex.id);
+            batch.setColor(
+                    tintStack.r * tintColor.getRed() * a,
+                    tintStack.g * tintColor.getGreen() * a,
+                    tintStack.b * tintColor.getBlue() * a, a);
+            surface.drawQuad(batch, x, y, width, height);
+            batch.flush();
+            restoreBlendFunc();
+        } else {
+            batch.begin(GL11.GL_TEXTURE_2D, tex.id);
+            batch.setColor(tintStack, tintColor);
+            surface.drawQuad(batch, x, y, width, height);
+            batch.end();
+        }
+    }
+
+    void releaseTexture(SurfaceTexture tex) {
+        renderer.quadBatch.flush();
+        if(texturePool.size() >= MAX_POOLED_TEXTURES) {
+            SurfaceTexture oldest = texturePool.remove(0);
+            GL11.glDeleteTextures(oldest.id);
+        }
+        texturePool.add(tex);
+    }
+
+    private SurfaceTexture acquireTexture(int texWidth, int texHeight) {
+        for(int i=texturePool.size() ; i-->0 ;) {
+            SurfaceTexture tex = texturePool.get(i);
+            if(tex.width == texWidth && tex.height == texHeight) {
+                texturePool.remove(i);
+                return tex;
+            }
+        }
+        renderer.quadBatch.flush();
+        int id = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, texWidth, texHeight, 0,
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer)null);
+        return new SurfaceTexture(id, texWidth, texHeight);
+    }
+
+    private boolean begin(SurfaceTexture tex, int x, int y, int width, int height, boolean clear) {
+        renderer.quadBatch.flush();
+        if(depth == 0) {
+            screenFBO = GL11.glGetInteger(EXTFramebufferObject.GL_FRAMEBUFFER_BINDING_EXT);
+        }
+        
+        RenderTarget target;
+        if(depth == targets.size()) {
+            target = new RenderTarget();
+            target.fbo = EXTFramebufferObject.glGenFramebuffersEXT();
+            targets.add(target);
+        } else {
+            target = targets.get(depth);
+        }
+
+        EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT, target.fbo);
+        EXTFramebufferObject.glFramebufferTexture2DEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT,
+                EXTFramebufferObject.GL_COLOR_ATTACHMENT0_EXT, GL11.GL_TEXTURE_2D, tex.id, 0);
+        int status = EXTFramebufferObject.glCheckFramebufferStatusEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT);
+        if(status != EXTFramebufferObject.GL_FRAMEBUFFER_COMPLETE_EXT) {
+            renderer.getLogger().log(Level.WARNING,
+                    "Framebuffer incomplete: 0x{0}", Integer.toHexString(status));
+            EXTFramebufferObject.glBindFramebufferEXT(EXTFramebufferObject.GL_FRAMEBUFFER_EXT,
+                    (depth > 0) ? targets.get(depth-1).fbo : screenFBO);
+            return false;
+        }
+
+        target.texture = tex;
+        target.x = x;
+        target.y = y;
+        target.savedViewportX = renderer.viewportX;
+        target.savedViewportBottom = renderer.viewportBottom;
+        depth++;
+
+        renderer.viewportX = -x;
+        renderer.viewportBottom = y + tex.height;
+        setViewport(target);
+        
+        GL11.glDisable(GL11.GL_SCISSOR_TEST);
+        renderer.hasScissor = false;
+        if(clear) {
+            GL11.glClearColor(0f, 0f, 0f, 0f);
+            GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        }
+        restoreBlendFunc();
+
+        renderer.clipStack.pushDisable();
+        renderer.clipStack.push(x, y, width, height);
+        renderer.setClipRect();
+        renderer.pushGlobalTintColorReset();
+        return true;
+    }
+
+    private void restoreBlendFunc() {
+        if(depth > 0 && premultipliedAlpha) {
+            GL14.glBlendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA,
+                    GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        } else {
+            GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        }
+    }
+
+    private static void setViewport(RenderTarget target) {
+        GL11.glViewport(0, 0, target.texture.width, target.texture.height);
+        setProjection(target.x, target.y, target.texture.width, target.texture.height);
+    }
+
+    private static void setProjection(int x, int y, int width, int height) {
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glLoadIdentity();
+        GL11.glOrtho(x, x + width, y + height, y, -1.0, 1.0);
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+    }
+
+    private static int bucketSize(int size) {
+        return Math.max(MIN_TEXTURE_SIZE, Integer.highestOneBit(size - 1) << 1);
+    }
+
+    static final class SurfaceTexture {
+        final int id;
+        final int width;
+        final int height;
+
+        SurfaceTexture(int id, int width, int height) {
+            this.id = id;
+            this.width = width;
+            this.height = height;
+        }
+    }
+    
+    static final class RenderTarget {
+        int fbo;
+        SurfaceTexture texture;
+        int x;
+        int y;
+        int savedViewportX;
+        int savedViewportBottom;
+    }
+}
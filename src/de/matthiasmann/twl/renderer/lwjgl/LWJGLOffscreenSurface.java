@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.lwjgl;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.OffscreenSurface;
+import de.matthiasmann.twl.renderer.lwjgl.LWJGLOffscreenRenderer.SurfaceTexture;
+
+/**
+ * A surface created by the {@link LWJGLOffscreenRenderer}.
+ *
+ * <p>Destroying the surface returns the texture into the texture pool of
+ * the offscreen renderer.</p>
+ * 
+ * @author Matthias Mann
+ */
+public class LWJGLOffscreenSurface extends TextureAreaBase implements OffscreenSurface {
+
+    final LWJGLOffscreenRenderer offscreenRenderer;
+    private final LWJGLOffscreenSurface src;
+    private final Color tintColor;
+    SurfaceTexture texture;
+
+    LWJGLOffscreenSurface(LWJGLOffscreenRenderer offscreenRenderer, SurfaceTexture texture, int width, int height) {
+        // the FBO content is upside down
+        super(0, texture.height - height, width, -height, texture.width, texture.height);
+        this.offscreenRenderer = offscreenRenderer;
+        this.src = this;
+        this.tintColor = Color.WHITE;
+        this.texture = texture;
+    }
+
+    private LWJGLOffscreenSurface(LWJGLOffscreenSurface src, Color tintColor) {
+        super(src);
+        this.offscreenRenderer = src.offscreenRenderer;
+        this.src = src;
+        this.tintColor = tintColor;
+    }
+
+    public void draw(AnimationState as, int x, int y) {
+        draw(as, x, y, width, height);
+    }
+
+    public void draw(AnimationState as, int x, int y, int width, int height) {
+        SurfaceTexture tex = src.texture;
+        if(tex != null) {
+            offscreenRenderer.drawSurface(this, tex, tintColor, x, y, width, height);
+        }
+    }
+
+    public Image createTintedVersion(Color color) {
+        if(color == null) {
+            throw new NullPointerException("color");
+        }
+        Color newTintColor = tintColor.multiply(color);
+        if(newTintColor.equals(tintColor)) {
+            return this;
+        }
+        return new LWJGLOffscreenSurface(src, newTintColor);
+    }
+
+    /**
+     * Destroys this surface. Tinted versions of this surface will no longer render.
+     * Calling destroy on a tinted version has no effect.
+     */
+    public void destroy() {
+        if(src == this) {
+            SurfaceTexture tex = releaseTexture();
+            if(tex != null) {
+                offscreenRenderer.releaseTexture(tex);
+            }
+        }
+    }
+
+    SurfaceTexture releaseTexture() {
+        SurfaceTexture tex = src.texture;
+        src.texture = null;
+        return tex;
+    }
+}
@@ -47,6 +47,8 @@ import de.matthiasmann.twl.renderer.FontMapper;
 import de.matthiasmann.twl.renderer.LineRenderer;
 import de.matthiasmann.twl.renderer.OffscreenRenderer;
 import de.matthiasmann.twl.renderer.Renderer;
+import de.matthiasmann.twl.renderer.SupportsClipRect;
+import de.matthiasmann.twl.renderer.SupportsPartialRepaint;
 import de.matthiasmann.twl.renderer.Texture;
 import de.matthiasmann.twl.utils.ClipStack;
 import de.matthiasmann.twl.utils.StateSelect;
@@ -77,7 +79,7 @@ import org.lwjgl.opengl.GLContext;
  * 
  * @see #syncViewportSize()
  */
-public class LWJGLRenderer implements Renderer, LineRenderer {
+public class LWJGLRenderer implements Renderer, LineRenderer, SupportsPartialRepaint, SupportsClipRect {
 
     public static final StateKey STATE_LEFT_MOUSE_BUTTON = StateKey.get("leftMouseButton");
     public static final StateKey STATE_MIDDLE_MOUSE_BUTTON = StateKey.get("middleMouseButton");
@@ -90,15 +92,16 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
     private final IntBuffer ib16;
     final int maxTextureSize;
 
-    private int viewportX;
-    private int viewportBottom;
+    int viewportX;
+    int viewportBottom;
     private int width;
     private int height;
-    private boolean hasScissor;
+    boolean hasScissor;
     private final TintStack tintStateRoot;
     private final Cursor emptyCursor;
     private boolean useQuadsForLines;
     private boolean useSWMouseCursors;
+    private int textureAtlasPageSize;
     private SWCursor swCursor;
     private int mouseX;
     private int mouseY;
@@ -109,6 +112,11 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
     final ArrayList<TextureArea> textureAreas;
     final ArrayList<TextureAreaRotated> rotatedTextureAreas;
     final ArrayList<LWJGLDynamicImage> dynamicImages;
+    final QuadBatch quadBatch;
+    final LWJGLOffscreenRenderer offscreenRenderer;
+    private boolean preserveContent;
+    private LWJGLOffscreenSurface screenSurface;
+    private boolean screenSurfaceActive;
     
     protected TintStack tintStack;
     protected final ClipStack clipStack;
@@ -124,11 +132,18 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
         this.tintStack = tintStateRoot;
         this.clipStack = new ClipStack();
         this.clipRectTemp = new Rect();
+        this.quadBatch = new QuadBatch();
         syncViewportSize();
 
         GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE, ib16);
         maxTextureSize = ib16.get(0);
 
+        if(LWJGLOffscreenRenderer.isSupported()) {
+            offscreenRenderer = new LWJGLOffscreenRenderer(this);
+        } else {
+            offscreenRenderer = null;
+        }
+
         if(Mouse.isCreated()) {
             int minCursorSize = Cursor.getMinCursorSize();
             IntBuffer tmp = BufferUtils.createIntBuffer(minCursorSize * minCursorSize);
@@ -165,6 +180,71 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
         this.useSWMouseCursors = useSWMouseCursors;
     }
 
+    public boolean isUseQuadBatching() {
+        return quadBatch.isBatching();
+    }
+
+    /**
+     * Controls if images and text are collected into large batches which
+     * are only rendered when the texture or clip region changes.
+     * 
+     * <p>Quad batching is disabled by default. When enabled all code which
+     * renders directly using OpenGL during {@link de.matthiasmann.twl.GUI#draw() }
+     * must call {@link #flushQuadBatch() } before changing any OpenGL state.
+     * When disabled large repeated images are rendered using display lists.</p>
+     * 
+     * @param useQuadBatching true to enable quad batching
+     * @see #getQuadBatch() 
+     */
+    public void setUseQuadBatching(boolean useQuadBatching) {
+        quadBatch.setBatching(useQuadBatching);
+    }
+
+    /**
+     * Returns the quad batch used for rendering images and text.
+     * It also provides statistics about the number of draw calls of the
+     * current frame.
+     * 
+     * @return the quad batch
+     */
+    public QuadBatch getQuadBatch() {
+        return quadBatch;
+    }
+
+    /**
+     * Renders all pending quads.
+     * 
+     * @see #setUseQuadBatching(boolean) 
+     */
+    public void flushQuadBatch() {
+        quadBatch.flush();
+    }
+
+    public int getTextureAtlasPageSize() {
+        return textureAtlasPageSize;
+    }
+
+    /**
+     * Controls if small images loaded by the theme are packed into a few
+     * large textures. This reduces the number of texture switches and
+     * increases the size of the batches.
+     * 
+     * <p>The page size is limited to the maximum texture size and rounded
+     * down to a power of 2. Images larger than half of the page size are
+     * not packed. Fonts are never packed.</p>
+     * 
+     * This must be set before loading a theme !
+     * 
+     * @param textureAtlasPageSize the size of the atlas pages or 0 to disable packing
+     * @see #setUseQuadBatching(boolean) 
+     */
+    public void setTextureAtlasPageSize(int textureAtlasPageSize) {
+        if(textureAtlasPageSize < 0) {
+            throw new IllegalArgumentException("textureAtlasPageSize");
+        }
+        this.textureAtlasPageSize = textureAtlasPageSize;
+    }
+
     public CacheContext createNewCacheContext() {
         return new LWJGLCacheContext(this);
     }
@@ -302,20 +382,74 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
         prepareForRendering();
         setupGLState();
         
+        if(preserveContent) {
+            beginScreenSurface(true);
+        }
         return true;
     }
 
     public void endRendering() {
+        if(screenSurfaceActive) {
+            screenSurfaceActive = false;
+            offscreenRenderer.endOffscreenRendering();
+            screenSurface.draw(null, 0, 0);
+        }
         renderSWCursor();
+        quadBatch.flush();
         revertGLState();
     }
     
+    /**
+     * Enables rendering of the GUI into an offscreen surface which is kept
+     * between frames and composited onto the screen in {@link #endRendering() }.
+     * Requires FBO support - otherwise this call has no effect.
+     * 
+     * @param preserveContent true to keep the GUI content between frames
+     * @see #getOffscreenRenderer() 
+     */
+    public void setPreserveContent(boolean preserveContent) {
+        this.preserveContent = preserveContent && offscreenRenderer != null;
+        if(!this.preserveContent && screenSurface != null) {
+            screenSurface.destroy();
+            screenSurface = null;
+        }
+    }
+
+    public boolean isContentPreserved() {
+        return preserveContent && screenSurface != null &&
+                screenSurface.getWidth() == width &&
+                screenSurface.getHeight() == height;
+    }
+
+    public boolean startPartialRendering() {
+        if(!isContentPreserved()) {
+            throw new IllegalStateException("content not preserved");
+        }
+        prepareForRendering();
+        setupGLState();
+        beginScreenSurface(false);
+        return true;
+    }
+
+    public void clearRect(int x, int y, int width, int height) {
+        clipEnter(x, y, width, height);
+        GL11.glClearColor(0f, 0f, 0f, 0f);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        clipLeave();
+    }
+
+    private void beginScreenSurface(boolean clear) {
+        screenSurface = offscreenRenderer.start(screenSurface, 0, 0, width, height, clear);
+        screenSurfaceActive = screenSurface != null;
+    }
+    
     /**
      * Call to revert the GL state to the state before calling
      * {@link #startRendering()}.
      * @see #resumeRendering() 
      */
     public void pauseRendering() {
+        quadBatch.flush();
         revertGLState();
     }
     
@@ -386,15 +520,22 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
                 getLogger().log(Level.WARNING, "Unknown texture filter: {0}", filterStr);
             }
         }
-        return load(url, format, filter);
+        if(url == null) {
+            throw new NullPointerException("url");
+        }
+        return activeCacheContext().loadAtlasTexture(url, format, filter);
     }
 
     public LineRenderer getLineRenderer() {
         return this;
     }
 
+    /**
+     * Returns the FBO based offscreen renderer.
+     * @return the offscreen renderer or null if EXT_framebuffer_object is not supported
+     */
     public OffscreenRenderer getOffscreenRenderer() {
-        return null;
+        return offscreenRenderer;
     }
 
     public FontMapper getFontMapper() {
@@ -404,7 +545,8 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
     /**
      * Installs a font mapper. It is the responsibility of the font mapper to
      * manage the OpenGL state correctly so that normal rendering by LWJGLRenderer
-     * is not disturbed.
+     * is not disturbed. This includes calling {@link #flushQuadBatch() }
+     * before rendering.
      * 
      * @param fontMapper the font mapper object - can be null.
      */
@@ -561,6 +703,7 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
             throw new ArrayIndexOutOfBoundsException(numPts*2);
         }
         if(numPts >= 2) {
+            quadBatch.flush();
             tintStack.setColor(color);
             GL11.glDisable(GL11.GL_TEXTURE_2D);
             if(useQuadsForLines) {
@@ -607,6 +750,7 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
     }
 
     protected void prepareForRendering() {
+        quadBatch.resetStatistics();
         hasScissor = false;
         tintStack = tintStateRoot;
         clipStack.clearStack();
@@ -647,6 +791,7 @@ public class LWJGLRenderer implements Renderer, LineRenderer {
     }
 
     protected void setClipRect() {
+        quadBatch.flush();
         final Rect rect = clipRectTemp;
         if(clipStack.getClipRect(rect)) {
             GL11.glScissor(viewportX + rect.getX(), viewportBottom - rect.getBottom(), rect.getWidth(), rect.getHeight());
@@ -94,6 +94,9 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
 
     final LWJGLRenderer renderer;
     private int id;
+    private final LWJGLTexture page;
+    private final int offsetX;
+    private final int offsetY;
     private final int width;
     private final int height;
     private final int texWidth;
@@ -105,6 +108,9 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
     public LWJGLTexture(LWJGLRenderer renderer, int width, int height,
             ByteBuffer buf, Format fmt, Filter filter) {
         this.renderer = renderer;
+        this.page = null;
+        this.offsetX = 0;
+        this.offsetY = 0;
 
         if(width <= 0 || height <= 0) {
             throw new IllegalArgumentException("size <= 0");
@@ -158,8 +164,44 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
         this.texDataFmt = fmt;
     }
 
+    /**
+     * Creates a texture which is a sub area of an atlas page.
+     * 
+     * @param page the atlas page texture
+     * @param offsetX the X position inside the atlas page
+     * @param offsetY the Y position inside the atlas page
+     * @param width the width
+     * @param height the height
+     * @param buf the texture data for cursors and pixel queries
+     * @param fmt the format of the texture data
+     */
+    LWJGLTexture(LWJGLTexture page, int offsetX, int offsetY, int width, int height,
+            ByteBuffer buf, Format fmt) {
+        this.renderer = page.renderer;
+        this.page = page;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.width = width;
+        this.height = height;
+        this.texWidth = page.texWidth;
+        this.texHeight = page.texHeight;
+        this.texData = buf;
+        this.texDataFmt = fmt;
+    }
+
+    /**
+     * Returns true if this texture is a sub area of a texture atlas page.
+     * @return true if this texture was packed into a texture atlas
+     */
+    boolean isPacked() {
+        return page != null;
+    }
+
     public void destroy() {
+        // atlas pages are destroyed by the cache context
         if(id != 0) {
+            // render pending quads which may still use this texture
+            renderer.quadBatch.flush();
             // make sure that our texture is not bound when we try to delete it
             GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
             GL11.glDeleteTextures(id);
@@ -181,6 +223,24 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
         return height;
     }
 
+    /**
+     * Returns the X position of this texture inside its OpenGL texture.
+     * This is non zero when the texture was packed into a texture atlas.
+     * @return the X position in pixels
+     */
+    public int getOffsetX() {
+        return offsetX;
+    }
+
+    /**
+     * Returns the Y position of this texture inside its OpenGL texture.
+     * This is non zero when the texture was packed into a texture atlas.
+     * @return the Y position in pixels
+     */
+    public int getOffsetY() {
+        return offsetY;
+    }
+
     public int getTexWidth() {
         return texWidth;
     }
@@ -190,6 +250,7 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
     }
 
     public boolean bind(Color color) {
+        int id = getTextureID();
         if(id != 0) {
             GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
             renderer.tintStack.setColor(color);
@@ -198,7 +259,40 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
         return false;
     }
 
+    /**
+     * Selects this texture and the tinted color for the following quads.
+     * 
+     * @param batch the quad batch
+     * @param color the desired color. Will be tinted.
+     * @return true if the texture is valid
+     */
+    public boolean bind(QuadBatch batch, Color color) {
+        int id = getTextureID();
+        if(id != 0) {
+            batch.begin(GL11.GL_TEXTURE_2D, id);
+            batch.setColor(renderer.tintStack, color);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Selects this texture for the following quads.
+     * 
+     * @param batch the quad batch
+     * @return true if the texture is valid
+     */
+    public boolean bind(QuadBatch batch) {
+        int id = getTextureID();
+        if(id != 0) {
+            batch.begin(GL11.GL_TEXTURE_2D, id);
+            return true;
+        }
+        return false;
+    }
+
     public boolean bind() {
+        int id = getTextureID();
         if(id != 0) {
             GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
             return true;
@@ -219,6 +313,8 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
         if(y + Math.abs(height) > getHeight()) {
             throw new IllegalArgumentException("height");
         }
+        x += offsetX;
+        y += offsetY;
         if(rotation != Rotation.NONE || (tiled && (width < 0 || height < 0))) {
             return new TextureAreaRotated(this, x, y, width, height, tintColor, tiled, rotation);
         } else if(tiled) {
@@ -230,7 +326,7 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
 
     public MouseCursor createCursor(int x, int y, int width, int height, int hotSpotX, int hotSpotY, Image imageRef) {
         if(renderer.isUseSWMouseCursors() || imageRef != null) {
-            return new SWCursor(this, x, y, width, height, hotSpotX, hotSpotY, imageRef);
+            return new SWCursor(this, x + offsetX, y + offsetY, width, height, hotSpotX, hotSpotY, imageRef);
         }
         if(texData != null) {
             LWJGLCursor cursor = new LWJGLCursor(texData, texDataFmt,
@@ -313,6 +409,10 @@ public class LWJGLTexture implements Texture, Resource, QueriablePixels {
         // this.texData = null;
     }
 
+    int getTextureID() {
+        return (page != null) ? page.id : id;
+    }
+
     static int roundUpPOT(int value) {
         return 1 << (32 - Integer.numberOfLeadingZeros(value-1));
     }
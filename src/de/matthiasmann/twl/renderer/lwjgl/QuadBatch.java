@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.lwjgl;
+
+import de.matthiasmann.twl.Color;
+import java.nio.FloatBuffer;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Collects textured or untextured quads into a {@link VertexArray} with per
+ * vertex colors and renders them with as few draw calls as possible.
+ * 
+ * <p>Pending quads are rendered when the texture changes, when the buffer is
+ * full or when {@link #flush() } is called. The tint color is stored per
+ * vertex so changing it does not cause a flush.</p>
+ * 
+ * <p>When batching is disabled (the default) the quads are rendered at the
+ * end of every draw operation - this is compatible with code which renders
+ * directly using OpenGL.</p>
+ * 
+ * @author Matthias Mann
+ * @see LWJGLRenderer#setUseQuadBatching(boolean) 
+ */
+public class QuadBatch {
+
+    static final int MAX_QUADS = 1024;
+    
+    private final VertexArray vertexArray;
+    private final FloatBuffer va;
+    private int numVertices;
+    private int target;
+    private int textureID;
+    private float r, g, b, a;
+    private boolean batching;
+    
+    private int numDrawCalls;
+    private int numFlushes;
+    private int numQuads;
+
+    QuadBatch() {
+        this.vertexArray = new VertexArray();
+        this.va = vertexArray.allocate(MAX_QUADS, true);
+        this.r = 1f;
+        this.g = 1f;
+        this.b = 1f;
+        this.a = 1f;
+    }
+
+    public boolean isBatching() {
+        return batching;
+    }
+
+    void setBatching(boolean batching) {
+        if(!batching) {
+            flush();
+        }
+        this.batching = batching;
+    }
+
+    /**
+     * Returns the number of draw calls issued since the last call to
+     * {@link #resetStatistics() }
+     * @return the number of draw calls
+     */
+    public int getNumDrawCalls() {
+        return numDrawCalls;
+    }
+
+    /**
+     * Returns the number of explicit flushes (eg clipping changes or direct
+     * OpenGL rendering) which had pending quads since the last call to
+     * {@link #resetStatistics() }
+     * @return the number of flushes
+     */
+    public int getNumFlushes() {
+        return numFlushes;
+    }
+
+    /**
+     * Returns the number of quads rendered since the last call to
+     * {@link #resetStatistics() }
+     * @return the number of quads
+     */
+    public int getNumQuads() {
+        return numQuads;
+    }
+    
+    public void resetStatistics() {
+        numDrawCalls = 0;
+        numFlushes = 0;
+        numQuads = 0;
+    }
+    
+    /**
+     * Selects the texture for the following quads. If this differs from the
+     * texture of the pending quads then these are rendered first.
+     * 
+     * @param target the texture target eg {@code GL11.GL_TEXTURE_2D}
+     * @param textureID the texture ID or 0 for untextured quads
+     */
+    public void begin(int target, int textureID) {
+        if(this.textureID != textureID || this.target != target) {
+            if(numVertices > 0) {
+                render();
+            }
+            this.target = target;
+            this.textureID = textureID;
+        }
+    }
+    
+    /**
+     * Selects untextured rendering for the following quads.
+     */
+    public void beginUntextured() {
+        begin(0, 0);
+    }
+    
+    /**
+     * Completes a draw operation. When batching is disabled this will render
+     * the pending quads.
+     */
+    public void end() {
+        if(!batching) {
+            render();
+        }
+    }
+    
+    /**
+     * Renders all pending quads. This must be called before any direct
+     * OpenGL rendering or state changes.
+     */
+    public void flush() {
+        if(numVertices > 0) {
+            numFlushes++;
+            render();
+        }
+    }
+
+    /**
+     * Sets the color for the following vertices
+     * 
+     * @param r the red component 0..1
+     * @param g the green component 0..1
+     * @param b the blue component 0..1
+     * @param a the alpha component 0..1
+     */
+    public void setColor(float r, float g, float b, float a) {
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.a = a;
+    }
+    
+    /**
+     * Sets the color for the following vertices to color * tint
+     * 
+     * @param tintStack the tint stack
+     * @param color the desired color. Will be tinted.
+     */
+    public void setColor(TintStack tintStack, Color color) {
+        setColor(tintStack.r * color.getRed(),
+                tintStack.g * color.getGreen(),
+                tintStack.b * color.getBlue(),
+                tintStack.a * color.getAlpha());
+    }
+    
+    /**
+     * Sets the color for the following vertices to color * tint
+     * 
+     * @param tintStack the tint stack
+     * @param r the red component 0..255
+     * @param g the green component 0..255
+     * @param b the blue component 0..255
+     * @param a the alpha component 0..255
+     */
+    public void setColor(TintStack tintStack, float r, float g, float b, float a) {
+        setColor(tintStack.r * r,
+                tintStack.g * g,
+                tintStack.b * b,
+                tintStack.a * a);
+    }
+
+    /**
+     * Adds a single vertex. Quads are formed by 4 consecutive vertices in
+     * the order top left, bottom left, bottom right, top right.
+     * 
+     * @param tx the texture X coordinate
+     * @param ty the texture Y coordinate
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void vertex(float tx, float ty, float x, float y) {
+        if(numVertices == MAX_QUADS*4) {
+            render();
+        }
+        va.put(tx).put(ty).put(r).put(g).put(b).put(a).put(x).put(y);
+        numVertices++;
+    }
+    
+    /**
+     * Adds an axis aligned quad.
+     * 
+     * @param x0 the left coordinate
+     * @param y0 the top coordinate
+     * @param x1 the right coordinate
+     * @param y1 the bottom coordinate
+     * @param tx0 the left texture coordinate
+     * @param ty0 the top texture coordinate
+     * @param tx1 the right texture coordinate
+     * @param ty1 the bottom texture coordinate
+     */
+    public void quad(float x0, float y0, float x1, float y1, float tx0, float ty0, float tx1, float ty1) {
+        if(numVertices > (MAX_QUADS-1)*4) {
+            render();
+        }
+        va.put(tx0).put(ty0).put(r).put(g).put(b).put(a).put(x0).put(y0);
+        va.put(tx0).put(ty1).put(r).put(g).put(b).put(a).put(x0).put(y1);
+        va.put(tx1).put(ty1).put(r).put(g).put(b).put(a).put(x1).put(y1);
+        va.put(tx1).put(ty0).put(r).put(g).put(b).put(a).put(x1).put(y0);
+        numVertices += 4;
+    }
+    
+    private void render() {
+        if(numVertices > 0) {
+            if(textureID == 0) {
+                GL11.glDisable(GL11.GL_TEXTURE_2D);
+            } else if(target != GL11.GL_TEXTURE_2D) {
+                GL11.glDisable(GL11.GL_TEXTURE_2D);
+                GL11.glEnable(target);
+            }
+            if(textureID != 0) {
+                GL11.glBindTexture(target, textureID);
+            }
+            
+            vertexArray.bind();
+            vertexArray.drawVertices(0, numVertices);
+            vertexArray.unbind();
+            
+            if(textureID == 0) {
+                GL11.glEnable(GL11.GL_TEXTURE_2D);
+            } else if(target != GL11.GL_TEXTURE_2D) {
+                GL11.glDisable(target);
+                GL11.glEnable(GL11.GL_TEXTURE_2D);
+            }
+            
+            numDrawCalls++;
+            numQuads += numVertices >> 2;
+        }
+        numVertices = 0;
+        va.clear();
+    }
+}
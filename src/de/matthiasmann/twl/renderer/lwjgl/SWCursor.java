@@ -31,7 +31,6 @@ package de.matthiasmann.twl.renderer.lwjgl;
 
 import de.matthiasmann.twl.renderer.Image;
 import de.matthiasmann.twl.renderer.MouseCursor;
-import org.lwjgl.opengl.GL11;
 
 /**
  *
@@ -55,11 +54,13 @@ class SWCursor extends TextureAreaBase implements MouseCursor {
     void render(int x, int y) {
         if(imageRef != null) {
             imageRef.draw(texture.renderer.swCursorAnimState, x-hotSpotX, y-hotSpotY);
-        } else if(texture.bind()) {
-            GL11.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
-            GL11.glBegin(GL11.GL_QUADS);
-            drawQuad(x-hotSpotX, y-hotSpotY, width, height);
-            GL11.glEnd();
+        } else {
+            final QuadBatch batch = texture.renderer.quadBatch;
+            if(texture.bind(batch)) {
+                batch.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+                drawQuad(batch, x-hotSpotX, y-hotSpotY, width, height);
+                batch.end();
+            }
         }
     }
 }
@@ -43,10 +43,20 @@ import org.lwjgl.opengl.GL11;
  */
 public class TextureArea extends TextureAreaBase implements Image, SupportsDrawRepeat, QueriablePixels {
 
+    /**
+     * @deprecated the display list repeat cache is only used when quad
+     *   batching is disabled
+     */
+    @Deprecated
     protected static final int REPEAT_CACHE_SIZE = 10;
     
     protected final LWJGLTexture texture;
     protected final Color tintColor;
+    /**
+     * @deprecated the display list repeat cache is only used when quad
+     *   batching is disabled
+     */
+    @Deprecated
     protected int repeatCacheID = -1;
     
     public TextureArea(LWJGLTexture texture, int x, int y, int width, int height, Color tintColor) {
@@ -69,8 +79,8 @@ public class TextureArea extends TextureAreaBase implements Image, SupportsDrawR
         int texWidth = texture.getTexWidth();
         int texHeight = texture.getTexHeight();
         
-        int baseX = (int)(tx0*texWidth);
-        int baseY = (int)(ty0*texHeight);
+        int baseX = (int)(tx0*texWidth) - texture.getOffsetX();
+        int baseY = (int)(ty0*texHeight) - texture.getOffsetY();
         
         if(tx0 > tx1) {
             x = baseX - x;
@@ -86,14 +96,14 @@ public class TextureArea extends TextureAreaBase implements Image, SupportsDrawR
         
         if(x < 0) {
             x = 0;
-        } else if(x >= texWidth) {
-            x = texWidth-1;
+        } else if(x >= texture.getWidth()) {
+            x = texture.getWidth()-1;
         }
         
         if(y < 0) {
             y = 0;
-        } else if(y >= texHeight) {
-            y = texHeight-1;
+        } else if(y >= texture.getHeight()) {
+            y = texture.getHeight()-1;
         }
         
         return texture.getPixelValue(x, y);
@@ -104,36 +114,38 @@ public class TextureArea extends TextureAreaBase implements Image, SupportsDrawR
     }
 
     public void draw(AnimationState as, int x, int y, int w, int h) {
-        if(texture.bind(tintColor)) {
-            GL11.glBegin(GL11.GL_QUADS);
-            drawQuad(x, y, w, h);
-            GL11.glEnd();
+        final QuadBatch batch = texture.renderer.quadBatch;
+        if(texture.bind(batch, tintColor)) {
+            drawQuad(batch, x, y, w, h);
+            batch.end();
         }
     }
 
     public void draw(AnimationState as, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
-        if(texture.bind(tintColor)) {
+        final QuadBatch batch = texture.renderer.quadBatch;
+        if(texture.bind(batch, tintColor)) {
             if((repeatCountX * this.width != width) || (repeatCountY * this.height != height)) {
-                drawRepeatSlow(x, y, width, height, repeatCountX, repeatCountY);
+                drawRepeatSlow(batch, x, y, width, height, repeatCountX, repeatCountY);
+            } else if(!batch.isBatching() && repeatCountX >= REPEAT_CACHE_SIZE && repeatCountY >= REPEAT_CACHE_SIZE) {
+                batch.flush();
+                texture.bind(tintColor);
+                drawRepeatCached(x, y, repeatCountX, repeatCountY);
                 return;
+            } else {
+                drawRepeat(batch, x, y, repeatCountX, repeatCountY);
             }
-            if(repeatCountX < REPEAT_CACHE_SIZE || repeatCountY < REPEAT_CACHE_SIZE) {
-                drawRepeat(x, y, repeatCountX, repeatCountY);
-                return;
-            }
-            drawRepeatCached(x, y, repeatCountX, repeatCountY);
+            batch.end();
         }
     }
 
-    private void drawRepeatSlow(int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
-        GL11.glBegin(GL11.GL_QUADS);
+    private void drawRepeatSlow(QuadBatch batch, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
         while(repeatCountY > 0) {
             int rowHeight = height / repeatCountY;
 
             int cx = 0;
             for(int xi=0 ; xi<repeatCountX ;) {
                 int nx = ++xi * width / repeatCountX;
-                drawQuad(x+cx, y, nx-cx, rowHeight);
+                drawQuad(batch, x+cx, y, nx-cx, rowHeight);
                 cx = nx;
             }
 
@@ -141,9 +153,28 @@ public class TextureArea extends TextureAreaBase implements Image, SupportsDrawR
             height -= rowHeight;
             repeatCountY--;
         }
-        GL11.glEnd();
     }
     
+    protected void drawRepeat(QuadBatch batch, int x, int y, int repeatCountX, int repeatCountY) {
+        final int w = width;
+        final int h = height;
+        while(repeatCountY-- > 0) {
+            int curX = x;
+            int cntX = repeatCountX;
+            while(cntX-- > 0) {
+                drawQuad(batch, curX, y, w, h);
+                curX += w;
+            }
+            y += h;
+        }
+    }
+
+    /**
+     * Renders the repeated image using immediate mode OpenGL.
+     * 
+     * @deprecated use {@link #drawRepeat(de.matthiasmann.twl.renderer.lwjgl.QuadBatch, int, int, int, int) }
+     */
+    @Deprecated
     protected void drawRepeat(int x, int y, int repeatCountX, int repeatCountY) {
         final int w = width;
         final int h = height;
@@ -160,6 +191,13 @@ public class TextureArea extends TextureAreaBase implements Image, SupportsDrawR
         GL11.glEnd();
     }
 
+    /**
+     * Renders the repeated image using a display list. The texture must
+     * already be bound.
+     * 
+     * @deprecated only used when quad batching is disabled
+     */
+    @Deprecated
     protected void drawRepeatCached(int x, int y, int repeatCountX, int repeatCountY) {
         if(repeatCacheID < 0) {
             createRepeatCache();
@@ -193,6 +231,10 @@ public class TextureArea extends TextureAreaBase implements Image, SupportsDrawR
         }
     }
 
+    /**
+     * @deprecated only used when quad batching is disabled
+     */
+    @Deprecated
     protected void createRepeatCache() {
         repeatCacheID = GL11.glGenLists(1);
         texture.renderer.textureAreas.add(this);
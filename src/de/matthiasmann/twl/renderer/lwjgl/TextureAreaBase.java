@@ -92,4 +92,8 @@ public class TextureAreaBase {
         GL11.glTexCoord2f(tx1, ty1); GL11.glVertex2i(x + w, y + h);
         GL11.glTexCoord2f(tx1, ty0); GL11.glVertex2i(x + w, y    );
     }
+
+    void drawQuad(QuadBatch batch, int x, int y, int w, int h) {
+        batch.quad(x, y, x + w, y + h, tx0, ty0, tx1, ty1);
+    }
 }
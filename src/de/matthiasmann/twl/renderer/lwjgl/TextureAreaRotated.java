@@ -153,64 +153,75 @@ public class TextureAreaRotated implements Image {
     }
 
     public void draw(AnimationState as, int x, int y, int w, int h) {
-        if(texture.bind(tintColor)) {
+        final QuadBatch batch = texture.renderer.quadBatch;
+        if(texture.bind(batch, tintColor)) {
             if(tiled) {
-                drawTiled(x, y, w, h);
+                drawTiled(batch, x, y, w, h);
             } else {
-                GL11.glBegin(GL11.GL_QUADS);
-                drawQuad(x, y, w, h);
-                GL11.glEnd();
+                drawQuad(batch, x, y, w, h);
             }
+            batch.end();
         }
     }
     
-    private void drawRepeat(int x, int y, int repeatCountX, int repeatCountY) {
-        GL11.glBegin(GL11.GL_QUADS);
+    private void drawRepeat(QuadBatch batch, int x, int y, int repeatCountX, int repeatCountY) {
         final int w = width;
         final int h = height;
         while(repeatCountY-- > 0) {
             int curX = x;
             int cntX = repeatCountX;
             while(cntX-- > 0) {
-                drawQuad(curX, y, w, h);
+                drawQuad(batch, curX, y, w, h);
                 curX += w;
             }
             y += h;
         }
-        GL11.glEnd();
     }
     
-    private void drawTiled(int x, int y, int w, int h) {
+    private void drawTiled(QuadBatch batch, int x, int y, int w, int h) {
         int repeatCountX = w / this.width;
         int repeatCountY = h / this.height;
 
-        if(repeatCountX < REPEAT_CACHE_SIZE || repeatCountY < REPEAT_CACHE_SIZE) {
-            drawRepeat(x, y, repeatCountX, repeatCountY);
-        } else {
+        if(!batch.isBatching() && repeatCountX >= REPEAT_CACHE_SIZE && repeatCountY >= REPEAT_CACHE_SIZE) {
+            batch.flush();
+            texture.bind(tintColor);
             drawRepeatCached(x, y, repeatCountX, repeatCountY);
+        } else {
+            drawRepeat(batch, x, y, repeatCountX, repeatCountY);
         }
 
         int drawnX = repeatCountX * this.width;
         int drawnY = repeatCountY * this.height;
         int restWidth = w - drawnX;
         int restHeight = h - drawnY;
-        if(restWidth > 0 || restHeight > 0) {
-            GL11.glBegin(GL11.GL_QUADS);
-            if(restWidth > 0 && repeatCountY > 0) {
-                drawClipped(x + drawnX, y, restWidth, this.height, 1, repeatCountY);
+        if(restWidth > 0 && repeatCountY > 0) {
+            drawClipped(batch, x + drawnX, y, restWidth, this.height, 1, repeatCountY);
+        }
+        if(restHeight > 0) {
+            if(repeatCountX > 0) {
+                drawClipped(batch, x, y + drawnY, this.width, restHeight, repeatCountX, 1);
             }
-            if(restHeight > 0) {
-                if(repeatCountX > 0) {
-                    drawClipped(x, y + drawnY, this.width, restHeight, repeatCountX, 1);
-                }
-                if(restWidth > 0) {
-                    drawClipped(x + drawnX, y + drawnY, restWidth, restHeight, 1, 1);
-                }
+            if(restWidth > 0) {
+                drawClipped(batch, x + drawnX, y + drawnY, restWidth, restHeight, 1, 1);
             }
-            GL11.glEnd();
         }
     }
-    
+
+    private void drawRepeat(int x, int y, int repeatCountX, int repeatCountY) {
+        GL11.glBegin(GL11.GL_QUADS);
+        final int w = width;
+        final int h = height;
+        while(repeatCountY-- > 0) {
+            int curX = x;
+            int cntX = repeatCountX;
+            while(cntX-- > 0) {
+                drawQuad(curX, y, w, h);
+                curX += w;
+            }
+            y += h;
+        }
+        GL11.glEnd();
+    }
 
     protected void drawRepeatCached(int x, int y, int repeatCountX, int repeatCountY) {
         if(repeatCacheID < 0) {
@@ -245,7 +256,7 @@ public class TextureAreaRotated implements Image {
         }
     }
 
-    private void drawClipped(int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+    private void drawClipped(QuadBatch batch, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
         float ctxTL = txTL;
         float ctyTL = tyTL;
         float ctxTR = txTR;
@@ -275,10 +286,10 @@ public class TextureAreaRotated implements Image {
             int x0 = x;
             for(int cx=repeatCountX ; cx-- > 0 ;) {
                 int x1 = x0 + width;
-                GL11.glTexCoord2f(ctxTL, ctyTL); GL11.glVertex2i(x0, y );
-                GL11.glTexCoord2f(ctxBL, ctyBL); GL11.glVertex2i(x0, y1);
-                GL11.glTexCoord2f(ctxBR, ctyBR); GL11.glVertex2i(x1, y1);
-                GL11.glTexCoord2f(ctxTR, ctyTR); GL11.glVertex2i(x1, y );
+                batch.vertex(ctxTL, ctyTL, x0, y );
+                batch.vertex(ctxBL, ctyBL, x0, y1);
+                batch.vertex(ctxBR, ctyBR, x1, y1);
+                batch.vertex(ctxTR, ctyTR, x1, y );
                 x0 = x1;
             }
             y = y1;
@@ -305,6 +316,13 @@ public class TextureAreaRotated implements Image {
         GL11.glDeleteLists(repeatCacheID, 1);
         repeatCacheID = -1;
     }
+
+    private void drawQuad(QuadBatch batch, int x, int y, int w, int h) {
+        batch.vertex(txTL, tyTL, x    , y    );
+        batch.vertex(txBL, tyBL, x    , y + h);
+        batch.vertex(txBR, tyBR, x + w, y + h);
+        batch.vertex(txTR, tyTR, x + w, y    );
+    }
     
     public Image createTintedVersion(Color color) {
         if(color == null) {
@@ -32,7 +32,6 @@ package de.matthiasmann.twl.renderer.lwjgl;
 import de.matthiasmann.twl.Color;
 import de.matthiasmann.twl.renderer.AnimationState;
 import de.matthiasmann.twl.renderer.Image;
-import org.lwjgl.opengl.GL11;
 
 /**
  * A tiled area inside a OpenGL texture used as UI image
@@ -51,39 +50,33 @@ public class TextureAreaTiled extends TextureArea {
 
     @Override
     public void draw(AnimationState as, int x, int y, int w, int h) {
-        if(texture.bind(tintColor)) {
+        final QuadBatch batch = texture.renderer.quadBatch;
+        if(texture.bind(batch, tintColor)) {
             int repeatCountX = w / this.width;
             int repeatCountY = h / this.height;
 
-            if(repeatCountX < REPEAT_CACHE_SIZE || repeatCountY < REPEAT_CACHE_SIZE) {
-                drawRepeat(x, y, repeatCountX, repeatCountY);
-            } else {
-                drawRepeatCached(x, y, repeatCountX, repeatCountY);
-            }
+            drawRepeat(batch, x, y, repeatCountX, repeatCountY);
 
             int drawnX = repeatCountX * this.width;
             int drawnY = repeatCountY * this.height;
             int restWidth = w - drawnX;
             int restHeight = h - drawnY;
-            if(restWidth > 0 || restHeight > 0) {
-                GL11.glBegin(GL11.GL_QUADS);
-                if(restWidth > 0 && repeatCountY > 0) {
-                    drawClipped(x + drawnX, y, restWidth, this.height, 1, repeatCountY);
+            if(restWidth > 0 && repeatCountY > 0) {
+                drawClipped(batch, x + drawnX, y, restWidth, this.height, 1, repeatCountY);
+            }
+            if(restHeight > 0) {
+                if(repeatCountX > 0) {
+                    drawClipped(batch, x, y + drawnY, this.width, restHeight, repeatCountX, 1);
                 }
-                if(restHeight > 0) {
-                    if(repeatCountX > 0) {
-                        drawClipped(x, y + drawnY, this.width, restHeight, repeatCountX, 1);
-                    }
-                    if(restWidth > 0) {
-                        drawClipped(x + drawnX, y + drawnY, restWidth, restHeight, 1, 1);
-                    }
+                if(restWidth > 0) {
+                    drawClipped(batch, x + drawnX, y + drawnY, restWidth, restHeight, 1, 1);
                 }
-                GL11.glEnd();
             }
+            batch.end();
         }
     }
 
-    private void drawClipped(int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+    private void drawClipped(QuadBatch batch, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
         float ctx0 = tx0;
         float cty0 = ty0;
         float ctx1 = tx1;
@@ -100,10 +93,7 @@ public class TextureAreaTiled extends TextureArea {
             int x0 = x;
             for(int cx=repeatCountX ; cx-- > 0 ;) {
                 int x1 = x0 + width;
-                GL11.glTexCoord2f(ctx0, cty0); GL11.glVertex2i(x0, y );
-                GL11.glTexCoord2f(ctx0, cty1); GL11.glVertex2i(x0, y1);
-                GL11.glTexCoord2f(ctx1, cty1); GL11.glVertex2i(x1, y1);
-                GL11.glTexCoord2f(ctx1, cty0); GL11.glVertex2i(x1, y );
+                batch.quad(x0, y, x1, y1, ctx0, cty0, ctx1, cty1);
                 x0 = x1;
             }
             y = y1;
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.lwjgl;
+
+import de.matthiasmann.twl.Rect;
+import de.matthiasmann.twl.utils.RectanglePacker;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Packs small theme images into a few large textures to reduce the number
+ * of texture switches while rendering.
+ * 
+ * <p>Each image is surrounded by a 1 pixel border which replicates the edge
+ * pixels to prevent bleeding when using linear filtering.</p>
+ * 
+ * @author Matthias Mann
+ */
+class TextureAtlas {
+
+    static final int PADDING = 1;
+    
+    private final LWJGLCacheContext cacheContext;
+    private final int pageSize;
+    private final ArrayList<Page> pages;
+    private final Rect rect;
+
+    TextureAtlas(LWJGLCacheContext cacheContext, int pageSize) {
+        this.cacheContext = cacheContext;
+        this.pageSize = pageSize;
+        this.pages = new ArrayList<Page>();
+        this.rect = new Rect();
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+
+    int getNumPages() {
+        return pages.size();
+    }
+    
+    /**
+     * Tries to add an image to the atlas.
+     * 
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param buf the image data
+     * @param fmt the format of the image data
+     * @param filter the texture filter
+     * @return the texture or null if the image is too large to be packed
+     */
+    LWJGLTexture add(int width, int height, ByteBuffer buf, LWJGLTexture.Format fmt, LWJGLTexture.Filter filter) {
+        final int paddedWidth = width + 2*PADDING;
+        final int paddedHeight = height + 2*PADDING;
+        if(paddedWidth > pageSize/2 || paddedHeight > pageSize/2) {
+            return null;
+        }
+        
+        Page page = null;
+        for(int i=0,n=pages.size() ; i<n ; i++) {
+            Page p = pages.get(i);
+            if(p.fmt == fmt && p.filter == filter && p.packer.allocate(paddedWidth, paddedHeight, rect)) {
+                page = p;
+                break;
+            }
+        }
+        if(page == null) {
+            page = new Page(fmt, filter);
+            pages.add(page);
+            if(!page.packer.allocate(paddedWidth, paddedHeight, rect)) {
+                throw new AssertionError();
+            }
+        }
+        
+        final int bpp = fmt.getPixelSize();
+        ByteBuffer padded = addBorder(buf, width, height, bpp);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, page.texture.getTextureID());
+        GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, rect.getX(), rect.getY(),
+                paddedWidth, paddedHeight, fmt.glFormat, GL11.GL_UNSIGNED_BYTE, padded);
+        
+        return new LWJGLTexture(page.texture, rect.getX() + PADDING, rect.getY() + PADDING,
+                width, height, buf, fmt);
+    }
+    
+    private static ByteBuffer addBorder(ByteBuffer src, int width, int height, int bpp) {
+        final int srcStride = width * bpp;
+        final int dstStride = (width + 2*PADDING) * bpp;
+        ByteBuffer dst = BufferUtils.createByteBuffer(dstStride * (height + 2*PADDING));
+        for(int y=-PADDING ; y<height+PADDING ; y++) {
+            int srcRow = clamp(y, height) * srcStride;
+            for(int x=-PADDING ; x<width+PADDING ; x++) {
+                int srcPos = srcRow + clamp(x, width) * bpp;
+                for(int b=0 ; b<bpp ; b++) {
+                    dst.put(src.get(srcPos + b));
+                }
+            }
+        }
+        dst.flip();
+        return dst;
+    }
+    
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size-1, value));
+    }
+    
+    class Page {
+        final LWJGLTexture.Format fmt;
+        final LWJGLTexture.Filter filter;
+        final LWJGLTexture texture;
+        final RectanglePacker packer;
+
+        Page(LWJGLTexture.Format fmt, LWJGLTexture.Filter filter) {
+            this.fmt = fmt;
+            this.filter = filter;
+            this.texture = cacheContext.createAtlasPage(pageSize, fmt, filter);
+            this.packer = new RectanglePacker(pageSize, pageSize);
+        }
+    }
+}
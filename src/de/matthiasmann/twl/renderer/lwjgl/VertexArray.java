@@ -36,28 +36,52 @@ import org.lwjgl.opengl.GL11;
 /**
  * Simple vertex array class.
  * 
- * <p>This class manages an interleaved vertex array in float format: {@code tx, ty, x, y}</p>
+ * <p>This class manages an interleaved vertex array in float format: {@code tx, ty, x, y}
+ * or with per vertex colors: {@code tx, ty, r, g, b, a, x, y}</p>
  * 
  * @author Matthias Mann
  */
 public class VertexArray {
     
     private FloatBuffer va;
+    private boolean withColor;
     
     public FloatBuffer allocate(int maxQuads) {
-        int capacity = 4 * 4 * maxQuads;
+        return allocate(maxQuads, false);
+    }
+    
+    /**
+     * Allocates the vertex array for the specified number of quads.
+     * 
+     * @param maxQuads the number of quads
+     * @param withColor true if each vertex has a color
+     * @return the cleared vertex array
+     */
+    public FloatBuffer allocate(int maxQuads, boolean withColor) {
+        int capacity = 4 * (withColor ? 8 : 4) * maxQuads;
         if(va == null || va.capacity() < capacity) {
             va = BufferUtils.createFloatBuffer(capacity);
         }
         va.clear();
+        this.withColor = withColor;
         return va;
     }
     
     public void bind() {
-        va.position(2);
-        GL11.glVertexPointer(2, 4*4, va);
-        va.position(0);
-        GL11.glTexCoordPointer(2, 4*4, va);
+        if(withColor) {
+            va.position(6);
+            GL11.glVertexPointer(2, 8*4, va);
+            va.position(2);
+            GL11.glColorPointer(4, 8*4, va);
+            va.position(0);
+            GL11.glTexCoordPointer(2, 8*4, va);
+            GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        } else {
+            va.position(2);
+            GL11.glVertexPointer(2, 4*4, va);
+            va.position(0);
+            GL11.glTexCoordPointer(2, 4*4, va);
+        }
         GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
         GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
     }
@@ -73,6 +97,9 @@ public class VertexArray {
     public void unbind() {
         GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
         GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        if(withColor) {
+            GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        }
     }
     
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+
+/**
+ * A growable byte buffer which stores the compact binary command stream.
+ * 
+ * <p>Integers are stored as zig-zag encoded variable length values, which
+ * makes the common case of small coordinates and resource IDs 1 or 2 bytes.</p>
+ * 
+ * @author Matthias Mann
+ */
+final class CommandBuffer {
+
+    static final int CLIP_ENTER            = 1;
+    static final int CLIP_LEAVE            = 2;
+    static final int DRAW_IMAGE            = 3;
+    static final int DRAW_IMAGE_REPEAT     = 4;
+    static final int DRAW_TEXT             = 5;
+    static final int DRAW_MULTILINE_TEXT   = 6;
+    static final int DRAW_ATTRIBUTED_TEXT  = 7;
+    static final int DRAW_FONT_CACHE       = 8;
+    static final int DRAW_ATTRIBUTED_CACHE = 9;
+    static final int PUSH_TINT             = 10;
+    static final int POP_TINT              = 11;
+    static final int DRAW_LINE             = 12;
+    
+    static final String[] COMMAND_NAMES = {
+        null,
+        "clipEnter",
+        "clipLeave",
+        "drawImage",
+        "drawImageRepeat",
+        "drawText",
+        "drawMultiLineText",
+        "drawAttributedText",
+        "drawFontCache",
+        "drawAttributedFontCache",
+        "pushGlobalTintColor",
+        "popGlobalTintColor",
+        "drawLine"
+    };
+    
+    byte[] data;
+    int pos;
+
+    CommandBuffer() {
+        this.data = new byte[256];
+    }
+
+    CommandBuffer(byte[] data) {
+        this.data = data;
+    }
+
+    boolean hasMore() {
+        return pos < data.length;
+    }
+    
+    byte[] toByteArray() {
+        byte[] result = new byte[pos];
+        System.arraycopy(data, 0, result, 0, pos);
+        return result;
+    }
+    
+    void writeCommand(int cmd) {
+        ensureCapacity(1);
+        data[pos++] = (byte)cmd;
+    }
+    
+    void writeBoolean(boolean value) {
+        writeCommand(value ? 1 : 0);
+    }
+    
+    void writeInt(int value) {
+        ensureCapacity(5);
+        int v = (value << 1) ^ (value >> 31);
+        while((v & ~0x7F) != 0) {
+            data[pos++] = (byte)((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        data[pos++] = (byte)v;
+    }
+    
+    void writeFloat(float value) {
+        ensureCapacity(4);
+        int bits = Float.floatToRawIntBits(value);
+        data[pos++] = (byte)(bits >> 24);
+        data[pos++] = (byte)(bits >> 16);
+        data[pos++] = (byte)(bits >>  8);
+        data[pos++] = (byte)(bits      );
+    }
+    
+    int readCommand() {
+        return data[pos++] & 255;
+    }
+    
+    boolean readBoolean() {
+        return data[pos++] != 0;
+    }
+    
+    int readInt() {
+        int v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = data[pos++];
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while(b < 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+    
+    float readFloat() {
+        int bits = ((data[pos  ] & 255) << 24) |
+                   ((data[pos+1] & 255) << 16) |
+                   ((data[pos+2] & 255) <<  8) |
+                   ((data[pos+3] & 255)      );
+        pos += 4;
+        return Float.intBitsToFloat(bits);
+    }
+    
+    private void ensureCapacity(int bytes) {
+        if(pos + bytes > data.length) {
+            byte[] newData = new byte[Math.max(data.length * 2, pos + bytes)];
+            System.arraycopy(data, 0, newData, 0, pos);
+            data = newData;
+        }
+    }
+}
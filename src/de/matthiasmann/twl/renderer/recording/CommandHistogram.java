@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the recorded commands by type, the image draws by image type
+ * and the text draws and glyphs by font.
+ * 
+ * @author Matthias Mann
+ */
+public class CommandHistogram {
+    
+    private final HashMap<String, Integer> commandCounts;
+    private final HashMap<String, Integer> imageCounts;
+    private final HashMap<String, Integer> textCounts;
+    private final HashMap<String, Integer> glyphCounts;
+    private int numCommands;
+    private int numFrames;
+
+    public CommandHistogram() {
+        this.commandCounts = new HashMap<String, Integer>();
+        this.imageCounts = new HashMap<String, Integer>();
+        this.textCounts = new HashMap<String, Integer>();
+        this.glyphCounts = new HashMap<String, Integer>();
+    }
+    
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    public int getNumCommands() {
+        return numCommands;
+    }
+    
+    /**
+     * Returns the number of commands per command type, the key is the
+     * name of the renderer method, eg "clipEnter" or "drawText".
+     * @return an unmodifiable map
+     */
+    public Map<String, Integer> getCommandCounts() {
+        return Collections.unmodifiableMap(commandCounts);
+    }
+
+    /**
+     * Returns the number of image draws per image type, eg "image file:/theme.png"
+     * or "gradient VERTICAL".
+     * @return an unmodifiable map
+     */
+    public Map<String, Integer> getImageCounts() {
+        return Collections.unmodifiableMap(imageCounts);
+    }
+
+    /**
+     * Returns the number of text and font cache draws per font.
+     * @return an unmodifiable map
+     */
+    public Map<String, Integer> getTextCounts() {
+        return Collections.unmodifiableMap(textCounts);
+    }
+
+    /**
+     * Returns the number of characters drawn per font.
+     * @return an unmodifiable map
+     */
+    public Map<String, Integer> getGlyphCounts() {
+        return Collections.unmodifiableMap(glyphCounts);
+    }
+    
+    public void add(RecordedFrame frame) {
+        final Recording recording = frame.recording;
+        final CommandBuffer buffer = new CommandBuffer(frame.commands);
+        while(buffer.hasMore()) {
+            int cmd = buffer.readCommand();
+            inc(commandCounts, CommandBuffer.COMMAND_NAMES[cmd], 1);
+            switch(cmd) {
+                case CommandBuffer.CLIP_ENTER:
+                    skip(buffer, 4);
+                    break;
+                case CommandBuffer.CLIP_LEAVE:
+                case CommandBuffer.POP_TINT:
+                    break;
+                case CommandBuffer.DRAW_IMAGE:
+                    inc(imageCounts, recording.resources.get(buffer.readInt()).getLabel(), 1);
+                    skip(buffer, 4);
+                    break;
+                case CommandBuffer.DRAW_IMAGE_REPEAT:
+                    inc(imageCounts, recording.resources.get(buffer.readInt()).getLabel(), 1);
+                    skip(buffer, 6);
+                    break;
+                case CommandBuffer.DRAW_TEXT:
+                case CommandBuffer.DRAW_MULTILINE_TEXT: {
+                    String font = recording.resources.get(buffer.readInt()).getLabel();
+                    skip(buffer, 3);
+                    addText(font, recording.strings.get(buffer.readInt()).length());
+                    if(cmd == CommandBuffer.DRAW_MULTILINE_TEXT) {
+                        skip(buffer, 2);
+                    }
+                    break;
+                }
+                case CommandBuffer.DRAW_ATTRIBUTED_TEXT: {
+                    String font = recording.resources.get(buffer.readInt()).getLabel();
+                    skip(buffer, 2);
+                    buffer.readBoolean();
+                    addText(font, recording.strings.get(buffer.readInt()).length());
+                    skip(buffer, 2 * buffer.readInt());
+                    break;
+                }
+                case CommandBuffer.DRAW_FONT_CACHE: {
+                    ResourceDef.FontCacheDef def = (ResourceDef.FontCacheDef)
+                            recording.resources.get(buffer.readInt());
+                    addText(def.getLabel(), def.text.length());
+                    skip(buffer, 3);
+                    break;
+                }
+                case CommandBuffer.DRAW_ATTRIBUTED_CACHE: {
+                    ResourceDef.AttributedFontCacheDef def = (ResourceDef.AttributedFontCacheDef)
+                            recording.resources.get(buffer.readInt());
+                    addText(def.getLabel(), def.runs.text.length());
+                    skip(buffer, 2);
+                    break;
+                }
+                case CommandBuffer.PUSH_TINT:
+                    buffer.pos += 4 * 4;
+                    break;
+                case CommandBuffer.DRAW_LINE: {
+                    int numPts = buffer.readInt();
+                    buffer.readFloat();
+                    buffer.readInt();
+                    buffer.readBoolean();
+                    buffer.pos += numPts * 2 * 4;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown command: " + cmd);
+            }
+        }
+        numCommands += frame.numCommands;
+        numFrames++;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(numCommands).append(" commands in ").append(numFrames).append(" frame(s)\n");
+        append(sb, "Commands", commandCounts);
+        append(sb, "Images", imageCounts);
+        append(sb, "Text draws", textCounts);
+        append(sb, "Glyphs", glyphCounts);
+        return sb.toString();
+    }
+    
+    private void addText(String font, int numGlyphs) {
+        inc(textCounts, font, 1);
+        inc(glyphCounts, font, numGlyphs);
+    }
+    
+    private static void skip(CommandBuffer buffer, int numInts) {
+        for(int i=0 ; i<numInts ; i++) {
+            buffer.readInt();
+        }
+    }
+    
+    private static void inc(HashMap<String, Integer> map, String key, int amount) {
+        Integer value = map.get(key);
+        map.put(key, (value == null) ? amount : value + amount);
+    }
+    
+    private static void append(StringBuilder sb, String title, HashMap<String, Integer> map) {
+        if(map.isEmpty()) {
+            return;
+        }
+        ArrayList<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(map.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+        sb.append(title).append(":\n");
+        for(Map.Entry<String, Integer> e : entries) {
+            sb.append(String.format("%8d  %s\n", e.getValue(), e.getKey()));
+        }
+    }
+}
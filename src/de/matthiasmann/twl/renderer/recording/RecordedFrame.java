@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+/**
+ * The command stream of one frame.
+ * 
+ * @author Matthias Mann
+ */
+public final class RecordedFrame {
+    
+    final Recording recording;
+    final byte[] commands;
+    final int numCommands;
+
+    RecordedFrame(Recording recording, byte[] commands, int numCommands) {
+        this.recording = recording;
+        this.commands = commands;
+        this.numCommands = numCommands;
+    }
+
+    public Recording getRecording() {
+        return recording;
+    }
+
+    public int getNumCommands() {
+        return numCommands;
+    }
+    
+    /**
+     * Returns the size of the encoded command stream.
+     * @return the size in bytes
+     */
+    public int getSize() {
+        return commands.length;
+    }
+    
+    /**
+     * Computes a histogram of the commands in this frame.
+     * @return a new histogram
+     */
+    public CommandHistogram computeHistogram() {
+        CommandHistogram histogram = new CommandHistogram();
+        histogram.add(this);
+        return histogram;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * A sequence of recorded frames together with the resource and string
+ * tables referenced by their command streams.
+ * 
+ * <p>A recording is independent of the widget tree and of the renderer which
+ * was used during recording. It can be replayed on any renderer using a
+ * {@link RecordingPlayer}.</p>
+ * 
+ * @author Matthias Mann
+ * @see RecordingRenderer#startRecording()
+ */
+public class Recording {
+    
+    final ArrayList<ResourceDef> resources;
+    final ArrayList<String> strings;
+    final ArrayList<RecordedFrame> frames;
+    private final IdentityHashMap<ResourceDef, Integer> resourceIDs;
+    private final HashMap<String, Integer> stringIDs;
+
+    Recording() {
+        this.resources = new ArrayList<ResourceDef>();
+        this.strings = new ArrayList<String>();
+        this.frames = new ArrayList<RecordedFrame>();
+        this.resourceIDs = new IdentityHashMap<ResourceDef, Integer>();
+        this.stringIDs = new HashMap<String, Integer>();
+    }
+    
+    public int getNumFrames() {
+        return frames.size();
+    }
+    
+    public RecordedFrame getFrame(int idx) {
+        return frames.get(idx);
+    }
+    
+    /**
+     * Returns the number of resources (images, fonts and font caches)
+     * which are referenced by the recorded frames.
+     * @return the number of resources
+     */
+    public int getNumResources() {
+        return resources.size();
+    }
+    
+    /**
+     * Computes a histogram over all recorded frames.
+     * @return a new histogram
+     */
+    public CommandHistogram computeHistogram() {
+        CommandHistogram histogram = new CommandHistogram();
+        for(RecordedFrame frame : frames) {
+            histogram.add(frame);
+        }
+        return histogram;
+    }
+    
+    int getResourceID(ResourceDef def) {
+        Integer id = resourceIDs.get(def);
+        if(id == null) {
+            id = resources.size();
+            resources.add(def);
+            resourceIDs.put(def, id);
+        }
+        return id;
+    }
+    
+    int getStringID(String str) {
+        Integer id = stringIDs.get(str);
+        if(id == null) {
+            id = strings.size();
+            strings.add(str);
+            stringIDs.put(str, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.renderer.AttributedStringFontCache;
+
+/**
+ * Records the draws of an attributed string font cache.
+ * 
+ * @author Matthias Mann
+ */
+class RecordingAttributedStringFontCache implements AttributedStringFontCache {
+
+    final RecordingFont2 font;
+    final AttributedStringFontCache cache;
+    ResourceDef def;
+
+    RecordingAttributedStringFontCache(RecordingFont2 font, AttributedStringFontCache cache, ResourceDef def) {
+        this.font = font;
+        this.cache = cache;
+        this.def = def;
+    }
+
+    public int getWidth() {
+        return cache.getWidth();
+    }
+
+    public int getHeight() {
+        return cache.getHeight();
+    }
+
+    public void draw(int x, int y) {
+        font.renderer.recordAttributedFontCache(def, x, y);
+        cache.draw(x, y);
+    }
+
+    public void destroy() {
+        cache.destroy();
+    }
+}
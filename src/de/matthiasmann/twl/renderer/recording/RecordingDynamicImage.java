@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.renderer.DynamicImage;
+import java.nio.ByteBuffer;
+
+/**
+ * Records the draw calls of a dynamic image. The content is not recorded.
+ * 
+ * @author Matthias Mann
+ */
+class RecordingDynamicImage extends RecordingImage implements DynamicImage {
+
+    RecordingDynamicImage(RecordingRenderer renderer, DynamicImage image, ResourceDef def) {
+        super(renderer, image, def);
+    }
+
+    public void update(ByteBuffer data, Format format) {
+        ((DynamicImage)image).update(data, format);
+    }
+
+    public void update(ByteBuffer data, int stride, Format format) {
+        ((DynamicImage)image).update(data, stride, format);
+    }
+
+    public void update(int xoffset, int yoffset, int width, int height, ByteBuffer data, Format format) {
+        ((DynamicImage)image).update(xoffset, yoffset, width, height, data, format);
+    }
+
+    public void update(int xoffset, int yoffset, int width, int height, ByteBuffer data, int stride, Format format) {
+        ((DynamicImage)image).update(xoffset, yoffset, width, height, data, stride, format);
+    }
+
+    public void destroy() {
+        ((DynamicImage)image).destroy();
+    }
+}
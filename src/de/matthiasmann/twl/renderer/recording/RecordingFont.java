@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.HAlignment;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.FontCache;
+import de.matthiasmann.twl.utils.StateSelect;
+
+/**
+ * Records text draws together with the index of the selected font state.
+ * 
+ * @author Matthias Mann
+ */
+class RecordingFont implements Font {
+
+    final RecordingRenderer renderer;
+    final Font font;
+    final StateSelect select;
+    final ResourceDef.FontDef def;
+
+    RecordingFont(RecordingRenderer renderer, Font font, StateSelect select, ResourceDef.FontDef def) {
+        this.renderer = renderer;
+        this.font = font;
+        this.select = select;
+        this.def = def;
+    }
+
+    public void destroy() {
+        font.destroy();
+    }
+
+    public boolean isProportional() {
+        return font.isProportional();
+    }
+
+    public int getBaseLine() {
+        return font.getBaseLine();
+    }
+
+    public int getLineHeight() {
+        return font.getLineHeight();
+    }
+
+    public int getSpaceWidth() {
+        return font.getSpaceWidth();
+    }
+
+    public int getEM() {
+        return font.getEM();
+    }
+
+    public int getEX() {
+        return font.getEX();
+    }
+
+    public int computeMultiLineTextWidth(CharSequence str) {
+        return font.computeMultiLineTextWidth(str);
+    }
+
+    public int computeTextWidth(CharSequence str) {
+        return font.computeTextWidth(str);
+    }
+
+    public int computeTextWidth(CharSequence str, int start, int end) {
+        return font.computeTextWidth(str, start, end);
+    }
+
+    public int computeVisibleGlpyhs(CharSequence str, int start, int end, int width) {
+        return font.computeVisibleGlpyhs(str, start, end, width);
+    }
+
+    public int drawMultiLineText(AnimationState as, int x, int y, CharSequence str, int width, HAlignment align) {
+        if(renderer.isRecordingFrame()) {
+            renderer.recordMultiLineText(def, select.evaluate(as), x, y, str.toString(), width, align);
+        }
+        return font.drawMultiLineText(as, x, y, str, width, align);
+    }
+
+    public int drawText(AnimationState as, int x, int y, CharSequence str) {
+        if(renderer.isRecordingFrame()) {
+            renderer.recordText(def, select.evaluate(as), x, y, str.toString());
+        }
+        return font.drawText(as, x, y, str);
+    }
+
+    public int drawText(AnimationState as, int x, int y, CharSequence str, int start, int end) {
+        if(renderer.isRecordingFrame()) {
+            renderer.recordText(def, select.evaluate(as), x, y, str.subSequence(start, end).toString());
+        }
+        return font.drawText(as, x, y, str, start, end);
+    }
+
+    public FontCache cacheMultiLineText(FontCache prevCache, CharSequence str, int width, HAlignment align) {
+        FontCache cache = font.cacheMultiLineText(unwrap(prevCache), str, width, align);
+        return wrap(prevCache, cache, new ResourceDef.FontCacheDef(def, str.toString(), width, align));
+    }
+
+    public FontCache cacheText(FontCache prevCache, CharSequence str) {
+        FontCache cache = font.cacheText(unwrap(prevCache), str);
+        return wrap(prevCache, cache, new ResourceDef.FontCacheDef(def, str.toString(), 0, null));
+    }
+
+    public FontCache cacheText(FontCache prevCache, CharSequence str, int start, int end) {
+        FontCache cache = font.cacheText(unwrap(prevCache), str, start, end);
+        return wrap(prevCache, cache, new ResourceDef.FontCacheDef(def, str.subSequence(start, end).toString(), 0, null));
+    }
+    
+    private static FontCache unwrap(FontCache cache) {
+        if(cache instanceof RecordingFontCache) {
+            return ((RecordingFontCache)cache).cache;
+        }
+        return cache;
+    }
+    
+    private FontCache wrap(FontCache prevCache, FontCache cache, ResourceDef.FontCacheDef cacheDef) {
+        if(cache == null) {
+            return null;
+        }
+        if(prevCache instanceof RecordingFontCache) {
+            RecordingFontCache rfc = (RecordingFontCache)prevCache;
+            if(rfc.cache == cache && rfc.font == this) {
+                // the cache was reused - it now draws the new text
+                rfc.def = cacheDef;
+                return rfc;
+            }
+        }
+        return new RecordingFontCache(this, cache, cacheDef);
+    }
+}
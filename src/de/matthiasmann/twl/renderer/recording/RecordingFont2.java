@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.renderer.AttributedString;
+import de.matthiasmann.twl.renderer.AttributedStringFontCache;
+import de.matthiasmann.twl.renderer.Font2;
+import de.matthiasmann.twl.utils.StateSelect;
+
+/**
+ * Records attributed text draws. The runs of the attributed string are
+ * stored with the index of the font state they select.
+ * 
+ * @author Matthias Mann
+ */
+class RecordingFont2 extends RecordingFont implements Font2 {
+
+    private final Font2 font2;
+    
+    RecordingFont2(RecordingRenderer renderer, Font2 font, StateSelect select, ResourceDef.FontDef def) {
+        super(renderer, font, select, def);
+        this.font2 = font;
+    }
+
+    public int drawText(int x, int y, AttributedString attributedString) {
+        recordText(x, y, attributedString, 0, attributedString.length(), false);
+        return font2.drawText(x, y, attributedString);
+    }
+
+    public int drawText(int x, int y, AttributedString attributedString, int start, int end) {
+        recordText(x, y, attributedString, start, end, false);
+        return font2.drawText(x, y, attributedString, start, end);
+    }
+
+    public void drawMultiLineText(int x, int y, AttributedString attributedString) {
+        recordText(x, y, attributedString, 0, attributedString.length(), true);
+        font2.drawMultiLineText(x, y, attributedString);
+    }
+
+    public void drawMultiLineText(int x, int y, AttributedString attributedString, int start, int end) {
+        recordText(x, y, attributedString, start, end, true);
+        font2.drawMultiLineText(x, y, attributedString, start, end);
+    }
+
+    public AttributedStringFontCache cacheText(AttributedStringFontCache prevCache, AttributedString attributedString) {
+        AttributedStringFontCache cache = font2.cacheText(unwrap(prevCache), attributedString);
+        return wrap(prevCache, cache, attributedString, 0, attributedString.length(), false);
+    }
+
+    public AttributedStringFontCache cacheText(AttributedStringFontCache prevCache, AttributedString attributedString, int start, int end) {
+        AttributedStringFontCache cache = font2.cacheText(unwrap(prevCache), attributedString, start, end);
+        return wrap(prevCache, cache, attributedString, start, end, false);
+    }
+
+    public AttributedStringFontCache cacheMultiLineText(AttributedStringFontCache prevCache, AttributedString attributedString) {
+        AttributedStringFontCache cache = font2.cacheMultiLineText(unwrap(prevCache), attributedString);
+        return wrap(prevCache, cache, attributedString, 0, attributedString.length(), true);
+    }
+
+    public AttributedStringFontCache cacheMultiLineText(AttributedStringFontCache prevCache, AttributedString attributedString, int start, int end) {
+        AttributedStringFontCache cache = font2.cacheMultiLineText(unwrap(prevCache), attributedString, start, end);
+        return wrap(prevCache, cache, attributedString, start, end, true);
+    }
+    
+    private void recordText(int x, int y, AttributedString attributedString, int start, int end, boolean multiLine) {
+        if(renderer.isRecordingFrame()) {
+            TextRuns runs = TextRuns.create(select, attributedString, start, end);
+            renderer.recordAttributedText(def, x, y, runs, multiLine);
+        }
+    }
+    
+    private static AttributedStringFontCache unwrap(AttributedStringFontCache cache) {
+        if(cache instanceof RecordingAttributedStringFontCache) {
+            return ((RecordingAttributedStringFontCache)cache).cache;
+        }
+        return cache;
+    }
+    
+    private AttributedStringFontCache wrap(AttributedStringFontCache prevCache, AttributedStringFontCache cache,
+            AttributedString attributedString, int start, int end, boolean multiLine) {
+        if(cache == null) {
+            return null;
+        }
+        ResourceDef cacheDef = new ResourceDef.AttributedFontCacheDef(def,
+                TextRuns.create(select, attributedString, start, end), multiLine);
+        if(prevCache instanceof RecordingAttributedStringFontCache) {
+            RecordingAttributedStringFontCache rfc = (RecordingAttributedStringFontCache)prevCache;
+            if(rfc.cache == cache && rfc.font == this) {
+                rfc.def = cacheDef;
+                return rfc;
+            }
+        }
+        return new RecordingAttributedStringFontCache(this, cache, cacheDef);
+    }
+}
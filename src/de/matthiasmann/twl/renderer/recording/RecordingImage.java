@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.SupportsDrawRepeat;
+
+/**
+ * Records the draw calls of an image created by the recorded renderer.
+ * 
+ * @author Matthias Mann
+ */
+class RecordingImage implements Image, SupportsDrawRepeat {
+
+    final RecordingRenderer renderer;
+    final Image image;
+    final ResourceDef def;
+
+    RecordingImage(RecordingRenderer renderer, Image image, ResourceDef def) {
+        this.renderer = renderer;
+        this.image = image;
+        this.def = def;
+    }
+
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    public void draw(AnimationState as, int x, int y) {
+        renderer.recordImage(def, x, y, image.getWidth(), image.getHeight());
+        image.draw(as, x, y);
+    }
+
+    public void draw(AnimationState as, int x, int y, int width, int height) {
+        renderer.recordImage(def, x, y, width, height);
+        image.draw(as, x, y, width, height);
+    }
+
+    public void draw(AnimationState as, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+        renderer.recordImageRepeat(def, x, y, width, height, repeatCountX, repeatCountY);
+        drawRepeat(image, as, x, y, width, height, repeatCountX, repeatCountY);
+    }
+
+    public Image createTintedVersion(Color color) {
+        Image tinted = image.createTintedVersion(color);
+        if(tinted == null) {
+            return null;
+        }
+        return new RecordingImage(renderer, tinted, new ResourceDef.TintedImageDef(def, color));
+    }
+    
+    static void drawRepeat(Image image, AnimationState as, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+        if(image instanceof SupportsDrawRepeat) {
+            ((SupportsDrawRepeat)image).draw(as, x, y, width, height, repeatCountX, repeatCountY);
+            return;
+        }
+        while(repeatCountY > 0) {
+            int rowHeight = height / repeatCountY;
+
+            int cx = 0;
+            for(int xi=0 ; xi<repeatCountX ;) {
+                int nx = ++xi * width / repeatCountX;
+                image.draw(as, x+cx, y, nx-cx, rowHeight);
+                cx = nx;
+            }
+
+            y += rowHeight;
+            height -= rowHeight;
+            repeatCountY--;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.HAlignment;
+import de.matthiasmann.twl.renderer.AttributedStringFontCache;
+import de.matthiasmann.twl.renderer.CacheContext;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.Font2;
+import de.matthiasmann.twl.renderer.FontCache;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.LineRenderer;
+import de.matthiasmann.twl.renderer.Renderer;
+import de.matthiasmann.twl.renderer.Resource;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Replays recorded frames on a renderer without a widget tree.
+ * 
+ * <p>Textures and fonts are loaded into a separate cache context on first
+ * use. Call {@link #prepare() } before measuring to exclude the loading
+ * time from the first replayed frame.</p>
+ * 
+ * @author Matthias Mann
+ */
+public class RecordingPlayer implements Resource {
+
+    private static final HAlignment[] HALIGNMENTS = HAlignment.values();
+    
+    final Renderer renderer;
+    private final Recording recording;
+    private final IdentityHashMap<ResourceDef, Object> resources;
+    private final ReplayAnimationState animationState;
+    private CacheContext cacheContext;
+    private float[] linePoints;
+
+    public RecordingPlayer(Renderer renderer, Recording recording) {
+        if(renderer == null) {
+            throw new NullPointerException("renderer");
+        }
+        if(recording == null) {
+            throw new NullPointerException("recording");
+        }
+        this.renderer = renderer;
+        this.recording = recording;
+        this.resources = new IdentityHashMap<ResourceDef, Object>();
+        this.animationState = new ReplayAnimationState();
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    public Recording getRecording() {
+        return recording;
+    }
+    
+    /**
+     * Creates all resources which are referenced by the recording.
+     * @throws IOException if a texture or font could not be loaded
+     */
+    public void prepare() throws IOException {
+        for(int i=0,n=recording.resources.size() ; i<n ; i++) {
+            getResource(recording.resources.get(i));
+        }
+    }
+    
+    /**
+     * Renders the specified frame as a complete frame including
+     * {@link Renderer#startRendering() } and {@link Renderer#endRendering() }
+     * 
+     * @param frame the frame to render
+     * @return true if the frame was rendered, false if the renderer skipped the frame
+     * @throws IOException if a texture or font could not be loaded
+     */
+    public boolean render(RecordedFrame frame) throws IOException {
+        prepare();
+        if(!renderer.startRendering()) {
+            return false;
+        }
+        try {
+            replay(frame);
+        } finally {
+            renderer.endRendering();
+        }
+        return true;
+    }
+    
+    /**
+     * Executes the commands of the specified frame. Must be called
+     * between {@link Renderer#startRendering() } and {@link Renderer#endRendering() }
+     * 
+     * @param frame the frame to replay
+     * @throws IOException if a texture or font could not be loaded
+     */
+    public void replay(RecordedFrame frame) throws IOException {
+        if(frame.recording != recording) {
+            throw new IllegalArgumentException("frame is not part of this recording");
+        }
+        final CommandBuffer buffer = new CommandBuffer(frame.commands);
+        while(buffer.hasMore()) {
+            int cmd = buffer.readCommand();
+            switch(cmd) {
+                case CommandBuffer.CLIP_ENTER: {
+                    int x = buffer.readInt();
+                    int y = buffer.readInt();
+                    int w = buffer.readInt();
+                    int h = buffer.readInt();
+                    renderer.clipEnter(x, y, w, h);
+                    break;
+                }
+                case CommandBuffer.CLIP_LEAVE:
+                    renderer.clipLeave();
+                    break;
+                case CommandBuffer.DRAW_IMAGE: {
+                    Image image = (Image)getResource(buffer.readInt());
+                    int x = buffer.readInt();
+                    int y = buffer.readInt();
+                    int w = buffer.readInt();
+                    int h = buffer.readInt();
+                    if(image != null) {
+                        image.draw(null, x, y, w, h);
+                    }
+                    break;
+                }
+                case CommandBuffer.DRAW_IMAGE_REPEAT: {
+                    Image image = (Image)getResource(buffer.readInt());
+                    int x = buffer.readInt();
+                    int y = buffer.readInt();
+                    int w = buffer.readInt();
+                    int h = buffer.readInt();
+                    int repeatCountX = buffer.readInt();
+                    int repeatCountY = buffer.readInt();
+                    if(image != null) {
+                        RecordingImage.drawRepeat(image, null, x, y, w, h, repeatCountX, repeatCountY);
+                    }
+                    break;
+                }
+                case CommandBuffer.DRAW_TEXT:
+                case CommandBuffer.DRAW_MULTILINE_TEXT: {
+                    Font font = (Font)getResource(buffer.readInt());
+                    animationState.setState(buffer.readInt());
+                    int x = buffer.readInt();
+                    int y = buffer.readInt();
+                    String text = recording.strings.get(buffer.readInt());
+                    if(cmd == CommandBuffer.DRAW_MULTILINE_TEXT) {
+                        int width = buffer.readInt();
+                        HAlignment align = HALIGNMENTS[buffer.readInt()];
+                        font.drawMultiLineText(animationState, x, y, text, width, align);
+                    } else {
+                        font.drawText(animationState, x, y, text);
+                    }
+                    break;
+                }
+                case CommandBuffer.DRAW_ATTRIBUTED_TEXT: {
+                    Font2 font = (Font2)getResource(buffer.readInt());
+                    int x = buffer.readInt();
+                    int y = buffer.readInt();
+                    boolean multiLine = buffer.readBoolean();
+                    String text = recording.strings.get(buffer.readInt());
+                    ReplayAttributedString str = new ReplayAttributedString(TextRuns.read(buffer, text));
+                    if(multiLine) {
+                        font.drawMultiLineText(x, y, str);
+                    } else {
+                        font.drawText(x, y, str);
+                    }
+                    break;
+                }
+                case CommandBuffer.DRAW_FONT_CACHE: {
+                    FontCache cache = (FontCache)getResource(buffer.readInt());
+                    animationState.setState(buffer.readInt());
+                    int x = buffer.readInt();
+                    int y = buffer.readInt();
+                    if(cache != null) {
+                        cache.draw(animationState, x, y);
+                    }
+                    break;
+                }
+                case CommandBuffer.DRAW_ATTRIBUTED_CACHE: {
+                    AttributedStringFontCache cache = (AttributedStringFontCache)getResource(buffer.readInt());
+                    int x = buffer.readInt();
+                    int y = buffer.readInt();
+                    if(cache != null) {
+                        cache.draw(x, y);
+                    }
+                    break;
+                }
+                case CommandBuffer.PUSH_TINT: {
+                    float r = buffer.readFloat();
+                    float g = buffer.readFloat();
+                    float b = buffer.readFloat();
+                    float a = buffer.readFloat();
+                    renderer.pushGlobalTintColor(r, g, b, a);
+                    break;
+                }
+                case CommandBuffer.POP_TINT:
+                    renderer.popGlobalTintColor();
+                    break;
+                case CommandBuffer.DRAW_LINE: {
+                    int numPts = buffer.readInt();
+                    float width = buffer.readFloat();
+                    Color color = new Color(buffer.readInt());
+                    boolean drawAsLoop = buffer.readBoolean();
+                    if(linePoints == null || linePoints.length < numPts*2) {
+                        linePoints = new float[numPts*2];
+                    }
+                    for(int i=0 ; i<numPts*2 ; i++) {
+                        linePoints[i] = buffer.readFloat();
+                    }
+                    LineRenderer lineRenderer = renderer.getLineRenderer();
+                    if(lineRenderer != null) {
+                        lineRenderer.drawLine(linePoints, numPts, width, color, drawAsLoop);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown command: " + cmd);
+            }
+        }
+    }
+
+    /**
+     * Destroys all resources which have been created by this player.
+     */
+    public void destroy() {
+        for(Map.Entry<ResourceDef, Object> e : resources.entrySet()) {
+            e.getKey().destroy(e.getValue());
+        }
+        resources.clear();
+        if(cacheContext != null) {
+            cacheContext.destroy();
+            cacheContext = null;
+        }
+    }
+    
+    private Object getResource(int id) throws IOException {
+        return getResource(recording.resources.get(id));
+    }
+    
+    Object getResource(ResourceDef def) throws IOException {
+        Object resource = resources.get(def);
+        if(resource == null && !resources.containsKey(def)) {
+            CacheContext prevCacheContext = renderer.getActiveCacheContext();
+            if(cacheContext == null) {
+                cacheContext = renderer.createNewCacheContext();
+            }
+            renderer.setActiveCacheContext(cacheContext);
+            try {
+                resource = def.create(this);
+            } finally {
+                renderer.setActiveCacheContext(prevCacheContext);
+            }
+            resources.put(def, resource);
+        }
+        return resource;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.HAlignment;
+import de.matthiasmann.twl.Rect;
+import de.matthiasmann.twl.input.Input;
+import de.matthiasmann.twl.renderer.CacheContext;
+import de.matthiasmann.twl.renderer.DynamicImage;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.Font2;
+import de.matthiasmann.twl.renderer.FontMapper;
+import de.matthiasmann.twl.renderer.FontParameter;
+import de.matthiasmann.twl.renderer.Gradient;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.LineRenderer;
+import de.matthiasmann.twl.renderer.MouseCursor;
+import de.matthiasmann.twl.renderer.OffscreenRenderer;
+import de.matthiasmann.twl.renderer.Renderer;
+import de.matthiasmann.twl.renderer.SupportsClipRect;
+import de.matthiasmann.twl.renderer.Texture;
+import de.matthiasmann.twl.utils.StateSelect;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * A renderer which forwards all calls to another renderer and records the
+ * draw calls made between {@link #startRendering() } and {@link #endRendering() }
+ * into a compact binary command stream.
+ * 
+ * <p>The recorder must be installed before the theme is loaded, as only
+ * textures, fonts and images which are created through it are recorded.
+ * Draw calls are recorded with their {@link de.matthiasmann.twl.renderer.AnimationState}
+ * already resolved - eg a font draw stores the index of the selected font
+ * state. The resulting {@link Recording} can be replayed using a
+ * {@link RecordingPlayer} on any renderer without the widget tree.</p>
+ * 
+ * <p>Offscreen rendering is not available while recording so that all
+ * widgets are painted directly into the command stream. Fonts obtained from
+ * the {@link FontMapper} and the content of dynamic images are not recorded.</p>
+ * 
+ * @author Matthias Mann
+ */
+public class RecordingRenderer implements Renderer, LineRenderer, SupportsClipRect {
+
+    private final Renderer renderer;
+    private Recording recording;
+    private CommandBuffer frame;
+    private int numFrameCommands;
+
+    public RecordingRenderer(Renderer renderer) {
+        if(renderer == null) {
+            throw new NullPointerException("renderer");
+        }
+        this.renderer = renderer;
+    }
+
+    /**
+     * Returns the renderer which is used for the actual rendering.
+     * @return the renderer
+     */
+    public Renderer getRenderer() {
+        return renderer;
+    }
+    
+    /**
+     * Starts a new recording. Every frame rendered from now on is
+     * appended to the recording.
+     * @return the new recording
+     */
+    public Recording startRecording() {
+        recording = new Recording();
+        return recording;
+    }
+    
+    /**
+     * Stops recording.
+     * @return the recording or null if no recording was active
+     */
+    public Recording stopRecording() {
+        Recording r = recording;
+        recording = null;
+        frame = null;
+        return r;
+    }
+    
+    public boolean isRecording() {
+        return recording != null;
+    }
+    
+    public Recording getRecording() {
+        return recording;
+    }
+
+    public boolean startRendering() {
+        if(!renderer.startRendering()) {
+            return false;
+        }
+        if(recording != null) {
+            frame = new CommandBuffer();
+            numFrameCommands = 0;
+        }
+        return true;
+    }
+
+    public void endRendering() {
+        try {
+            renderer.endRendering();
+        } finally {
+            if(frame != null) {
+                recording.frames.add(new RecordedFrame(recording, frame.toByteArray(), numFrameCommands));
+                frame = null;
+            }
+        }
+    }
+
+    public long getTimeMillis() {
+        return renderer.getTimeMillis();
+    }
+
+    public Input getInput() {
+        return renderer.getInput();
+    }
+
+    public int getWidth() {
+        return renderer.getWidth();
+    }
+
+    public int getHeight() {
+        return renderer.getHeight();
+    }
+
+    public CacheContext createNewCacheContext() {
+        return renderer.createNewCacheContext();
+    }
+
+    public void setActiveCacheContext(CacheContext cc) throws IllegalStateException {
+        renderer.setActiveCacheContext(cc);
+    }
+
+    public CacheContext getActiveCacheContext() {
+        return renderer.getActiveCacheContext();
+    }
+
+    public Font loadFont(URL baseUrl, StateSelect select, FontParameter... parameterList) throws IOException {
+        Font font = renderer.loadFont(baseUrl, select, parameterList);
+        if(font == null) {
+            return null;
+        }
+        ResourceDef.FontDef def = new ResourceDef.FontDef(baseUrl,
+                select.getNumExpressions(), parameterList.clone());
+        if(font instanceof Font2) {
+            return new RecordingFont2(this, (Font2)font, select, def);
+        }
+        return new RecordingFont(this, font, select, def);
+    }
+
+    public Texture loadTexture(URL url, String format, String filter) throws IOException {
+        Texture texture = renderer.loadTexture(url, format, filter);
+        if(texture == null) {
+            return null;
+        }
+        return new RecordingTexture(this, texture, new ResourceDef.TextureDef(url, format, filter));
+    }
+
+    public LineRenderer getLineRenderer() {
+        return (renderer.getLineRenderer() != null) ? this : null;
+    }
+
+    /**
+     * Offscreen rendering is not supported while recording.
+     * @return null
+     */
+    public OffscreenRenderer getOffscreenRenderer() {
+        return null;
+    }
+
+    public FontMapper getFontMapper() {
+        return renderer.getFontMapper();
+    }
+
+    public DynamicImage createDynamicImage(int width, int height) {
+        DynamicImage image = renderer.createDynamicImage(width, height);
+        if(image == null) {
+            return null;
+        }
+        return new RecordingDynamicImage(this, image, new ResourceDef.DynamicImageDef(width, height));
+    }
+
+    public Image createGradient(Gradient gradient) {
+        Image image = renderer.createGradient(gradient);
+        if(image == null) {
+            return null;
+        }
+        return new RecordingImage(this, image, new ResourceDef.GradientDef(gradient));
+    }
+
+    public void clipEnter(int x, int y, int w, int h) {
+        recordClipEnter(x, y, w, h);
+        renderer.clipEnter(x, y, w, h);
+    }
+
+    public void clipEnter(Rect rect) {
+        recordClipEnter(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight());
+        renderer.clipEnter(rect);
+    }
+
+    public boolean clipIsEmpty() {
+        return renderer.clipIsEmpty();
+    }
+
+    public boolean getClipRect(Rect rect) {
+        if(renderer instanceof SupportsClipRect) {
+            return ((SupportsClipRect)renderer).getClipRect(rect);
+        }
+        return false;
+    }
+
+    public void clipLeave() {
+        if(frame != null) {
+            beginCommand(CommandBuffer.CLIP_LEAVE);
+        }
+        renderer.clipLeave();
+    }
+
+    public void setCursor(MouseCursor cursor) {
+        renderer.setCursor(cursor);
+    }
+
+    public void setMousePosition(int mouseX, int mouseY) {
+        renderer.setMousePosition(mouseX, mouseY);
+    }
+
+    public void setMouseButton(int button, boolean state) {
+        renderer.setMouseButton(button, state);
+    }
+
+    public void pushGlobalTintColor(float r, float g, float b, float a) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.PUSH_TINT);
+            cb.writeFloat(r);
+            cb.writeFloat(g);
+            cb.writeFloat(b);
+            cb.writeFloat(a);
+        }
+        renderer.pushGlobalTintColor(r, g, b, a);
+    }
+
+    public void popGlobalTintColor() {
+        if(frame != null) {
+            beginCommand(CommandBuffer.POP_TINT);
+        }
+        renderer.popGlobalTintColor();
+    }
+
+    public void drawLine(float[] pts, int numPts, float width, Color color, boolean drawAsLoop) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.DRAW_LINE);
+            cb.writeInt(numPts);
+            cb.writeFloat(width);
+            cb.writeInt(color.toARGB());
+            cb.writeBoolean(drawAsLoop);
+            for(int i=0 ; i<numPts*2 ; i++) {
+                cb.writeFloat(pts[i]);
+            }
+        }
+        renderer.getLineRenderer().drawLine(pts, numPts, width, color, drawAsLoop);
+    }
+    
+    boolean isRecordingFrame() {
+        return frame != null;
+    }
+    
+    void recordImage(ResourceDef image, int x, int y, int width, int height) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.DRAW_IMAGE);
+            cb.writeInt(recording.getResourceID(image));
+            cb.writeInt(x);
+            cb.writeInt(y);
+            cb.writeInt(width);
+            cb.writeInt(height);
+        }
+    }
+    
+    void recordImageRepeat(ResourceDef image, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.DRAW_IMAGE_REPEAT);
+            cb.writeInt(recording.getResourceID(image));
+            cb.writeInt(x);
+            cb.writeInt(y);
+            cb.writeInt(width);
+            cb.writeInt(height);
+            cb.writeInt(repeatCountX);
+            cb.writeInt(repeatCountY);
+        }
+    }
+    
+    void recordText(ResourceDef font, int state, int x, int y, String text) {
+        if(frame != null) {
+            writeText(CommandBuffer.DRAW_TEXT, font, state, x, y, text);
+        }
+    }
+    
+    void recordMultiLineText(ResourceDef font, int state, int x, int y, String text, int width, HAlignment align) {
+        if(frame != null) {
+            CommandBuffer cb = writeText(CommandBuffer.DRAW_MULTILINE_TEXT, font, state, x, y, text);
+            cb.writeInt(width);
+            cb.writeInt(align.ordinal());
+        }
+    }
+    
+    void recordAttributedText(ResourceDef font, int x, int y, TextRuns runs, boolean multiLine) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.DRAW_ATTRIBUTED_TEXT);
+            cb.writeInt(recording.getResourceID(font));
+            cb.writeInt(x);
+            cb.writeInt(y);
+            cb.writeBoolean(multiLine);
+            cb.writeInt(recording.getStringID(runs.text));
+            runs.write(cb);
+        }
+    }
+    
+    void recordFontCache(ResourceDef cache, int state, int x, int y) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.DRAW_FONT_CACHE);
+            cb.writeInt(recording.getResourceID(cache));
+            cb.writeInt(state);
+            cb.writeInt(x);
+            cb.writeInt(y);
+        }
+    }
+    
+    void recordAttributedFontCache(ResourceDef cache, int x, int y) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.DRAW_ATTRIBUTED_CACHE);
+            cb.writeInt(recording.getResourceID(cache));
+            cb.writeInt(x);
+            cb.writeInt(y);
+        }
+    }
+    
+    private void recordClipEnter(int x, int y, int w, int h) {
+        if(frame != null) {
+            CommandBuffer cb = beginCommand(CommandBuffer.CLIP_ENTER);
+            cb.writeInt(x);
+            cb.writeInt(y);
+            cb.writeInt(w);
+            cb.writeInt(h);
+        }
+    }
+    
+    private CommandBuffer writeText(int cmd, ResourceDef font, int state, int x, int y, String text) {
+        CommandBuffer cb = beginCommand(cmd);
+        cb.writeInt(recording.getResourceID(font));
+        cb.writeInt(state);
+        cb.writeInt(x);
+        cb.writeInt(y);
+        cb.writeInt(recording.getStringID(text));
+        return cb;
+    }
+    
+    private CommandBuffer beginCommand(int cmd) {
+        frame.writeCommand(cmd);
+        numFrameCommands++;
+        return frame;
+    }
+}
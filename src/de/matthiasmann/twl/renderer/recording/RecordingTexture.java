@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.MouseCursor;
+import de.matthiasmann.twl.renderer.Texture;
+
+/**
+ * Wraps a texture so that the images created from it are recorded.
+ * 
+ * @author Matthias Mann
+ */
+class RecordingTexture implements Texture {
+
+    private final RecordingRenderer renderer;
+    private final Texture texture;
+    private final ResourceDef.TextureDef def;
+
+    RecordingTexture(RecordingRenderer renderer, Texture texture, ResourceDef.TextureDef def) {
+        this.renderer = renderer;
+        this.texture = texture;
+        this.def = def;
+    }
+
+    public int getWidth() {
+        return texture.getWidth();
+    }
+
+    public int getHeight() {
+        return texture.getHeight();
+    }
+
+    public Image getImage(int x, int y, int width, int height, Color tintColor, boolean tiled, Rotation rotation) {
+        Image image = texture.getImage(x, y, width, height, tintColor, tiled, rotation);
+        if(image == null) {
+            return null;
+        }
+        return new RecordingImage(renderer, image, new ResourceDef.TextureImageDef(
+                def, x, y, width, height, tintColor, tiled, rotation));
+    }
+
+    public MouseCursor createCursor(int x, int y, int width, int height, int hotSpotX, int hotSpotY, Image imageRef) {
+        return texture.createCursor(x, y, width, height, hotSpotX, hotSpotY, imageRef);
+    }
+
+    public void themeLoadingDone() {
+        texture.themeLoadingDone();
+    }
+
+    public void destroy() {
+        texture.destroy();
+    }
+}
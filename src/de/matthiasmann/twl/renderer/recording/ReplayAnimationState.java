@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.utils.StateExpression;
+import de.matthiasmann.twl.utils.StateSelect;
+import java.util.ArrayList;
+
+/**
+ * An animation state which selects a recorded font state index.
+ * 
+ * <p>Fonts are loaded for replay with a synthetic {@link StateSelect} where
+ * expression {@code i} checks the state key {@code i}. Activating only that
+ * key reproduces the font state which was selected during recording.</p>
+ * 
+ * @author Matthias Mann
+ */
+class ReplayAnimationState implements AnimationState {
+
+    private static final ArrayList<StateKey> keys = new ArrayList<StateKey>();
+    
+    private StateKey activeKey;
+
+    void setState(int stateIndex) {
+        activeKey = getKey(stateIndex);
+    }
+    
+    public boolean getAnimationState(StateKey state) {
+        return state == activeKey;
+    }
+
+    public int getAnimationTime(StateKey state) {
+        return 0;
+    }
+
+    public boolean getShouldAnimateState(StateKey state) {
+        return false;
+    }
+
+    static StateSelect createStateSelect(int numExpressions) {
+        StateExpression[] expressions = new StateExpression[numExpressions];
+        for(int i=0 ; i<numExpressions ; i++) {
+            expressions[i] = new StateExpression.Check(getKey(i));
+        }
+        return new StateSelect(expressions);
+    }
+    
+    static synchronized StateKey getKey(int stateIndex) {
+        while(keys.size() <= stateIndex) {
+            keys.add(StateKey.get("replayFontState" + keys.size()));
+        }
+        return keys.get(stateIndex);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.renderer.AttributedString;
+
+/**
+ * Plays back recorded text runs as an attributed string.
+ * 
+ * @author Matthias Mann
+ */
+class ReplayAttributedString extends ReplayAnimationState implements AttributedString {
+
+    private final TextRuns runs;
+    private int position;
+    private int runIdx;
+
+    ReplayAttributedString(TextRuns runs) {
+        this.runs = runs;
+        setPosition(0);
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int pos) {
+        if(pos < 0 || pos > length()) {
+            throw new IllegalArgumentException("pos");
+        }
+        position = pos;
+        runIdx = 0;
+        while(runIdx < runs.numRuns-1 && runs.runEnds[runIdx] <= pos) {
+            runIdx++;
+        }
+        setState(runs.runStates[runIdx]);
+    }
+
+    public int advance() {
+        position = runs.runEnds[runIdx];
+        if(runIdx < runs.numRuns-1) {
+            setState(runs.runStates[++runIdx]);
+        }
+        return position;
+    }
+
+    public int length() {
+        return runs.text.length();
+    }
+
+    public char charAt(int index) {
+        return runs.text.charAt(index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return runs.text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return runs.text;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.HAlignment;
+import de.matthiasmann.twl.renderer.AttributedStringFontCache;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.Font2;
+import de.matthiasmann.twl.renderer.FontParameter;
+import de.matthiasmann.twl.renderer.Gradient;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.Resource;
+import de.matthiasmann.twl.renderer.Texture;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Describes how a resource which is referenced by the command stream can
+ * be recreated on the replay renderer.
+ * 
+ * @author Matthias Mann
+ */
+abstract class ResourceDef {
+
+    /**
+     * Creates the resource on the renderer of the player.
+     * 
+     * @param player the player - used to resolve dependent resources
+     * @return the created resource
+     * @throws IOException if a texture or font could not be loaded
+     */
+    abstract Object create(RecordingPlayer player) throws IOException;
+    
+    /**
+     * Returns the label which is used for the command histogram.
+     * @return the label
+     */
+    abstract String getLabel();
+    
+    void destroy(Object resource) {
+    }
+    
+    static final class TextureDef extends ResourceDef {
+        final URL url;
+        final String format;
+        final String filter;
+
+        TextureDef(URL url, String format, String filter) {
+            this.url = url;
+            this.format = format;
+            this.filter = filter;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            return player.renderer.loadTexture(url, format, filter);
+        }
+
+        @Override
+        String getLabel() {
+            return "texture " + url;
+        }
+    }
+    
+    static final class TextureImageDef extends ResourceDef {
+        final TextureDef texture;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+        final Color tintColor;
+        final boolean tiled;
+        final Texture.Rotation rotation;
+
+        TextureImageDef(TextureDef texture, int x, int y, int width, int height, Color tintColor, boolean tiled, Texture.Rotation rotation) {
+            this.texture = texture;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.tintColor = tintColor;
+            this.tiled = tiled;
+            this.rotation = rotation;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            Texture t = (Texture)player.getResource(texture);
+            return t.getImage(x, y, width, height, tintColor, tiled, rotation);
+        }
+
+        @Override
+        String getLabel() {
+            return (tiled ? "tiled image " : "image ") + texture.url;
+        }
+    }
+    
+    static final class TintedImageDef extends ResourceDef {
+        final ResourceDef image;
+        final Color color;
+
+        TintedImageDef(ResourceDef image, Color color) {
+            this.image = image;
+            this.color = color;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            return ((Image)player.getResource(image)).createTintedVersion(color);
+        }
+
+        @Override
+        String getLabel() {
+            return "tinted " + image.getLabel();
+        }
+    }
+    
+    static final class GradientDef extends ResourceDef {
+        final Gradient gradient;
+
+        GradientDef(Gradient gradient) {
+            this.gradient = gradient;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            return player.renderer.createGradient(gradient);
+        }
+
+        @Override
+        String getLabel() {
+            return "gradient " + gradient.getType();
+        }
+    }
+    
+    /**
+     * Dynamic images are recreated with their size only - the content
+     * is not part of the recording.
+     */
+    static final class DynamicImageDef extends ResourceDef {
+        final int width;
+        final int height;
+
+        DynamicImageDef(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            return player.renderer.createDynamicImage(width, height);
+        }
+
+        @Override
+        void destroy(Object resource) {
+            if(resource != null) {
+                ((Resource)resource).destroy();
+            }
+        }
+
+        @Override
+        String getLabel() {
+            return "dynamic image";
+        }
+    }
+    
+    static final class FontDef extends ResourceDef {
+        final URL url;
+        final int numExpressions;
+        final FontParameter[] parameterList;
+
+        FontDef(URL url, int numExpressions, FontParameter[] parameterList) {
+            this.url = url;
+            this.numExpressions = numExpressions;
+            this.parameterList = parameterList;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            return player.renderer.loadFont(url,
+                    ReplayAnimationState.createStateSelect(numExpressions),
+                    parameterList);
+        }
+
+        @Override
+        String getLabel() {
+            return "font " + url;
+        }
+    }
+    
+    static final class FontCacheDef extends ResourceDef {
+        final FontDef font;
+        final String text;
+        final int width;
+        final HAlignment align;
+
+        FontCacheDef(FontDef font, String text, int width, HAlignment align) {
+            this.font = font;
+            this.text = text;
+            this.width = width;
+            this.align = align;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            Font f = (Font)player.getResource(font);
+            if(align != null) {
+                return f.cacheMultiLineText(null, text, width, align);
+            }
+            return f.cacheText(null, text);
+        }
+
+        @Override
+        void destroy(Object resource) {
+            if(resource != null) {
+                ((Resource)resource).destroy();
+            }
+        }
+
+        @Override
+        String getLabel() {
+            return font.getLabel();
+        }
+    }
+    
+    static final class AttributedFontCacheDef extends ResourceDef {
+        final FontDef font;
+        final TextRuns runs;
+        final boolean multiLine;
+
+        AttributedFontCacheDef(FontDef font, TextRuns runs, boolean multiLine) {
+            this.font = font;
+            this.runs = runs;
+            this.multiLine = multiLine;
+        }
+
+        @Override
+        Object create(RecordingPlayer player) throws IOException {
+            Font2 f = (Font2)player.getResource(font);
+            ReplayAttributedString str = new ReplayAttributedString(runs);
+            if(multiLine) {
+                return f.cacheMultiLineText((AttributedStringFontCache)null, str);
+            }
+            return f.cacheText((AttributedStringFontCache)null, str);
+        }
+
+        @Override
+        void destroy(Object resource) {
+            if(resource != null) {
+                ((Resource)resource).destroy();
+            }
+        }
+
+        @Override
+        String getLabel() {
+            return font.getLabel();
+        }
+    }
+}
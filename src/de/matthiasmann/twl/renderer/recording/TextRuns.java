@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.renderer.AttributedString;
+import de.matthiasmann.twl.utils.StateSelect;
+
+/**
+ * A snapshot of an attributed string where every run is resolved to the
+ * index of the font state it selects.
+ * 
+ * @author Matthias Mann
+ */
+final class TextRuns {
+    
+    final String text;
+    final int[] runEnds;
+    final int[] runStates;
+    final int numRuns;
+
+    TextRuns(String text, int[] runEnds, int[] runStates, int numRuns) {
+        this.text = text;
+        this.runEnds = runEnds;
+        this.runStates = runStates;
+        this.numRuns = numRuns;
+    }
+    
+    static TextRuns create(StateSelect select, AttributedString attributedString, int start, int end) {
+        int[] runEnds = new int[4];
+        int[] runStates = new int[4];
+        int numRuns = 0;
+        int pos = start;
+        attributedString.setPosition(start);
+        do {
+            int state = select.evaluate(attributedString);
+            int next = Math.min(end, attributedString.advance());
+            if(next <= pos) {
+                next = end;
+            }
+            if(numRuns > 0 && runStates[numRuns-1] == state) {
+                runEnds[numRuns-1] = next - start;
+            } else {
+                if(numRuns == runEnds.length) {
+                    int[] newRunEnds = new int[numRuns*2];
+                    int[] newRunStates = new int[numRuns*2];
+                    System.arraycopy(runEnds, 0, newRunEnds, 0, numRuns);
+                    System.arraycopy(runStates, 0, newRunStates, 0, numRuns);
+                    runEnds = newRunEnds;
+                    runStates = newRunStates;
+                }
+                runEnds[numRuns] = next - start;
+                runStates[numRuns] = state;
+                numRuns++;
+            }
+            pos = next;
+        } while(pos < end);
+        String text = attributedString.subSequence(start, end).toString();
+        return new TextRuns(text, runEnds, runStates, numRuns);
+    }
+    
+    void write(CommandBuffer buffer) {
+        buffer.writeInt(numRuns);
+        for(int i=0 ; i<numRuns ; i++) {
+            buffer.writeInt(runEnds[i]);
+            buffer.writeInt(runStates[i]);
+        }
+    }
+    
+    static TextRuns read(CommandBuffer buffer, String text) {
+        int numRuns = buffer.readInt();
+        int[] runEnds = new int[numRuns];
+        int[] runStates = new int[numRuns];
+        for(int i=0 ; i<numRuns ; i++) {
+            runEnds[i] = buffer.readInt();
+            runStates[i] = buffer.readInt();
+        }
+        return new TextRuns(text, runEnds, runStates, numRuns);
+    }
+}
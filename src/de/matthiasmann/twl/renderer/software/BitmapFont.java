@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.HAlignment;
+import de.matthiasmann.twl.utils.BitmapFontDefinition;
+import de.matthiasmann.twl.utils.PNGDecoder;
+import de.matthiasmann.twl.utils.TextUtil;
+import de.matthiasmann.twl.utils.XMLParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * A Bitmap Font class. Renders fonts generated by TWL Theme Editor's
+ * "Create font" tool into a {@link SoftwareRenderer}.
+ * 
+ * @author Matthias Mann
+ */
+public class BitmapFont {
+
+    private static final int LOG2_PAGE_SIZE = 9;
+    private static final int PAGE_SIZE = 1 << LOG2_PAGE_SIZE;
+    private static final int PAGES = 0x10000 / PAGE_SIZE;
+
+    static class Glyph {
+        final short x;
+        final short y;
+        final short width;
+        final short height;
+        short xoffset;
+        short yoffset;
+        short xadvance;
+        byte[][] kerning;
+
+        public Glyph(int x, int y, int width, int height) {
+            this.x = (short)x;
+            this.y = (short)y;
+            this.width = (short)((height <= 0) ? 0 : width);
+            this.height = (short)height;
+        }
+        
+        int getKerning(char ch) {
+            if(kerning != null) {
+                byte[] page = kerning[ch >>> LOG2_PAGE_SIZE];
+                if(page != null) {
+                    return page[ch & (PAGE_SIZE-1)];
+                }
+            }
+            return 0;
+        }
+        
+        void setKerning(int ch, int value) {
+            if(kerning == null) {
+                kerning = new byte[PAGES][];
+            }
+            byte[] page = kerning[ch >>> LOG2_PAGE_SIZE];
+            if(page == null) {
+                kerning[ch >>> LOG2_PAGE_SIZE] = page = new byte[PAGE_SIZE];
+            }
+            page[ch & (PAGE_SIZE-1)] = (byte)value;
+        }
+    }
+
+    private final SoftwareTexture texture;
+    private final Glyph[][] glyphs;
+    private final int lineHeight;
+    private final int baseLine;
+    private final int spaceWidth;
+    private final int ex;
+    private final boolean proportional;
+
+    public BitmapFont(SoftwareCacheContext cacheContext, XMLParser xmlp, URL baseUrl) throws XmlPullParserException, IOException {
+        this(cacheContext, new BitmapFontDefinition(xmlp), baseUrl);
+    }
+
+    public BitmapFont(SoftwareCacheContext cacheContext, Reader reader, URL baseUrl) throws IOException {
+        this(cacheContext, new BitmapFontDefinition(reader), baseUrl);
+    }
+
+    public BitmapFont(SoftwareCacheContext cacheContext, BitmapFontDefinition def, URL baseUrl) throws IOException {
+        lineHeight = def.getLineHeight();
+        baseLine = def.getBaseLine();
+        texture = cacheContext.createTexture(new URL(baseUrl, def.getTextureFile()),
+                PNGDecoder.Format.ALPHA, false);
+        glyphs = new Glyph[PAGES][];
+        for(BitmapFontDefinition.Glyph gd : def.getGlyphs()) {
+            Glyph g = new Glyph(gd.x, gd.y, gd.width, gd.height);
+            g.xoffset = gd.xoffset;
+            g.yoffset = gd.yoffset;
+            g.xadvance = gd.xadvance;
+            addGlyph(gd.id, g);
+        }
+        for(BitmapFontDefinition.Kerning k : def.getKernings()) {
+            addKerning(k.first, k.second, k.amount);
+        }
+
+        Glyph g = getGlyph(' ');
+        spaceWidth = (g != null) ? g.xadvance + g.width : 1;
+
+        Glyph gx = getGlyph('x');
+        ex = (gx != null) ? gx.height : 1;
+
+        proportional = def.isProportional();
+    }
+
+    static BitmapFont loadFont(SoftwareCacheContext cacheContext, URL url) throws IOException {
+        return new BitmapFont(cacheContext, BitmapFontDefinition.load(url), url);
+    }
+
+    public boolean isProportional() {
+        return proportional;
+    }
+    
+    public int getBaseLine() {
+        return baseLine;
+    }
+
+    public int getLineHeight() {
+        return lineHeight;
+    }
+
+    public int getSpaceWidth() {
+        return spaceWidth;
+    }
+
+    public int getEM() {
+        return lineHeight;
+    }
+
+    public int getEX() {
+        return ex;
+    }
+
+    public void destroy() {
+        texture.destroy();
+    }
+
+    private void addGlyph(int idx, Glyph g) {
+        if(idx <= Character.MAX_VALUE) {
+            Glyph[] page = glyphs[idx >> LOG2_PAGE_SIZE];
+            if(page == null) {
+                glyphs[idx >> LOG2_PAGE_SIZE] = page = new Glyph[PAGE_SIZE];
+            }
+            page[idx & (PAGE_SIZE - 1)] = g;
+        }
+    }
+
+    private void addKerning(int first, int second, int amount) {
+        if(first >= 0 && first <= Character.MAX_VALUE &&
+                second >= 0 && second <= Character.MAX_VALUE) {
+            Glyph g = getGlyph((char)first);
+            if(g != null) {
+                g.setKerning(second, amount);
+            }
+        }
+    }
+
+    final Glyph getGlyph(char ch) {
+        Glyph[] page = glyphs[ch >> LOG2_PAGE_SIZE];
+        if(page != null) {
+            return page[ch & (PAGE_SIZE-1)];
+        }
+        return null;
+    }
+    
+    public int computeTextWidth(CharSequence str, int start, int end) {
+        int width = 0;
+        Glyph lastGlyph = null;
+        while(start < end) {
+            lastGlyph = getGlyph(str.charAt(start++));
+            if(lastGlyph != null) {
+                width = lastGlyph.xadvance;
+                break;
+            }
+        }
+        while(start < end) {
+            char ch = str.charAt(start++);
+            Glyph g = getGlyph(ch);
+            if(g != null) {
+                width += lastGlyph.getKerning(ch);
+                lastGlyph = g;
+                width += g.xadvance;
+            }
+        }
+        return width;
+    }
+
+    public int computeVisibleGlpyhs(CharSequence str, int start, int end, int availWidth) {
+        int index = start;
+        int width = 0;
+        Glyph lastGlyph = null;
+        for(; index < end ; index++) {
+            char ch = str.charAt(index);
+            Glyph g = getGlyph(ch);
+            if(g != null) {
+                if(lastGlyph != null) {
+                    width += lastGlyph.getKerning(ch);
+                }
+                lastGlyph = g;
+                if(proportional) {
+                    width += g.xadvance;
+                    if(width > availWidth) {
+                        break;
+                    }
+                } else {
+                    if(width + g.width + g.xoffset > availWidth) {
+                        break;
+                    }
+                    width += g.xadvance;
+                }
+            }
+        }
+        return index - start;
+    }
+    
+    int drawText(int color, int x, int y, CharSequence str, int start, int end) {
+        int startX = x;
+        Glyph lastGlyph = null;
+        while(start < end) {
+            lastGlyph = getGlyph(str.charAt(start++));
+            if(lastGlyph != null) {
+                if(lastGlyph.width > 0) {
+                    drawGlyph(lastGlyph, color, x, y);
+                }
+                x += lastGlyph.xadvance;
+                break;
+            }
+        }
+        while(start < end) {
+            char ch = str.charAt(start++);
+            Glyph g = getGlyph(ch);
+            if(g != null) {
+                x += lastGlyph.getKerning(ch);
+                lastGlyph = g;
+                if(g.width > 0) {
+                    drawGlyph(g, color, x, y);
+                }
+                x += g.xadvance;
+            }
+        }
+        return x - startX;
+    }
+    
+    int drawMultiLineText(int color, int x, int y, CharSequence str, int width, HAlignment align) {
+        int start = 0;
+        int numLines = 0;
+        while(start < str.length()) {
+            int lineEnd = TextUtil.indexOf(str, '\n', start);
+            int xoff = 0;
+            if(align != HAlignment.LEFT) {
+                int lineWidth = computeTextWidth(str, start, lineEnd);
+                xoff = width - lineWidth;
+                if(align == HAlignment.CENTER) {
+                    xoff /= 2;
+                }
+            }
+            drawText(color, x + xoff, y, str, start, lineEnd);
+            start = lineEnd + 1;
+            y += lineHeight;
+            numLines++;
+        }
+        return numLines;
+    }
+
+    public void computeMultiLineInfo(CharSequence str, int width, HAlignment align, int[] multiLineInfo) {
+        int start = 0;
+        int idx = 0;
+        while(start < str.length()) {
+            int lineEnd = TextUtil.indexOf(str, '\n', start);
+            int lineWidth = computeTextWidth(str, start, lineEnd);
+            int xoff = width - lineWidth;
+            if(align == HAlignment.LEFT) {
+                xoff = 0;
+            } else if(align == HAlignment.CENTER) {
+                xoff /= 2;
+            }
+            multiLineInfo[idx++] = (lineWidth << 16) | (xoff & 0xFFFF);
+            start = lineEnd + 1;
+        }
+    }
+    
+    final void drawGlyph(Glyph g, int color, int x, int y) {
+        texture.renderer.drawTexture(texture, color, x+g.xoffset, y+g.yoffset, g.width, g.height,
+                g.x, g.y, 1f, 0f, 0f, 1f);
+    }
+
+    public void drawMultiLineLines(int color, int x, int y, int[] multiLineInfo, int numLines) {
+        for(int i=0 ; i<numLines ; ++i) {
+            int info = multiLineInfo[i];
+            int xoff = x + (short)info;
+            int lineWidth = info >>> 16;
+            texture.renderer.fillRect(color, xoff, y, lineWidth, 1);
+            y += lineHeight;
+        }
+    }
+
+    public void drawLine(int color, int x0, int y, int x1) {
+        texture.renderer.fillRect(color, x0, y, x1 - x0, 1);
+    }
+    
+    public int computeMultiLineTextWidth(CharSequence str) {
+        int start = 0;
+        int width = 0;
+        while(start < str.length()) {
+            int lineEnd = TextUtil.indexOf(str, '\n', start);
+            int lineWidth = computeTextWidth(str, start, lineEnd);
+            width = Math.max(width, lineWidth);
+            start = lineEnd + 1;
+        }
+        return width;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+/**
+ * A list of draw commands. The command objects are reused after
+ * {@link #clear() } to avoid garbage.
+ * 
+ * @author Matthias Mann
+ */
+final class CommandList {
+
+    private DrawCommand[] commands;
+    private int size;
+
+    CommandList() {
+        this.commands = new DrawCommand[64];
+    }
+
+    int size() {
+        return size;
+    }
+
+    DrawCommand get(int idx) {
+        return commands[idx];
+    }
+
+    /**
+     * Returns a command object at the end of the list. The command is only
+     * added when {@link #commit() } is called.
+     * @return the command object
+     */
+    DrawCommand next() {
+        if(size == commands.length) {
+            DrawCommand[] tmp = new DrawCommand[size * 2];
+            System.arraycopy(commands, 0, tmp, 0, size);
+            commands = tmp;
+        }
+        DrawCommand cmd = commands[size];
+        if(cmd == null) {
+            cmd = new DrawCommand();
+            commands[size] = cmd;
+        }
+        return cmd;
+    }
+
+    void commit() {
+        size++;
+    }
+
+    void clear() {
+        for(int i=0 ; i<size ; i++) {
+            commands[i].pixels = null;
+        }
+        size = 0;
+    }
+}
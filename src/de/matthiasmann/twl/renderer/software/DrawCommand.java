@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import java.util.Arrays;
+
+/**
+ * A single recorded draw operation of the {@link SoftwareRenderer}.
+ *
+ * <p>All geometry is stored relative to the top left corner of the
+ * geometric bounds so that a command can be translated by only moving
+ * its bounds. The effective bounds are the geometric bounds clipped
+ * against the clip region.</p>
+ * 
+ * @author Matthias Mann
+ */
+final class DrawCommand {
+
+    static final int FILL     = 0;
+    static final int TEXTURE  = 1;
+    static final int GRADIENT = 2;
+    static final int LINE     = 3;
+    static final int CLEAR    = 4;
+
+    int type;
+
+    // geometric bounds
+    int gx0;
+    int gy0;
+    int gx1;
+    int gy1;
+
+    // effective bounds - [x0,x1) x [y0,y1)
+    int x0;
+    int y0;
+    int x1;
+    int y1;
+
+    int color;
+    int color2;
+
+    // TEXTURE: texel coordinate at (gx0, gy0) and the derivates
+    // GRADIENT: u = start and v = end position along the axis
+    // LINE: (u,v) = start point, (dudx, dvdx) = end point, dudy = half width
+    float u;
+    float v;
+    float dudx;
+    float dudy;
+    float dvdx;
+    float dvdy;
+    boolean horizontal;
+
+    int[] pixels;
+    int texWidth;
+    int texHeight;
+    boolean linear;
+
+    void set(DrawCommand src) {
+        type = src.type;
+        gx0 = src.gx0;
+        gy0 = src.gy0;
+        gx1 = src.gx1;
+        gy1 = src.gy1;
+        color = src.color;
+        color2 = src.color2;
+        u = src.u;
+        v = src.v;
+        dudx = src.dudx;
+        dudy = src.dudy;
+        dvdx = src.dvdx;
+        dvdy = src.dvdy;
+        horizontal = src.horizontal;
+        pixels = src.pixels;
+        texWidth = src.texWidth;
+        texHeight = src.texHeight;
+        linear = src.linear;
+    }
+
+    void translate(int dx, int dy) {
+        gx0 += dx;
+        gy0 += dy;
+        gx1 += dx;
+        gy1 += dy;
+    }
+
+    void modulate(int mul) {
+        if(mul != 0xFFFFFFFF) {
+            color = Pixels.multiply(color, mul);
+            color2 = Pixels.multiply(color2, mul);
+        }
+    }
+
+    /**
+     * Computes the effective bounds.
+     * @return false if nothing would be rendered
+     */
+    boolean clip(int cx0, int cy0, int cx1, int cy1) {
+        x0 = Math.max(gx0, cx0);
+        y0 = Math.max(gy0, cy0);
+        x1 = Math.min(gx1, cx1);
+        y1 = Math.min(gy1, cy1);
+        return x0 < x1 && y0 < y1 && (color >>> 24 != 0 || color2 >>> 24 != 0);
+    }
+
+    void rasterize(int[] fb, int stride, int tx0, int ty0, int tx1, int ty1) {
+        int rx0 = Math.max(x0, tx0);
+        int ry0 = Math.max(y0, ty0);
+        int rx1 = Math.min(x1, tx1);
+        int ry1 = Math.min(y1, ty1);
+        if(rx0 >= rx1 || ry0 >= ry1) {
+            return;
+        }
+        switch(type) {
+            case FILL:
+                fill(fb, stride, rx0, ry0, rx1, ry1);
+                break;
+            case TEXTURE:
+                if(linear) {
+                    textureLinear(fb, stride, rx0, ry0, rx1, ry1);
+                } else {
+                    textureNearest(fb, stride, rx0, ry0, rx1, ry1);
+                }
+                break;
+            case GRADIENT:
+                gradient(fb, stride, rx0, ry0, rx1, ry1);
+                break;
+            case LINE:
+                line(fb, stride, rx0, ry0, rx1, ry1);
+                break;
+            case CLEAR:
+                for(int y=ry0 ; y<ry1 ; y++) {
+                    Arrays.fill(fb, y*stride+rx0, y*stride+rx1, color);
+                }
+                break;
+        }
+    }
+
+    private void fill(int[] fb, int stride, int rx0, int ry0, int rx1, int ry1) {
+        final int c = color;
+        final boolean opaque = (c >>> 24) == 255;
+        for(int y=ry0 ; y<ry1 ; y++) {
+            int idx = y*stride;
+            if(opaque) {
+                Arrays.fill(fb, idx+rx0, idx+rx1, c);
+            } else {
+                for(int x=rx0 ; x<rx1 ; x++) {
+                    fb[idx+x] = Pixels.blend(fb[idx+x], c);
+                }
+            }
+        }
+    }
+
+    private void textureNearest(int[] fb, int stride, int rx0, int ry0, int rx1, int ry1) {
+        final int[] tex = pixels;
+        final int tw = texWidth;
+        final int maxU = tw - 1;
+        final int maxV = texHeight - 1;
+        final int c = color;
+        final float startX = rx0 + 0.5f - gx0;
+        for(int y=ry0 ; y<ry1 ; y++) {
+            float fy = y + 0.5f - gy0;
+            float tu = u + startX*dudx + fy*dudy;
+            float tv = v + startX*dvdx + fy*dvdy;
+            int idx = y*stride;
+            for(int x=rx0 ; x<rx1 ; x++) {
+                int iu = clamp((int)tu, maxU);
+                int iv = clamp((int)tv, maxV);
+                int src = tex[iv*tw + iu];
+                if(c != 0xFFFFFFFF) {
+                    src = Pixels.multiply(src, c);
+                }
+                fb[idx+x] = Pixels.blend(fb[idx+x], src);
+                tu += dudx;
+                tv += dvdx;
+            }
+        }
+    }
+
+    private void textureLinear(int[] fb, int stride, int rx0, int ry0, int rx1, int ry1) {
+        final int[] tex = pixels;
+        final int tw = texWidth;
+        final int th = texHeight;
+        final int c = color;
+        final float startX = rx0 + 0.5f - gx0;
+        for(int y=ry0 ; y<ry1 ; y++) {
+            float fy = y + 0.5f - gy0;
+            float tu = u + startX*dudx + fy*dudy - 0.5f;
+            float tv = v + startX*dvdx + fy*dvdy - 0.5f;
+            int idx = y*stride;
+            for(int x=rx0 ; x<rx1 ; x++) {
+                int src = Pixels.sampleLinear(tex, tw, th, tu, tv);
+                if(c != 0xFFFFFFFF) {
+                    src = Pixels.multiply(src, c);
+                }
+                fb[idx+x] = Pixels.blend(fb[idx+x], src);
+                tu += dudx;
+                tv += dvdx;
+            }
+        }
+    }
+
+    private void gradient(int[] fb, int stride, int rx0, int ry0, int rx1, int ry1) {
+        final float start = u;
+        final float scale = 1f / (v - u);
+        if(horizontal) {
+            for(int x=rx0 ; x<rx1 ; x++) {
+                int c = Pixels.mix(color, color2, (x + 0.5f - gx0 - start) * scale);
+                for(int y=ry0 ; y<ry1 ; y++) {
+                    int idx = y*stride + x;
+                    fb[idx] = Pixels.blend(fb[idx], c);
+                }
+            }
+        } else {
+            for(int y=ry0 ; y<ry1 ; y++) {
+                int c = Pixels.mix(color, color2, (y + 0.5f - gy0 - start) * scale);
+                int idx = y*stride;
+                for(int x=rx0 ; x<rx1 ; x++) {
+                    fb[idx+x] = Pixels.blend(fb[idx+x], c);
+                }
+            }
+        }
+    }
+
+    private void line(int[] fb, int stride, int rx0, int ry0, int rx1, int ry1) {
+        final float ax = u;
+        final float ay = v;
+        final float dx = dudx - ax;
+        final float dy = dvdx - ay;
+        final float lenSq = dx*dx + dy*dy;
+        final float hwSq = dudy*dudy;
+        final int c = color;
+        for(int y=ry0 ; y<ry1 ; y++) {
+            float py = y + 0.5f - gy0 - ay;
+            int idx = y*stride;
+            for(int x=rx0 ; x<rx1 ; x++) {
+                float px = x + 0.5f - gx0 - ax;
+                float t = (lenSq > 0) ? (px*dx + py*dy) / lenSq : 0;
+                if(t < 0) {
+                    t = 0;
+                } else if(t > 1) {
+                    t = 1;
+                }
+                float ex = px - t*dx;
+                float ey = py - t*dy;
+                if(ex*ex + ey*ey <= hwSq) {
+                    fb[idx+x] = Pixels.blend(fb[idx+x], c);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int value, int max) {
+        if(value < 0) {
+            return 0;
+        }
+        return (value > max) ? max : value;
+    }
+}
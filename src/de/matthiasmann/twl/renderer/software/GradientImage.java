@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.Gradient;
+import de.matthiasmann.twl.renderer.Gradient.Stop;
+import de.matthiasmann.twl.renderer.Gradient.Type;
+import de.matthiasmann.twl.renderer.Gradient.Wrap;
+import de.matthiasmann.twl.renderer.Image;
+
+/**
+ *
+ * @author Matthias Mann
+ */
+public class GradientImage implements Image {
+    
+    private final SoftwareRenderer renderer;
+    private final Type type;
+    private final Wrap wrap;
+    private final Stop[] stops;
+    private final Color tint;
+    private final float endPos;
+
+    GradientImage(GradientImage src, Color tint) {
+        this.renderer = src.renderer;
+        this.type = src.type;
+        this.wrap = src.wrap;
+        this.stops = src.stops;
+        this.endPos = src.endPos;
+        this.tint = tint;
+    }
+
+    public GradientImage(SoftwareRenderer renderer, Gradient gradient) {
+        if(gradient == null) {
+            throw new NullPointerException("gradient");
+        }
+        if(gradient.getNumStops() < 1) {
+            throw new IllegalArgumentException("Need at least 1 stop for a gradient");
+        }
+        
+        this.renderer = renderer;
+        this.type = gradient.getType();
+        this.tint = Color.WHITE;
+        if(gradient.getNumStops() == 1) {
+            Color color = gradient.getStop(0).getColor();
+            wrap = Wrap.SCALE;
+            stops = new Stop[] {
+                new Stop(0.0f, color),
+                new Stop(1.0f, color)
+            };
+            endPos = 1.0f;
+        } else if(gradient.getWrap() == Wrap.MIRROR) {
+            int numStops = gradient.getNumStops();
+            wrap = Wrap.REPEAT;
+            stops = new Stop[numStops*2-1];
+            for(int i=0 ; i<numStops ; i++) {
+                stops[i] = gradient.getStop(i);
+            }
+            endPos = stops[numStops-1].getPos() * 2;
+            for(int i=numStops,j=numStops-2 ; j>=0 ; i++,j--) {
+                stops[i] = new Stop(endPos - stops[j].getPos(), stops[j].getColor());
+            }
+        } else {
+            wrap = gradient.getWrap();
+            stops = gradient.getStops();
+            endPos = stops[stops.length-1].getPos();
+        }
+    }
+
+    public Image createTintedVersion(Color color) {
+        return new GradientImage(this, tint.multiply(color));
+    }
+
+    private boolean isHorz() {
+        return type == Type.HORIZONTAL;
+    }
+    
+    private int getLastPos() {
+        return Math.round(stops[stops.length-1].getPos());
+    }
+    
+    public int getHeight() {
+        return isHorz() ? 1 : getLastPos();
+    }
+
+    public int getWidth() {
+        return isHorz() ? getLastPos() : 1;
+    }
+
+    public void draw(AnimationState as, int x, int y) {
+        if(isHorz()) {
+            draw(x, y, getLastPos(), 1);
+        } else {
+            draw(x, y, 1, getLastPos());
+        }
+    }
+
+    public void draw(AnimationState as, int x, int y, int width, int height) {
+        draw(x, y, width, height);
+    }
+    
+    private void draw(int x, int y, int width, int height) {
+        if(width <= 0 || height <= 0) {
+            return;
+        }
+        final boolean horz = isHorz();
+        final int size = horz ? width : height;
+        final TintStack tintStack = renderer.tintStack.push(tint);
+        if(wrap == Wrap.SCALE) {
+            for(int i=1 ; i<stops.length ; i++) {
+                Stop stop0 = stops[i-1];
+                Stop stop1 = stops[i];
+                renderer.drawGradient(horz, x, y, width, height,
+                        stop0.getPos() * size / endPos,
+                        stop1.getPos() * size / endPos,
+                        tintStack.getColor(stop0.getColor()),
+                        tintStack.getColor(stop1.getColor()));
+            }
+        } else {
+            float lastPos = 0;
+            float offset = 0;
+            Color lastColor = stops[0].getColor();
+            boolean first = true;
+            do{
+                for(Stop stop : stops) {
+                    float pos = stop.getPos() + offset;
+                    Color color = stop.getColor();
+                    if(pos >= size) {
+                        if(!first) {
+                            float t = (size - lastPos) / (pos - lastPos);
+                            renderer.drawGradient(horz, x, y, width, height, lastPos, size,
+                                    tintStack.getColor(lastColor),
+                                    getColor(tintStack, lastColor, color, t));
+                        }
+                        return;
+                    }
+                    if(!first) {
+                        renderer.drawGradient(horz, x, y, width, height, lastPos, pos,
+                                tintStack.getColor(lastColor),
+                                tintStack.getColor(color));
+                    }
+                    first = false;
+                    lastPos = pos;
+                    lastColor = color;
+                }
+                offset += endPos;
+            }while(wrap == Wrap.REPEAT);
+            int c = tintStack.getColor(lastColor);
+            renderer.drawGradient(horz, x, y, width, height, lastPos, size, c, c);
+        }
+    }
+    
+    private static int getColor(TintStack tintStack, Color a, Color b, float t) {
+        return tintStack.getColor(
+                mix(a.getRed(),   b.getRed(),   t),
+                mix(a.getGreen(), b.getGreen(), t),
+                mix(a.getBlue(),  b.getBlue(),  t),
+                mix(a.getAlpha(), b.getAlpha(), t));
+    }
+    
+    private static float mix(int a, int b, float t) {
+        return a + (b-a) * t;
+    }
+}
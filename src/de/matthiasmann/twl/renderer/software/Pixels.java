@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+/**
+ * Pixel operations on ARGB values with non premultiplied alpha.
+ *
+ * <p>Blending matches the OpenGL blend function
+ * {@code GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA} which is also applied to
+ * the alpha channel.</p>
+ * 
+ * @author Matthias Mann
+ */
+final class Pixels {
+
+    private Pixels() {
+    }
+
+    /**
+     * Computes {@code a*b/255} with correct rounding.
+     * @param a the first value 0..255
+     * @param b the second value 0..255
+     * @return the product 0..255
+     */
+    static int mul(int a, int b) {
+        int t = a*b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    static int multiply(int c0, int c1) {
+        return (mul(c0 >>> 24, c1 >>> 24) << 24) |
+                (mul((c0 >> 16) & 255, (c1 >> 16) & 255) << 16) |
+                (mul((c0 >>  8) & 255, (c1 >>  8) & 255) <<  8) |
+                (mul( c0        & 255,  c1        & 255)      );
+    }
+
+    static int blend(int dst, int src) {
+        int sa = src >>> 24;
+        if(sa == 255) {
+            return src;
+        }
+        if(sa == 0) {
+            return dst;
+        }
+        int ia = 255 - sa;
+        return ((mul(sa, sa) + mul(dst >>> 24, ia)) << 24) |
+                ((mul((src >> 16) & 255, sa) + mul((dst >> 16) & 255, ia)) << 16) |
+                ((mul((src >>  8) & 255, sa) + mul((dst >>  8) & 255, ia)) <<  8) |
+                ((mul( src        & 255, sa) + mul( dst        & 255, ia))      );
+    }
+
+    static int mix(int c0, int c1, float t) {
+        if(t <= 0) {
+            return c0;
+        }
+        if(t >= 1) {
+            return c1;
+        }
+        int w1 = (int)(t * 256);
+        int w0 = 256 - w1;
+        return ((((c0 >>> 24)       )*w0 + ((c1 >>> 24)       )*w1) >> 8) << 24 |
+                ((((c0 >> 16) & 255)*w0 + ((c1 >> 16) & 255)*w1) >> 8) << 16 |
+                ((((c0 >>  8) & 255)*w0 + ((c1 >>  8) & 255)*w1) >> 8) <<  8 |
+                ((((c0      ) & 255)*w0 + ((c1      ) & 255)*w1) >> 8);
+    }
+
+    /**
+     * Samples a texture with bilinear filtering and clamp to edge.
+     * 
+     * @param tex the texture pixels
+     * @param tw the texture width
+     * @param th the texture height
+     * @param u the X coordinate relative to the texel centers
+     * @param v the Y coordinate relative to the texel centers
+     * @return the filtered pixel
+     */
+    static int sampleLinear(int[] tex, int tw, int th, float u, float v) {
+        int iu = (int)Math.floor(u);
+        int iv = (int)Math.floor(v);
+        float fu = u - iu;
+        float fv = v - iv;
+        int u0 = clamp(iu, tw-1);
+        int u1 = clamp(iu+1, tw-1);
+        int row0 = clamp(iv, th-1) * tw;
+        int row1 = clamp(iv+1, th-1) * tw;
+        int top = mix(tex[row0 + u0], tex[row0 + u1], fu);
+        int bottom = mix(tex[row1 + u0], tex[row1 + u1], fu);
+        return mix(top, bottom, fv);
+    }
+
+    static int toARGB(int r, int g, int b, int a) {
+        return (clamp(a, 255) << 24) | (clamp(r, 255) << 16) | (clamp(g, 255) << 8) | clamp(b, 255);
+    }
+
+    private static int clamp(int value, int max) {
+        if(value < 0) {
+            return 0;
+        }
+        return (value > max) ? max : value;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes a command list on a framebuffer. The framebuffer is split into
+ * tiles which are processed in parallel. Each tile executes all commands
+ * overlapping it in order, so the result does not depend on the number
+ * of threads.
+ * 
+ * @author Matthias Mann
+ */
+final class Rasterizer {
+
+    static final int TILE_SIZE = 64;
+
+    private final int numThreads;
+    private final ArrayList<Future<?>> pending;
+    private ExecutorService executor;
+
+    Rasterizer(int numThreads) {
+        if(numThreads < 1) {
+            throw new IllegalArgumentException("numThreads");
+        }
+        this.numThreads = numThreads;
+        this.pending = new ArrayList<Future<?>>();
+    }
+
+    int getNumThreads() {
+        return numThreads;
+    }
+
+    void rasterize(final CommandList list, final int[] fb, final int width, final int height) {
+        if(list.size() == 0) {
+            return;
+        }
+        final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        final int numTiles = tilesX * tilesY;
+        final int numWorkers = Math.min(numThreads, numTiles);
+
+        if(numWorkers <= 1) {
+            rasterizeTile(list, fb, width, 0, 0, width, height);
+            return;
+        }
+
+        final AtomicInteger nextTile = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            public void run() {
+                int tile;
+                while((tile = nextTile.getAndIncrement()) < numTiles) {
+                    int tx = (tile % tilesX) * TILE_SIZE;
+                    int ty = (tile / tilesX) * TILE_SIZE;
+                    rasterizeTile(list, fb, width, tx, ty,
+                            Math.min(tx + TILE_SIZE, width),
+                            Math.min(ty + TILE_SIZE, height));
+                }
+            }
+        };
+
+        ExecutorService e = getExecutor();
+        try {
+            for(int i=1 ; i<numWorkers ; i++) {
+                pending.add(e.submit(worker));
+            }
+            worker.run();
+            for(Future<?> f : pending) {
+                waitFor(f);
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+
+    void destroy() {
+        if(executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    static void rasterizeTile(CommandList list, int[] fb, int stride, int tx0, int ty0, int tx1, int ty1) {
+        for(int i=0,n=list.size() ; i<n ; i++) {
+            DrawCommand cmd = list.get(i);
+            if(cmd.x0 < tx1 && cmd.x1 > tx0 && cmd.y0 < ty1 && cmd.y1 > ty0) {
+                cmd.rasterize(fb, stride, tx0, ty0, tx1, ty1);
+            }
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if(executor == null) {
+            executor = Executors.newFixedThreadPool(numThreads - 1, new ThreadFactory() {
+                final AtomicInteger count = new AtomicInteger();
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "TWL rasterizer " + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private static void waitFor(Future<?> f) {
+        boolean interrupted = false;
+        try {
+            for(;;) {
+                try {
+                    f.get();
+                    return;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if(cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    }
+                    if(cause instanceof Error) {
+                        throw (Error)cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
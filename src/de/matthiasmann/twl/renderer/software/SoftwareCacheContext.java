@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.renderer.CacheContext;
+import de.matthiasmann.twl.utils.PNGDecoder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ *
+ * @author Matthias Mann
+ */
+public class SoftwareCacheContext implements CacheContext {
+
+    final SoftwareRenderer renderer;
+    final HashMap<String, SoftwareTexture> textures;
+    final HashMap<String, BitmapFont> fontCache;
+    boolean valid;
+
+    protected SoftwareCacheContext(SoftwareRenderer renderer) {
+        this.renderer = renderer;
+        this.textures = new HashMap<String, SoftwareTexture>();
+        this.fontCache = new HashMap<String, BitmapFont>();
+        valid = true;
+    }
+
+    SoftwareTexture loadTexture(URL url, PNGDecoder.Format fmt, boolean linear) throws IOException {
+        String urlString = url.toString() + '#' + fmt + (linear ? "/linear" : "/nearest");
+        SoftwareTexture texture = textures.get(urlString);
+        if(texture == null) {
+            texture = createTexture(url, fmt, linear);
+            textures.put(urlString, texture);
+        }
+        return texture;
+    }
+
+    SoftwareTexture createTexture(URL textureUrl, PNGDecoder.Format fmt, boolean linear) throws IOException {
+        if(!valid) {
+            throw new IllegalStateException("CacheContext already destroyed");
+        }
+        InputStream is = textureUrl.openStream();
+        try {
+            PNGDecoder dec = new PNGDecoder(is);
+            fmt = dec.decideTextureFormat(fmt);
+            int width = dec.getWidth();
+            int height = dec.getHeight();
+            int stride = width * fmt.getNumComponents();
+            ByteBuffer buf = ByteBuffer.allocate(stride * height);
+            dec.decode(buf, stride, fmt);
+            buf.flip();
+            int[] pixels = SoftwareTexture.convert(buf, width, height, fmt);
+            return new SoftwareTexture(renderer, width, height, pixels, linear);
+        } catch (IOException ex) {
+            throw (IOException)(new IOException("Unable to load PNG file: " + textureUrl).initCause(ex));
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    BitmapFont loadBitmapFont(URL url) throws IOException {
+        String urlString = url.toString();
+        BitmapFont bmFont = fontCache.get(urlString);
+        if(bmFont == null) {
+            bmFont = BitmapFont.loadFont(this, url);
+            fontCache.put(urlString, bmFont);
+        }
+        return bmFont;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void destroy() {
+        try {
+            for(SoftwareTexture t : textures.values()) {
+                t.destroy();
+            }
+            for(BitmapFont f : fontCache.values()) {
+                f.destroy();
+            }
+        } finally {
+            textures.clear();
+            fontCache.clear();
+            valid = false;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.MouseCursor;
+
+/**
+ * A mouse cursor which is rendered into the framebuffer at the end of
+ * each frame.
+ * 
+ * @author Matthias Mann
+ */
+class SoftwareCursor implements MouseCursor {
+
+    private final SoftwareRenderer renderer;
+    private final Image image;
+    private final int hotSpotX;
+    private final int hotSpotY;
+
+    SoftwareCursor(SoftwareRenderer renderer, Image image, int hotSpotX, int hotSpotY) {
+        this.renderer = renderer;
+        this.image = image;
+        this.hotSpotX = hotSpotX;
+        this.hotSpotY = hotSpotY;
+    }
+
+    int getLeft(int mouseX) {
+        return mouseX - hotSpotX;
+    }
+
+    int getTop(int mouseY) {
+        return mouseY - hotSpotY;
+    }
+
+    int getWidth() {
+        return image.getWidth();
+    }
+
+    int getHeight() {
+        return image.getHeight();
+    }
+
+    void render(int x, int y) {
+        image.draw(renderer.cursorAnimState, x-hotSpotX, y-hotSpotY);
+    }
+}
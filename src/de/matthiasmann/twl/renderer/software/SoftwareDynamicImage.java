@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.DynamicImage;
+import de.matthiasmann.twl.renderer.Image;
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * @author Matthias Mann
+ */
+public class SoftwareDynamicImage implements DynamicImage {
+
+    private final SoftwareRenderer renderer;
+    private final int width;
+    private final int height;
+    private final Color tintColor;
+    private final SoftwareDynamicImage src;
+    private int[] pixels;
+
+    SoftwareDynamicImage(SoftwareRenderer renderer, int width, int height, Color tintColor) {
+        this.renderer = renderer;
+        this.width = width;
+        this.height = height;
+        this.tintColor = tintColor;
+        this.src = this;
+        this.pixels = new int[width * height];
+    }
+
+    private SoftwareDynamicImage(SoftwareDynamicImage src, Color tintColor) {
+        this.renderer = src.renderer;
+        this.width = src.width;
+        this.height = src.height;
+        this.tintColor = tintColor;
+        this.src = src;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void destroy() {
+        src.pixels = null;
+    }
+
+    public void update(ByteBuffer data, Format format) {
+        update(0, 0, width, height, data, width*4, format);
+    }
+
+    public void update(ByteBuffer data, int stride, Format format) {
+        update(0, 0, width, height, data, stride, format);
+    }
+
+    public void update(int xoffset, int yoffset, int width, int height, ByteBuffer data, Format format) {
+        update(xoffset, yoffset, width, height, data, width*4, format);
+    }
+
+    public void update(int xoffset, int yoffset, int width, int height, ByteBuffer data, int stride, Format format) {
+        if(xoffset < 0 || yoffset < 0 || getWidth() <= 0 || getHeight() <= 0) {
+            throw new IllegalArgumentException("Negative offsets or size <= 0");
+        }
+        if(xoffset >= getWidth() || yoffset >= getHeight()) {
+            throw new IllegalArgumentException("Offset outside of texture");
+        }
+        if(width > getWidth() - xoffset || height > getHeight() - yoffset) {
+            throw new IllegalArgumentException("Rectangle outside of texture");
+        }
+        if(data == null) {
+            throw new NullPointerException("data");
+        }
+        if(format == null) {
+            throw new NullPointerException("format");
+        }
+        if(stride < 0 || (stride & 3) != 0) {
+            throw new IllegalArgumentException("stride");
+        }
+        if(stride < width*4) {
+            throw new IllegalArgumentException("stride too short for width");
+        }
+        if(data.remaining() < stride*(height-1)+width*4) {
+            throw new IllegalArgumentException("Not enough data remaining in the buffer");
+        }
+        final int[] dst = src.pixels;
+        if(dst == null) {
+            return;
+        }
+        // pending draw commands must be rendered with the old content
+        renderer.flush();
+        final boolean rgba = format == Format.RGBA;
+        final int base = data.position();
+        for(int y=0 ; y<height ; y++) {
+            int pos = base + y*stride;
+            int idx = (yoffset + y)*this.width + xoffset;
+            for(int x=0 ; x<width ; x++,pos+=4) {
+                int c0 = data.get(pos  ) & 255;
+                int c1 = data.get(pos+1) & 255;
+                int c2 = data.get(pos+2) & 255;
+                int a  = data.get(pos+3) & 255;
+                if(rgba) {
+                    dst[idx++] = (a << 24) | (c0 << 16) | (c1 << 8) | c2;
+                } else {
+                    dst[idx++] = (a << 24) | (c2 << 16) | (c1 << 8) | c0;
+                }
+            }
+        }
+    }
+
+    public Image createTintedVersion(Color color) {
+        if(color == null) {
+            throw new NullPointerException("color");
+        }
+        Color newTintColor = tintColor.multiply(color);
+        if(newTintColor.equals(tintColor)) {
+            return this;
+        }
+        return new SoftwareDynamicImage(src, newTintColor);
+    }
+
+    public void draw(AnimationState as, int x, int y) {
+        draw(as, x, y, width, height);
+    }
+
+    public void draw(AnimationState as, int x, int y, int width, int height) {
+        if(width > 0 && height > 0) {
+            renderer.drawTexture(src.pixels, this.width, this.height, true,
+                    renderer.tintStack.getColor(tintColor), x, y, width, height,
+                    0, 0, this.width / (float)width, 0, 0, this.height / (float)height);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.HAlignment;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.AttributedString;
+import de.matthiasmann.twl.renderer.AttributedStringFontCache;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.Font2;
+import de.matthiasmann.twl.renderer.FontCache;
+import de.matthiasmann.twl.renderer.FontParameter;
+import de.matthiasmann.twl.utils.StateSelect;
+import de.matthiasmann.twl.utils.TextUtil;
+
+/**
+ *
+ * @author Matthias Mann
+ */
+public class SoftwareFont implements Font, Font2 {
+
+    static final int STYLE_UNDERLINE   = 1;
+    static final int STYLE_LINETHROUGH = 2;
+
+    private final SoftwareRenderer renderer;
+    private final BitmapFont font;
+    private final FontState[] fontStates;
+    private final StateSelect stateSelect;
+    private int[] multiLineInfo;
+
+    SoftwareFont(SoftwareRenderer renderer, BitmapFont font, StateSelect select, FontParameter ... parameterList) {
+        this.renderer = renderer;
+        this.font = font;
+        this.stateSelect = select;
+        this.fontStates = new FontState[parameterList.length];
+        
+        for(int i=0 ; i<parameterList.length ; i++) {
+            fontStates[i] = new FontState(parameterList[i]);
+        }
+    }
+
+    FontState evalFontState(AnimationState as) {
+        return fontStates[stateSelect.evaluate(as)];
+    }
+
+    private int[] getMultiLineInfo(int numLines) {
+        if(multiLineInfo == null || multiLineInfo.length < numLines) {
+            multiLineInfo = new int[numLines];
+        }
+        return multiLineInfo;
+    }
+
+    public void destroy() {
+        font.destroy();
+    }
+
+    public boolean isProportional() {
+        return font.isProportional();
+    }
+    
+    public int getSpaceWidth() {
+        return font.getSpaceWidth();
+    }
+
+    public int getLineHeight() {
+        return font.getLineHeight();
+    }
+
+    public int getBaseLine() {
+        return font.getBaseLine();
+    }
+
+    public int getEM() {
+        return font.getEM();
+    }
+
+    public int getEX() {
+        return font.getEX();
+    }
+    
+    public int drawText(AnimationState as, int x, int y, CharSequence str) {
+        return drawText(as, x, y, str, 0, str.length());
+    }
+
+    public int drawText(AnimationState as, int x, int y, CharSequence str, int start, int end) {
+        FontState fontState = evalFontState(as);
+        x += fontState.offsetX;
+        y += fontState.offsetY;
+        int color = renderer.tintStack.getColor(fontState.color);
+        int width = font.drawText(color, x, y, str, start, end);
+        drawLine(fontState, color, x, y, width);
+        return width;
+    }
+
+    public int drawMultiLineText(AnimationState as, int x, int y, CharSequence str, int width, HAlignment align) {
+        FontState fontState = evalFontState(as);
+        x += fontState.offsetX;
+        y += fontState.offsetY;
+        int color = renderer.tintStack.getColor(fontState.color);
+        int numLines = font.drawMultiLineText(color, x, y, str, width, align);
+        if(fontState.style != 0) {
+            int[] info = getMultiLineInfo(numLines);
+            font.computeMultiLineInfo(str, width, align, info);
+            drawLines(fontState, color, x, y, info, numLines);
+        }
+        return numLines * font.getLineHeight();
+    }
+
+    void drawLines(FontState fontState, int color, int x, int y, int[] info, int numLines) {
+        if((fontState.style & STYLE_UNDERLINE) != 0) {
+            font.drawMultiLineLines(color, x, y+font.getBaseLine()+fontState.underlineOffset, info, numLines);
+        }
+        if((fontState.style & STYLE_LINETHROUGH) != 0) {
+            font.drawMultiLineLines(color, x, y+font.getLineHeight()/2, info, numLines);
+        }
+    }
+
+    void drawLine(FontState fontState, int color, int x, int y, int width) {
+        if((fontState.style & STYLE_UNDERLINE) != 0) {
+            font.drawLine(color, x, y+font.getBaseLine()+fontState.underlineOffset, x + width);
+        }
+        if((fontState.style & STYLE_LINETHROUGH) != 0) {
+            font.drawLine(color, x, y+font.getLineHeight()/2, x + width);
+        }
+    }
+
+    public int computeVisibleGlpyhs(CharSequence str, int start, int end, int availWidth) {
+        return font.computeVisibleGlpyhs(str, start, end, availWidth);
+    }
+
+    public int computeTextWidth(CharSequence str) {
+        return font.computeTextWidth(str, 0, str.length());
+    }
+
+    public int computeTextWidth(CharSequence str, int start, int end) {
+        return font.computeTextWidth(str, start, end);
+    }
+
+    public int computeMultiLineTextWidth(CharSequence str) {
+        return font.computeMultiLineTextWidth(str);
+    }
+
+    public FontCache cacheText(FontCache prevCache, CharSequence str) {
+        return cacheText(prevCache, str, 0, str.length());
+    }
+
+    public FontCache cacheText(FontCache prevCache, CharSequence str, int start, int end) {
+        SoftwareFontCache cache = (SoftwareFontCache)prevCache;
+        if(cache == null) {
+            cache = new SoftwareFontCache(renderer, this);
+        }
+        int width = 0;
+        renderer.startRecording(cache.commands);
+        try {
+            width = font.drawText(0xFFFFFFFF, 0, 0, str, start, end);
+        } finally {
+            renderer.endRecording();
+            cache.setSize(width, font.getLineHeight(), 0);
+        }
+        return cache;
+    }
+
+    public FontCache cacheMultiLineText(FontCache prevCache, CharSequence str, int width, HAlignment align) {
+        SoftwareFontCache cache = (SoftwareFontCache)prevCache;
+        if(cache == null) {
+            cache = new SoftwareFontCache(renderer, this);
+        }
+        int numLines = 0;
+        renderer.startRecording(cache.commands);
+        try {
+            numLines = font.drawMultiLineText(0xFFFFFFFF, 0, 0, str, width, align);
+        } finally {
+            renderer.endRecording();
+            cache.setSize(width, numLines * font.getLineHeight(), numLines);
+        }
+        font.computeMultiLineInfo(str, width, align, cache.getMultiLineInfo(numLines));
+        return cache;
+    }
+
+    public int drawText(int x, int y, AttributedString attributedString) {
+        return drawText(x, y, attributedString, 0, attributedString.length(), false, null);
+    }
+    
+    public int drawText(int x, int y, AttributedString attributedString, int start, int end) {
+        return drawText(x, y, attributedString, start, end, false, null);
+    }
+
+    public void drawMultiLineText(int x, int y, AttributedString attributedString) {
+        drawText(x, y, attributedString, 0, attributedString.length(), true, null);
+    }
+    
+    public void drawMultiLineText(int x, int y, AttributedString attributedString, int start, int end) {
+        drawText(x, y, attributedString, start, end, true, null);
+    }
+
+    /**
+     * Draws an attributed string.
+     * 
+     * @param size if not null then it receives the width and height of the text
+     * @return the X advance of the last line
+     */
+    private int drawText(int x, int y, AttributedString attributedString, int start, int end, boolean multiLine, int[] size) {
+        int startX = x;
+        int startY = y;
+        int width = 0;
+        attributedString.setPosition(start);
+        BitmapFont.Glyph lastGlyph = null;
+        do{
+            FontState fontState = evalFontState(attributedString);
+            x += fontState.offsetX;
+            y += fontState.offsetY;
+            int runStart = x;
+            int color = renderer.tintStack.getColor(fontState.color);
+            int nextStop = Math.min(end, attributedString.advance());
+            if(multiLine) {
+                nextStop = TextUtil.indexOf(attributedString, '\n', start, nextStop);
+            }
+            while(start < nextStop) {
+                char ch = attributedString.charAt(start++);
+                BitmapFont.Glyph g = font.getGlyph(ch);
+                if(g != null) {
+                    if(lastGlyph != null) {
+                        x += lastGlyph.getKerning(ch);
+                    }
+                    lastGlyph = g;
+                    if(g.width > 0) {
+                        font.drawGlyph(g, color, x, y);
+                    }
+                    x += g.xadvance;
+                }
+            }
+            drawLine(fontState, color, runStart, y, x - runStart);
+            x -= fontState.offsetX;
+            y -= fontState.offsetY;
+            if(multiLine && start < end && attributedString.charAt(start) == '\n') {
+                attributedString.setPosition(++start);
+                width = Math.max(width, x - startX);
+                x = startX;
+                y += font.getLineHeight();
+                lastGlyph = null;
+            }
+        }while(start < end);
+        if(size != null) {
+            if(x > startX) {
+                width = Math.max(width, x - startX);
+                y += font.getLineHeight();
+            }
+            size[0] = width;
+            size[1] = y - startY;
+        }
+        return x - startX;
+    }
+
+    public AttributedStringFontCache cacheText(AttributedStringFontCache prevCache, AttributedString attributedString) {
+        return cacheText(prevCache, attributedString, 0, attributedString.length(), false);
+    }
+
+    public AttributedStringFontCache cacheText(AttributedStringFontCache prevCache, AttributedString attributedString, int start, int end) {
+        return cacheText(prevCache, attributedString, start, end, false);
+    }
+
+    public AttributedStringFontCache cacheMultiLineText(AttributedStringFontCache prevCache, AttributedString attributedString) {
+        return cacheText(prevCache, attributedString, 0, attributedString.length(), true);
+    }
+
+    public AttributedStringFontCache cacheMultiLineText(AttributedStringFontCache prevCache, AttributedString attributedString, int start, int end) {
+        return cacheText(prevCache, attributedString, start, end, true);
+    }
+    
+    private AttributedStringFontCache cacheText(AttributedStringFontCache prevCache, AttributedString attributedString, int start, int end, boolean multiLine) {
+        if(end <= start) {
+            return null;
+        }
+        SoftwareAttributedStringFontCache cache = (SoftwareAttributedStringFontCache)prevCache;
+        if(cache == null) {
+            cache = new SoftwareAttributedStringFontCache(renderer);
+        }
+        int[] size = new int[2];
+        renderer.startRecording(cache.commands);
+        try {
+            drawText(0, 0, attributedString, start, end, multiLine, size);
+        } finally {
+            renderer.endRecording();
+        }
+        cache.width = size[0];
+        cache.height = size[1];
+        return cache;
+    }
+    
+    static class FontState {
+        final Color color;
+        final int offsetX;
+        final int offsetY;
+        final int style;
+        final int underlineOffset;
+        
+        FontState(FontParameter fontParam) {
+            int lineStyle = 0;
+            if(fontParam.get(FontParameter.UNDERLINE)) {
+                lineStyle |= STYLE_UNDERLINE;
+            }
+            if(fontParam.get(FontParameter.LINETHROUGH)) {
+                lineStyle |= STYLE_LINETHROUGH;
+            }
+            
+            this.color = fontParam.get(FontParameter.COLOR);
+            this.offsetX = fontParam.get(SoftwareRenderer.FONTPARAM_OFFSET_X);
+            this.offsetY = fontParam.get(SoftwareRenderer.FONTPARAM_OFFSET_Y);
+            this.style = lineStyle;
+            this.underlineOffset = fontParam.get(SoftwareRenderer.FONTPARAM_UNDERLINE_OFFSET);
+        }  
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.FontCache;
+
+/**
+ * A font cache which stores the recorded glyph draw commands.
+ * 
+ * @author Matthias Mann
+ */
+public class SoftwareFontCache implements FontCache {
+
+    private final SoftwareRenderer renderer;
+    private final SoftwareFont font;
+    final CommandList commands;
+    private int width;
+    private int height;
+    private int[] multiLineInfo;
+    private int numLines;
+
+    SoftwareFontCache(SoftwareRenderer renderer, SoftwareFont font) {
+        this.renderer = renderer;
+        this.font = font;
+        this.commands = new CommandList();
+    }
+    
+    public void draw(AnimationState as, int x, int y) {
+        SoftwareFont.FontState fontState = font.evalFontState(as);
+        int color = renderer.tintStack.getColor(fontState.color);
+        x += fontState.offsetX;
+        y += fontState.offsetY;
+        renderer.replay(commands, x, y, color);
+        if(fontState.style != 0) {
+            if(numLines > 0) {
+                font.drawLines(fontState, color, x, y, multiLineInfo, numLines);
+            } else {
+                font.drawLine(fontState, color, x, y, width);
+            }
+        }
+    }
+
+    public void destroy() {
+        commands.clear();
+    }
+
+    void setSize(int width, int height, int numLines) {
+        this.width = width;
+        this.height = height;
+        this.numLines = numLines;
+    }
+
+    int[] getMultiLineInfo(int numLines) {
+        if(multiLineInfo == null || multiLineInfo.length < numLines) {
+            multiLineInfo = new int[numLines];
+        }
+        return multiLineInfo;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
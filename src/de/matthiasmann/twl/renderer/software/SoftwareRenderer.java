@@ -0,0 +1,819 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.Event;
+import de.matthiasmann.twl.Rect;
+import de.matthiasmann.twl.input.Input;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.AnimationState.StateKey;
+import de.matthiasmann.twl.renderer.CacheContext;
+import de.matthiasmann.twl.renderer.DynamicImage;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.FontMapper;
+import de.matthiasmann.twl.renderer.FontParameter;
+import de.matthiasmann.twl.renderer.Gradient;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.LineRenderer;
+import de.matthiasmann.twl.renderer.MouseCursor;
+import de.matthiasmann.twl.renderer.OffscreenRenderer;
+import de.matthiasmann.twl.renderer.Renderer;
+import de.matthiasmann.twl.renderer.SupportsClipRect;
+import de.matthiasmann.twl.renderer.SupportsPartialRepaint;
+import de.matthiasmann.twl.renderer.Texture;
+import de.matthiasmann.twl.utils.ClipStack;
+import de.matthiasmann.twl.utils.PNGDecoder;
+import de.matthiasmann.twl.utils.StateSelect;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+
+/**
+ * A renderer which rasterizes into an ARGB int array without OpenGL.
+ *
+ * <p>This allows to render the GUI on machines without a GL context, eg
+ * to create screenshots in tests or to measure the cost of the UI code
+ * without driver overhead.</p>
+ *
+ * <p>All drawing operations between {@link #startRendering() } and
+ * {@link #endRendering() } are recorded and executed at the end of the
+ * frame. The framebuffer is split into tiles which are rasterized in
+ * parallel.</p>
+ *
+ * <p>Blending matches the LWJGL renderer: {@code GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA}
+ * on all channels. Textures support the {@code nearest} and {@code linear} filter.</p>
+ *
+ * <p>This renderer does not provide input - use {@link de.matthiasmann.twl.GUI#handleMouse(int, int, int, boolean) }
+ * etc to inject events. Offscreen rendering is not supported.</p>
+ * 
+ * @author Matthias Mann
+ */
+public class SoftwareRenderer implements Renderer, LineRenderer, SupportsPartialRepaint, SupportsClipRect {
+
+    public static final StateKey STATE_LEFT_MOUSE_BUTTON = StateKey.get("leftMouseButton");
+    public static final StateKey STATE_MIDDLE_MOUSE_BUTTON = StateKey.get("middleMouseButton");
+    public static final StateKey STATE_RIGHT_MOUSE_BUTTON = StateKey.get("rightMouseButton");
+
+    public static final FontParameter.Parameter<Integer> FONTPARAM_OFFSET_X = FontParameter.newParameter("offsetX", 0);
+    public static final FontParameter.Parameter<Integer> FONTPARAM_OFFSET_Y = FontParameter.newParameter("offsetY", 0);
+    public static final FontParameter.Parameter<Integer> FONTPARAM_UNDERLINE_OFFSET = FontParameter.newParameter("underlineOffset", 0);  
+
+    private final Rasterizer rasterizer;
+    private final CommandList frameCommands;
+    private final TintStack tintStateRoot;
+    private final ClipStack clipStack;
+    private final Rect clipRectTemp;
+    private int[] framebuffer;
+    private int width;
+    private int height;
+    private int clearColor;
+    private int clipX0;
+    private int clipY0;
+    private int clipX1;
+    private int clipY1;
+    private CommandList commands;
+    private CommandList recordingSavedCommands;
+    private SoftwareCacheContext cacheContext;
+    private FontMapper fontMapper;
+    private SoftwareCursor cursor;
+    private int mouseX;
+    private int mouseY;
+    private int numDrawCommands;
+    private long rasterizeTime;
+    private boolean preserveContent;
+    private boolean contentValid;
+    private int[] cursorBackground;
+    private int cursorBackgroundX;
+    private int cursorBackgroundY;
+    private int cursorBackgroundWidth;
+    private int cursorBackgroundHeight;
+
+    final CursorAnimState cursorAnimState;
+    TintStack tintStack;
+
+    /**
+     * Creates a software renderer which uses one rasterizer thread per CPU.
+     * 
+     * @param width the width of the framebuffer
+     * @param height the height of the framebuffer
+     */
+    public SoftwareRenderer(int width, int height) {
+        this(width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a software renderer.
+     * 
+     * @param width the width of the framebuffer
+     * @param height the height of the framebuffer
+     * @param numThreads the number of threads used for rasterizing, including the rendering thread
+     */
+    public SoftwareRenderer(int width, int height, int numThreads) {
+        this.rasterizer = new Rasterizer(numThreads);
+        this.frameCommands = new CommandList();
+        this.commands = frameCommands;
+        this.tintStateRoot = new TintStack();
+        this.tintStack = tintStateRoot;
+        this.clipStack = new ClipStack();
+        this.clipRectTemp = new Rect();
+        this.clearColor = 0xFF000000;
+        this.cursorAnimState = new CursorAnimState();
+        setSize(width, height);
+    }
+
+    /**
+     * Changes the size of the framebuffer. The content is lost.
+     * 
+     * @param width the new width
+     * @param height the new height
+     */
+    public void setSize(int width, int height) {
+        if(width < 0 || height < 0) {
+            throw new IllegalArgumentException("negative size");
+        }
+        this.width = width;
+        this.height = height;
+        this.framebuffer = new int[width * height];
+        this.contentValid = false;
+        setClipRect();
+    }
+
+    /**
+     * Returns the framebuffer. The pixels are stored in ARGB format row by
+     * row. The array is replaced when the size changes.
+     * 
+     * @return the framebuffer
+     */
+    public int[] getFramebuffer() {
+        return framebuffer;
+    }
+
+    public int getClearColor() {
+        return clearColor;
+    }
+
+    /**
+     * Sets the color which is used to clear the framebuffer in {@link #startRendering() }
+     * @param clearColor the color in ARGB format
+     */
+    public void setClearColor(int clearColor) {
+        this.clearColor = clearColor;
+    }
+
+    public int getNumThreads() {
+        return rasterizer.getNumThreads();
+    }
+
+    /**
+     * Returns the number of draw commands executed in the last frame.
+     * @return the number of draw commands
+     */
+    public int getNumDrawCommands() {
+        return numDrawCommands;
+    }
+
+    /**
+     * Returns the time spent in rasterizing the last frame.
+     * @return the time in nano seconds
+     */
+    public long getRasterizeTime() {
+        return rasterizeTime;
+    }
+
+    /**
+     * Creates a copy of the framebuffer.
+     * @return a new image of type {@link BufferedImage#TYPE_INT_ARGB}
+     */
+    public BufferedImage createImage() {
+        BufferedImage img = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, width, height, framebuffer, 0, width);
+        return img;
+    }
+
+    /**
+     * Writes the framebuffer as PNG file.
+     * @param os the output stream
+     * @throws IOException if an IO error occurred
+     */
+    public void writePNG(OutputStream os) throws IOException {
+        if(!ImageIO.write(createImage(), "png", os)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /**
+     * Stops the rasterizer threads and destroys the active cache context.
+     */
+    public void destroy() {
+        rasterizer.destroy();
+        if(cacheContext != null) {
+            cacheContext.destroy();
+            cacheContext = null;
+        }
+    }
+
+    public long getTimeMillis() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * The software renderer has no input source.
+     * @return null
+     */
+    public Input getInput() {
+        return null;
+    }
+
+    public boolean startRendering() {
+        if(!beginFrame()) {
+            return false;
+        }
+        cursorBackgroundWidth = 0;
+        Arrays.fill(framebuffer, clearColor);
+        return true;
+    }
+
+    public void endRendering() {
+        if(cursor != null) {
+            tintStack = tintStateRoot;
+            clipStack.clearStack();
+            setClipRect();
+            if(preserveContent) {
+                flush();
+                saveCursorBackground();
+            }
+            cursor.render(mouseX, mouseY);
+        }
+        flush();
+        contentValid = true;
+    }
+
+    public void setPreserveContent(boolean preserveContent) {
+        this.preserveContent = preserveContent;
+    }
+
+    public boolean isContentPreserved() {
+        return preserveContent && contentValid;
+    }
+
+    /**
+     * Starts rendering without clearing the framebuffer. The software
+     * cursor of the previous frame is removed.
+     * 
+     * @return true if rendering was started
+     * @throws IllegalStateException if the content is not preserved
+     */
+    public boolean startPartialRendering() {
+        if(!isContentPreserved()) {
+            throw new IllegalStateException("content not preserved");
+        }
+        restoreCursorBackground();
+        return beginFrame();
+    }
+
+    public void clearRect(int x, int y, int width, int height) {
+        DrawCommand cmd = commands.next();
+        cmd.type = DrawCommand.CLEAR;
+        cmd.color = clearColor;
+        cmd.color2 = 0;
+        cmd.pixels = null;
+        setBounds(cmd, x, y, x + width, y + height);
+    }
+
+    /**
+     * Executes all pending draw commands.
+     */
+    public void flush() {
+        if(commands == frameCommands) {
+            long startTime = System.nanoTime();
+            numDrawCommands += frameCommands.size();
+            rasterizer.rasterize(frameCommands, framebuffer, width, height);
+            frameCommands.clear();
+            rasterizeTime += System.nanoTime() - startTime;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public CacheContext createNewCacheContext() {
+        return new SoftwareCacheContext(this);
+    }
+
+    private SoftwareCacheContext activeCacheContext() {
+        if(cacheContext == null) {
+            setActiveCacheContext(createNewCacheContext());
+        }
+        return cacheContext;
+    }
+
+    public CacheContext getActiveCacheContext() {
+        return activeCacheContext();
+    }
+
+    public void setActiveCacheContext(CacheContext cc) throws IllegalStateException {
+        if(cc == null) {
+            throw new NullPointerException();
+        }
+        if(!cc.isValid()) {
+            throw new IllegalStateException("CacheContext is invalid");
+        }
+        if(!(cc instanceof SoftwareCacheContext)) {
+            throw new IllegalArgumentException("CacheContext object not from this renderer");
+        }
+        SoftwareCacheContext swCC = (SoftwareCacheContext)cc;
+        if(swCC.renderer != this) {
+            throw new IllegalArgumentException("CacheContext object not from this renderer");
+        }
+        this.cacheContext = swCC;
+    }
+
+    public Font loadFont(URL url, StateSelect select, FontParameter ... parameterList) throws IOException {
+        if(url == null) {
+            throw new NullPointerException("url");
+        }
+        if(select == null) {
+            throw new NullPointerException("select");
+        }
+        if(parameterList == null) {
+            throw new NullPointerException("parameterList");
+        }
+        if(select.getNumExpressions() + 1 != parameterList.length) {
+            throw new IllegalArgumentException("select.getNumExpressions() + 1 != parameterList.length");
+        }
+        BitmapFont bmFont = activeCacheContext().loadBitmapFont(url);
+        return new SoftwareFont(this, bmFont, select, parameterList);
+    }
+
+    public Texture loadTexture(URL url, String formatStr, String filterStr) throws IOException {
+        PNGDecoder.Format format = PNGDecoder.Format.RGBA;
+        boolean linear = true;
+        if(formatStr != null) {
+            String fmt = formatStr.toUpperCase(Locale.ENGLISH);
+            if("ALPHA".equals(fmt)) {
+                format = PNGDecoder.Format.ALPHA;
+            } else if("LUMINANCE".equals(fmt)) {
+                format = PNGDecoder.Format.LUMINANCE;
+            } else if("LUMINANCE_ALPHA".equals(fmt)) {
+                format = PNGDecoder.Format.LUMINANCE_ALPHA;
+            }
+        }
+        if(filterStr != null) {
+            String filter = filterStr.toUpperCase(Locale.ENGLISH);
+            if("NEAREST".equals(filter)) {
+                linear = false;
+            } else if(!"LINEAR".equals(filter)) {
+                getLogger().log(Level.WARNING, "Unknown texture filter: {0}", filterStr);
+            }
+        }
+        if(url == null) {
+            throw new NullPointerException("url");
+        }
+        return activeCacheContext().loadTexture(url, format, linear);
+    }
+
+    public LineRenderer getLineRenderer() {
+        return this;
+    }
+
+    /**
+     * Offscreen rendering is not supported
+     * @return null
+     */
+    public OffscreenRenderer getOffscreenRenderer() {
+        return null;
+    }
+
+    public FontMapper getFontMapper() {
+        return fontMapper;
+    }
+
+    /**
+     * Installs a font mapper.
+     * @param fontMapper the font mapper object - can be null.
+     */
+    public void setFontMapper(FontMapper fontMapper) {
+        this.fontMapper = fontMapper;
+    }
+
+    public DynamicImage createDynamicImage(int width, int height) {
+        if(width <= 0) {
+            throw new IllegalArgumentException("width");
+        }
+        if(height <= 0) {
+            throw new IllegalArgumentException("height");
+        }
+        return new SoftwareDynamicImage(this, width, height, Color.WHITE);
+    }
+
+    public Image createGradient(Gradient gradient) {
+        return new GradientImage(this, gradient);
+    }
+
+    public void clipEnter(int x, int y, int w, int h) {
+        clipStack.push(x, y, w, h);
+        setClipRect();
+    }
+
+    public void clipEnter(Rect rect) {
+        clipStack.push(rect);
+        setClipRect();
+    }
+
+    public void clipLeave() {
+        clipStack.pop();
+        setClipRect();
+    }
+
+    public boolean clipIsEmpty() {
+        return clipStack.isClipEmpty();
+    }
+
+    public boolean getClipRect(Rect rect) {
+        return clipStack.getClipRect(rect);
+    }
+
+    public void setCursor(MouseCursor cursor) {
+        if(cursor instanceof SoftwareCursor) {
+            this.cursor = (SoftwareCursor)cursor;
+        } else {
+            this.cursor = null;
+        }
+    }
+
+    public void setMousePosition(int mouseX, int mouseY) {
+        this.mouseX = mouseX;
+        this.mouseY = mouseY;
+    }
+
+    public void setMouseButton(int button, boolean state) {
+        cursorAnimState.setAnimationState(button, state);
+    }
+
+    public void pushGlobalTintColor(float r, float g, float b, float a) {
+        tintStack = tintStack.push(r, g, b, a);
+    }
+
+    public void popGlobalTintColor() {
+        tintStack = tintStack.pop();
+    }
+
+    /**
+     * Pushes a white entry on the tint stack which ignores the previous
+     * tint color. It must be removed by calling {@link #popGlobalTintColor()}.
+     */
+    public void pushGlobalTintColorReset() {
+        tintStack = tintStack.pushReset();
+    }
+
+    public void drawLine(float[] pts, int numPts, float width, Color color, boolean drawAsLoop) {
+        if(numPts*2 > pts.length) {
+            throw new ArrayIndexOutOfBoundsException(numPts*2);
+        }
+        if(numPts >= 2) {
+            int c = tintStack.getColor(color);
+            float hw = Math.max(0.5f, width * 0.5f);
+            for(int i=1 ; i<numPts ; i++) {
+                drawLineSegment(pts[i*2-2], pts[i*2-1], pts[i*2], pts[i*2+1], hw, c);
+            }
+            if(drawAsLoop) {
+                int idx = numPts*2 - 2;
+                drawLineSegment(pts[idx], pts[idx+1], pts[0], pts[1], hw, c);
+            }
+        }
+    }
+
+    /**
+     * Fills a rectangle.
+     * 
+     * @param color the color in ARGB format - not tinted
+     * @param x the left edge
+     * @param y the top edge
+     * @param w the width
+     * @param h the height
+     */
+    void fillRect(int color, int x, int y, int w, int h) {
+        DrawCommand cmd = commands.next();
+        cmd.type = DrawCommand.FILL;
+        cmd.color = color;
+        cmd.color2 = 0;
+        cmd.pixels = null;
+        setBounds(cmd, x, y, x + w, y + h);
+    }
+
+    /**
+     * Draws a textured rectangle. The texture coordinates are specified in
+     * texels with an affine mapping from the top left corner of the rectangle.
+     * 
+     * @param tex the texture
+     * @param color the color in ARGB format which is multiplied with the texel - not tinted
+     * @param x the left edge
+     * @param y the top edge
+     * @param w the width
+     * @param h the height
+     * @param u the texel X coordinate at (x,y)
+     * @param v the texel Y coordinate at (x,y)
+     * @param dudx the change of u per pixel in X direction
+     * @param dudy the change of u per pixel in Y direction
+     * @param dvdx the change of v per pixel in X direction
+     * @param dvdy the change of v per pixel in Y direction
+     */
+    void drawTexture(SoftwareTexture tex, int color, int x, int y, int w, int h,
+            float u, float v, float dudx, float dudy, float dvdx, float dvdy) {
+        drawTexture(tex.pixels, tex.getWidth(), tex.getHeight(), tex.linear,
+                color, x, y, w, h, u, v, dudx, dudy, dvdx, dvdy);
+    }
+
+    void drawTexture(int[] pixels, int texWidth, int texHeight, boolean linear,
+            int color, int x, int y, int w, int h,
+            float u, float v, float dudx, float dudy, float dvdx, float dvdy) {
+        if(pixels == null) {
+            return;
+        }
+        DrawCommand cmd = commands.next();
+        cmd.type = DrawCommand.TEXTURE;
+        cmd.color = color;
+        cmd.color2 = 0;
+        cmd.pixels = pixels;
+        cmd.texWidth = texWidth;
+        cmd.texHeight = texHeight;
+        cmd.linear = linear;
+        cmd.u = u;
+        cmd.v = v;
+        cmd.dudx = dudx;
+        cmd.dudy = dudy;
+        cmd.dvdx = dvdx;
+        cmd.dvdy = dvdy;
+        setBounds(cmd, x, y, x + w, y + h);
+    }
+
+    /**
+     * Draws a linear gradient between two positions inside a rectangle.
+     * Only the pixels between the start and end position are drawn.
+     * 
+     * @param horizontal true if the positions are along the X axis
+     * @param x the left edge
+     * @param y the top edge
+     * @param w the width
+     * @param h the height
+     * @param start the start position relative to the rectangle
+     * @param end the end position relative to the rectangle
+     * @param color0 the color at the start position - not tinted
+     * @param color1 the color at the end position - not tinted
+     */
+    void drawGradient(boolean horizontal, int x, int y, int w, int h, float start, float end, int color0, int color1) {
+        if(!(end > start)) {
+            return;
+        }
+        DrawCommand cmd = commands.next();
+        int gx0 = x;
+        int gy0 = y;
+        int gx1 = x + w;
+        int gy1 = y + h;
+        if(horizontal) {
+            gx0 = x + (int)Math.ceil(start - 0.5f);
+            gx1 = x + (int)Math.ceil(end - 0.5f);
+        } else {
+            gy0 = y + (int)Math.ceil(start - 0.5f);
+            gy1 = y + (int)Math.ceil(end - 0.5f);
+        }
+        cmd.type = DrawCommand.GRADIENT;
+        cmd.horizontal = horizontal;
+        cmd.color = color0;
+        cmd.color2 = color1;
+        cmd.pixels = null;
+        cmd.u = start - (horizontal ? (gx0 - x) : (gy0 - y));
+        cmd.v = end - (horizontal ? (gx0 - x) : (gy0 - y));
+        setBounds(cmd, gx0, gy0, gx1, gy1);
+    }
+
+    void drawLineSegment(float x0, float y0, float x1, float y1, float halfWidth, int color) {
+        DrawCommand cmd = commands.next();
+        int gx0 = (int)Math.floor(Math.min(x0, x1) - halfWidth);
+        int gy0 = (int)Math.floor(Math.min(y0, y1) - halfWidth);
+        int gx1 = (int)Math.ceil(Math.max(x0, x1) + halfWidth);
+        int gy1 = (int)Math.ceil(Math.max(y0, y1) + halfWidth);
+        cmd.type = DrawCommand.LINE;
+        cmd.color = color;
+        cmd.color2 = 0;
+        cmd.pixels = null;
+        cmd.u = x0 - gx0;
+        cmd.v = y0 - gy0;
+        cmd.dudx = x1 - gx0;
+        cmd.dvdx = y1 - gy0;
+        cmd.dudy = halfWidth;
+        setBounds(cmd, gx0, gy0, gx1, gy1);
+    }
+
+    /**
+     * Starts recording all draw operations into the specified list instead
+     * of the framebuffer. Clipping and tinting is disabled while recording.
+     * 
+     * @param list the target list
+     * @see #replay(de.matthiasmann.twl.renderer.software.CommandList, int, int, int) 
+     */
+    void startRecording(CommandList list) {
+        if(commands != frameCommands) {
+            throw new IllegalStateException("already recording");
+        }
+        list.clear();
+        commands = list;
+        tintStack = tintStack.pushReset();
+        setClipRect();
+    }
+
+    void endRecording() {
+        if(commands == frameCommands) {
+            throw new IllegalStateException("not recording");
+        }
+        commands = frameCommands;
+        tintStack = tintStack.pop();
+        setClipRect();
+    }
+
+    /**
+     * Replays recorded commands with the current clip region.
+     * 
+     * @param list the recorded commands
+     * @param dx the X offset
+     * @param dy the Y offset
+     * @param color the color in ARGB format which is multiplied with the recorded colors
+     */
+    void replay(CommandList list, int dx, int dy, int color) {
+        for(int i=0,n=list.size() ; i<n ; i++) {
+            DrawCommand cmd = commands.next();
+            cmd.set(list.get(i));
+            cmd.translate(dx, dy);
+            cmd.modulate(color);
+            if(cmd.clip(clipX0, clipY0, clipX1, clipY1)) {
+                commands.commit();
+            }
+        }
+    }
+
+    private boolean beginFrame() {
+        if(width <= 0 || height <= 0) {
+            return false;
+        }
+        contentValid = false;
+        commands.clear();
+        numDrawCommands = 0;
+        rasterizeTime = 0;
+        tintStack = tintStateRoot;
+        clipStack.clearStack();
+        setClipRect();
+        return true;
+    }
+
+    private void saveCursorBackground() {
+        int x0 = Math.max(0, cursor.getLeft(mouseX));
+        int y0 = Math.max(0, cursor.getTop(mouseY));
+        int x1 = Math.min(width, cursor.getLeft(mouseX) + cursor.getWidth());
+        int y1 = Math.min(height, cursor.getTop(mouseY) + cursor.getHeight());
+        cursorBackgroundWidth = Math.max(0, x1 - x0);
+        cursorBackgroundHeight = Math.max(0, y1 - y0);
+        cursorBackgroundX = x0;
+        cursorBackgroundY = y0;
+        int size = cursorBackgroundWidth * cursorBackgroundHeight;
+        if(cursorBackground == null || cursorBackground.length < size) {
+            cursorBackground = new int[size];
+        }
+        for(int y=0 ; y<cursorBackgroundHeight ; y++) {
+            System.arraycopy(framebuffer, (y0+y)*width + x0,
+                    cursorBackground, y*cursorBackgroundWidth, cursorBackgroundWidth);
+        }
+    }
+
+    private void restoreCursorBackground() {
+        for(int y=0 ; y<cursorBackgroundHeight && cursorBackgroundWidth > 0 ; y++) {
+            System.arraycopy(cursorBackground, y*cursorBackgroundWidth, framebuffer,
+                    (cursorBackgroundY+y)*width + cursorBackgroundX, cursorBackgroundWidth);
+        }
+        cursorBackgroundWidth = 0;
+    }
+
+    private void setBounds(DrawCommand cmd, int x0, int y0, int x1, int y1) {
+        cmd.gx0 = x0;
+        cmd.gy0 = y0;
+        cmd.gx1 = x1;
+        cmd.gy1 = y1;
+        if(cmd.clip(clipX0, clipY0, clipX1, clipY1)) {
+            commands.commit();
+        }
+    }
+
+    private void setClipRect() {
+        if(commands != frameCommands) {
+            clipX0 = Integer.MIN_VALUE;
+            clipY0 = Integer.MIN_VALUE;
+            clipX1 = Integer.MAX_VALUE;
+            clipY1 = Integer.MAX_VALUE;
+        } else {
+            clipX0 = 0;
+            clipY0 = 0;
+            clipX1 = width;
+            clipY1 = height;
+            final Rect rect = clipRectTemp;
+            if(clipStack.getClipRect(rect)) {
+                clipX0 = Math.max(clipX0, rect.getX());
+                clipY0 = Math.max(clipY0, rect.getY());
+                clipX1 = Math.min(clipX1, rect.getRight());
+                clipY1 = Math.min(clipY1, rect.getBottom());
+            }
+        }
+    }
+
+    Logger getLogger() {
+        return Logger.getLogger(SoftwareRenderer.class.getName());
+    }
+
+    final class CursorAnimState implements AnimationState {
+        private final long[] lastTime;
+        private final boolean[] active;
+
+        CursorAnimState() {
+            lastTime = new long[3];
+            active = new boolean[3];
+        }
+
+        void setAnimationState(int idx, boolean isActive) {
+            if(idx >= 0 && idx < 3 && active[idx] != isActive) {
+                lastTime[idx] = getTimeMillis();
+                active[idx] = isActive;
+            }
+        }
+
+        public int getAnimationTime(StateKey state) {
+            long curTime = getTimeMillis();
+            int idx = getMouseButton(state);
+            if(idx >= 0) {
+                curTime -= lastTime[idx];
+            }
+            return (int)curTime & Integer.MAX_VALUE;
+        }
+
+        public boolean getAnimationState(StateKey state) {
+            int idx = getMouseButton(state);
+            if(idx >= 0) {
+                return active[idx];
+            }
+            return false;
+        }
+
+        public boolean getShouldAnimateState(StateKey state) {
+            return true;
+        }
+
+        private int getMouseButton(StateKey key) {
+            if(key == STATE_LEFT_MOUSE_BUTTON) {
+                return Event.MOUSE_LBUTTON;
+            }
+            if(key == STATE_MIDDLE_MOUSE_BUTTON) {
+                return Event.MOUSE_MBUTTON;
+            }
+            if(key == STATE_RIGHT_MOUSE_BUTTON) {
+                return Event.MOUSE_RBUTTON;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.MouseCursor;
+import de.matthiasmann.twl.renderer.QueriablePixels;
+import de.matthiasmann.twl.renderer.Texture;
+import de.matthiasmann.twl.utils.PNGDecoder;
+import java.nio.ByteBuffer;
+
+/**
+ * A texture stored as ARGB int array.
+ * 
+ * @author Matthias Mann
+ */
+public class SoftwareTexture implements Texture, QueriablePixels {
+
+    final SoftwareRenderer renderer;
+    final boolean linear;
+    private final int width;
+    private final int height;
+    int[] pixels;
+
+    /**
+     * Creates a new texture.
+     * 
+     * @param renderer the renderer
+     * @param width the width
+     * @param height the height
+     * @param pixels the pixels in ARGB format
+     * @param linear true for bilinear filtering, false for nearest
+     */
+    public SoftwareTexture(SoftwareRenderer renderer, int width, int height, int[] pixels, boolean linear) {
+        if(pixels.length < width * height) {
+            throw new IllegalArgumentException("pixels too short");
+        }
+        this.renderer = renderer;
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.linear = linear;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isLinear() {
+        return linear;
+    }
+
+    public int getPixelValue(int x, int y) {
+        if(x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException();
+        }
+        return pixels[y*width + x];
+    }
+
+    public void destroy() {
+        // draw commands which are still pending keep their own reference
+        pixels = null;
+    }
+
+    public Image getImage(int x, int y, int width, int height, Color tintColor, boolean tiled, Rotation rotation) {
+        if(x < 0 || x >= getWidth()) {
+            throw new IllegalArgumentException("x");
+        }
+        if(y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("y");
+        }
+        if(x + Math.abs(width) > getWidth()) {
+            throw new IllegalArgumentException("width");
+        }
+        if(y + Math.abs(height) > getHeight()) {
+            throw new IllegalArgumentException("height");
+        }
+        return new TextureArea(this, x, y, width, height, tintColor, tiled, rotation);
+    }
+
+    public MouseCursor createCursor(int x, int y, int width, int height, int hotSpotX, int hotSpotY, Image imageRef) {
+        if(imageRef == null) {
+            imageRef = new TextureArea(this, x, y, width, height, null, false, Rotation.NONE);
+        }
+        return new SoftwareCursor(renderer, imageRef, hotSpotX, hotSpotY);
+    }
+
+    public void themeLoadingDone() {
+    }
+
+    /**
+     * Converts decoded PNG data into ARGB pixels.
+     * 
+     * @param buf the decoded image data
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param fmt the format of the decoded data
+     * @return the pixels in ARGB format
+     */
+    static int[] convert(ByteBuffer buf, int width, int height, PNGDecoder.Format fmt) {
+        int[] result = new int[width * height];
+        int pos = buf.position();
+        for(int i=0,n=width*height ; i<n ; i++) {
+            int r, g, b, a;
+            switch(fmt) {
+                case ALPHA:
+                    r = g = b = 255;
+                    a = buf.get(pos++) & 255;
+                    break;
+                case LUMINANCE:
+                    r = g = b = buf.get(pos++) & 255;
+                    a = 255;
+                    break;
+                case LUMINANCE_ALPHA:
+                    r = g = b = buf.get(pos++) & 255;
+                    a = buf.get(pos++) & 255;
+                    break;
+                case RGB:
+                    r = buf.get(pos++) & 255;
+                    g = buf.get(pos++) & 255;
+                    b = buf.get(pos++) & 255;
+                    a = 255;
+                    break;
+                case RGBA:
+                    r = buf.get(pos++) & 255;
+                    g = buf.get(pos++) & 255;
+                    b = buf.get(pos++) & 255;
+                    a = buf.get(pos++) & 255;
+                    break;
+                case BGRA:
+                    b = buf.get(pos++) & 255;
+                    g = buf.get(pos++) & 255;
+                    r = buf.get(pos++) & 255;
+                    a = buf.get(pos++) & 255;
+                    break;
+                case ABGR:
+                    a = buf.get(pos++) & 255;
+                    b = buf.get(pos++) & 255;
+                    g = buf.get(pos++) & 255;
+                    r = buf.get(pos++) & 255;
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unsupported format: " + fmt);
+            }
+            result[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+        return result;
+    }
+}
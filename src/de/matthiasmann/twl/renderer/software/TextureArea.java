@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.QueriablePixels;
+import de.matthiasmann.twl.renderer.SupportsDrawRepeat;
+import de.matthiasmann.twl.renderer.Texture;
+
+/**
+ * A area inside a software texture used as UI image. Supports flipping,
+ * rotation and tiling.
+ * 
+ * @author Matthias Mann
+ */
+public class TextureArea implements Image, SupportsDrawRepeat, QueriablePixels {
+
+    protected final SoftwareTexture texture;
+    protected final Color tintColor;
+    private final float uTL;
+    private final float vTL;
+    private final float uTR;
+    private final float vTR;
+    private final float uBL;
+    private final float vBL;
+    private final int width;
+    private final int height;
+    private final boolean tiled;
+
+    public TextureArea(SoftwareTexture texture, int x, int y, int width, int height,
+            Color tintColor, boolean tiled, Texture.Rotation rotation) {
+        // negative size allows for flipping
+        if(rotation == Texture.Rotation.CLOCKWISE_90 || rotation == Texture.Rotation.CLOCKWISE_270) {
+            this.width = Math.abs(height);
+            this.height = Math.abs(width);
+        } else {
+            this.width = Math.abs(width);
+            this.height = Math.abs(height);
+        }
+
+        float fx = x;
+        float fy = y;
+        if(width == 1 || width == -1) {
+            fx += 0.5f;
+            width = 0;
+        } else if(width < 0) {
+            fx -= width;
+        }
+        if(height == 1 || height == -1) {
+            fy += 0.5f;
+            height = 0;
+        } else if(height < 0) {
+            fy -= height;
+        }
+
+        float u0 = fx;
+        float v0 = fy;
+        float u1 = fx + width;
+        float v1 = fy + height;
+
+        switch(rotation) {
+            default:
+                uTL = u0; vTL = v0;
+                uTR = u1; vTR = v0;
+                uBL = u0; vBL = v1;
+                break;
+            case CLOCKWISE_90:
+                uTL = u0; vTL = v1;
+                uTR = u0; vTR = v0;
+                uBL = u1; vBL = v1;
+                break;
+            case CLOCKWISE_180:
+                uTL = u1; vTL = v1;
+                uTR = u0; vTR = v1;
+                uBL = u1; vBL = v0;
+                break;
+            case CLOCKWISE_270:
+                uTL = u1; vTL = v0;
+                uTR = u1; vTR = v1;
+                uBL = u0; vBL = v0;
+                break;
+        }
+        this.texture = texture;
+        this.tintColor = (tintColor == null) ? Color.WHITE : tintColor;
+        this.tiled = tiled;
+    }
+
+    TextureArea(TextureArea src, Color tintColor) {
+        this.texture = src.texture;
+        this.uTL = src.uTL;
+        this.vTL = src.vTL;
+        this.uTR = src.uTR;
+        this.vTR = src.vTR;
+        this.uBL = src.uBL;
+        this.vBL = src.vBL;
+        this.width = src.width;
+        this.height = src.height;
+        this.tiled = src.tiled;
+        this.tintColor = tintColor;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPixelValue(int x, int y) {
+        if(x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException();
+        }
+        float fx = (x + 0.5f) / width;
+        float fy = (y + 0.5f) / height;
+        int u = (int)(uTL + (uTR - uTL)*fx + (uBL - uTL)*fy);
+        int v = (int)(vTL + (vTR - vTL)*fx + (vBL - vTL)*fy);
+        u = Math.max(0, Math.min(texture.getWidth()-1, u));
+        v = Math.max(0, Math.min(texture.getHeight()-1, v));
+        return texture.getPixelValue(u, v);
+    }
+
+    public void draw(AnimationState as, int x, int y) {
+        draw(as, x, y, width, height);
+    }
+
+    public void draw(AnimationState as, int x, int y, int w, int h) {
+        if(texture.pixels != null) {
+            int color = texture.renderer.tintStack.getColor(tintColor);
+            if(tiled) {
+                drawTiled(color, x, y, w, h);
+            } else {
+                drawQuad(color, x, y, w, h, uTL, vTL, uTR, vTR, uBL, vBL);
+            }
+        }
+    }
+
+    public void draw(AnimationState as, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+        if(texture.pixels != null) {
+            int color = texture.renderer.tintStack.getColor(tintColor);
+            if((repeatCountX * this.width != width) || (repeatCountY * this.height != height)) {
+                drawRepeatSlow(color, x, y, width, height, repeatCountX, repeatCountY);
+            } else {
+                drawRepeat(color, x, y, repeatCountX, repeatCountY);
+            }
+        }
+    }
+
+    public Image createTintedVersion(Color color) {
+        if(color == null) {
+            throw new NullPointerException("color");
+        }
+        Color newTintColor = tintColor.multiply(color);
+        if(newTintColor.equals(tintColor)) {
+            return this;
+        }
+        return new TextureArea(this, newTintColor);
+    }
+
+    private void drawRepeatSlow(int color, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+        while(repeatCountY > 0) {
+            int rowHeight = height / repeatCountY;
+
+            int cx = 0;
+            for(int xi=0 ; xi<repeatCountX ;) {
+                int nx = ++xi * width / repeatCountX;
+                drawQuad(color, x+cx, y, nx-cx, rowHeight, uTL, vTL, uTR, vTR, uBL, vBL);
+                cx = nx;
+            }
+
+            y += rowHeight;
+            height -= rowHeight;
+            repeatCountY--;
+        }
+    }
+
+    private void drawRepeat(int color, int x, int y, int repeatCountX, int repeatCountY) {
+        final int w = width;
+        final int h = height;
+        while(repeatCountY-- > 0) {
+            int curX = x;
+            int cntX = repeatCountX;
+            while(cntX-- > 0) {
+                drawQuad(color, curX, y, w, h, uTL, vTL, uTR, vTR, uBL, vBL);
+                curX += w;
+            }
+            y += h;
+        }
+    }
+
+    private void drawTiled(int color, int x, int y, int w, int h) {
+        int repeatCountX = w / this.width;
+        int repeatCountY = h / this.height;
+
+        drawRepeat(color, x, y, repeatCountX, repeatCountY);
+
+        int drawnX = repeatCountX * this.width;
+        int drawnY = repeatCountY * this.height;
+        int restWidth = w - drawnX;
+        int restHeight = h - drawnY;
+        if(restWidth > 0 && repeatCountY > 0) {
+            drawClipped(color, x + drawnX, y, restWidth, this.height, 1, repeatCountY);
+        }
+        if(restHeight > 0) {
+            if(repeatCountX > 0) {
+                drawClipped(color, x, y + drawnY, this.width, restHeight, repeatCountX, 1);
+            }
+            if(restWidth > 0) {
+                drawClipped(color, x + drawnX, y + drawnY, restWidth, restHeight, 1, 1);
+            }
+        }
+    }
+
+    private void drawClipped(int color, int x, int y, int width, int height, int repeatCountX, int repeatCountY) {
+        float cuTR = uTR;
+        float cvTR = vTR;
+        float cuBL = uBL;
+        float cvBL = vBL;
+
+        if(this.width > 1) {
+            float f = width / (float)this.width;
+            cuTR = uTL + (uTR - uTL) * f;
+            cvTR = vTL + (vTR - vTL) * f;
+        }
+        if(this.height > 1) {
+            float f = height / (float)this.height;
+            cuBL = uTL + (uBL - uTL) * f;
+            cvBL = vTL + (vBL - vTL) * f;
+        }
+
+        while(repeatCountY-- > 0) {
+            int x0 = x;
+            for(int cx=repeatCountX ; cx-- > 0 ;) {
+                drawQuad(color, x0, y, width, height, uTL, vTL, cuTR, cvTR, cuBL, cvBL);
+                x0 += width;
+            }
+            y += height;
+        }
+    }
+
+    private void drawQuad(int color, int x, int y, int w, int h,
+            float uTL, float vTL, float uTR, float vTR, float uBL, float vBL) {
+        if(w > 0 && h > 0) {
+            texture.renderer.drawTexture(texture, color, x, y, w, h, uTL, vTL,
+                    (uTR - uTL) / w, (uBL - uTL) / h,
+                    (vTR - vTL) / w, (vBL - vTL) / h);
+        }
+    }
+}
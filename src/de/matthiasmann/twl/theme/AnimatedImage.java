@@ -235,6 +235,9 @@ public class AnimatedImage implements Image, HasBorder {
         if(as != null) {
             if(frozenTime < 0 || as.getShouldAnimateState(timeSource)) {
                 time = as.getAnimationTime(timeSource);
+                if(time < root.duration && as instanceof de.matthiasmann.twl.AnimationState) {
+                    ((de.matthiasmann.twl.AnimationState)as).requestRepaint();
+                }
             } else {
                 time = frozenTime;
             }
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * The renderer independent content of a bitmap font file generated by
+ * TWL Theme Editor's "Create font" tool (AngelCode BMFont format).
+ *
+ * <p>Both the XML and the text variant of the format are supported. Only
+ * single page, non packed fonts can be loaded.</p>
+ *
+ * @author Matthias Mann
+ */
+public class BitmapFontDefinition {
+
+    /**
+     * A single glyph entry of the font file.
+     */
+    public static final class Glyph {
+        public final int id;
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+        public final short xoffset;
+        public final short yoffset;
+        public final short xadvance;
+
+        public Glyph(int id, int x, int y, int width, int height, short xoffset, short yoffset, short xadvance) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.xoffset = xoffset;
+            this.yoffset = yoffset;
+            this.xadvance = xadvance;
+        }
+    }
+
+    /**
+     * A kerning pair entry of the font file.
+     */
+    public static final class Kerning {
+        public final int first;
+        public final int second;
+        public final int amount;
+
+        public Kerning(int first, int second, int amount) {
+            this.first = first;
+            this.second = second;
+            this.amount = amount;
+        }
+    }
+
+    private static final Glyph[] EMPTY_GLYPHS = {};
+    private static final Kerning[] EMPTY_KERNINGS = {};
+
+    private final int lineHeight;
+    private final int baseLine;
+    private final String textureFile;
+    private final Glyph[] glyphs;
+    private final Kerning[] kernings;
+    private final boolean proportional;
+
+    /**
+     * Parses the XML variant of a font file.
+     *
+     * @param xmlp the XML parser positioned on the {@code font} start tag
+     * @throws XmlPullParserException if the XML is not a valid font file
+     * @throws IOException if an IO error occurred
+     */
+    public BitmapFontDefinition(XMLParser xmlp) throws XmlPullParserException, IOException {
+        xmlp.require(XmlPullParser.START_TAG, null, "font");
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.START_TAG, null, "info");
+        xmlp.ignoreOtherAttributes();
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.END_TAG, null, "info");
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.START_TAG, null, "common");
+        lineHeight = xmlp.parseIntFromAttribute("lineHeight");
+        baseLine = xmlp.parseIntFromAttribute("base");
+        if(xmlp.parseIntFromAttribute("pages", 1) != 1) {
+            throw new UnsupportedOperationException("multi page fonts not supported");
+        }
+        if(xmlp.parseIntFromAttribute("packed", 0) != 0) {
+            throw new UnsupportedOperationException("packed fonts not supported");
+        }
+        xmlp.ignoreOtherAttributes();
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.END_TAG, null, "common");
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.START_TAG, null, "pages");
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.START_TAG, null, "page");
+        int pageId = Integer.parseInt(xmlp.getAttributeValue(null, "id"));
+        if(pageId != 0) {
+            throw new UnsupportedOperationException("only page id 0 supported");
+        }
+        textureFile = xmlp.getAttributeValue(null, "file");
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.END_TAG, null, "page");
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.END_TAG, null, "pages");
+        xmlp.nextTag();
+        xmlp.require(XmlPullParser.START_TAG, null, "chars");
+        xmlp.ignoreOtherAttributes();
+        xmlp.nextTag();
+
+        ArrayList<Glyph> glyphList = new ArrayList<Glyph>();
+        while(!xmlp.isEndTag()) {
+            xmlp.require(XmlPullParser.START_TAG, null, "char");
+            int idx = xmlp.parseIntFromAttribute("id");
+            int x = xmlp.parseIntFromAttribute("x");
+            int y = xmlp.parseIntFromAttribute("y");
+            int w = xmlp.parseIntFromAttribute("width");
+            int h = xmlp.parseIntFromAttribute("height");
+            if(xmlp.parseIntFromAttribute("page", 0) != 0) {
+                throw xmlp.error("Multiple pages not supported");
+            }
+            xmlp.parseIntFromAttribute("chnl", 0);
+            glyphList.add(new Glyph(idx, x, y, w, h,
+                    Short.parseShort(xmlp.getAttributeNotNull("xoffset")),
+                    Short.parseShort(xmlp.getAttributeNotNull("yoffset")),
+                    Short.parseShort(xmlp.getAttributeNotNull("xadvance"))));
+            xmlp.nextTag();
+            xmlp.require(XmlPullParser.END_TAG, null, "char");
+            xmlp.nextTag();
+        }
+
+        xmlp.require(XmlPullParser.END_TAG, null, "chars");
+        xmlp.nextTag();
+        ArrayList<Kerning> kerningList = new ArrayList<Kerning>();
+        if(xmlp.isStartTag()) {
+            xmlp.require(XmlPullParser.START_TAG, null, "kernings");
+            xmlp.ignoreOtherAttributes();
+            xmlp.nextTag();
+            while(!xmlp.isEndTag()) {
+                xmlp.require(XmlPullParser.START_TAG, null, "kerning");
+                int first = xmlp.parseIntFromAttribute("first");
+                int second = xmlp.parseIntFromAttribute("second");
+                int amount = xmlp.parseIntFromAttribute("amount");
+                kerningList.add(new Kerning(first, second, amount));
+                xmlp.nextTag();
+                xmlp.require(XmlPullParser.END_TAG, null, "kerning");
+                xmlp.nextTag();
+            }
+            xmlp.require(XmlPullParser.END_TAG, null, "kernings");
+            xmlp.nextTag();
+        }
+        xmlp.require(XmlPullParser.END_TAG, null, "font");
+
+        glyphs = glyphList.toArray(EMPTY_GLYPHS);
+        kernings = kerningList.toArray(EMPTY_KERNINGS);
+        proportional = computeProportional(glyphs);
+    }
+
+    /**
+     * Parses the text variant of a font file.
+     *
+     * @param reader the reader for the font file
+     * @throws IOException if an IO error occurred or the file is not a valid font file
+     */
+    public BitmapFontDefinition(Reader reader) throws IOException {
+        BufferedReader br = new BufferedReader(reader);
+        HashMap<String, String> params = new HashMap<String, String>();
+        parseFntLine(br, "info");
+        parseFntLine(parseFntLine(br, "common"), params);
+        lineHeight = parseInt(params, "lineHeight");
+        baseLine = parseInt(params, "base");
+        if(parseInt(params, "pages", 1) != 1) {
+            throw new UnsupportedOperationException("multi page fonts not supported");
+        }
+        if(parseInt(params, "packed", 0) != 0) {
+            throw new UnsupportedOperationException("packed fonts not supported");
+        }
+        parseFntLine(parseFntLine(br, "page"), params);
+        if(parseInt(params, "id", 0) != 0) {
+            throw new UnsupportedOperationException("only page id 0 supported");
+        }
+        textureFile = getParam(params, "file");
+        parseFntLine(parseFntLine(br, "chars"), params);
+        int charCount = parseInt(params, "count");
+        glyphs = new Glyph[charCount];
+        for(int charIdx=0 ; charIdx<charCount ; charIdx++) {
+            parseFntLine(parseFntLine(br, "char"), params);
+            int idx = parseInt(params, "id");
+            int x = parseInt(params, "x");
+            int y = parseInt(params, "y");
+            int w = parseInt(params, "width");
+            int h = parseInt(params, "height");
+            if(parseInt(params, "page", 0) != 0) {
+                throw new IOException("Multiple pages not supported");
+            }
+            glyphs[charIdx] = new Glyph(idx, x, y, w, h,
+                    parseShort(params, "xoffset"),
+                    parseShort(params, "yoffset"),
+                    parseShort(params, "xadvance"));
+        }
+        parseFntLine(parseFntLine(br, "kernings"), params);
+        int kerningCount = parseInt(params, "count");
+        kernings = new Kerning[kerningCount];
+        for(int kerningIdx=0 ; kerningIdx<kerningCount ; kerningIdx++) {
+            parseFntLine(parseFntLine(br, "kerning"), params);
+            int first = parseInt(params, "first");
+            int second = parseInt(params, "second");
+            int amount = parseInt(params, "amount");
+            kernings[kerningIdx] = new Kerning(first, second, amount);
+        }
+        proportional = computeProportional(glyphs);
+    }
+
+    /**
+     * Loads a font file. The XML variant is tried first, if the file does
+     * not start with an XML tag then it is parsed as text variant.
+     *
+     * @param url the URL of the font file
+     * @return the parsed font definition
+     * @throws IOException if the font file could not be loaded
+     */
+    public static BitmapFontDefinition load(URL url) throws IOException {
+        boolean startTagSeen = false;
+        try {
+            XMLParser xmlp = new XMLParser(url);
+            try {
+                xmlp.require(XmlPullParser.START_DOCUMENT, null, null);
+                xmlp.nextTag();
+                startTagSeen = true;
+                return new BitmapFontDefinition(xmlp);
+            } finally {
+                xmlp.close();
+            }
+        } catch (XmlPullParserException ex) {
+            if(startTagSeen) {
+                throw (IOException)(new IOException().initCause(ex));
+            }
+            InputStream is = url.openStream();
+            try {
+                InputStreamReader isr = new InputStreamReader(is, "UTF8");
+                return new BitmapFontDefinition(isr);
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    public int getLineHeight() {
+        return lineHeight;
+    }
+
+    public int getBaseLine() {
+        return baseLine;
+    }
+
+    /**
+     * Returns the file name of the texture page relative to the font file.
+     * @return the texture file name
+     */
+    public String getTextureFile() {
+        return textureFile;
+    }
+
+    /**
+     * Returns all glyphs in the order they appear in the font file.
+     * The returned array must not be modified.
+     * @return the glyphs
+     */
+    public Glyph[] getGlyphs() {
+        return glyphs;
+    }
+
+    /**
+     * Returns all kerning pairs in the order they appear in the font file.
+     * The returned array must not be modified.
+     * @return the kerning pairs
+     */
+    public Kerning[] getKernings() {
+        return kernings;
+    }
+
+    /**
+     * Returns true if all glyphs with a positive advance share the same
+     * advance width.
+     * @return true if all glyphs have the same advance width
+     */
+    public boolean isProportional() {
+        return proportional;
+    }
+
+    private static boolean computeProportional(Glyph[] glyphs) {
+        int firstXAdvance = Integer.MIN_VALUE;
+        for(Glyph g : glyphs) {
+            if(g.xadvance != firstXAdvance && g.xadvance > 0) {
+                if(firstXAdvance != Integer.MIN_VALUE) {
+                    return false;
+                }
+                firstXAdvance = g.xadvance;
+            }
+        }
+        return true;
+    }
+
+    private static String parseFntLine(BufferedReader br, String tag) throws IOException {
+        String line = br.readLine();
+        if(line == null || line.length() <= tag.length() ||
+                line.charAt(tag.length()) != ' ' || !line.startsWith(tag)) {
+            throw new IOException("'" + tag + "' line expected");
+        }
+        return line;
+    }
+
+    private static void parseFntLine(String line, HashMap<String, String> params) {
+        params.clear();
+        ParameterStringParser psp = new ParameterStringParser(line, ' ', '=');
+        while(psp.next()) {
+            params.put(psp.getKey(), psp.getValue());
+        }
+    }
+
+    private static String getParam(HashMap<String, String> params, String key) throws IOException {
+        String value = params.get(key);
+        if(value == null) {
+            throw new IOException("Required parameter '" + key + "' not found");
+        }
+        return value;
+    }
+
+    private static int parseInt(HashMap<String, String> params, String key) throws IOException {
+        String value = getParam(params, key);
+        try {
+            return Integer.parseInt(value);
+        } catch(IllegalArgumentException ex) {
+            throw canParseParam(key, value, ex);
+        }
+    }
+
+    private static int parseInt(HashMap<String, String> params, String key, int defaultValue) throws IOException {
+        String value = params.get(key);
+        if(value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch(IllegalArgumentException ex) {
+            throw canParseParam(key, value, ex);
+        }
+    }
+
+    private static short parseShort(HashMap<String, String> params, String key) throws IOException {
+        String value = getParam(params, key);
+        try {
+            return Short.parseShort(value);
+        } catch(IllegalArgumentException ex) {
+            throw canParseParam(key, value, ex);
+        }
+    }
+
+    private static IOException canParseParam(String key, String value, IllegalArgumentException ex) {
+        return (IOException)(new IOException("Can't parse parameter: " + key + '=' + value).initCause(ex));
+    }
+}
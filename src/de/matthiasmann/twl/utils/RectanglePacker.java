@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import de.matthiasmann.twl.Rect;
+
+/**
+ * Packs rectangles into a fixed size area using the skyline bottom-left
+ * heuristic.
+ * 
+ * <p>The skyline stores the top edge of the already allocated area as a list
+ * of horizontal segments. A new rectangle is placed at the position which
+ * results in the lowest top edge, preferring the leftmost position.</p>
+ * 
+ * @author Matthias Mann
+ */
+public class RectanglePacker {
+
+    private final int width;
+    private final int height;
+    private int[] segX;
+    private int[] segY;
+    private int[] segW;
+    private int numSegments;
+    private int usedArea;
+
+    /**
+     * Creates a new empty packer
+     * 
+     * @param width the width of the area
+     * @param height the height of the area
+     * @throws IllegalArgumentException if width or height is &lt;= 0
+     */
+    public RectanglePacker(int width, int height) {
+        if(width <= 0) {
+            throw new IllegalArgumentException("width");
+        }
+        if(height <= 0) {
+            throw new IllegalArgumentException("height");
+        }
+        this.width = width;
+        this.height = height;
+        this.segX = new int[16];
+        this.segY = new int[16];
+        this.segW = new int[16];
+        clear();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the sum of the area of all allocated rectangles
+     * @return the used area in pixels
+     */
+    public int getUsedArea() {
+        return usedArea;
+    }
+
+    /**
+     * Removes all allocated rectangles
+     */
+    public void clear() {
+        segX[0] = 0;
+        segY[0] = 0;
+        segW[0] = width;
+        numSegments = 1;
+        usedArea = 0;
+    }
+
+    /**
+     * Allocates a rectangle of the specified size.
+     * 
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @param result receives the position and size of the allocated rectangle
+     * @return true if the rectangle was allocated, false if it did not fit.
+     * @throws IllegalArgumentException if w or h is &lt;= 0
+     */
+    public boolean allocate(int w, int h, Rect result) {
+        if(w <= 0) {
+            throw new IllegalArgumentException("w");
+        }
+        if(h <= 0) {
+            throw new IllegalArgumentException("h");
+        }
+        
+        int bestIdx = -1;
+        int bestY = Integer.MAX_VALUE;
+        for(int i=0 ; i<numSegments ; i++) {
+            int y = fit(i, w, h);
+            if(y >= 0 && y < bestY) {
+                bestIdx = i;
+                bestY = y;
+            }
+        }
+        
+        if(bestIdx < 0) {
+            return false;
+        }
+        
+        int x = segX[bestIdx];
+        insertSegment(bestIdx, x, bestY + h, w);
+        removeCovered(bestIdx + 1, x + w);
+        merge();
+        
+        usedArea += w * h;
+        result.setXYWH(x, bestY, w, h);
+        return true;
+    }
+
+    /**
+     * Computes the Y position when the rectangle is placed at the start of
+     * the specified segment.
+     * 
+     * @return the Y position or -1 if it does not fit
+     */
+    private int fit(int idx, int w, int h) {
+        int x = segX[idx];
+        if(x + w > width) {
+            return -1;
+        }
+        int y = 0;
+        int remaining = w;
+        while(remaining > 0) {
+            y = Math.max(y, segY[idx]);
+            if(y + h > height) {
+                return -1;
+            }
+            remaining -= segW[idx];
+            idx++;
+        }
+        return y;
+    }
+
+    private void insertSegment(int idx, int x, int y, int w) {
+        if(numSegments == segX.length) {
+            int newSize = numSegments * 2;
+            segX = grow(segX, newSize);
+            segY = grow(segY, newSize);
+            segW = grow(segW, newSize);
+        }
+        System.arraycopy(segX, idx, segX, idx+1, numSegments-idx);
+        System.arraycopy(segY, idx, segY, idx+1, numSegments-idx);
+        System.arraycopy(segW, idx, segW, idx+1, numSegments-idx);
+        segX[idx] = x;
+        segY[idx] = y;
+        segW[idx] = w;
+        numSegments++;
+    }
+
+    private void removeCovered(int idx, int endX) {
+        int count = 0;
+        while(idx + count < numSegments) {
+            int i = idx + count;
+            int segEnd = segX[i] + segW[i];
+            if(segEnd <= endX) {
+                count++;
+            } else {
+                if(segX[i] < endX) {
+                    segW[i] = segEnd - endX;
+                    segX[i] = endX;
+                }
+                break;
+            }
+        }
+        removeSegments(idx, count);
+    }
+
+    private void merge() {
+        for(int i=1 ; i<numSegments ;) {
+            if(segY[i-1] == segY[i]) {
+                segW[i-1] += segW[i];
+                removeSegments(i, 1);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void removeSegments(int idx, int count) {
+        if(count > 0) {
+            int tail = numSegments - idx - count;
+            System.arraycopy(segX, idx+count, segX, idx, tail);
+            System.arraycopy(segY, idx+count, segY, idx, tail);
+            System.arraycopy(segW, idx+count, segW, idx, tail);
+            numSegments -= count;
+        }
+    }
+
+    private static int[] grow(int[] arr, int newSize) {
+        int[] tmp = new int[newSize];
+        System.arraycopy(arr, 0, tmp, 0, arr.length);
+        return tmp;
+    }
+}
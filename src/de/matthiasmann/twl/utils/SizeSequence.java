@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2008-2009, Matthias Mann
+ * Copyright (c) 2008-2014, Matthias Mann
  *
  * All rights reserved.
  *
@@ -32,23 +32,55 @@ package de.matthiasmann.twl.utils;
 import java.util.Arrays;
 
 /**
+ * A sequence of sizes (eg row heights or column widths) which supports
+ * fast conversion between index and position.
+ * 
+ * <p>The sizes are stored in a B+ tree where every node caches the number
+ * of elements and the sum of the sizes in it's subtree. Lookups and updates
+ * are O(log n). Inserting or removing a range of elements splits the tree
+ * at the range and joins the parts again which is O(count + log n).</p>
+ * 
+ * <p>When elements are inserted {@link #initializeSizes(int, int) } is
+ * called to compute the sizes of the new elements.</p>
+ * 
+ * <p>Every element also has a boolean flag which is stored in the tree and
+ * moves with the element when elements are inserted or removed before it.
+ * New elements start with the flag cleared. Subclasses can use it to track
+ * per element state, eg if the size of an element has already been computed.</p>
  *
  * @author Matthias Mann
  */
 public class SizeSequence {
     
     private static final int INITIAL_CAPACITY = 64;
+    private static final int LEAF_CAPACITY = 64;
+    private static final int INNER_CAPACITY = 32;
+    /** ranges with more elements are inserted/removed by splitting the tree */
+    private static final int SPLICE_THRESHOLD = 8;
 
+    /**
+     * The sizes of the elements which are initialized by
+     * {@link #initializeSizes(int, int) }. Only the range passed to that
+     * method contains valid data - all other sizes are stored in the tree.
+     */
     protected int[] table;
     protected int size;
     protected int defaultValue;
+    
+    private Node root;
 
     public SizeSequence() {
         this(INITIAL_CAPACITY);
     }
 
+    /**
+     * Creates an empty SizeSequence.
+     * 
+     * @param initialCapacity the initial capacity of the {@link #table}
+     */
     public SizeSequence(int initialCapacity) {
         table = new int[initialCapacity];
+        root = new Node(true);
     }
 
     public int size() {
@@ -56,51 +88,130 @@ public class SizeSequence {
     }
 
     public int getPosition(int index) {
-        int low = 0;
-        int high = size;
+        Node node = root;
         int result = 0;
-        while(low < high) {
-            int mid = (low + high) >>> 1;
-            if (index <= mid) {
-                high = mid;
-            } else {
-                result += table[mid];
-                low = mid + 1;
+        while(node.children != null) {
+            final Node[] children = node.children;
+            final int last = node.n - 1;
+            int i = 0;
+            Node child;
+            while(i < last && index >= (child = children[i]).count) {
+                index -= child.count;
+                result += child.sum;
+                i++;
             }
+            node = children[i];
+        }
+        final int[] sizes = node.sizes;
+        for(int i=0,n=Math.min(index, node.n) ; i<n ; i++) {
+            result += sizes[i];
         }
         return result;
     }
 
     public int getEndPosition() {
-        int low = 0;
-        int high = size;
-        int result = 0;
-        while(low < high) {
-            int mid = (low + high) >>> 1;
-            result += table[mid];
-            low = mid + 1;
-        }
-        return result;
+        return root.sum;
     }
 
     public int getIndex(int position) {
-        int low = 0;
-        int high = size;
-        while(low < high) {
-            int mid = (low + high) >>> 1;
-            int pos = table[mid];
-            if(position < pos) {
-                high = mid;
-            } else {
-                low = mid + 1;
-                position -= pos;
+        Node node = root;
+        int index = 0;
+        while(node.children != null) {
+            final Node[] children = node.children;
+            final int last = node.n - 1;
+            int i = 0;
+            Node child;
+            while(i < last && position >= (child = children[i]).sum) {
+                position -= child.sum;
+                index += child.count;
+                i++;
             }
+            node = children[i];
         }
-        return low;
+        final int[] sizes = node.sizes;
+        int i = 0;
+        while(i < node.n && position >= sizes[i]) {
+            position -= sizes[i];
+            i++;
+        }
+        return index + i;
     }
 
     public int getSize(int index) {
-        return getPosition(index+1) - getPosition(index);
+        Node node = root;
+        while(node.children != null) {
+            final Node[] children = node.children;
+            int i = 0;
+            Node child;
+            while(index >= (child = children[i]).count) {
+                index -= child.count;
+                i++;
+            }
+            node = child;
+        }
+        return node.sizes[index];
+    }
+
+    /**
+     * Returns the flag of the specified element.
+     * 
+     * @param index the index of the element
+     * @return the flag of the element
+     * @see #setFlag(int, boolean) 
+     */
+    public boolean getFlag(int index) {
+        Node node = root;
+        while(node.children != null) {
+            final Node[] children = node.children;
+            int i = 0;
+            Node child;
+            while(index >= (child = children[i]).count) {
+                index -= child.count;
+                i++;
+            }
+            node = child;
+        }
+        return node.flags != null && node.flags[index];
+    }
+
+    /**
+     * Sets the flag of the specified element.
+     * 
+     * @param index the index of the element
+     * @param flag the new flag value
+     * @return true if the flag has changed
+     */
+    public boolean setFlag(int index, boolean flag) {
+        if(getFlag(index) == flag) {
+            return false;
+        }
+        final int delta = flag ? 1 : -1;
+        Node node = root;
+        while(node.children != null) {
+            node.numFlags += delta;
+            final Node[] children = node.children;
+            int i = 0;
+            Node child;
+            while(index >= (child = children[i]).count) {
+                index -= child.count;
+                i++;
+            }
+            node = child;
+        }
+        node.numFlags += delta;
+        if(node.flags == null) {
+            node.flags = new boolean[LEAF_CAPACITY + 1];
+        }
+        node.flags[index] = flag;
+        return true;
+    }
+
+    /**
+     * Returns the number of elements which have their flag set.
+     * @return the number of elements which have their flag set
+     */
+    public int getNumFlags() {
+        return root.numFlags;
     }
 
     public boolean setSize(int index, int size) {
@@ -113,81 +224,606 @@ public class SizeSequence {
     }
 
     protected void adjustSize(int index, int delta) {
-        int low = 0;
-        int high = size;
-
-        while(low < high) {
-            int mid = (low + high) >>> 1;
-            if(index <= mid) {
-                table[mid] += delta;
-                high = mid;
-            } else {
-                low = mid + 1;
+        Node node = root;
+        while(node.children != null) {
+            node.sum += delta;
+            final Node[] children = node.children;
+            int i = 0;
+            Node child;
+            while(index >= (child = children[i]).count) {
+                index -= child.count;
+                i++;
             }
+            node = child;
         }
+        node.sum += delta;
+        node.sizes[index] += delta;
     }
 
+    /**
+     * Copies the sizes of the elements [low, high) into dst[low, high).
+     * 
+     * @param low the first element
+     * @param high the end of the range (exclusive)
+     * @param dst the destination array
+     * @return the sum of the copied sizes
+     * @deprecated the sizes are no longer stored as an implicit tree in
+     *   {@link #table} - this method now copies plain sizes
+     */
+    @Deprecated
     protected int toSizes(int low, int high, int[] dst) {
-        int subResult = 0;
-        while(low < high) {
-            int mid = (low + high) >>> 1;
-            int pos = table[mid];
-            dst[mid] = pos - toSizes(low, mid, dst);
-            subResult += pos;
-            low = mid + 1;
+        if(low >= high) {
+            return 0;
         }
-        return subResult;
+        return copyRange(root, dst, 0, low, high, false);
     }
 
+    /**
+     * Stores the sizes from table[low, high) into the elements [low, high).
+     * 
+     * @param low the first element
+     * @param high the end of the range (exclusive)
+     * @return the sum of the stored sizes
+     * @deprecated the sizes are no longer stored as an implicit tree in
+     *   {@link #table} - this method now reads plain sizes
+     */
+    @Deprecated
     protected int fromSizes(int low, int high) {
-        int subResult = 0;
-        while(low < high) {
-            int mid = (low + high) >>> 1;
-            int pos = table[mid] + fromSizes(low, mid);
-            table[mid] = pos;
-            subResult += pos;
-            low = mid + 1;
+        if(low >= high) {
+            return 0;
         }
-        return subResult;
+        return copyRange(root, table, 0, low, high, true);
     }
 
     public void insert(int index, int count) {
-        int newSize = size + count;
-        if(newSize >= table.length) {
-            int[] sizes = new int[newSize];
-            toSizes(0, size, sizes);
-            table = sizes;
+        if(index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index");
+        }
+        if(count <= 0) {
+            return;
+        }
+        if(count > SPLICE_THRESHOLD) {
+            Node middle = build(count);
+            if(index == size) {
+                root = concat(root, middle);
+            } else if(index == 0) {
+                root = concat(middle, root);
+            } else {
+                Node right = splitTree(index);
+                root = concat(concat(root, middle), right);
+            }
         } else {
-            toSizes(0, size, table);
+            for(int i=0 ; i<count ; i++) {
+                Node split = insert(root, index, defaultValue);
+                if(split != null) {
+                    root = newRoot(root, split);
+                }
+            }
         }
-        System.arraycopy(table, index, table, index+count, size-index);
-        size = newSize;
-        initializeSizes(index, count);
-        fromSizes(0, newSize);
+        size += count;
+        initializeRange(index, count);
     }
 
     public void remove(int index, int count) {
-        toSizes(0, size, table);
-        int newSize = size - count;
-        System.arraycopy(table, index+count, table, index, newSize-index);
-        size = newSize;
-        fromSizes(0, newSize);
+        if(index < 0 || count < 0 || index+count > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        if(count == 0) {
+            return;
+        }
+        if(count > SPLICE_THRESHOLD) {
+            Node right = (index+count < size) ? splitTree(index+count) : new Node(true);
+            if(index > 0) {
+                splitTree(index);   // drops the removed range
+                root = concat(root, right);
+            } else {
+                root = right;
+            }
+        } else {
+            for(int i=0 ; i<count ; i++) {
+                remove(root, index);
+                if(root.children != null && root.n == 1) {
+                    root = root.children[0];
+                }
+            }
+        }
+        size -= count;
     }
 
     public void initializeAll(int count) {
-        if(table.length < count) {
-            table = new int[count];
-        }
+        root = build(count);
         size = count;
-        initializeSizes(0, count);
-        fromSizes(0, count);
+        initializeRange(0, count);
     }
 
     public void setDefaultValue(int defaultValue) {
         this.defaultValue = defaultValue;
     }
 
+    /**
+     * Computes the sizes of newly inserted elements. The sizes must be stored
+     * in {@link #table} at the same indices. This method fills the range with
+     * the default value.
+     * 
+     * @param index the index of the first new element
+     * @param count the number of new elements
+     */
     protected void initializeSizes(int index, int count) {
         Arrays.fill(table, index, index+count, defaultValue);
     }
+    
+    @SuppressWarnings("deprecation")
+    private void initializeRange(int index, int count) {
+        int end = index + count;
+        if(table.length < end) {
+            table = new int[Math.max(end, table.length * 2)];
+        }
+        initializeSizes(index, count);
+        fromSizes(index, end);
+    }
+    
+    /**
+     * Splits the tree at the specified index. The root will contain the
+     * elements [0, index) and the remaining elements are returned as a new
+     * tree.
+     * 
+     * @param index the split index, 0 &lt; index &lt; size
+     * @return the tree with the elements [index, size)
+     */
+    private Node splitTree(int index) {
+        Node right = splitAt(root, index);
+        repairRightSpine(root);
+        repairLeftSpine(right);
+        root = collapse(root);
+        return collapse(right);
+    }
+    
+    /**
+     * Builds a new tree with evenly filled nodes which contains count
+     * elements with the default value.
+     */
+    private Node build(int count) {
+        int numNodes = Math.max(1, (count + LEAF_CAPACITY - 1) / LEAF_CAPACITY);
+        Node[] level = new Node[numNodes];
+        for(int i=0,pos=0 ; i<numNodes ; i++) {
+            Node leaf = new Node(true);
+            int end = (int)((long)count * (i+1) / numNodes);
+            leaf.n = end - pos;
+            Arrays.fill(leaf.sizes, 0, leaf.n, defaultValue);
+            leaf.recompute();
+            level[i] = leaf;
+            pos = end;
+        }
+        while(numNodes > 1) {
+            int numParents = (numNodes + INNER_CAPACITY - 1) / INNER_CAPACITY;
+            Node[] parents = new Node[numParents];
+            for(int i=0,pos=0 ; i<numParents ; i++) {
+                Node parent = new Node(false);
+                int end = numNodes * (i+1) / numParents;
+                parent.n = end - pos;
+                System.arraycopy(level, pos, parent.children, 0, parent.n);
+                parent.recompute();
+                parents[i] = parent;
+                pos = end;
+            }
+            level = parents;
+            numNodes = numParents;
+        }
+        return level[0];
+    }
+    
+    /**
+     * Copies the sizes of the elements [low, high) of the subtree from or
+     * to array[offset+low, offset+high).
+     * 
+     * @return the sum of the sizes in the range
+     */
+    private static int copyRange(Node node, int[] array, int offset, int low, int high, boolean store) {
+        int sum = 0;
+        if(node.children == null) {
+            final int[] sizes = node.sizes;
+            if(store) {
+                int oldSum = 0;
+                for(int i=low ; i<high ; i++) {
+                    int value = array[offset + i];
+                    oldSum += sizes[i];
+                    sizes[i] = value;
+                    sum += value;
+                }
+                node.sum += sum - oldSum;
+            } else {
+                for(int i=low ; i<high ; i++) {
+                    int value = sizes[i];
+                    array[offset + i] = value;
+                    sum += value;
+                }
+            }
+            return sum;
+        }
+        final Node[] children = node.children;
+        for(int i=0,start=0 ; i<node.n && start<high ; i++) {
+            final Node child = children[i];
+            final int end = start + child.count;
+            if(end > low) {
+                int oldSum = child.sum;
+                sum += copyRange(child, array, offset + start,
+                        Math.max(low - start, 0), Math.min(high, end) - start, store);
+                node.sum += child.sum - oldSum;
+            }
+            start = end;
+        }
+        return sum;
+    }
+    
+    private static Node newRoot(Node left, Node right) {
+        Node node = new Node(false);
+        node.children[0] = left;
+        node.children[1] = right;
+        node.n = 2;
+        node.recompute();
+        return node;
+    }
+    
+    private static Node collapse(Node node) {
+        while(node.children != null && node.n == 1) {
+            node = node.children[0];
+        }
+        return node;
+    }
+    
+    private static int height(Node node) {
+        int height = 0;
+        while(node.children != null) {
+            node = node.children[0];
+            height++;
+        }
+        return height;
+    }
+    
+    private static boolean isUnderfull(Node node) {
+        return node.n < node.getCapacity()/4;
+    }
+    
+    /**
+     * Splits the subtree so that node keeps the elements [0, index) and the
+     * returned node of the same height contains the remaining elements.
+     * The nodes along the split path can be underfull.
+     * 
+     * @param index the split index, 0 &lt; index &lt; node.count
+     */
+    private static Node splitAt(Node node, int index) {
+        Node right = new Node(node.children == null);
+        if(node.children == null) {
+            Node.moveEntries(node, index, right, 0, node.n - index);
+        } else {
+            final Node[] children = node.children;
+            int i = 0;
+            while(index >= children[i].count) {
+                index -= children[i].count;
+                i++;
+            }
+            if(index == 0) {
+                Node.moveEntries(node, i, right, 0, node.n - i);
+            } else {
+                Node childRight = splitAt(children[i], index);
+                Node.moveEntries(node, i+1, right, 0, node.n - i - 1);
+                System.arraycopy(right.children, 0, right.children, 1, right.n);
+                right.children[0] = childRight;
+                right.n++;
+            }
+        }
+        node.recompute();
+        right.recompute();
+        return right;
+    }
+    
+    private static void repairRightSpine(Node node) {
+        while(node.children != null) {
+            if(node.n > 1 && isUnderfull(node.children[node.n-1])) {
+                node.rebalance(node.n-2);
+            }
+            node = node.children[node.n-1];
+        }
+    }
+    
+    private static void repairLeftSpine(Node node) {
+        while(node.children != null) {
+            if(node.n > 1 && isUnderfull(node.children[0])) {
+                node.rebalance(0);
+            }
+            node = node.children[0];
+        }
+    }
+    
+    /**
+     * Joins two trees. All elements of left are placed before the
+     * elements of right.
+     * 
+     * @return the root of the joined tree
+     */
+    private static Node concat(Node left, Node right) {
+        if(left.count == 0) {
+            return right;
+        }
+        if(right.count == 0) {
+            return left;
+        }
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if(leftHeight == rightHeight) {
+            Node node = newRoot(left, right);
+            if(isUnderfull(left) || isUnderfull(right)) {
+                node.rebalance(0);
+            }
+            return collapse(node);
+        }
+        if(leftHeight > rightHeight) {
+            Node split = appendRight(left, right, leftHeight - rightHeight);
+            return (split != null) ? newRoot(left, split) : left;
+        } else {
+            Node split = appendLeft(right, left, rightHeight - leftHeight);
+            return (split != null) ? newRoot(right, split) : right;
+        }
+    }
+    
+    /**
+     * Adds the tree as the last child at the specified depth of the right spine.
+     * 
+     * @return the new right sibling if the node had to be split or null
+     */
+    private static Node appendRight(Node node, Node tree, int depth) {
+        Node child = (depth == 1) ? tree : appendRight(node.children[node.n-1], tree, depth-1);
+        if(child != null) {
+            node.children[node.n++] = child;
+            if(isUnderfull(child)) {
+                node.rebalance(node.n-2);
+            }
+        }
+        node.recompute();
+        if(node.n > INNER_CAPACITY) {
+            return node.split();
+        }
+        return null;
+    }
+    
+    /**
+     * Adds the tree as the first child at the specified depth of the left spine.
+     * 
+     * @return the new right sibling if the node had to be split or null
+     */
+    private static Node appendLeft(Node node, Node tree, int depth) {
+        final Node[] children = node.children;
+        if(depth == 1) {
+            System.arraycopy(children, 0, children, 1, node.n);
+            children[0] = tree;
+            node.n++;
+            if(isUnderfull(tree)) {
+                node.rebalance(0);
+            }
+        } else {
+            Node split = appendLeft(children[0], tree, depth-1);
+            if(split != null) {
+                System.arraycopy(children, 1, children, 2, node.n-1);
+                children[1] = split;
+                node.n++;
+            }
+        }
+        node.recompute();
+        if(node.n > INNER_CAPACITY) {
+            return node.split();
+        }
+        return null;
+    }
+    
+    /**
+     * Inserts a single element into the subtree.
+     * 
+     * @return the new right sibling if the node had to be split or null
+     */
+    private static Node insert(Node node, int index, int value) {
+        node.count++;
+        node.sum += value;
+        if(node.children == null) {
+            final int[] sizes = node.sizes;
+            System.arraycopy(sizes, index, sizes, index+1, node.n-index);
+            sizes[index] = value;
+            final boolean[] flags = node.flags;
+            if(flags != null) {
+                System.arraycopy(flags, index, flags, index+1, node.n-index);
+                flags[index] = false;
+            }
+            if(++node.n > LEAF_CAPACITY) {
+                return node.split();
+            }
+            return null;
+        }
+        final Node[] children = node.children;
+        final int last = node.n - 1;
+        int i = 0;
+        while(i < last && index > children[i].count) {
+            index -= children[i].count;
+            i++;
+        }
+        Node split = insert(children[i], index, value);
+        if(split != null) {
+            System.arraycopy(children, i+1, children, i+2, node.n-i-1);
+            children[i+1] = split;
+            if(++node.n > INNER_CAPACITY) {
+                return node.split();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Removes a single element from the subtree.
+     * 
+     * @return the size of the removed element
+     */
+    private static int remove(Node node, int index) {
+        int value;
+        if(node.children == null) {
+            final int[] sizes = node.sizes;
+            value = sizes[index];
+            System.arraycopy(sizes, index+1, sizes, index, node.n-index-1);
+            final boolean[] flags = node.flags;
+            if(flags != null) {
+                if(flags[index]) {
+                    node.numFlags--;
+                }
+                System.arraycopy(flags, index+1, flags, index, node.n-index-1);
+                flags[node.n-1] = false;
+            }
+            node.n--;
+        } else {
+            final Node[] children = node.children;
+            int i = 0;
+            while(index >= children[i].count) {
+                index -= children[i].count;
+                i++;
+            }
+            Node child = children[i];
+            int childFlags = child.numFlags;
+            value = remove(child, index);
+            node.numFlags -= childFlags - child.numFlags;
+            if(child.n < child.getCapacity()/4 && node.n > 1) {
+                node.rebalance((i > 0) ? i-1 : i);
+            }
+        }
+        node.count--;
+        node.sum -= value;
+        return value;
+    }
+    
+    static final class Node {
+        final int[] sizes;
+        final Node[] children;
+        /** the flags of a leaf - null when no flag was set */
+        boolean[] flags;
+        /** number of used entries in sizes or children */
+        int n;
+        /** number of elements in this subtree */
+        int count;
+        /** sum of all sizes in this subtree */
+        int sum;
+        /** number of set flags in this subtree */
+        int numFlags;
+
+        Node(boolean leaf) {
+            // one extra entry to allow an overflow before splitting
+            if(leaf) {
+                sizes = new int[LEAF_CAPACITY + 1];
+                children = null;
+            } else {
+                sizes = null;
+                children = new Node[INNER_CAPACITY + 1];
+            }
+        }
+        
+        int getCapacity() {
+            return (children == null) ? LEAF_CAPACITY : INNER_CAPACITY;
+        }
+        
+        void recompute() {
+            int newCount = 0;
+            int newSum = 0;
+            int newNumFlags = 0;
+            if(children == null) {
+                newCount = n;
+                for(int i=0 ; i<n ; i++) {
+                    newSum += sizes[i];
+                }
+                if(flags != null) {
+                    for(int i=0 ; i<n ; i++) {
+                        if(flags[i]) {
+                            newNumFlags++;
+                        }
+                    }
+                }
+            } else {
+                for(int i=0 ; i<n ; i++) {
+                    newCount += children[i].count;
+                    newSum += children[i].sum;
+                    newNumFlags += children[i].numFlags;
+                }
+            }
+            count = newCount;
+            sum = newSum;
+            numFlags = newNumFlags;
+        }
+        
+        Node split() {
+            Node right = new Node(children == null);
+            int half = n >> 1;
+            moveEntries(this, half, right, 0, n - half);
+            recompute();
+            right.recompute();
+            return right;
+        }
+        
+        /**
+         * Merges or redistributes the children at idx and idx+1
+         */
+        void rebalance(int idx) {
+            final Node left = children[idx];
+            final Node right = children[idx+1];
+            final int total = left.n + right.n;
+            if(total <= left.getCapacity()) {
+                moveEntries(right, 0, left, left.n, right.n);
+                System.arraycopy(children, idx+2, children, idx+1, n-idx-2);
+                children[--n] = null;
+                left.recompute();
+            } else {
+                int leftTarget = total >> 1;
+                if(left.n < leftTarget) {
+                    moveEntries(right, 0, left, left.n, leftTarget - left.n);
+                } else {
+                    moveEntries(left, leftTarget, right, 0, left.n - leftTarget);
+                }
+                left.recompute();
+                right.recompute();
+            }
+        }
+        
+        /**
+         * Moves entries from src[srcPos...] to dst[dstPos...] and closes
+         * the gap in src resp. opens a gap in dst.
+         */
+        private static void moveEntries(Node src, int srcPos, Node dst, int dstPos, int num) {
+            if(src.children == null) {
+                System.arraycopy(dst.sizes, dstPos, dst.sizes, dstPos+num, dst.n-dstPos);
+                System.arraycopy(src.sizes, srcPos, dst.sizes, dstPos, num);
+                System.arraycopy(src.sizes, srcPos+num, src.sizes, srcPos, src.n-srcPos-num);
+                moveFlags(src, srcPos, dst, dstPos, num);
+            } else {
+                System.arraycopy(dst.children, dstPos, dst.children, dstPos+num, dst.n-dstPos);
+                System.arraycopy(src.children, srcPos, dst.children, dstPos, num);
+                System.arraycopy(src.children, srcPos+num, src.children, srcPos, src.n-srcPos-num);
+                for(int i=src.n-num ; i<src.n ; i++) {
+                    src.children[i] = null;
+                }
+            }
+            src.n -= num;
+            dst.n += num;
+        }
+        
+        private static void moveFlags(Node src, int srcPos, Node dst, int dstPos, int num) {
+            final boolean[] srcFlags = src.flags;
+            boolean[] dstFlags = dst.flags;
+            if(srcFlags == null && dstFlags == null) {
+                return;
+            }
+            if(dstFlags == null) {
+                dstFlags = dst.flags = new boolean[LEAF_CAPACITY + 1];
+            }
+            System.arraycopy(dstFlags, dstPos, dstFlags, dstPos+num, dst.n-dstPos);
+            if(srcFlags != null) {
+                System.arraycopy(srcFlags, srcPos, dstFlags, dstPos, num);
+                System.arraycopy(srcFlags, srcPos+num, srcFlags, srcPos, src.n-srcPos-num);
+                Arrays.fill(srcFlags, src.n-num, src.n, false);
+            } else {
+                Arrays.fill(dstFlags, dstPos, dstPos+num, false);
+            }
+        }
+    }
 }
@@ -34,14 +34,23 @@ import de.matthiasmann.twl.renderer.AnimationState.StateKey;
 import java.util.Collection;
 
 /**
+ * Selects the first matching expression from a list of state expressions.
+ * 
+ * <p>The expression list is compiled by default: For up to 8 different state
+ * keys a truth table indexed by the bitmask of the active states is used,
+ * for up to 16 keys a decision DAG. The result of {@link #evaluate(de.matthiasmann.twl.renderer.AnimationState) }
+ * for a {@link de.matthiasmann.twl.AnimationState} is cached until one of
+ * it's states changes.</p>
  *
  * @author Matthias Mann
  */
 public class StateSelect {
     
-    private static boolean useOptimizer = false;
+    private static boolean useOptimizer = true;
     
     private final StateExpression[] expressions;
+    private final StateKey[] tableKeys;
+    private final byte[] table;
     private final StateKey[] programKeys;
     private final short[] programCodes;
 
@@ -58,6 +67,13 @@ public class StateSelect {
                 ? StateSelectOptimizer.optimize(expressions)
                 : null;
         
+        if(sso != null && sso.programKeys == null) {
+            tableKeys = sso.keys;
+            table = sso.matrix;
+        } else {
+            tableKeys = null;
+            table = null;
+        }
         if(sso != null) {
             programKeys = sso.programKeys;
             programCodes = sso.programCodes;
@@ -72,7 +88,7 @@ public class StateSelect {
     }
 
     /**
-     * Controls the use of the StateSelectOptimizer.
+     * Controls the compilation of new StateSelect instances. Enabled by default.
      * 
      * @param useOptimizer true if the StateSelectOptimizer should be used
      */
@@ -103,17 +119,50 @@ public class StateSelect {
     /**
      * Evaluates the expression list.
      * 
+     * <p>For a {@link de.matthiasmann.twl.AnimationState} the cached result
+     * is returned when none of it's states has changed.</p>
+     * 
      * @param as the animation stateor null
      * @return the index of the first matching expression or
      *         {@link #getNumExpressions()} when no expression matches
+     * @see de.matthiasmann.twl.AnimationState#evaluate(de.matthiasmann.twl.utils.StateSelect) 
      */
     public int evaluate(AnimationState as) {
+        if(as instanceof de.matthiasmann.twl.AnimationState) {
+            return ((de.matthiasmann.twl.AnimationState)as).evaluate(this);
+        }
+        return evaluateUncached(as);
+    }
+    
+    /**
+     * Evaluates the expression list without using the result cache.
+     * 
+     * @param as the animation stateor null
+     * @return the index of the first matching expression or
+     *         {@link #getNumExpressions()} when no expression matches
+     */
+    public int evaluateUncached(AnimationState as) {
+        if(table != null) {
+            return evaluateTable(as);
+        }
         if(programKeys != null) {
             return evaluateProgram(as);
         }
         return evaluateExpr(as);
     }
     
+    private int evaluateTable(AnimationState as) {
+        int idx = 0;
+        if(as != null) {
+            for(int i=0,n=tableKeys.length ; i<n ; i++) {
+                if(as.getAnimationState(tableKeys[i])) {
+                    idx |= 1 << i;
+                }
+            }
+        }
+        return table[idx] & 255;
+    }
+    
     private int evaluateExpr(AnimationState as) {
         int i = 0;
         for(int n=expressions.length ; i<n ; i++) {
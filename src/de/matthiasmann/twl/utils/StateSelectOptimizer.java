@@ -39,8 +39,13 @@ import java.util.BitSet;
  */
 final class StateSelectOptimizer {
     
-    private final StateKey[] keys;
-    private final byte[] matrix;
+    /**
+     * Up to this number of keys the truth table is used directly
+     */
+    static final int TABLE_MAX_KEYS = 8;
+    
+    final StateKey[] keys;
+    final byte[] matrix;
 
     final StateKey[] programKeys;
     final short[] programCodes;
@@ -85,7 +90,9 @@ final class StateSelectOptimizer {
         }
         
         StateSelectOptimizer sso = new StateSelectOptimizer(keys, matrix);
-        sso.compute(0, 0);
+        if(sso.programKeys != null) {
+            sso.compute(0, 0);
+        }
         return sso;
     }
     
@@ -93,8 +100,14 @@ final class StateSelectOptimizer {
         this.keys = keys;
         this.matrix = matrix;
         
-        programKeys = new StateKey[matrix.length-1];
-        programCodes = new short[matrix.length*2-2];
+        if(keys.length > TABLE_MAX_KEYS) {
+            // build a decision DAG instead of a large table
+            programKeys = new StateKey[matrix.length-1];
+            programCodes = new short[matrix.length*2-2];
+        } else {
+            programKeys = null;
+            programCodes = null;
+        }
     }
 
     private int compute(int bits, int mask) {
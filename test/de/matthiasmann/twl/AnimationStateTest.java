@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.AnimationState.StateKey;
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for AnimationState
+ *
+ * @author Matthias Mann
+ */
+public class AnimationStateTest {
+
+    public AnimationStateTest() {
+    }
+
+    @Test
+    public void testParentFallback() {
+        StateKey a = StateKey.get("testA");
+        StateKey b = StateKey.get("testB");
+        AnimationState parent = new AnimationState();
+        AnimationState child = new AnimationState(parent);
+        
+        parent.setAnimationState(a, true);
+        parent.setAnimationState(b, true);
+        assertTrue(child.getAnimationState(a));
+        assertTrue(child.getShouldAnimateState(a));
+        
+        // a state which is set to false hides the parent state
+        child.setAnimationState(a, false);
+        assertFalse(child.getAnimationState(a));
+        assertFalse(child.getShouldAnimateState(a));
+        assertTrue(child.getAnimationState(b));
+        
+        child.setAnimationState(a, true);
+        assertTrue(child.getAnimationState(a));
+        assertTrue(child.getShouldAnimateState(a));
+        child.dontAnimate(a);
+        assertFalse(child.getShouldAnimateState(a));
+        assertTrue(child.getAnimationState(a));
+        child.resetAnimationTime(a);
+        assertTrue(child.getShouldAnimateState(a));
+    }
+
+    @Test
+    public void testManyKeys() {
+        StateKey[] keys = new StateKey[200];
+        for(int i=0 ; i<keys.length ; i++) {
+            keys[i] = StateKey.get("testMany" + i);
+        }
+        assertTrue(StateKey.getNumStateKeys() >= keys.length);
+        assertSame(keys[17], StateKey.get(keys[17].getID()));
+        
+        AnimationState as = new AnimationState();
+        for(int i=0 ; i<keys.length ; i+=3) {
+            as.setAnimationState(keys[i], true);
+        }
+        for(int i=0 ; i<keys.length ; i++) {
+            assertEquals(i % 3 == 0, as.getAnimationState(keys[i]));
+            assertEquals(i % 3 == 0, as.getShouldAnimateState(keys[i]));
+        }
+    }
+
+    @Test
+    public void testAnimationTime() {
+        SoftwareRenderer renderer = new SoftwareRenderer(16, 16, 1);
+        try {
+            GUI gui = new GUI(renderer);
+            StateKey key = StateKey.get("testTime");
+            AnimationState as = new AnimationState();
+            as.setGUI(gui);
+            gui.curTime = 1000;
+            as.setAnimationState(key, true);
+            gui.curTime = 1250;
+            assertEquals(250, as.getAnimationTime(key));
+            as.resetAnimationTime(key);
+            gui.curTime = 1300;
+            assertEquals(50, as.getAnimationTime(key));
+            as.setGUI(gui);
+            assertEquals(0, as.getAnimationTime(key));
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    @Test
+    public void testAnimationTimeOutOfOrder() {
+        SoftwareRenderer renderer = new SoftwareRenderer(16, 16, 1);
+        try {
+            GUI gui = new GUI(renderer);
+            StateKey[] keys = new StateKey[150];
+            for(int i=0 ; i<keys.length ; i++) {
+                keys[i] = StateKey.get("testTimes" + i);
+            }
+            AnimationState as = new AnimationState();
+            as.setGUI(gui);
+            // set the states in an order which inserts in the middle
+            for(int i=0 ; i<keys.length ; i+=7) {
+                int k = (i * 61) % keys.length;
+                gui.curTime = 100 + k;
+                as.setAnimationState(keys[k], true);
+            }
+            gui.curTime = 10000;
+            for(int i=0 ; i<keys.length ; i+=7) {
+                int k = (i * 61) % keys.length;
+                assertEquals(10000 - 100 - k, as.getAnimationTime(keys[k]));
+            }
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+}
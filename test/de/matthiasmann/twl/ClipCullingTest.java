@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the clip culling in Widget.paintChildren
+ *
+ * @author Matthias Mann
+ */
+public class ClipCullingTest {
+
+    public ClipCullingTest() {
+    }
+
+    @Test
+    public void testCulling() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        try {
+            final Widget list = new Widget() {
+                @Override
+                protected void layout() {
+                    for(int i=0 ; i<getNumChildren() ; i++) {
+                        Widget child = getChild(i);
+                        child.setPosition(getInnerX(), getInnerY() + i*16 - 8);
+                        child.setSize(getInnerWidth(), 16);
+                    }
+                }
+            };
+            list.setClip(true);
+            for(int i=0 ; i<10 ; i++) {
+                list.add(new Widget());
+            }
+            Widget root = new Widget() {
+                @Override
+                protected void layout() {
+                    list.setPosition(0, 0);
+                    list.setSize(32, 32);
+                }
+            };
+            root.add(list);
+            GUI gui = new GUI(root, renderer, null);
+            
+            gui.update();
+            // GUI, info window placeholder, root, list and the 3 visible children
+            assertEquals(7, gui.getNumPaintedWidgets());
+            assertEquals(7, gui.getNumCulledWidgets());
+            
+            gui.setClipCulling(false);
+            gui.update();
+            assertEquals(14, gui.getNumPaintedWidgets());
+            assertEquals(0, gui.getNumCulledWidgets());
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.model.AbstractTableModel;
+import de.matthiasmann.twl.renderer.DynamicImage;
+import de.matthiasmann.twl.renderer.Renderer;
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the damage region tracking of GUI
+ *
+ * @author Matthias Mann
+ */
+public class DamageTrackingTest {
+
+    public DamageTrackingTest() {
+    }
+
+    @Test
+    public void testRegionMerge() {
+        DamageRegion region = new DamageRegion();
+        assertTrue(region.isEmpty());
+        region.add(0, 0, 10, 10);
+        region.add(2, 2, 4, 4);
+        assertEquals(1, region.getNumRects());
+        region.add(5, 5, 10, 10);
+        assertEquals(1, region.getNumRects());
+        assertEquals(15, region.getWidth(0));
+        region.add(100, 100, 10, 10);
+        assertEquals(2, region.getNumRects());
+        region.add(0, 0, 0, 10);
+        assertEquals(2, region.getNumRects());
+        
+        region.clip(0, 0, 105, 200);
+        assertEquals(2, region.getNumRects());
+        assertEquals(15*15 + 5*10, region.getArea());
+    }
+
+    @Test
+    public void testRegionLimit() {
+        DamageRegion region = new DamageRegion();
+        for(int i=0 ; i<20 ; i++) {
+            region.add(i*20, 0, 10, 10);
+        }
+        assertEquals(DamageRegion.MAX_RECTS, region.getNumRects());
+        for(int i=0 ; i<20 ; i++) {
+            boolean covered = false;
+            for(int j=0 ; j<region.getNumRects() ; j++) {
+                covered |= region.intersects(j, i*20, 0, i*20+10, 10);
+            }
+            assertTrue(covered);
+        }
+    }
+
+    @Test
+    public void testPartialRepaint() {
+        SoftwareRenderer renderer = new SoftwareRenderer(32, 32, 1);
+        try {
+            final ColorWidget a = new ColorWidget(renderer, 0xFFFF0000);
+            final ColorWidget b = new ColorWidget(renderer, 0xFF00FF00);
+            Widget root = new Widget() {
+                @Override
+                protected void layout() {
+                    a.setPosition(0, 0);
+                    a.setSize(8, 8);
+                    b.setPosition(16, 16);
+                    b.setSize(8, 8);
+                }
+            };
+            root.add(a);
+            root.add(b);
+            GUI gui = new GUI(root, renderer, null);
+            gui.setDamageTracking(true);
+            
+            gui.update();
+            assertEquals(32*32, gui.getLastRepaintArea());
+            assertEquals(0xFFFF0000, pixel(renderer, 4, 4));
+            assertEquals(0xFF00FF00, pixel(renderer, 20, 20));
+            
+            gui.update();
+            assertEquals(0, gui.getLastRepaintArea());
+            assertEquals(0xFFFF0000, pixel(renderer, 4, 4));
+            assertEquals(0, b.numPaints - 1);
+            
+            a.setColor(0xFF0000FF);
+            gui.update();
+            assertEquals(8*8, gui.getLastRepaintArea());
+            assertEquals(0xFF0000FF, pixel(renderer, 4, 4));
+            assertEquals(0xFF00FF00, pixel(renderer, 20, 20));
+            assertEquals(1, b.numPaints);
+            
+            b.setVisible(false);
+            gui.update();
+            assertEquals(0xFF000000, pixel(renderer, 20, 20));
+            
+            int[] partial = renderer.getFramebuffer().clone();
+            gui.repaintAll();
+            gui.update();
+            assertEquals(32*32, gui.getLastRepaintArea());
+            assertArrayEquals(partial, renderer.getFramebuffer());
+            
+            gui.setDamageTracking(false);
+            gui.update();
+            assertEquals(32*32, gui.getLastRepaintArea());
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    @Test
+    public void testTableRowChange() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 128, 1);
+        try {
+            ColorModel model = new ColorModel();
+            final Table table = new Table(model);
+            table.registerCellRenderer(Integer.class, new ColorCellRenderer(renderer));
+            Widget root = new Widget() {
+                @Override
+                protected void layout() {
+                    table.setPosition(0, 0);
+                    table.setSize(32, 96);
+                }
+            };
+            root.add(table);
+            GUI gui = new GUI(root, renderer, null);
+            gui.setDamageTracking(true);
+            
+            gui.update();
+            assertEquals(0xFFFF0000, pixel(renderer, 4, 4));
+            gui.update();
+            assertEquals(0, gui.getLastRepaintArea());
+            
+            model.setColor(0, 3, 0xFF0000FF);
+            gui.update();
+            assertEquals(32*96, gui.getLastRepaintArea());
+            assertEquals(0xFF0000FF, pixel(renderer, 4, 4));
+            assertEquals(0xFF0000FF, pixel(renderer, 4, 80));
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    private static int pixel(SoftwareRenderer r, int x, int y) {
+        return r.getFramebuffer()[y * r.getWidth() + x];
+    }
+    
+    static class ColorWidget extends Widget {
+        final DynamicImage image;
+        int numPaints;
+
+        ColorWidget(Renderer renderer, int argb) {
+            image = renderer.createDynamicImage(1, 1);
+            setColor(argb);
+        }
+        
+        void setColor(int argb) {
+            ByteBuffer bb = ByteBuffer.allocate(4);
+            bb.put(0, (byte)(argb >> 16)).put(1, (byte)(argb >> 8)).put(2, (byte)argb).put(3, (byte)(argb >> 24));
+            image.update(bb, DynamicImage.Format.RGBA);
+            repaint();
+        }
+
+        @Override
+        protected void paintWidget(GUI gui) {
+            numPaints++;
+            image.draw(getAnimationState(), getX(), getY(), getWidth(), getHeight());
+        }
+    }
+    
+    static class ColorModel extends AbstractTableModel {
+        final int[] colors = new int[10];
+
+        ColorModel() {
+            Arrays.fill(colors, 0xFFFF0000);
+        }
+        
+        void setColor(int idx, int count, int argb) {
+            Arrays.fill(colors, idx, idx+count, argb);
+            fireRowsChanged(idx, count);
+        }
+
+        public int getNumRows() {
+            return colors.length;
+        }
+
+        public int getNumColumns() {
+            return 1;
+        }
+
+        public String getColumnHeaderText(int column) {
+            return "Color";
+        }
+
+        public Object getCell(int row, int column) {
+            return colors[row];
+        }
+    }
+    
+    static class ColorCellRenderer extends Widget implements TableBase.CellRenderer {
+        final ColorWidget red;
+        final ColorWidget blue;
+        ColorWidget current;
+
+        ColorCellRenderer(Renderer renderer) {
+            red = new ColorWidget(renderer, 0xFFFF0000);
+            blue = new ColorWidget(renderer, 0xFF0000FF);
+        }
+
+        @Override
+        public void applyTheme(ThemeInfo themeInfo) {
+            super.applyTheme(themeInfo);
+        }
+
+        public void setCellData(int row, int column, Object data) {
+            current = ((Integer)data == 0xFF0000FF) ? blue : red;
+        }
+
+        public int getColumnSpan() {
+            return 1;
+        }
+
+        public int getPreferredHeight() {
+            return 32;
+        }
+
+        public Widget getCellRenderWidget(int x, int y, int width, int height, boolean isSelected) {
+            setPosition(x, y);
+            setSize(width, height);
+            return this;
+        }
+
+        @Override
+        protected void sizeChanged() {
+        }
+
+        @Override
+        protected void paintWidget(GUI gui) {
+            current.image.draw(getAnimationState(), getX(), getY(), getWidth(), getHeight());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the cached spring sizes of DialogLayout
+ *
+ * @author Matthias Mann
+ */
+public class DialogLayoutTest {
+
+    private static final int ROWS = 20;
+    private static final int COLS = 3;
+    
+    public DialogLayoutTest() {
+    }
+
+    @Test
+    public void testRelayoutAfterChange() {
+        SizedWidget[][] a = new SizedWidget[ROWS][COLS];
+        DialogLayout dlA = createDialog(a);
+        dlA.adjustSize();
+        
+        a[7][1].setPrefSize(50, 30);
+        a[12][2].setPrefSize(5, 3);
+        dlA.adjustSize();
+        
+        SizedWidget[][] b = new SizedWidget[ROWS][COLS];
+        DialogLayout dlB = createDialog(b);
+        b[7][1].setPrefSize(50, 30);
+        b[12][2].setPrefSize(5, 3);
+        dlB.adjustSize();
+        
+        assertEquals(dlB.getWidth(), dlA.getWidth());
+        assertEquals(dlB.getHeight(), dlA.getHeight());
+        for(int r=0 ; r<ROWS ; r++) {
+            for(int c=0 ; c<COLS ; c++) {
+                assertEquals(b[r][c].getX(), a[r][c].getX());
+                assertEquals(b[r][c].getY(), a[r][c].getY());
+                assertEquals(b[r][c].getWidth(), a[r][c].getWidth());
+                assertEquals(b[r][c].getHeight(), a[r][c].getHeight());
+            }
+        }
+        assertEquals(50, a[7][1].getWidth());
+        assertEquals(30, a[7][1].getHeight());
+    }
+
+    @Test
+    public void testShrink() {
+        SizedWidget[][] a = new SizedWidget[ROWS][COLS];
+        DialogLayout dl = createDialog(a);
+        dl.adjustSize();
+        int prefWidth = dl.getWidth();
+        
+        dl.setSize(prefWidth - 10, dl.getHeight());
+        dl.validateLayout();
+        int shrunkRight = a[0][COLS-1].getRight();
+        assertEquals(prefWidth - 10, shrunkRight);
+        
+        dl.setSize(prefWidth, dl.getHeight());
+        dl.validateLayout();
+        assertEquals(prefWidth, a[0][COLS-1].getRight());
+    }
+    
+    private static DialogLayout createDialog(SizedWidget[][] widgets) {
+        DialogLayout dl = new DialogLayout();
+        DialogLayout.Group horz = dl.createParallelGroup();
+        DialogLayout.Group vert = dl.createSequentialGroup();
+        for(int r=0 ; r<ROWS ; r++) {
+            DialogLayout.Group rowH = dl.createSequentialGroup();
+            DialogLayout.Group rowV = dl.createParallelGroup();
+            for(int c=0 ; c<COLS ; c++) {
+                SizedWidget w = new SizedWidget();
+                w.setPrefSize(10 + c*5, 10);
+                w.setMinSize(5, 5);
+                widgets[r][c] = w;
+                rowH.addWidget(w);
+                rowV.addWidget(w);
+            }
+            horz.addGroup(rowH);
+            vert.addGroup(rowV);
+        }
+        dl.setHorizontalGroup(horz);
+        dl.setVerticalGroup(vert);
+        return dl;
+    }
+    
+    static class SizedWidget extends Widget {
+        int prefWidth;
+        int prefHeight;
+
+        void setPrefSize(int prefWidth, int prefHeight) {
+            this.prefWidth = prefWidth;
+            this.prefHeight = prefHeight;
+            invalidateLayout();
+        }
+
+        @Override
+        public int getPreferredWidth() {
+            return prefWidth;
+        }
+
+        @Override
+        public int getPreferredHeight() {
+            return prefHeight;
+        }
+    }
+}
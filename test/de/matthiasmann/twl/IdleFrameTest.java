@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the idle frame detection of GUI
+ *
+ * @author Matthias Mann
+ */
+public class IdleFrameTest {
+
+    public IdleFrameTest() {
+    }
+
+    @Test
+    public void testSkipIdleFrames() {
+        SoftwareRenderer renderer = new SoftwareRenderer(32, 32, 1);
+        try {
+            Widget w = new Widget();
+            Widget root = new Widget();
+            root.add(w);
+            GUI gui = new GUI(root, renderer, null);
+            
+            assertTrue(gui.needsRedraw());
+            assertTrue(gui.updateIfNeeded());
+            assertFalse(gui.updateIfNeeded());
+            assertFalse(gui.needsRedraw());
+            assertEquals(Long.MAX_VALUE, gui.getNextWakeupTime());
+            
+            w.repaint();
+            assertTrue(gui.needsRedraw());
+            assertEquals(gui.getCurrentTime(), gui.getNextWakeupTime());
+            assertTrue(gui.updateIfNeeded());
+            assertFalse(gui.updateIfNeeded());
+            
+            w.setSize(10, 10);
+            assertTrue(gui.updateIfNeeded());
+            
+            w.invalidateLayout();
+            assertTrue(gui.needsRedraw());
+            gui.update();
+            assertFalse(gui.needsRedraw());
+            
+            gui.repaintAll();
+            assertTrue(gui.updateIfNeeded());
+            assertFalse(gui.updateIfNeeded());
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    @Test
+    public void testTableModelUpdate() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 128, 1);
+        try {
+            DamageTrackingTest.ColorModel model = new DamageTrackingTest.ColorModel();
+            final Table table = new Table(model);
+            table.registerCellRenderer(Integer.class, new DamageTrackingTest.ColorCellRenderer(renderer));
+            Widget root = new Widget() {
+                @Override
+                protected void layout() {
+                    table.setPosition(0, 0);
+                    table.setSize(32, 96);
+                }
+            };
+            root.add(table);
+            GUI gui = new GUI(root, renderer, null);
+            gui.setDamageTracking(true);
+            
+            assertTrue(gui.updateIfNeeded());
+            assertFalse(gui.updateIfNeeded());
+            assertEquals(0xFFFF0000, pixel(renderer, 4, 40));
+            
+            model.setColor(1, 1, 0xFF0000FF);
+            assertTrue(gui.updateIfNeeded());
+            assertEquals(0xFF0000FF, pixel(renderer, 4, 40));
+            assertEquals(0xFFFF0000, pixel(renderer, 4, 4));
+            assertFalse(gui.updateIfNeeded());
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    @Test
+    public void testWakeupTime() {
+        SoftwareRenderer renderer = new SoftwareRenderer(32, 32, 1);
+        try {
+            GUI gui = new GUI(new Widget(), renderer, null);
+            gui.update();
+            gui.update();
+            assertEquals(Long.MAX_VALUE, gui.getNextWakeupTime());
+            
+            Timer timer = gui.createTimer();
+            timer.setDelay(500);
+            timer.start();
+            long wakeup = gui.getNextWakeupTime();
+            assertTrue(wakeup > gui.getCurrentTime());
+            assertTrue(wakeup <= gui.getCurrentTime() + 500);
+            timer.stop();
+            assertEquals(Long.MAX_VALUE, gui.getNextWakeupTime());
+            
+            final boolean[] executed = new boolean[1];
+            gui.invokeLater(new Runnable() {
+                public void run() {
+                    executed[0] = true;
+                }
+            });
+            assertEquals(gui.getCurrentTime(), gui.getNextWakeupTime());
+            assertFalse(gui.waitForWakeup(10000));
+            assertFalse(gui.updateIfNeeded());
+            assertTrue(executed[0]);
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testWakeupFromOtherThread() throws Exception {
+        SoftwareRenderer renderer = new SoftwareRenderer(32, 32, 1);
+        try {
+            final GUI gui = new GUI(new Widget(), renderer, null);
+            gui.update();
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ex) {
+                    }
+                    gui.wakeup();
+                }
+            };
+            t.start();
+            assertTrue(gui.waitForWakeup(60000));
+            t.join();
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    @Test
+    public void testEventDrivenLoop() {
+        SoftwareRenderer renderer = new SoftwareRenderer(32, 32, 1);
+        try {
+            final Widget w = new Widget();
+            GUI gui = new GUI(w, renderer, null);
+            final int[] counts = new int[2];
+            final EventDrivenLoop[] loop = new EventDrivenLoop[1];
+            loop[0] = new EventDrivenLoop(gui, new EventDrivenLoop.Host() {
+                public boolean isCloseRequested() {
+                    return counts[0] + counts[1] >= 10;
+                }
+                public void presentFrame() {
+                    counts[0]++;
+                }
+                public void processMessages() {
+                    if(++counts[1] == 5) {
+                        w.repaint();
+                    }
+                }
+            });
+            loop[0].setMaxSleepTime(1);
+            loop[0].run();
+            assertEquals(2, loop[0].getNumFramesRendered());
+            assertEquals(8, loop[0].getNumFramesSkipped());
+            assertEquals(2, counts[0]);
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    private static int pixel(SoftwareRenderer r, int x, int y) {
+        return r.getFramebuffer()[y * r.getWidth() + x];
+    }
+}
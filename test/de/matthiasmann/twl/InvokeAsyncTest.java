@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the async job execution of GUI
+ *
+ * @author Matthias Mann
+ */
+public class InvokeAsyncTest {
+
+    private SoftwareRenderer renderer;
+    private Widget root;
+    private GUI gui;
+    private ManualExecutor executor;
+    private ArrayList<String> log;
+    
+    public InvokeAsyncTest() {
+    }
+
+    @Before
+    public void setUp() {
+        renderer = new SoftwareRenderer(16, 16, 1);
+        root = new Widget();
+        gui = new GUI(root, renderer, null);
+        executor = new ManualExecutor();
+        gui.setAsyncExecutor(executor);
+        log = new ArrayList<String>();
+    }
+
+    @After
+    public void tearDown() {
+        gui.destroy();
+        renderer.destroy();
+    }
+
+    @Test
+    public void testCompletion() throws Exception {
+        Future<String> f = gui.invokeAsync(new Job("a"), new Listener(log));
+        assertEquals(1, gui.getNumQueuedAsyncJobs());
+        executor.runAll();
+        assertEquals(0, gui.getNumQueuedAsyncJobs());
+        assertEquals(0, gui.getNumRunningAsyncJobs());
+        assertEquals("a", f.get());
+        assertTrue(log.isEmpty());
+        gui.invokeRunables();
+        assertEquals("[completed a]", log.toString());
+        
+        gui.invokeAsync(new Job(null), new Listener(log));
+        executor.runAll();
+        gui.invokeRunables();
+        assertEquals("[completed a, failed]", log.toString());
+        assertEquals(0, gui.getNumDiscardedAsyncJobs());
+    }
+
+    @Test
+    public void testCancelBeforeStart() {
+        Future<String> f = gui.invokeAsync(new Job("a"), new Listener(log));
+        assertTrue(f.cancel(false));
+        assertEquals(0, gui.getNumQueuedAsyncJobs());
+        executor.runAll();
+        gui.invokeRunables();
+        assertTrue(log.isEmpty());
+        assertEquals(1, gui.getNumDiscardedAsyncJobs());
+    }
+
+    @Test
+    public void testLatestWins() {
+        for(int i=0 ; i<3 ; i++) {
+            gui.invokeAsyncLatest("query", null, new Job("q"+i), new Listener(log));
+        }
+        executor.runAll();
+        gui.invokeRunables();
+        assertEquals("[completed q2]", log.toString());
+        assertEquals(2, gui.getNumDiscardedAsyncJobs());
+        
+        // the finished job must not cancel a new job with the same key
+        gui.invokeAsyncLatest("query", null, new Job("q3"), new Listener(log));
+        gui.invokeAsyncLatest("other", null, new Job("o"), new Listener(log));
+        executor.runAll();
+        gui.invokeRunables();
+        assertEquals("[completed q2, completed q3, completed o]", log.toString());
+        assertEquals(2, gui.getNumDiscardedAsyncJobs());
+    }
+
+    @Test
+    public void testOwnerRemoved() {
+        Widget owner = new Widget();
+        root.add(owner);
+        gui.invokeAsync(owner, new Job("a"), new Listener(log));
+        gui.invokeAsync(owner, new Job("b"), new Listener(log));
+        executor.runAll();
+        root.removeChild(owner);
+        gui.invokeRunables();
+        assertTrue(log.isEmpty());
+        assertEquals(2, gui.getNumDiscardedAsyncJobs());
+        
+        root.add(owner);
+        gui.invokeAsync(owner, new Job("c"), new Listener(log));
+        executor.runAll();
+        gui.invokeRunables();
+        assertEquals("[completed c]", log.toString());
+        owner.destroy();
+        assertEquals(2, gui.getNumDiscardedAsyncJobs());
+        
+        Future<String> f = gui.invokeAsync(owner, new Job("d"), new Listener(log));
+        owner.destroy();
+        assertTrue(f.isCancelled());
+        assertEquals(3, gui.getNumDiscardedAsyncJobs());
+    }
+
+    static class ManualExecutor implements Executor {
+        final ArrayList<Runnable> jobs = new ArrayList<Runnable>();
+        
+        public void execute(Runnable command) {
+            jobs.add(command);
+        }
+        
+        void runAll() {
+            while(!jobs.isEmpty()) {
+                jobs.remove(0).run();
+            }
+        }
+    }
+    
+    static class Job implements Callable<String> {
+        final String result;
+
+        Job(String result) {
+            this.result = result;
+        }
+
+        public String call() throws Exception {
+            if(result == null) {
+                throw new Exception("failed");
+            }
+            return result;
+        }
+    }
+    
+    static class Listener implements GUI.AsyncCompletionListener<String> {
+        final ArrayList<String> log;
+
+        Listener(ArrayList<String> log) {
+            this.log = log;
+        }
+
+        public void completed(String result) {
+            log.add("completed " + result);
+        }
+
+        public void failed(Exception ex) {
+            log.add(ex.getMessage());
+        }
+    }
+}
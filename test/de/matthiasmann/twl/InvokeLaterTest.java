@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the invokeLater queue of GUI
+ *
+ * @author Matthias Mann
+ */
+public class InvokeLaterTest {
+
+    private SoftwareRenderer renderer;
+    private GUI gui;
+    
+    public InvokeLaterTest() {
+    }
+
+    @Before
+    public void setUp() {
+        renderer = new SoftwareRenderer(16, 16, 1);
+        gui = new GUI(new Widget(), renderer, null);
+    }
+
+    @After
+    public void tearDown() {
+        gui.destroy();
+        renderer.destroy();
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int numThreads = 4;
+        final int numPerThread = 10000;
+        final int[] lastSeen = new int[numThreads];
+        final boolean[] ordered = new boolean[] { true };
+        Thread[] threads = new Thread[numThreads];
+        for(int t=0 ; t<numThreads ; t++) {
+            lastSeen[t] = -1;
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for(int i=0 ; i<numPerThread ; i++) {
+                        final int seq = i;
+                        gui.invokeLater(new Runnable() {
+                            public void run() {
+                                ordered[0] &= lastSeen[thread] == seq - 1;
+                                lastSeen[thread] = seq;
+                            }
+                        });
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        boolean running = true;
+        while(running) {
+            running = false;
+            for(Thread t : threads) {
+                running |= t.isAlive();
+            }
+            gui.invokeRunables();
+        }
+        while(gui.getInvokeLaterQueueSize() > 0) {
+            gui.invokeRunables();
+        }
+        assertTrue(ordered[0]);
+        for(int t=0 ; t<numThreads ; t++) {
+            assertEquals(numPerThread-1, lastSeen[t]);
+        }
+        assertEquals(numThreads*numPerThread, gui.getNumInvokedRunnables());
+        assertTrue(gui.getMaxInvokeLatencyNanos() >= 0);
+        assertTrue(gui.getTotalInvokeLatencyNanos() >= gui.getMaxInvokeLatencyNanos());
+    }
+
+    @Test
+    public void testPriority() {
+        final ArrayList<String> log = new ArrayList<String>();
+        gui.invokeLater(new LogRunnable(log, "low"), GUI.InvokePriority.LOW);
+        gui.invokeLater(new LogRunnable(log, "normal1"));
+        gui.invokeLater(new LogRunnable(log, "high"), GUI.InvokePriority.HIGH);
+        gui.invokeLater(new LogRunnable(log, "normal2"));
+        assertEquals(4, gui.getInvokeLaterQueueSize());
+        gui.invokeRunables();
+        assertEquals("[high, normal1, normal2, low]", log.toString());
+        assertEquals(0, gui.getInvokeLaterQueueSize());
+    }
+
+    @Test
+    public void testQueuedWhileRunning() {
+        final ArrayList<String> log = new ArrayList<String>();
+        gui.invokeLater(new Runnable() {
+            public void run() {
+                log.add("first");
+                gui.invokeLater(new LogRunnable(log, "second"));
+            }
+        });
+        gui.invokeRunables();
+        assertEquals("[first]", log.toString());
+        gui.invokeRunables();
+        assertEquals("[first, second]", log.toString());
+    }
+
+    @Test
+    public void testTimeBudget() {
+        final ArrayList<String> log = new ArrayList<String>();
+        for(int i=0 ; i<3 ; i++) {
+            final String name = "slow" + i;
+            gui.invokeLater(new Runnable() {
+                public void run() {
+                    log.add(name);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException ex) {
+                    }
+                }
+            });
+        }
+        gui.setInvokeTimeBudget(5);
+        gui.invokeRunables();
+        assertEquals(1, log.size());
+        assertEquals(2, gui.getInvokeLaterQueueSize());
+        gui.setInvokeTimeBudget(0);
+        gui.invokeRunables();
+        assertEquals("[slow0, slow1, slow2]", log.toString());
+    }
+
+    static class LogRunnable implements Runnable {
+        final ArrayList<String> log;
+        final String name;
+
+        LogRunnable(ArrayList<String> log, String name) {
+            this.log = log;
+            this.name = name;
+        }
+
+        public void run() {
+            log.add(name);
+        }
+    }
+}
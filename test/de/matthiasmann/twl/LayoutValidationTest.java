@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the incremental layout validation
+ *
+ * @author Matthias Mann
+ */
+public class LayoutValidationTest {
+
+    public LayoutValidationTest() {
+    }
+
+    @Test
+    public void testIncrementalLayout() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        StatisticsHook hook = new StatisticsHook();
+        DebugHook oldHook = DebugHook.installHook(hook);
+        try {
+            Widget root = new Widget();
+            CountingWidget target = null;
+            for(int i=0 ; i<10 ; i++) {
+                Widget group = new Widget();
+                for(int j=0 ; j<10 ; j++) {
+                    CountingWidget leaf = new CountingWidget();
+                    group.add(leaf);
+                    if(i == 5 && j == 3) {
+                        target = leaf;
+                    }
+                }
+                root.add(group);
+            }
+            GUI gui = new GUI(root, renderer, null);
+            gui.validateLayout();
+            int numLayouts = target.numLayouts;
+            
+            target.invalidateLayout();
+            hook.numVisits = 0;
+            gui.validateLayout();
+            assertEquals(numLayouts + 1, target.numLayouts);
+            // GUI, root, group and target - once per iteration
+            assertTrue(hook.numVisits <= 4 * hook.iterations);
+            assertTrue(hook.numLayouts >= 3);
+            
+            hook.numVisits = 0;
+            gui.validateLayout();
+            assertEquals(0, hook.numVisits);
+            assertEquals(numLayouts + 1, target.numLayouts);
+            
+            gui.destroy();
+        } finally {
+            DebugHook.installHook(oldHook);
+            renderer.destroy();
+        }
+    }
+    
+    static class StatisticsHook extends DebugHook {
+        int iterations;
+        int numLayouts;
+        int numVisits;
+
+        @Override
+        public void guiLayoutStatistics(int iterations, int numLayouts, int numVisits, long nanos) {
+            this.iterations = iterations;
+            this.numLayouts = numLayouts;
+            this.numVisits = numVisits;
+        }
+    }
+    
+    static class CountingWidget extends Widget {
+        int numLayouts;
+
+        @Override
+        protected void layout() {
+            numLayouts++;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the widget size cache
+ *
+ * @author Matthias Mann
+ */
+public class SizeCacheTest {
+
+    public SizeCacheTest() {
+    }
+
+    @Test
+    public void testSizeCache() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        try {
+            final MeasuredWidget child = new MeasuredWidget();
+            Widget root = new Widget() {
+                @Override
+                protected void layout() {
+                    int w = child.getCachedPreferredWidth();
+                    w = Math.max(w, child.getCachedPreferredWidth());
+                    w = Math.max(w, child.getCachedPreferredWidth());
+                    child.setSize(w, 10);
+                }
+            };
+            root.add(child);
+            GUI gui = new GUI(root, renderer, null);
+            
+            gui.validateLayout();
+            assertEquals(1, child.numMeasures);
+            assertEquals(20, child.getWidth());
+            assertTrue(gui.getNumSizeCacheHits() >= 2);
+            
+            // outside of a layout pass the cache is not used
+            child.prefWidth = 30;
+            assertEquals(30, child.getCachedPreferredWidth());
+            assertEquals(2, child.numMeasures);
+            
+            child.numMeasures = 0;
+            root.invalidateLayout();
+            gui.validateLayout();
+            assertEquals(1, child.numMeasures);
+            assertEquals(30, child.getWidth());
+            
+            child.numMeasures = 0;
+            child.setSizeCacheEnabled(false);
+            root.invalidateLayout();
+            gui.validateLayout();
+            assertEquals(3, child.numMeasures);
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    @Test
+    public void testInvalidateAfterUncachedQuery() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        try {
+            final MeasuredWidget inner = new MeasuredWidget();
+            final Widget mid = new Widget() {
+                @Override
+                public int getPreferredWidth() {
+                    // does not use the size cache of the child
+                    return inner.getPreferredWidth();
+                }
+            };
+            final Widget outer = new Widget() {
+                @Override
+                public int getPreferredWidth() {
+                    return mid.getPreferredWidth();
+                }
+            };
+            final int[] result = new int[2];
+            Widget root = new Widget() {
+                @Override
+                protected void layout() {
+                    inner.invalidateSizeCache();
+                    result[0] = outer.getCachedPreferredWidth();
+                    inner.prefWidth = 40;
+                    inner.invalidateSizeCache();
+                    result[1] = outer.getCachedPreferredWidth();
+                }
+            };
+            mid.add(inner);
+            outer.add(mid);
+            root.add(outer);
+            GUI gui = new GUI(root, renderer, null);
+            
+            gui.validateLayout();
+            assertEquals(20, result[0]);
+            assertEquals(40, result[1]);
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    static class MeasuredWidget extends Widget {
+        int prefWidth = 20;
+        int numMeasures;
+
+        @Override
+        public int getPreferredWidth() {
+            numMeasures++;
+            return prefWidth;
+        }
+    }
+}
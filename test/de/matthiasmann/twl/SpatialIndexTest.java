@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the spatial index of child widgets
+ *
+ * @author Matthias Mann
+ */
+public class SpatialIndexTest {
+
+    public SpatialIndexTest() {
+    }
+
+    @Test
+    public void testMatchesLinearSearch() {
+        Random r = new Random(4711);
+        Container c = new Container();
+        c.setPosition(13, 27);
+        c.setSize(1000, 1000);
+        c.setSpatialIndexEnabled(true);
+        for(int i=0 ; i<500 ; i++) {
+            Widget w = new Widget();
+            c.add(w);
+            // include a few widgets which span many cells
+            int size = (i % 50 == 0) ? 900 : 1 + r.nextInt(100);
+            w.setPosition(c.getX() + r.nextInt(1000), c.getY() + r.nextInt(1000));
+            w.setSize(size, 1 + r.nextInt(100));
+        }
+        check(c, r);
+        
+        for(int i=0 ; i<100 ; i++) {
+            Widget w = c.getChild(r.nextInt(c.getNumChildren()));
+            switch(i % 4) {
+                case 0:
+                    w.setPosition(c.getX() + r.nextInt(1000), c.getY() + r.nextInt(1000));
+                    break;
+                case 1:
+                    w.setSize(r.nextInt(200), r.nextInt(200));
+                    break;
+                case 2:
+                    c.moveChild(r.nextInt(c.getNumChildren()), r.nextInt(c.getNumChildren()));
+                    break;
+                case 3:
+                    w.setVisible(false);
+                    break;
+            }
+        }
+        check(c, r);
+        
+        for(int i=0 ; i<100 ; i++) {
+            c.removeChild(r.nextInt(c.getNumChildren()));
+        }
+        c.setPosition(-200, 300);
+        check(c, r);
+    }
+    
+    @Test
+    public void testTopmostWins() {
+        Container c = new Container();
+        c.setSpatialIndexEnabled(true);
+        Widget a = new Widget();
+        Widget b = new Widget();
+        c.add(a);
+        c.add(b);
+        a.setSize(100, 100);
+        b.setSize(100, 100);
+        assertSame(b, c.getChildAt(10, 10));
+        c.moveChild(1, 0);
+        assertSame(a, c.getChildAt(10, 10));
+        
+        b.setPosition(200, 0);
+        assertSame(b, c.getChildAt(210, 10));
+        c.removeChild(b);
+        assertNull(c.getChildAt(210, 10));
+        
+        c.setSpatialIndexEnabled(false);
+        assertSame(a, c.getChildAt(10, 10));
+        c.setSpatialIndexEnabled(true);
+        assertSame(a, c.getChildAt(10, 10));
+    }
+    
+    private static void check(Container c, Random r) {
+        for(int i=0 ; i<2000 ; i++) {
+            int x = c.getX() - 50 + r.nextInt(1100);
+            int y = c.getY() - 50 + r.nextInt(1100);
+            assertSame(linearChildAt(c, x, y), c.getChildAt(x, y));
+        }
+    }
+    
+    private static Widget linearChildAt(Widget c, int x, int y) {
+        for(int i=c.getNumChildren() ; i-->0 ;) {
+            Widget child = c.getChild(i);
+            if(child.isVisible() && child.isInside(x, y)) {
+                return child;
+            }
+        }
+        return null;
+    }
+    
+    static class Container extends Widget {
+        @Override
+        protected void moveChild(int from, int to) {
+            super.moveChild(from, to);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.model.AbstractTableModel;
+import de.matthiasmann.twl.model.BulkTableModel;
+import de.matthiasmann.twl.model.TreeTableNode;
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the bulk cell fetch of Table
+ *
+ * @author Matthias Mann
+ */
+public class TableBulkFetchTest {
+
+    public TableBulkFetchTest() {
+    }
+
+    @Test
+    public void testPaintUsesBulkFetch() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        try {
+            Model model = new Model();
+            CountingRenderer cellRenderer = new CountingRenderer();
+            final Table table = new Table(model);
+            table.registerCellRenderer(Integer.class, cellRenderer);
+            table.setSize(64, 64);
+            
+            Widget root = new Widget() {
+                @Override
+                protected void layout() {
+                    table.setPosition(0, 0);
+                    table.setSize(64, 64);
+                }
+            };
+            root.add(table);
+            GUI gui = new GUI(root, renderer, null);
+            
+            gui.update();
+            assertEquals(0, model.numGetCell);
+            assertTrue(model.numGetCells > 0);
+            assertTrue(cellRenderer.numCells > 0);
+            
+            // the visible window is fetched once per frame
+            int numGetCells = model.numGetCells;
+            table.repaint();
+            gui.update();
+            assertEquals(numGetCells + 1, model.numGetCells);
+            assertEquals(0, model.numGetCell);
+            
+            // a new renderer must be used
+            CountingRenderer cellRenderer2 = new CountingRenderer();
+            table.registerCellRenderer(Integer.class, cellRenderer2);
+            table.repaint();
+            gui.update();
+            assertTrue(cellRenderer2.numCells > 0);
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    @Test
+    public void testRowHeightUsesBulkFetch() {
+        Model model = new Model();
+        CountingRenderer cellRenderer = new CountingRenderer();
+        Table table = new Table(model);
+        table.registerCellRenderer(Integer.class, cellRenderer);
+        table.setVaribleRowHeight(true);
+        table.measureAllRows();
+        assertEquals(0, model.numGetCell);
+        assertEquals(model.getNumRows(), model.numGetCells);
+        assertEquals(model.getNumRows() * model.getNumColumns(), cellRenderer.numCells);
+    }
+    
+    @Test
+    public void testOverriddenCellDataDisablesBulkFetch() {
+        Model model = new Model();
+        CountingRenderer cellRenderer = new CountingRenderer();
+        Table table = new Table(model) {
+            @Override
+            protected boolean useBulkCellData() {
+                return false;
+            }
+            @Override
+            protected Object getCellData(int row, int column, TreeTableNode node) {
+                return row * 4 + column;
+            }
+        };
+        table.registerCellRenderer(Integer.class, cellRenderer);
+        table.setVaribleRowHeight(true);
+        table.measureAllRows();
+        assertEquals(0, model.numGetCells);
+        assertEquals(model.getNumRows() * model.getNumColumns(), cellRenderer.numCells);
+    }
+    
+    @Test
+    public void testOverriddenCellRendererDisablesBulkFetch() {
+        Model model = new Model();
+        final CountingRenderer cellRenderer = new CountingRenderer();
+        Table table = new Table(model) {
+            @Override
+            protected boolean useBulkCellData() {
+                return false;
+            }
+            @Override
+            protected CellRenderer getCellRenderer(int row, int col, TreeTableNode node) {
+                cellRenderer.setCellData(row, col, row * 4 + col);
+                return cellRenderer;
+            }
+        };
+        table.setVaribleRowHeight(true);
+        table.measureAllRows();
+        assertEquals(0, model.numGetCells);
+        assertEquals(model.getNumRows() * model.getNumColumns(), cellRenderer.numCells);
+    }
+    
+    @Test
+    public void testModelWithoutBulkFetch() {
+        PlainModel model = new PlainModel();
+        CountingRenderer cellRenderer = new CountingRenderer();
+        Table table = new Table(model);
+        table.registerCellRenderer(Integer.class, cellRenderer);
+        table.setVaribleRowHeight(true);
+        table.measureAllRows();
+        assertEquals(model.getNumRows() * model.getNumColumns(), model.numGetCell);
+        assertEquals(model.getNumRows() * model.getNumColumns(), cellRenderer.numCells);
+    }
+    
+    static class PlainModel extends AbstractTableModel {
+        int numGetCell;
+        
+        public int getNumRows() {
+            return 100;
+        }
+
+        public int getNumColumns() {
+            return 4;
+        }
+
+        public String getColumnHeaderText(int column) {
+            return "Column " + column;
+        }
+
+        public Object getCell(int row, int column) {
+            numGetCell++;
+            return row * 4 + column;
+        }
+    }
+    
+    static class Model extends AbstractTableModel implements BulkTableModel {
+        int numGetCell;
+        int numGetCells;
+        
+        public int getNumRows() {
+            return 100;
+        }
+
+        public int getNumColumns() {
+            return 4;
+        }
+
+        public String getColumnHeaderText(int column) {
+            return "Column " + column;
+        }
+
+        public Object getCell(int row, int column) {
+            numGetCell++;
+            return row * 4 + column;
+        }
+
+        public void getCells(int row, int column, int numRows, int numColumns, Object[] dst) {
+            numGetCells++;
+            for(int r=0 ; r<numRows ; r++) {
+                for(int c=0 ; c<numColumns ; c++) {
+                    dst[r*numColumns + c] = (row + r) * 4 + column + c;
+                }
+            }
+        }
+    }
+    
+    static class CountingRenderer implements TableBase.CellRenderer {
+        int numCells;
+
+        public void applyTheme(ThemeInfo themeInfo) {
+        }
+
+        public String getTheme() {
+            return "cell";
+        }
+
+        public void setCellData(int row, int column, Object data) {
+            assertEquals(row * 4 + column, data);
+            numCells++;
+        }
+
+        public int getColumnSpan() {
+            return 1;
+        }
+
+        public int getPreferredHeight() {
+            return 10;
+        }
+
+        public Widget getCellRenderWidget(int x, int y, int width, int height, boolean isSelected) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.model.AbstractTableModel;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the lazy row measurement in variable row height mode
+ *
+ * @author Matthias Mann
+ */
+public class TableRowHeightTest {
+
+    private static final int NUM_ROWS = 1000000;
+    private static final int ESTIMATE = 20;
+    
+    public TableRowHeightTest() {
+    }
+
+    @Test
+    public void testOnlyVisibleRowsMeasured() {
+        HeightRenderer renderer = new HeightRenderer();
+        Table table = createTable(renderer);
+        
+        assertEquals(ESTIMATE, table.getRowHeight(NUM_ROWS-1));
+        assertTrue(table.getNumMeasuredRows() < 50);
+        assertEquals(table.getNumMeasuredRows(), renderer.numCalls);
+        
+        for(int row=0 ; row<=table.lastVisibleRow ; row++) {
+            assertEquals(rowHeight(row), table.getRowHeight(row));
+        }
+        assertEquals(ESTIMATE, table.getRowHeight(NUM_ROWS/2));
+    }
+
+    @Test
+    public void testScrollKeepsVisibleRows() {
+        HeightRenderer renderer = new HeightRenderer();
+        Table table = createTable(renderer);
+        ScrollPane scrollPane = new ScrollPane(table);
+        scrollPane.setFixed(ScrollPane.Fixed.HORIZONTAL);
+        scrollPane.setSize(400, 300);
+        scrollPane.validateLayout();
+        
+        int pos = table.getRowStartPosition(5000);
+        scrollPane.setScrollPositionY(pos);
+        scrollPane.validateLayout();
+        
+        // the rows above were measured and the scroll position corrected
+        int firstRow = table.firstVisibleRow;
+        assertEquals(5000, firstRow);
+        assertEquals(table.getRowStartPosition(5000), table.scrollPosY);
+        assertEquals(table.scrollPosY, scrollPane.getScrollPositionY());
+        assertEquals(rowHeight(4999), table.getRowHeight(4999));
+        assertEquals(ESTIMATE, table.getRowHeight(4000));
+        
+        int numMeasured = table.getNumMeasuredRows();
+        scrollPane.validateLayout();
+        assertEquals(numMeasured, table.getNumMeasuredRows());
+    }
+
+    @Test
+    public void testInsertRemove() {
+        HeightRenderer renderer = new HeightRenderer();
+        Model model = new Model();
+        Table table = createTable(renderer, model);
+        int numMeasured = table.getNumMeasuredRows();
+        
+        model.numRows += 10;
+        model.fireRowsInserted(0, 10);
+        assertEquals(numMeasured, table.getNumMeasuredRows());
+        assertEquals(ESTIMATE, table.getRowHeight(0));
+        assertEquals(rowHeight(0), table.getRowHeight(10));
+        
+        model.numRows -= 10;
+        model.fireRowsDeleted(0, 10);
+        assertEquals(numMeasured, table.getNumMeasuredRows());
+        assertEquals(rowHeight(0), table.getRowHeight(0));
+        
+        model.fireRowsChanged(NUM_ROWS-100, 100);
+        assertEquals(numMeasured, table.getNumMeasuredRows());
+    }
+
+    @Test
+    public void testMeasureAll() {
+        HeightRenderer renderer = new HeightRenderer();
+        Model model = new Model();
+        model.numRows = 1000;
+        Table table = createTable(renderer, model);
+        
+        table.measureAllRows();
+        assertEquals(1000, table.getNumMeasuredRows());
+        int sum = 0;
+        for(int row=0 ; row<1000 ; row++) {
+            sum += rowHeight(row);
+        }
+        assertEquals(sum, table.getRowEndPosition(999));
+    }
+    
+    private static Table createTable(HeightRenderer renderer) {
+        return createTable(renderer, new Model());
+    }
+    
+    private static Table createTable(HeightRenderer renderer, Model model) {
+        Table table = new Table(model);
+        table.registerCellRenderer(Integer.class, renderer);
+        table.setEstimatedRowHeight(ESTIMATE);
+        table.setVaribleRowHeight(true);
+        table.setSize(400, 300);
+        table.validateLayout();
+        return table;
+    }
+    
+    static int rowHeight(int row) {
+        return ((row % 3) == 0) ? 40 : 15;
+    }
+    
+    static class Model extends AbstractTableModel {
+        int numRows = NUM_ROWS;
+
+        public int getNumRows() {
+            return numRows;
+        }
+
+        public int getNumColumns() {
+            return 2;
+        }
+
+        public String getColumnHeaderText(int column) {
+            return "Column " + column;
+        }
+
+        public Object getCell(int row, int column) {
+            return row;
+        }
+
+        @Override
+        protected void fireRowsInserted(int idx, int count) {
+            super.fireRowsInserted(idx, count);
+        }
+
+        @Override
+        protected void fireRowsDeleted(int idx, int count) {
+            super.fireRowsDeleted(idx, count);
+        }
+
+        @Override
+        protected void fireRowsChanged(int idx, int count) {
+            super.fireRowsChanged(idx, count);
+        }
+    }
+    
+    static class HeightRenderer implements TableBase.CellRenderer {
+        int row;
+        int numCalls;
+
+        public void applyTheme(ThemeInfo themeInfo) {
+        }
+
+        public String getTheme() {
+            return "cell";
+        }
+
+        public void setCellData(int row, int column, Object data) {
+            this.row = row;
+        }
+
+        public int getColumnSpan() {
+            // covers both columns so that each row is measured once
+            return 2;
+        }
+
+        public int getPreferredHeight() {
+            numCalls++;
+            return rowHeight(row);
+        }
+
+        public Widget getCellRenderWidget(int x, int y, int width, int height, boolean isSelected) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the timing wheel behind GUI timers
+ *
+ * @author Matthias Mann
+ */
+public class TimerWheelTest {
+
+    private SoftwareRenderer renderer;
+    private GUI gui;
+    
+    public TimerWheelTest() {
+    }
+
+    @Before
+    public void setUp() {
+        renderer = new SoftwareRenderer(16, 16, 1);
+        gui = new GUI(new Widget(), renderer, null);
+    }
+
+    @After
+    public void tearDown() {
+        gui.destroy();
+        renderer.destroy();
+    }
+
+    @Test
+    public void testMatchesCountdown() {
+        Random r = new Random(4711);
+        final int numTimers = 300;
+        final ArrayList<Integer> fired = new ArrayList<Integer>();
+        Timer[] timers = new Timer[numTimers];
+        int[] counter = new int[numTimers];   // reference: the old count down
+        
+        for(int i=0 ; i<numTimers ; i++) {
+            final int id = i;
+            timers[i] = gui.createTimer();
+            timers[i].setCallback(new Runnable() {
+                public void run() {
+                    fired.add(id);
+                }
+            });
+        }
+        
+        for(int step=0 ; step<3000 ; step++) {
+            for(int op=0 ; op<5 ; op++) {
+                int i = r.nextInt(numTimers);
+                if(timers[i].isRunning()) {
+                    timers[i].stop();
+                    counter[i] = 0;
+                } else {
+                    int delay = (r.nextInt(10) == 0) ? 1 + r.nextInt(300000) : 1 + r.nextInt(200);
+                    timers[i].setDelay(delay);
+                    timers[i].setContinuous(r.nextBoolean());
+                    timers[i].start();
+                    counter[i] = delay;
+                }
+            }
+            
+            long expected = Long.MAX_VALUE;
+            for(int i=0 ; i<numTimers ; i++) {
+                if(counter[i] > 0) {
+                    expected = Math.min(expected, counter[i]);
+                }
+            }
+            long next = gui.timerWheel.getNextExpirationTime();
+            if(expected == Long.MAX_VALUE) {
+                assertEquals(Long.MAX_VALUE, next);
+            } else {
+                assertEquals(expected, next - gui.timerWheel.getCurrentTime());
+            }
+            
+            int delta = (r.nextInt(100) == 0) ? r.nextInt(100000) : r.nextInt(40);
+            ArrayList<Integer> expectedFired = new ArrayList<Integer>();
+            for(int i=0 ; i<numTimers ; i++) {
+                if(counter[i] > 0) {
+                    int newCounter = counter[i] - delta;
+                    if(newCounter <= 0) {
+                        expectedFired.add(i);
+                        counter[i] = timers[i].isContinuous() ? Math.max(1, newCounter + timers[i].delay) : 0;
+                    } else {
+                        counter[i] = newCounter;
+                    }
+                }
+            }
+            
+            fired.clear();
+            gui.timerWheel.advance(delta);
+            Collections.sort(fired);
+            assertEquals("step " + step, expectedFired, fired);
+            
+            int numRunning = 0;
+            for(int i=0 ; i<numTimers ; i++) {
+                assertEquals(counter[i] > 0, timers[i].isRunning());
+                if(counter[i] > 0) {
+                    numRunning++;
+                }
+            }
+            assertEquals(numRunning, gui.getNumActiveTimers());
+        }
+    }
+
+    @Test
+    public void testStartStopInCallback() {
+        final Timer oneShot = gui.createTimer();
+        final int[] count = new int[2];
+        oneShot.setDelay(10);
+        oneShot.setCallback(new Runnable() {
+            public void run() {
+                if(++count[0] < 3) {
+                    oneShot.start();
+                }
+            }
+        });
+        final Timer continuous = gui.createTimer();
+        continuous.setDelay(7);
+        continuous.setContinuous(true);
+        continuous.setCallback(new Runnable() {
+            public void run() {
+                if(++count[1] == 2) {
+                    continuous.stop();
+                }
+            }
+        });
+        oneShot.start();
+        continuous.start();
+        
+        for(int i=0 ; i<100 ; i++) {
+            gui.timerWheel.advance(1);
+        }
+        assertEquals(3, count[0]);
+        assertEquals(2, count[1]);
+        assertFalse(oneShot.isRunning());
+        assertFalse(continuous.isRunning());
+        assertEquals(0, gui.getNumActiveTimers());
+        assertEquals(Long.MAX_VALUE, gui.getNextTimerExpirationTime());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the lazy absolute widget positions
+ *
+ * @author Matthias Mann
+ */
+public class WidgetPositionTest {
+
+    public WidgetPositionTest() {
+    }
+
+    @Test
+    public void testMoveSubtree() {
+        Widget root = new Widget();
+        Widget pane = new Widget();
+        Widget content = new Widget();
+        CountingWidget leaf = new CountingWidget();
+        root.add(pane);
+        pane.add(content);
+        content.add(leaf);
+        
+        pane.setPosition(10, 20);
+        content.setPosition(15, 25);
+        leaf.setPosition(20, 30);
+        leaf.setSize(10, 10);
+        assertEquals(20, leaf.getX());
+        assertEquals(30, leaf.getY());
+        
+        int count = leaf.numChanges;
+        pane.setPosition(110, 220);
+        assertEquals(count+1, leaf.numChanges);
+        assertEquals(115, content.getX());
+        assertEquals(225, content.getY());
+        assertEquals(120, leaf.getX());
+        assertEquals(230, leaf.getY());
+        assertEquals(count+1, leaf.numChanges);
+        assertTrue(leaf.isInside(120, 230));
+        assertFalse(leaf.isInside(20, 30));
+        
+        content.setPosition(content.getX(), content.getY() - 100);
+        assertEquals(130, leaf.getY());
+        assertEquals(count+2, leaf.numChanges);
+        
+        pane.setBorderSize(5);
+        assertEquals(120, content.getX());
+        assertEquals(135, leaf.getY());
+    }
+
+    @Test
+    public void testEagerPositionNotification() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        Widget root = new Widget();
+        GUI gui = new GUI(root, renderer, null);
+        try {
+            Widget pane = new Widget();
+            Widget content = new Widget();
+            CountingWidget leaf = new CountingWidget();
+            Widget plain = new Widget();
+            root.add(pane);
+            pane.add(content);
+            content.add(leaf);
+            content.add(plain);
+            pane.setPosition(10, 10);
+            
+            final int[] lastX = new int[] { -1 };
+            plain.addPropertyChangeListener("x", new PropertyChangeListener() {
+                public void propertyChange(PropertyChangeEvent evt) {
+                    lastX[0] = (Integer)evt.getNewValue();
+                }
+            });
+            
+            // the child is notified before the next paint or hit test
+            int count = leaf.numChanges;
+            pane.setPosition(30, 40);
+            assertEquals(count+1, leaf.numChanges);
+            assertEquals(30, leaf.lastX);
+            assertEquals(40, leaf.lastY);
+            assertEquals(30, lastX[0]);
+            
+            gui.update();
+            assertEquals(count+1, leaf.numChanges);
+            
+            content.setPosition(50, 50);
+            assertEquals(count+2, leaf.numChanges);
+            assertEquals(50, leaf.lastX);
+            assertEquals(50, lastX[0]);
+        } finally {
+            gui.destroy();
+            renderer.destroy();
+        }
+    }
+
+    @Test
+    public void testReparent() {
+        Widget a = new Widget();
+        Widget b = new Widget();
+        Widget child = new Widget();
+        Widget grandChild = new Widget();
+        a.setPosition(100, 100);
+        b.setPosition(300, 300);
+        a.add(child);
+        child.add(grandChild);
+        assertEquals(100, grandChild.getX());
+        
+        child.setPosition(110, 120);
+        grandChild.setPosition(115, 125);
+        a.removeChild(child);
+        assertEquals(10, child.getX());
+        assertEquals(20, child.getY());
+        assertEquals(15, grandChild.getX());
+        
+        b.add(child);
+        assertEquals(310, child.getX());
+        assertEquals(320, child.getY());
+        assertEquals(315, grandChild.getX());
+        assertEquals(325, grandChild.getY());
+        
+        a.setPosition(0, 0);
+        assertEquals(315, grandChild.getX());
+    }
+    
+    @Test
+    public void testEpochPerGUI() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        Widget rootA = new Widget();
+        Widget rootB = new Widget();
+        GUI guiA = new GUI(rootA, renderer, null);
+        GUI guiB = new GUI(rootB, renderer, null);
+        try {
+            Widget paneA = new Widget();
+            Widget paneB = new Widget();
+            Widget childB = new Widget();
+            rootA.add(paneA);
+            paneA.add(new Widget());
+            rootB.add(paneB);
+            paneB.add(childB);
+            
+            int epochB = guiB.positionEpoch;
+            paneA.setPosition(10, 10);
+            assertEquals(epochB, guiB.positionEpoch);
+            
+            // a subtree moved while detached picks up the position in the GUI
+            Widget pane = new Widget();
+            Widget child = new Widget();
+            pane.add(child);
+            child.setPosition(5, 5);
+            pane.setPosition(20, 20);
+            rootB.add(pane);
+            assertEquals(25, child.getX());
+            paneB.setPosition(7, 7);
+            assertEquals(7, childB.getX());
+            assertEquals(25, child.getX());
+        } finally {
+            guiA.destroy();
+            guiB.destroy();
+            renderer.destroy();
+        }
+    }
+    
+    static class CountingWidget extends Widget {
+        int numChanges;
+        int lastX;
+        int lastY;
+
+        @Override
+        protected void positionChanged() {
+            numChanges++;
+            lastX = getX();
+            lastY = getY();
+        }
+    }
+}
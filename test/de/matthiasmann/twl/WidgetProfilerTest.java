@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl;
+
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.io.StringWriter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the WidgetProfiler
+ *
+ * @author Matthias Mann
+ */
+public class WidgetProfilerTest {
+
+    public WidgetProfilerTest() {
+    }
+
+    @Test
+    public void testFrameStatistics() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        try {
+            Widget root = new Widget();
+            Widget parent = new Widget();
+            parent.setTheme("parent");
+            root.add(parent);
+            for(int i=0 ; i<5 ; i++) {
+                parent.add(new Leaf());
+            }
+            GUI gui = new GUI(root, renderer, null);
+            WidgetProfiler profiler = new WidgetProfiler();
+            gui.setProfiler(profiler);
+            
+            gui.update();
+            assertEquals(1, profiler.getFrameNumber());
+            
+            WidgetProfiler.Entry parentEntry = findWidget(profiler, parent);
+            assertNotNull(parentEntry);
+            assertEquals("Widget (parent)", parentEntry.getName());
+            assertTrue(parentEntry.getNumCalls() >= 1);
+            
+            WidgetProfiler.Entry leafClass = findClass(profiler, Leaf.class);
+            assertNotNull(leafClass);
+            assertTrue(leafClass.getNumCalls() >= 5);
+            
+            WidgetProfiler.Entry leaf = findWidget(profiler, parent.getChild(0));
+            assertTrue(parentEntry.getInclusiveNanos() >= leaf.getInclusiveNanos());
+            assertTrue(parentEntry.getInclusiveNanos() >= parentEntry.getExclusiveNanos());
+            assertTrue(profiler.getLastFrameNanos() >= profiler.getLastFrameProfiledNanos());
+            
+            // entries are sorted by exclusive time
+            for(int i=1 ; i<profiler.getWidgetEntries().size() ; i++) {
+                assertTrue(profiler.getWidgetEntries().get(i-1).getExclusiveNanos() >=
+                        profiler.getWidgetEntries().get(i).getExclusiveNanos());
+            }
+            
+            gui.handleMouse(10, 10, -1, false);
+            gui.draw();
+            assertNotNull(findWidget(profiler, gui));
+            assertTrue(findWidget(profiler, gui.getChild(0)).getNumCalls() >= 1);
+            
+            gui.setProfiler(null);
+            gui.update();
+            assertEquals(2, profiler.getFrameNumber());
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    @Test
+    public void testChromeTrace() throws Exception {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        try {
+            Widget root = new Widget();
+            Leaf leaf = new Leaf();
+            leaf.setTheme("my\"leaf");
+            root.add(leaf);
+            GUI gui = new GUI(root, renderer, null);
+            WidgetProfiler profiler = new WidgetProfiler();
+            profiler.setTraceEnabled(true);
+            gui.setProfiler(profiler);
+            gui.update();
+            gui.update();
+            assertTrue(profiler.getNumTraceEvents() > 0);
+            
+            StringWriter sw = new StringWriter();
+            profiler.writeChromeTrace(sw);
+            String json = sw.toString();
+            assertTrue(json.startsWith("{\"traceEvents\":["));
+            assertTrue(json.contains("\"name\":\"Leaf (my\\\"leaf)\",\"cat\":\"DRAW\""));
+            assertTrue(json.contains("\"cat\":\"FRAME\""));
+            assertTrue(json.contains("\"cat\":\"LAYOUT\""));
+            
+            profiler.setMaxTraceEvents(profiler.getNumTraceEvents());
+            gui.update();
+            assertTrue(profiler.getNumDroppedTraceEvents() > 0);
+            
+            profiler.clearTrace();
+            assertEquals(0, profiler.getNumTraceEvents());
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    @Test
+    public void testOverlay() {
+        SoftwareRenderer renderer = new SoftwareRenderer(64, 64, 1);
+        try {
+            WidgetProfiler profiler = new WidgetProfiler();
+            ProfilerOverlay overlay = new ProfilerOverlay(profiler);
+            overlay.setUpdateInterval(2);
+            overlay.setShowClasses(true);
+            Widget root = new Widget();
+            root.add(new Leaf());
+            root.add(overlay);
+            GUI gui = new GUI(root, renderer, null);
+            gui.setProfiler(profiler);
+            gui.update();
+            gui.update();
+            String text = overlay.getHotListText();
+            assertTrue(text.startsWith("frame "));
+            assertTrue(text.contains("x Leaf"));
+            
+            root.removeChild(overlay);
+            text = overlay.getHotListText();
+            gui.update();
+            gui.update();
+            assertSame(text, overlay.getHotListText());
+            
+            gui.destroy();
+        } finally {
+            renderer.destroy();
+        }
+    }
+    
+    private static WidgetProfiler.Entry findWidget(WidgetProfiler profiler, Widget w) {
+        for(WidgetProfiler.Entry e : profiler.getWidgetEntries()) {
+            if(e.getWidget() == w) {
+                return e;
+            }
+        }
+        return null;
+    }
+    
+    private static WidgetProfiler.Entry findClass(WidgetProfiler profiler, Class<?> clazz) {
+        for(WidgetProfiler.Entry e : profiler.getClassEntries()) {
+            if(e.getWidgetClass() == clazz) {
+                return e;
+            }
+        }
+        return null;
+    }
+    
+    static class Leaf extends Widget {
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.model;
+
+import de.matthiasmann.twl.GUI;
+import de.matthiasmann.twl.Widget;
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for PagedTableModel
+ *
+ * @author Matthias Mann
+ */
+public class PagedTableModelTest {
+
+    private static final String PLACEHOLDER = "loading";
+    
+    private SoftwareRenderer renderer;
+    private GUI gui;
+    private ManualExecutor executor;
+    private ArrayList<String> log;
+    
+    public PagedTableModelTest() {
+    }
+
+    @Before
+    public void setUp() {
+        renderer = new SoftwareRenderer(16, 16, 1);
+        gui = new GUI(new Widget(), renderer, null);
+        executor = new ManualExecutor();
+        gui.setAsyncExecutor(executor);
+        log = new ArrayList<String>();
+    }
+
+    @After
+    public void tearDown() {
+        gui.destroy();
+        renderer.destroy();
+    }
+
+    @Test
+    public void testLoadPage() {
+        Model model = new Model(1000, 10);
+        assertEquals(PLACEHOLDER, model.getCell(15, 1));
+        assertEquals(PLACEHOLDER, model.getCell(17, 0));
+        assertEquals(1, model.getNumPendingPages());
+        assertEquals(1, executor.jobs.size());
+        
+        complete();
+        assertEquals("[load 10-19, rowsChanged 10-19]", log.toString());
+        assertEquals("15/1", model.getCell(15, 1));
+        assertTrue(model.isRowLoaded(19));
+        assertFalse(model.isRowLoaded(20));
+        assertEquals(0, model.getNumPendingPages());
+        assertEquals(1, model.getNumCachedPages());
+    }
+
+    @Test
+    public void testLastPage() {
+        Model model = new Model(25, 10);
+        model.getCell(24, 0);
+        complete();
+        assertEquals("[load 20-24, rowsChanged 20-24]", log.toString());
+        assertEquals("24/0", model.getCell(24, 0));
+    }
+
+    @Test
+    public void testGetCells() {
+        Model model = new Model(1000, 10);
+        model.getCell(10, 0);
+        complete();
+        
+        Object[] dst = new Object[2*6];
+        model.getCells(8, 1, 6, 2, dst);
+        assertEquals(PLACEHOLDER, dst[0]);
+        assertEquals(PLACEHOLDER, dst[3]);
+        assertEquals("10/1", dst[4]);
+        assertEquals("13/2", dst[11]);
+        // page 0 has been requested
+        assertEquals(1, model.getNumPendingPages());
+    }
+
+    @Test
+    public void testLRU() {
+        Model model = new Model(1000, 10, 3);
+        for(int page=0 ; page<5 ; page++) {
+            model.getCell(page * 10, 0);
+            complete();
+        }
+        assertEquals(3, model.getNumCachedPages());
+        assertFalse(model.isRowLoaded(0));
+        assertFalse(model.isRowLoaded(10));
+        assertTrue(model.isRowLoaded(20));
+        assertTrue(model.isRowLoaded(40));
+    }
+
+    @Test
+    public void testPrefetch() {
+        Model model = new Model(1000, 10);
+        model.setNumPrefetchPages(2);
+        model.visibleRowsChanged(50, 65);
+        complete();
+        assertEquals("[load 50-59, load 60-69, load 70-79, load 80-89, "
+                + "rowsChanged 50-59, rowsChanged 60-69, rowsChanged 70-79, rowsChanged 80-89]", log.toString());
+        
+        log.clear();
+        model.visibleRowsChanged(40, 55);
+        complete();
+        // scrolling up prefetches the pages above
+        assertEquals("[load 40-49, load 30-39, load 20-29, "
+                + "rowsChanged 40-49, rowsChanged 30-39, rowsChanged 20-29]", log.toString());
+    }
+
+    @Test
+    public void testCancelFarPages() {
+        Model model = new Model(100000, 10);
+        model.visibleRowsChanged(0, 15);
+        assertEquals(4, model.getNumPendingPages());
+        model.visibleRowsChanged(50000, 50015);
+        assertEquals(4, model.getNumPendingPages());
+        complete();
+        assertTrue(model.isRowLoaded(50000));
+        assertFalse(model.isRowLoaded(0));
+        assertEquals(4, model.getNumCachedPages());
+    }
+
+    @Test
+    public void testFailure() {
+        Model model = new Model(1000, 10) {
+            @Override
+            protected Object[][] loadRows(int firstRow, int numRows) throws Exception {
+                throw new Exception("failed");
+            }
+            @Override
+            protected void pageLoadFailed(int firstRow, int numRows, Exception ex) {
+                log.add("failed " + firstRow);
+            }
+        };
+        model.getCell(5, 0);
+        complete();
+        assertEquals("[failed 0]", log.toString());
+        assertEquals(PLACEHOLDER, model.getCell(5, 0));
+        assertEquals(0, executor.jobs.size());
+        
+        model.invalidateCache();
+        model.getCell(5, 0);
+        assertEquals(1, executor.jobs.size());
+    }
+
+    @Test
+    public void testInvalidateDiscardsPending() {
+        Model model = new Model(1000, 10);
+        model.getCell(5, 0);
+        model.invalidateCache();
+        complete();
+        assertEquals("[allChanged]", log.toString());
+        assertEquals(0, model.getNumCachedPages());
+    }
+    
+    private void complete() {
+        executor.runAll();
+        gui.update();
+    }
+    
+    class Model extends PagedTableModel {
+        final int numRows;
+        
+        Model(int numRows, int pageSize) {
+            this(numRows, pageSize, 16);
+        }
+        
+        Model(int numRows, int pageSize, int maxPages) {
+            super(gui, pageSize, maxPages);
+            this.numRows = numRows;
+            addChangeListener(new LogListener());
+        }
+
+        public int getNumRows() {
+            return numRows;
+        }
+
+        public int getNumColumns() {
+            return 3;
+        }
+
+        public String getColumnHeaderText(int column) {
+            return "Column " + column;
+        }
+
+        @Override
+        protected Object[][] loadRows(int firstRow, int numRows) throws Exception {
+            synchronized(log) {
+                log.add("load " + firstRow + "-" + (firstRow+numRows-1));
+            }
+            Object[][] rows = new Object[numRows][3];
+            for(int r=0 ; r<numRows ; r++) {
+                for(int c=0 ; c<3 ; c++) {
+                    rows[r][c] = (firstRow + r) + "/" + c;
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        protected Object getPlaceholder(int row, int column) {
+            return PLACEHOLDER;
+        }
+    }
+    
+    class LogListener implements TableModel.ChangeListener {
+        public void rowsInserted(int idx, int count) {
+        }
+        public void rowsDeleted(int idx, int count) {
+        }
+        public void rowsChanged(int idx, int count) {
+            log.add("rowsChanged " + idx + "-" + (idx+count-1));
+        }
+        public void cellChanged(int row, int column) {
+        }
+        public void allChanged() {
+            log.add("allChanged");
+        }
+        public void columnInserted(int idx, int count) {
+        }
+        public void columnDeleted(int idx, int count) {
+        }
+        public void columnHeaderChanged(int column) {
+        }
+    }
+
+    static class ManualExecutor implements Executor {
+        final ArrayList<Runnable> jobs = new ArrayList<Runnable>();
+        
+        public void execute(Runnable command) {
+            jobs.add(command);
+        }
+        
+        void runAll() {
+            while(!jobs.isEmpty()) {
+                jobs.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.model;
+
+import de.matthiasmann.twl.GUI;
+import de.matthiasmann.twl.Table;
+import de.matthiasmann.twl.TableBase;
+import de.matthiasmann.twl.Widget;
+import de.matthiasmann.twl.renderer.AnimationState;
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for SortedFilteredTableModel
+ *
+ * @author Matthias Mann
+ */
+public class SortedFilteredTableModelTest {
+
+    private static final SortedFilteredTableModel.Filter NOT_DIVISIBLE_BY_3 = new SortedFilteredTableModel.Filter() {
+        public boolean accept(TableModel model, int row) {
+            Integer value = (Integer)model.getCell(row, 0);
+            return value == null || value % 3 != 0;
+        }
+    };
+    
+    public SortedFilteredTableModelTest() {
+    }
+
+    @Test
+    public void testSortAndFilter() {
+        SimpleTableModel src = createModel(new Random(1), 1000);
+        SortedFilteredTableModel sfm = new SortedFilteredTableModel(src);
+        check(sfm);
+        
+        sfm.setSorting(0, SortOrder.ASCENDING);
+        check(sfm);
+        sfm.toggleSorting(0);
+        assertEquals(SortOrder.DESCENDING, sfm.getSortOrder());
+        check(sfm);
+        sfm.toggleSorting(1);
+        assertEquals(1, sfm.getSortColumn());
+        assertEquals(SortOrder.ASCENDING, sfm.getSortOrder());
+        check(sfm);
+        
+        sfm.setFilter(NOT_DIVISIBLE_BY_3);
+        check(sfm);
+        sfm.setSorting(-1, SortOrder.ASCENDING);
+        check(sfm);
+    }
+    
+    @Test
+    public void testNaturalSort() {
+        SimpleTableModel src = new SimpleTableModel(new String[] { "name" });
+        src.addRow("item10");
+        src.addRow("item9");
+        src.addRow(new Object[] { null });
+        src.addRow("item100");
+        SortedFilteredTableModel sfm = new SortedFilteredTableModel(src);
+        sfm.setSorting(0, SortOrder.ASCENDING);
+        assertNull(sfm.getCell(0, 0));
+        assertEquals("item9", sfm.getCell(1, 0));
+        assertEquals("item10", sfm.getCell(2, 0));
+        assertEquals("item100", sfm.getCell(3, 0));
+        assertEquals(2, sfm.getSourceRow(0));
+        assertEquals(2, sfm.getViewRow(0));
+        assertEquals(3, sfm.getViewRow(3));
+    }
+    
+    @Test
+    public void testIncrementalUpdates() {
+        Random r = new Random(42);
+        SimpleTableModel src = createModel(r, 200);
+        SortedFilteredTableModel sfm = new SortedFilteredTableModel(src);
+        sfm.setSorting(0, SortOrder.DESCENDING);
+        sfm.setFilter(NOT_DIVISIBLE_BY_3);
+        Mirror mirror = new Mirror(sfm);
+        
+        for(int i=0 ; i<2000 ; i++) {
+            int numRows = src.getNumRows();
+            switch(r.nextInt(5)) {
+                case 0:
+                    src.insertRow(r.nextInt(numRows + 1), r.nextInt(50), "item" + r.nextInt(100));
+                    break;
+                case 1:
+                    if(numRows > 0) {
+                        int idx = r.nextInt(numRows);
+                        src.deleteRows(idx, Math.min(numRows - idx, 1 + r.nextInt(5)));
+                    }
+                    break;
+                case 2:
+                    if(numRows > 0) {
+                        src.setCell(r.nextInt(numRows), 0, r.nextInt(50));
+                    }
+                    break;
+                case 3:
+                    if(numRows > 0) {
+                        src.setCell(r.nextInt(numRows), 1, "item" + r.nextInt(100));
+                    }
+                    break;
+                case 4: {
+                    ArrayList<Object[]> rows = new ArrayList<Object[]>();
+                    for(int j=r.nextInt(100) ; j-->0 ;) {
+                        rows.add(new Object[] { r.nextInt(50), "item" + r.nextInt(100) });
+                    }
+                    src.insertRows(r.nextInt(numRows + 1), rows);
+                    break;
+                }
+            }
+            check(sfm);
+            mirror.check();
+        }
+        assertTrue(mirror.numIncrementalEvents > 0);
+    }
+    
+    @Test
+    public void testAsyncSort() {
+        SoftwareRenderer renderer = new SoftwareRenderer(16, 16, 1);
+        GUI gui = new GUI(new Widget(), renderer, null);
+        ManualExecutor executor = new ManualExecutor();
+        gui.setAsyncExecutor(executor);
+        try {
+            SimpleTableModel src = createModel(new Random(7), 50000);
+            SortedFilteredTableModel sfm = new SortedFilteredTableModel(src, gui);
+            Mirror mirror = new Mirror(sfm);
+            check(sfm);
+            
+            sfm.setSorting(1, SortOrder.ASCENDING);
+            assertTrue(sfm.isSorting());
+            assertEquals(0, sfm.getSourceRow(0));
+            
+            // a change of the source while sorting is applied to the old view
+            src.setCell(10, 0, 1234);
+            src.deleteRow(0);
+            assertEquals(9, sfm.getViewRow(9));
+            mirror.check();
+            
+            executor.runAll();
+            gui.update();
+            assertTrue(executor.numJobs > 1);
+            // the changes are replayed on the sorted result
+            assertFalse(sfm.isSorting());
+            assertEquals(1, sfm.getSortColumn());
+            check(sfm);
+            mirror.check();
+        } finally {
+            gui.destroy();
+            renderer.destroy();
+        }
+    }
+    
+    @Test
+    public void testAsyncSortReplaysChanges() {
+        SoftwareRenderer renderer = new SoftwareRenderer(16, 16, 1);
+        GUI gui = new GUI(new Widget(), renderer, null);
+        ManualExecutor executor = new ManualExecutor();
+        gui.setAsyncExecutor(executor);
+        try {
+            Random r = new Random(11);
+            SimpleTableModel src = createModel(r, 30000);
+            SortedFilteredTableModel sfm = new SortedFilteredTableModel(src, gui);
+            sfm.setFilter(NOT_DIVISIBLE_BY_3);
+            Mirror mirror = new Mirror(sfm);
+            
+            for(int round=0 ; round<3 ; round++) {
+                sfm.setSorting(round & 1, (round == 2) ? SortOrder.DESCENDING : SortOrder.ASCENDING);
+                assertTrue(sfm.isSorting());
+                for(int op=0 ; op<300 ; op++) {
+                    modifyRandom(r, src);
+                }
+                mirror.check();
+                
+                executor.runAll();
+                gui.update();
+                assertFalse(sfm.isSorting());
+                check(sfm);
+                mirror.check();
+            }
+        } finally {
+            gui.destroy();
+            renderer.destroy();
+        }
+    }
+    
+    @Test
+    public void testAsyncSortFailure() {
+        SoftwareRenderer renderer = new SoftwareRenderer(16, 16, 1);
+        GUI gui = new GUI(new Widget(), renderer, null);
+        ManualExecutor executor = new ManualExecutor();
+        gui.setAsyncExecutor(executor);
+        try {
+            SimpleTableModel src = createModel(new Random(5), 20000);
+            SortedFilteredTableModel sfm = new SortedFilteredTableModel(src, gui);
+            Table table = new Table(sfm);
+            sfm.installSortingCallback(table);
+            Mirror mirror = new Mirror(sfm);
+            
+            sfm.setSorting(0, SortOrder.DESCENDING);
+            executor.runAll();
+            gui.update();
+            assertFalse(sfm.isSorting());
+            check(sfm);
+            
+            sfm.setColumnComparator(1, new Comparator<Object>() {
+                public int compare(Object o1, Object o2) {
+                    throw new IllegalStateException("broken comparator");
+                }
+            });
+            sfm.toggleSorting(1);
+            assertEquals(1, sfm.getSortColumn());
+            assertTrue(sfm.isSorting());
+            src.deleteRow(5);
+            
+            executor.runAll();
+            gui.update();
+            // the old view is kept and the sort order reports what is shown
+            assertFalse(sfm.isSorting());
+            assertEquals(0, sfm.getSortColumn());
+            assertEquals(SortOrder.DESCENDING, sfm.getSortOrder());
+            check(sfm);
+            mirror.check();
+            
+            AnimationState header0 = table.getColumnHeaderAnimationState(0);
+            AnimationState header1 = table.getColumnHeaderAnimationState(1);
+            assertTrue(header0.getAnimationState(TableBase.STATE_SORT_DESCENDING));
+            assertFalse(header1.getAnimationState(TableBase.STATE_SORT_ASCENDING));
+        } finally {
+            gui.destroy();
+            renderer.destroy();
+        }
+    }
+    
+    private static void modifyRandom(Random r, SimpleTableModel src) {
+        int numRows = src.getNumRows();
+        switch(r.nextInt(5)) {
+            case 0: {
+                int count = 1 + r.nextInt(r.nextBoolean() ? 3 : 100);
+                ArrayList<Object[]> rows = new ArrayList<Object[]>();
+                for(int i=0 ; i<count ; i++) {
+                    rows.add(new Object[] { r.nextInt(50), "item" + r.nextInt(100) });
+                }
+                src.insertRows(r.nextBoolean() ? numRows : r.nextInt(numRows + 1), rows);
+                break;
+            }
+            case 1: {
+                int idx = r.nextInt(numRows);
+                src.deleteRows(idx, 1 + r.nextInt(Math.min(numRows - idx, r.nextBoolean() ? 3 : 100)));
+                break;
+            }
+            case 2:
+                src.setCell(r.nextInt(numRows), 1, "item" + r.nextInt(100));
+                break;
+            default:
+                src.setCell(r.nextInt(numRows), 0, r.nextInt(50));
+                break;
+        }
+    }
+    
+    private static SimpleTableModel createModel(Random r, int numRows) {
+        SimpleTableModel model = new SimpleTableModel(new String[] { "value", "name" });
+        ArrayList<Object[]> rows = new ArrayList<Object[]>();
+        for(int i=0 ; i<numRows ; i++) {
+            rows.add(new Object[] { (r.nextInt(10) == 0) ? null : r.nextInt(50), "item" + r.nextInt(100) });
+        }
+        model.addRows(rows);
+        return model;
+    }
+    
+    private static void check(SortedFilteredTableModel sfm) {
+        final TableModel src = sfm.getModel();
+        final int sortColumn = sfm.getSortColumn();
+        ArrayList<Integer> expected = new ArrayList<Integer>();
+        for(int row=0 ; row<src.getNumRows() ; row++) {
+            if(sfm.getFilter() == null || sfm.getFilter().accept(src, row)) {
+                expected.add(row);
+            }
+        }
+        if(sortColumn >= 0) {
+            final Comparator<Object> c = sfm.getSortOrder().map(
+                    new SortedFilteredTableModel.NullSafeComparator(SortedFilteredTableModel.DEFAULT_COMPARATOR));
+            // Collections.sort is stable and the rows are in source order
+            Collections.sort(expected, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return c.compare(src.getCell(a, sortColumn), src.getCell(b, sortColumn));
+                }
+            });
+        }
+        assertEquals(expected.size(), sfm.getNumRows());
+        for(int i=0 ; i<expected.size() ; i++) {
+            int row = expected.get(i);
+            assertEquals(row, sfm.getSourceRow(i));
+            assertEquals(i, sfm.getViewRow(row));
+            assertEquals(src.getCell(row, 0), sfm.getCell(i, 0));
+        }
+    }
+    
+    /**
+     * Replays the change events of the model on a copy of the cells
+     */
+    static class Mirror implements TableModel.ChangeListener {
+        final TableModel model;
+        final ArrayList<Object> rows;
+        int numIncrementalEvents;
+
+        Mirror(TableModel model) {
+            this.model = model;
+            this.rows = new ArrayList<Object>();
+            model.addChangeListener(this);
+            allChanged();
+        }
+        
+        void check() {
+            assertEquals(model.getNumRows(), rows.size());
+            for(int i=0 ; i<rows.size() ; i++) {
+                assertEquals(model.getCell(i, 0), rows.get(i));
+            }
+        }
+
+        public void rowsInserted(int idx, int count) {
+            for(int i=0 ; i<count ; i++) {
+                rows.add(idx+i, model.getCell(idx+i, 0));
+            }
+            numIncrementalEvents++;
+        }
+
+        public void rowsDeleted(int idx, int count) {
+            rows.subList(idx, idx+count).clear();
+            numIncrementalEvents++;
+        }
+
+        public void rowsChanged(int idx, int count) {
+            for(int i=0 ; i<count ; i++) {
+                rows.set(idx+i, model.getCell(idx+i, 0));
+            }
+            numIncrementalEvents++;
+        }
+
+        public void cellChanged(int row, int column) {
+            rows.set(row, model.getCell(row, 0));
+            numIncrementalEvents++;
+        }
+
+        public void allChanged() {
+            rows.clear();
+            for(int i=0,n=model.getNumRows() ; i<n ; i++) {
+                rows.add(model.getCell(i, 0));
+            }
+        }
+
+        public void columnInserted(int idx, int count) {
+        }
+
+        public void columnDeleted(int idx, int count) {
+        }
+
+        public void columnHeaderChanged(int column) {
+        }
+    }
+    
+    static class ManualExecutor implements Executor {
+        final ArrayList<Runnable> jobs = new ArrayList<Runnable>();
+        int numJobs;
+        
+        public void execute(Runnable command) {
+            jobs.add(command);
+            numJobs++;
+        }
+        
+        void runAll() {
+            while(!jobs.isEmpty()) {
+                jobs.remove(0).run();
+            }
+        }
+    }
+}
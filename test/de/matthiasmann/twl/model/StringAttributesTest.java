@@ -29,8 +29,6 @@
  */
 package de.matthiasmann.twl.model;
 
-import java.util.HashMap;
-import java.lang.reflect.Field;
 import java.util.HashSet;
 import de.matthiasmann.twl.renderer.AnimationState.StateKey;
 import org.junit.Test;
@@ -135,14 +133,11 @@ public class StringAttributesTest {
         assertEquals(nextPos, sa.getPosition());
     }
 
-    @SuppressWarnings("unchecked")
     private static HashSet<StateKey> getAllStateKeys() {
-        try {
-            Field f = StateKey.class.getDeclaredField("keys");
-            f.setAccessible(true);
-            return new HashSet<StateKey>(((HashMap<String, StateKey>)f.get(null)).values());
-        } catch(Exception ex) {
-            throw new AssertionError();
+        HashSet<StateKey> keys = new HashSet<StateKey>();
+        for(int id=0,n=StateKey.getNumStateKeys() ; id<n ; id++) {
+            keys.add(StateKey.get(id));
         }
+        return keys;
     }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.recording;
+
+import de.matthiasmann.twl.AnimationState;
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.AnimationState.StateKey;
+import de.matthiasmann.twl.renderer.Font;
+import de.matthiasmann.twl.renderer.FontCache;
+import de.matthiasmann.twl.renderer.FontParameter;
+import de.matthiasmann.twl.renderer.Gradient;
+import de.matthiasmann.twl.renderer.Image;
+import de.matthiasmann.twl.renderer.Renderer;
+import de.matthiasmann.twl.renderer.SupportsDrawRepeat;
+import de.matthiasmann.twl.renderer.Texture;
+import de.matthiasmann.twl.renderer.software.SoftwareRenderer;
+import de.matthiasmann.twl.utils.StateExpression;
+import de.matthiasmann.twl.utils.StateSelect;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for RecordingRenderer and RecordingPlayer
+ *
+ * @author Matthias Mann
+ */
+public class RecordingRendererTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    public RecordingRendererTest() {
+    }
+
+    @Test
+    public void testReplayMatchesOriginal() throws Exception {
+        SoftwareRenderer sr = new SoftwareRenderer(64, 48, 1);
+        SoftwareRenderer target = new SoftwareRenderer(64, 48, 1);
+        try {
+            RecordingRenderer rr = new RecordingRenderer(sr);
+            Scene scene = new Scene(rr);
+            
+            Recording recording = rr.startRecording();
+            scene.draw(rr);
+            assertSame(recording, rr.stopRecording());
+            scene.draw(rr);
+            
+            assertEquals(1, recording.getNumFrames());
+            
+            RecordingPlayer player = new RecordingPlayer(target, recording);
+            try {
+                assertTrue(player.render(recording.getFrame(0)));
+            } finally {
+                player.destroy();
+            }
+            
+            assertTrue(Arrays.equals(sr.getFramebuffer(), target.getFramebuffer()));
+        } finally {
+            sr.destroy();
+            target.destroy();
+        }
+    }
+
+    @Test
+    public void testHistogram() throws Exception {
+        SoftwareRenderer sr = new SoftwareRenderer(64, 48, 1);
+        try {
+            RecordingRenderer rr = new RecordingRenderer(sr);
+            Scene scene = new Scene(rr);
+            
+            Recording recording = rr.startRecording();
+            scene.draw(rr);
+            scene.draw(rr);
+            rr.stopRecording();
+            
+            assertEquals(2, recording.getNumFrames());
+            RecordedFrame frame = recording.getFrame(0);
+            assertEquals(11, frame.getNumCommands());
+            
+            CommandHistogram h = recording.computeHistogram();
+            assertEquals(2, h.getNumFrames());
+            assertEquals(22, h.getNumCommands());
+            assertEquals(Integer.valueOf(2), h.getCommandCounts().get("clipEnter"));
+            assertEquals(Integer.valueOf(4), h.getCommandCounts().get("drawText"));
+            assertEquals(Integer.valueOf(2), h.getImageCounts().get("gradient HORIZONTAL"));
+            String font = "font " + scene.fontUrl;
+            assertEquals(Integer.valueOf(6), h.getTextCounts().get(font));
+            assertEquals(Integer.valueOf(2*(3+3+4)), h.getGlyphCounts().get(font));
+        } finally {
+            sr.destroy();
+        }
+    }
+    
+    class Scene {
+        final URL fontUrl;
+        final Image image;
+        final Image tinted;
+        final Image gradient;
+        final Font font;
+        final FontCache cache;
+        final AnimationState hover;
+
+        Scene(Renderer renderer) throws Exception {
+            BufferedImage img = new BufferedImage(16, 8, BufferedImage.TYPE_INT_ARGB);
+            for(int y=0 ; y<8 ; y++) {
+                for(int x=0 ; x<16 ; x++) {
+                    img.setRGB(x, y, (x < 8) ? 0xFFFFFFFF : 0x80FF8000 + x*0x10);
+                }
+            }
+            File png = folder.newFile("test.png");
+            ImageIO.write(img, "png", png);
+            
+            File fnt = folder.newFile("test.fnt");
+            PrintWriter pw = new PrintWriter(fnt);
+            try {
+                pw.println("info face=test size=8");
+                pw.println("common lineHeight=10 base=8 scaleW=16 scaleH=8 pages=1 packed=0");
+                pw.println("page id=0 file=test.png");
+                pw.println("chars count=2");
+                pw.println("char id=65 x=0 y=0 width=4 height=8 xoffset=0 yoffset=1 xadvance=5 page=0 chnl=0");
+                pw.println("char id=32 x=0 y=0 width=0 height=0 xoffset=0 yoffset=0 xadvance=3 page=0 chnl=0");
+                pw.println("kernings count=0");
+            } finally {
+                pw.close();
+            }
+            fontUrl = fnt.toURI().toURL();
+            
+            Texture texture = renderer.loadTexture(png.toURI().toURL(), "COLOR", "NEAREST");
+            image = texture.getImage(8, 0, 8, 8, null, false, Texture.Rotation.CLOCKWISE_90);
+            tinted = image.createTintedVersion(new Color(0xFF00FFFF));
+            
+            Gradient g = new Gradient(Gradient.Type.HORIZONTAL);
+            g.addStop(0, new Color(0xFF0000FF));
+            g.addStop(20, new Color(0x80FFFF00));
+            gradient = renderer.createGradient(g);
+            
+            FontParameter hoverParam = new FontParameter();
+            hoverParam.put(FontParameter.COLOR, new Color(0xFF00FF00));
+            hoverParam.put(FontParameter.UNDERLINE, true);
+            FontParameter normalParam = new FontParameter();
+            normalParam.put(FontParameter.COLOR, new Color(0xFFFF0000));
+            font = renderer.loadFont(fontUrl,
+                    new StateSelect(StateExpression.parse("hover", false)),
+                    hoverParam, normalParam);
+            cache = font.cacheText(null, "AAAA");
+            
+            hover = new AnimationState();
+            hover.setAnimationState(StateKey.get("hover"), true);
+        }
+        
+        void draw(RecordingRenderer renderer) {
+            assertTrue(renderer.startRendering());
+            gradient.draw(null, 0, 0, 64, 48);
+            renderer.clipEnter(2, 2, 40, 30);
+            image.draw(null, 0, 0, 20, 20);
+            ((SupportsDrawRepeat)tinted).draw(null, 20, 0, 24, 16, 3, 2);
+            renderer.pushGlobalTintColor(1f, 1f, 1f, 0.5f);
+            font.drawText(null, 4, 20, "AAA");
+            renderer.popGlobalTintColor();
+            renderer.clipLeave();
+            font.drawText(hover, 4, 34, "A A");
+            cache.draw(hover, 30, 34);
+            renderer.getLineRenderer().drawLine(new float[] { 0, 47, 63, 40 }, 2, 2f, Color.WHITE, false);
+            renderer.endRendering();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.renderer.software;
+
+import de.matthiasmann.twl.Color;
+import de.matthiasmann.twl.renderer.DynamicImage;
+import de.matthiasmann.twl.renderer.Gradient;
+import de.matthiasmann.twl.renderer.Image;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for SoftwareRenderer
+ *
+ * @author Matthias Mann
+ */
+public class SoftwareRendererTest {
+
+    public SoftwareRendererTest() {
+    }
+
+    @Test
+    public void testDrawImage() {
+        SoftwareRenderer r = new SoftwareRenderer(16, 16, 1);
+        try {
+            Image img = createImage(r, 2, 2, 0xFFFF0000);
+            assertTrue(r.startRendering());
+            img.draw(null, 4, 5);
+            r.endRendering();
+            assertEquals(0xFFFF0000, pixel(r, 4, 5));
+            assertEquals(0xFFFF0000, pixel(r, 5, 6));
+            assertEquals(0xFF000000, pixel(r, 6, 6));
+            assertEquals(0xFF000000, pixel(r, 3, 5));
+        } finally {
+            r.destroy();
+        }
+    }
+
+    @Test
+    public void testClipping() {
+        SoftwareRenderer r = new SoftwareRenderer(16, 16, 1);
+        try {
+            Image img = createImage(r, 1, 1, 0xFFFFFFFF);
+            assertTrue(r.startRendering());
+            r.clipEnter(2, 2, 4, 4);
+            img.draw(null, 0, 0, 16, 16);
+            r.clipLeave();
+            r.endRendering();
+            assertEquals(0xFFFFFFFF, pixel(r, 2, 2));
+            assertEquals(0xFFFFFFFF, pixel(r, 5, 5));
+            assertEquals(0xFF000000, pixel(r, 1, 2));
+            assertEquals(0xFF000000, pixel(r, 6, 5));
+        } finally {
+            r.destroy();
+        }
+    }
+
+    @Test
+    public void testTintAndBlend() {
+        SoftwareRenderer r = new SoftwareRenderer(4, 4, 1);
+        try {
+            Image img = createImage(r, 1, 1, 0xFFFFFFFF);
+            assertTrue(r.startRendering());
+            r.pushGlobalTintColor(1f, 0f, 0f, 0.5f);
+            img.draw(null, 0, 0);
+            r.popGlobalTintColor();
+            img.createTintedVersion(new Color(0xFF00FF00)).draw(null, 1, 0);
+            r.endRendering();
+            int c = pixel(r, 0, 0);
+            assertEquals(0, c & 0xFFFF);
+            assertTrue(Math.abs(((c >> 16) & 255) - 128) <= 1);
+            assertEquals(0xFF00FF00, pixel(r, 1, 0));
+        } finally {
+            r.destroy();
+        }
+    }
+
+    @Test
+    public void testGradient() {
+        SoftwareRenderer r = new SoftwareRenderer(8, 1, 1);
+        try {
+            Gradient g = new Gradient(Gradient.Type.HORIZONTAL);
+            g.addStop(0, new Color(0xFF000000));
+            g.addStop(8, new Color(0xFFFFFFFF));
+            Image img = r.createGradient(g);
+            assertTrue(r.startRendering());
+            img.draw(null, 0, 0, 8, 1);
+            r.endRendering();
+            int prev = -1;
+            for(int x=0 ; x<8 ; x++) {
+                int v = pixel(r, x, 0) & 255;
+                assertTrue(v > prev);
+                prev = v;
+            }
+        } finally {
+            r.destroy();
+        }
+    }
+
+    @Test
+    public void testThreadsMatchSingleThread() {
+        SoftwareRenderer r1 = new SoftwareRenderer(300, 200, 1);
+        SoftwareRenderer r4 = new SoftwareRenderer(300, 200, 4);
+        try {
+            drawScene(r1);
+            drawScene(r4);
+            assertTrue(Arrays.equals(r1.getFramebuffer(), r4.getFramebuffer()));
+            assertEquals(r1.getNumDrawCommands(), r4.getNumDrawCommands());
+        } finally {
+            r1.destroy();
+            r4.destroy();
+        }
+    }
+
+    private static void drawScene(SoftwareRenderer r) {
+        Image[] images = new Image[] {
+            createImage(r, 3, 5, 0x80FF8040),
+            createImage(r, 1, 1, 0xFF2060A0),
+            createImage(r, 7, 2, 0x40FFFFFF)
+        };
+        Random rnd = new Random(4711);
+        float[] pts = new float[8];
+        assertTrue(r.startRendering());
+        for(int i=0 ; i<500 ; i++) {
+            int x = rnd.nextInt(340) - 20;
+            int y = rnd.nextInt(240) - 20;
+            int w = rnd.nextInt(80);
+            int h = rnd.nextInt(80);
+            if((i & 15) == 0) {
+                r.clipEnter(x, y, w, h);
+            }
+            images[i % images.length].draw(null, x, y, w, h);
+            if((i & 15) == 15) {
+                r.clipLeave();
+            }
+            if((i % 50) == 0) {
+                for(int j=0 ; j<pts.length ; j++) {
+                    pts[j] = rnd.nextFloat() * 300;
+                }
+                r.drawLine(pts, 4, 2f, new Color(0xC0FFFF00), true);
+            }
+        }
+        r.endRendering();
+    }
+
+    private static Image createImage(SoftwareRenderer r, int w, int h, int argb) {
+        DynamicImage img = r.createDynamicImage(w, h);
+        ByteBuffer bb = ByteBuffer.allocate(w*h*4);
+        for(int i=0 ; i<w*h ; i++) {
+            bb.put((byte)(argb >> 16)).put((byte)(argb >> 8)).put((byte)argb).put((byte)(argb >>> 24));
+        }
+        bb.flip();
+        img.update(bb, DynamicImage.Format.RGBA);
+        return img;
+    }
+
+    private static int pixel(SoftwareRenderer r, int x, int y) {
+        return r.getFramebuffer()[y * r.getWidth() + x];
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2008, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URL;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Matthias Mann
+ */
+public class BitmapFontDefinitionTest {
+
+    private static final String TEXT_FONT =
+            "info face=\"Test\" size=12\n" +
+            "common lineHeight=14 base=11 scaleW=64 scaleH=64 pages=1 packed=0\n" +
+            "page id=0 file=test_00.png\n" +
+            "chars count=2\n" +
+            "char id=32 x=0 y=0 width=0 height=0 xoffset=0 yoffset=11 xadvance=3 page=0 chnl=0\n" +
+            "char id=65 x=1 y=2 width=7 height=9 xoffset=-1 yoffset=2 xadvance=8 page=0 chnl=0\n" +
+            "kernings count=1\n" +
+            "kerning first=65 second=65 amount=-1\n";
+
+    private static final String XML_FONT =
+            "<?xml version=\"1.0\"?>\n" +
+            "<font>\n" +
+            "  <info face=\"Test\" size=\"12\"/>\n" +
+            "  <common lineHeight=\"14\" base=\"11\" scaleW=\"64\" scaleH=\"64\" pages=\"1\" packed=\"0\"/>\n" +
+            "  <pages>\n" +
+            "    <page id=\"0\" file=\"test_00.png\"/>\n" +
+            "  </pages>\n" +
+            "  <chars count=\"2\">\n" +
+            "    <char id=\"32\" x=\"0\" y=\"0\" width=\"0\" height=\"0\" xoffset=\"0\" yoffset=\"11\" xadvance=\"3\" page=\"0\" chnl=\"0\"/>\n" +
+            "    <char id=\"65\" x=\"1\" y=\"2\" width=\"7\" height=\"9\" xoffset=\"-1\" yoffset=\"2\" xadvance=\"8\" page=\"0\" chnl=\"0\"/>\n" +
+            "  </chars>\n" +
+            "  <kernings count=\"1\">\n" +
+            "    <kerning first=\"65\" second=\"65\" amount=\"-1\"/>\n" +
+            "  </kernings>\n" +
+            "</font>\n";
+
+    public BitmapFontDefinitionTest() {
+    }
+
+    @Test
+    public void testTextFormat() throws IOException {
+        checkDefinition(new BitmapFontDefinition(new StringReader(TEXT_FONT)));
+    }
+
+    @Test
+    public void testLoadTextFormat() throws IOException {
+        checkDefinition(BitmapFontDefinition.load(createFontFile(TEXT_FONT)));
+    }
+
+    @Test
+    public void testLoadXMLFormat() throws IOException {
+        checkDefinition(BitmapFontDefinition.load(createFontFile(XML_FONT)));
+    }
+
+    @Test(expected=IOException.class)
+    public void testMissingParameter() throws IOException {
+        new BitmapFontDefinition(new StringReader(TEXT_FONT.replace(" base=11", "")));
+    }
+
+    private static void checkDefinition(BitmapFontDefinition def) {
+        assertEquals(14, def.getLineHeight());
+        assertEquals(11, def.getBaseLine());
+        assertEquals("test_00.png", def.getTextureFile());
+        assertFalse(def.isProportional());
+
+        BitmapFontDefinition.Glyph[] glyphs = def.getGlyphs();
+        assertEquals(2, glyphs.length);
+        assertEquals(32, glyphs[0].id);
+        assertEquals(3, glyphs[0].xadvance);
+        assertEquals(65, glyphs[1].id);
+        assertEquals(1, glyphs[1].x);
+        assertEquals(2, glyphs[1].y);
+        assertEquals(7, glyphs[1].width);
+        assertEquals(9, glyphs[1].height);
+        assertEquals(-1, glyphs[1].xoffset);
+        assertEquals(2, glyphs[1].yoffset);
+        assertEquals(8, glyphs[1].xadvance);
+
+        BitmapFontDefinition.Kerning[] kernings = def.getKernings();
+        assertEquals(1, kernings.length);
+        assertEquals(65, kernings[0].first);
+        assertEquals(65, kernings[0].second);
+        assertEquals(-1, kernings[0].amount);
+    }
+
+    private static URL createFontFile(String content) throws IOException {
+        File file = File.createTempFile("twlfont", ".fnt");
+        file.deleteOnExit();
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF8");
+        try {
+            w.write(content);
+        } finally {
+            w.close();
+        }
+        return file.toURI().toURL();
+    }
+}
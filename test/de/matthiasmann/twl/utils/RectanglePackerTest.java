@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import de.matthiasmann.twl.Rect;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for RectanglePacker
+ *
+ * @author Matthias Mann
+ */
+public class RectanglePackerTest {
+
+    public RectanglePackerTest() {
+    }
+
+    @Test
+    public void testFillRows() {
+        RectanglePacker packer = new RectanglePacker(64, 64);
+        Rect r = new Rect();
+        for(int y=0 ; y<64 ; y+=16) {
+            for(int x=0 ; x<64 ; x+=16) {
+                assertTrue(packer.allocate(16, 16, r));
+                assertEquals(x, r.getX());
+                assertEquals(y, r.getY());
+            }
+        }
+        assertEquals(64*64, packer.getUsedArea());
+        assertFalse(packer.allocate(1, 1, r));
+    }
+
+    @Test
+    public void testTooLarge() {
+        RectanglePacker packer = new RectanglePacker(64, 32);
+        Rect r = new Rect();
+        assertFalse(packer.allocate(65, 1, r));
+        assertFalse(packer.allocate(1, 33, r));
+        assertTrue(packer.allocate(64, 32, r));
+        assertFalse(packer.allocate(1, 1, r));
+        packer.clear();
+        assertTrue(packer.allocate(1, 1, r));
+    }
+
+    @Test
+    public void testBottomLeft() {
+        RectanglePacker packer = new RectanglePacker(64, 64);
+        Rect r = new Rect();
+        assertTrue(packer.allocate(32, 40, r));
+        assertTrue(packer.allocate(32, 10, r));
+        assertEquals(32, r.getX());
+        assertEquals(0, r.getY());
+        // the lowest position is on top of the second rectangle
+        assertTrue(packer.allocate(20, 20, r));
+        assertEquals(32, r.getX());
+        assertEquals(10, r.getY());
+    }
+
+    @Test
+    public void testRandomNoOverlap() {
+        RectanglePacker packer = new RectanglePacker(512, 512);
+        Random rnd = new Random(0x12345678);
+        ArrayList<Rect> rects = new ArrayList<Rect>();
+        int failed = 0;
+        while(failed < 100) {
+            Rect r = new Rect();
+            if(packer.allocate(1 + rnd.nextInt(40), 1 + rnd.nextInt(40), r)) {
+                assertTrue(r.getX() >= 0 && r.getRight() <= 512);
+                assertTrue(r.getY() >= 0 && r.getBottom() <= 512);
+                for(Rect o : rects) {
+                    assertFalse(r.getX() < o.getRight() && o.getX() < r.getRight() &&
+                            r.getY() < o.getBottom() && o.getY() < r.getBottom());
+                }
+                rects.add(r);
+            } else {
+                failed++;
+            }
+        }
+        int area = 0;
+        for(Rect o : rects) {
+            area += o.getWidth() * o.getHeight();
+        }
+        assertEquals(area, packer.getUsedArea());
+    }
+}
@@ -5,6 +5,9 @@
 
 package de.matthiasmann.twl.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Random;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -34,11 +37,7 @@ public class SizeSequenceTest {
             assertEquals(initialSize*i, ss.getPosition(i));
         }
 
-        int maxValue = 0;
-        for(int v : ss.table) {
-            maxValue = Math.max(maxValue, v);
-        }
-        System.out.println("maxValue=" + maxValue);
+        checkConsistent(ss);
     }
 
     @Test
@@ -77,11 +76,7 @@ public class SizeSequenceTest {
             assertEquals(initialSize, ss.getSize(idx));
         }
         
-        int maxValue = 0;
-        for(int v : ss.table) {
-            maxValue = Math.max(maxValue, v);
-        }
-        System.out.println("maxValue=" + maxValue);
+        checkConsistent(ss);
     }
 
     @Test
@@ -115,11 +110,7 @@ public class SizeSequenceTest {
             assertEquals(size, ss.getSize(i));
         }
 
-        int maxValue = 0;
-        for(int v : ss.table) {
-            maxValue = Math.max(maxValue, v);
-        }
-        System.out.println("maxValue=" + maxValue);
+        checkConsistent(ss);
     }
 
     @Test
@@ -168,11 +159,204 @@ public class SizeSequenceTest {
             assertEquals(size, ss.getSize(idx));
         }
 
-        int maxValue = 0;
-        for(int v : ss.table) {
-            maxValue = Math.max(maxValue, v);
+        checkConsistent(ss);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random r = new Random(0x5EED);
+        SizeSequence ss = new SizeSequence();
+        ArrayList<Integer> ref = new ArrayList<Integer>();
+
+        for(int op=0 ; op<20000 ; op++) {
+            int kind = r.nextInt(10);
+            if(kind < 4 || ref.isEmpty()) {
+                int index = r.nextInt(ref.size() + 1);
+                int count = 1 + r.nextInt(r.nextBoolean() ? 3 : 200);
+                int value = r.nextInt(50);
+                ss.setDefaultValue(value);
+                ss.insert(index, count);
+                for(int i=0 ; i<count ; i++) {
+                    ref.add(index, value);
+                }
+            } else if(kind < 7) {
+                int index = r.nextInt(ref.size());
+                int count = 1 + r.nextInt(Math.min(ref.size() - index, r.nextBoolean() ? 3 : 150));
+                ss.remove(index, count);
+                for(int i=0 ; i<count ; i++) {
+                    ref.remove(index);
+                }
+            } else {
+                int index = r.nextInt(ref.size());
+                int value = r.nextInt(50);
+                assertEquals(ref.get(index).intValue() != value, ss.setSize(index, value));
+                ref.set(index, value);
+            }
+            assertEquals(ref.size(), ss.size());
+            if((op % 500) == 0) {
+                checkAgainst(ss, ref);
+            }
         }
-        System.out.println("maxValue=" + maxValue);
+        checkAgainst(ss, ref);
+    }
+
+    @Test
+    public void testGetIndexWithZeroSizes() {
+        SizeSequence ss = new SizeSequence();
+        ss.setDefaultValue(0);
+        ss.initializeAll(1000);
+        ss.setSize(500, 10);
+        assertEquals(500, ss.getIndex(0));
+        assertEquals(500, ss.getIndex(9));
+        assertEquals(1000, ss.getIndex(10));
+        assertEquals(10, ss.getEndPosition());
+        assertEquals(0, ss.getIndex(-5));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLargeAppend() {
+        final int count = 500000;
+        SizeSequence ss = new SizeSequence();
+        ss.setDefaultValue(20);
+        ss.initializeAll(count);
+        for(int i=0 ; i<10000 ; i++) {
+            ss.setDefaultValue(i & 31);
+            ss.insert(ss.size(), 1);
+        }
+        assertEquals(count + 10000, ss.size());
+        assertEquals(count*20, ss.getPosition(count));
+        for(int i=0 ; i<10000 ; i++) {
+            assertEquals(i & 31, ss.getSize(count + i));
+        }
+        ss.remove(0, 5);
+        assertEquals(count + 10000 - 5, ss.size());
+        assertEquals((count-5)*20, ss.getPosition(count-5));
+        checkConsistent(ss);
+    }
+
+    @Test
+    public void testInitializeSizesTable() {
+        SizeSequence ss = new SizeSequence(4) {
+            @Override
+            protected void initializeSizes(int index, int count) {
+                for(int i=0 ; i<count ; i++) {
+                    table[index+i] = (index+i) * 2;
+                }
+            }
+        };
+        ArrayList<Integer> ref = new ArrayList<Integer>();
+        ss.initializeAll(100);
+        for(int i=0 ; i<100 ; i++) {
+            ref.add(i * 2);
+        }
+        checkAgainst(ss, ref);
+        ss.insert(50, 3);
+        ref.addAll(50, Arrays.asList(100, 102, 104));
+        checkAgainst(ss, ref);
+        ss.insert(10, 500);
+        for(int i=0 ; i<500 ; i++) {
+            ref.add(10+i, (10+i) * 2);
+        }
+        checkAgainst(ss, ref);
+    }
+
+    @Test
+    public void testLargeSplices() {
+        Random r = new Random(0x7AB1E);
+        SizeSequence ss = new SizeSequence();
+        ArrayList<Integer> ref = new ArrayList<Integer>();
+        
+        for(int op=0 ; op<300 ; op++) {
+            if(r.nextInt(3) < 2 || ref.size() < 100) {
+                int index = r.nextInt(ref.size() + 1);
+                int count = 1 + r.nextInt(5000);
+                int value = r.nextInt(50);
+                ss.setDefaultValue(value);
+                ss.insert(index, count);
+                ref.addAll(index, Collections.nCopies(count, value));
+            } else {
+                int index = r.nextInt(ref.size());
+                int count = 1 + r.nextInt(ref.size() - index);
+                ss.remove(index, count);
+                ref.subList(index, index + count).clear();
+            }
+            if((op % 10) == 0) {
+                int index = r.nextInt(ref.size());
+                int value = r.nextInt(50);
+                ss.setSize(index, value);
+                ref.set(index, value);
+                checkAgainst(ss, ref);
+            }
+        }
+        checkAgainst(ss, ref);
+    }
+
+    @Test
+    public void testFlags() {
+        Random r = new Random(0xF1A6);
+        SizeSequence ss = new SizeSequence();
+        ArrayList<Boolean> ref = new ArrayList<Boolean>();
+        
+        for(int op=0 ; op<5000 ; op++) {
+            int kind = r.nextInt(10);
+            if(kind < 3 || ref.isEmpty()) {
+                int index = r.nextInt(ref.size() + 1);
+                int count = 1 + r.nextInt(r.nextBoolean() ? 3 : 500);
+                ss.insert(index, count);
+                ref.addAll(index, Collections.nCopies(count, Boolean.FALSE));
+            } else if(kind < 5) {
+                int index = r.nextInt(ref.size());
+                int count = 1 + r.nextInt(Math.min(ref.size() - index, r.nextBoolean() ? 3 : 400));
+                ss.remove(index, count);
+                ref.subList(index, index + count).clear();
+            } else {
+                int index = r.nextInt(ref.size());
+                boolean flag = r.nextInt(4) != 0;
+                assertEquals(ref.get(index).booleanValue() != flag, ss.setFlag(index, flag));
+                ref.set(index, flag);
+            }
+            if((op % 250) == 0) {
+                checkFlags(ss, ref);
+            }
+        }
+        checkFlags(ss, ref);
+    }
+
+    private static void checkFlags(SizeSequence ss, ArrayList<Boolean> ref) {
+        int numFlags = 0;
+        for(int i=0 ; i<ref.size() ; i++) {
+            boolean flag = ref.get(i);
+            assertEquals(flag, ss.getFlag(i));
+            if(flag) {
+                numFlags++;
+            }
+        }
+        assertEquals(numFlags, ss.getNumFlags());
+    }
+
+    private static void checkAgainst(SizeSequence ss, ArrayList<Integer> ref) {
+        int pos = 0;
+        for(int i=0 ; i<ref.size() ; i++) {
+            int size = ref.get(i);
+            assertEquals(size, ss.getSize(i));
+            assertEquals(pos, ss.getPosition(i));
+            if(size > 0) {
+                assertEquals(i, ss.getIndex(pos));
+                assertEquals(i, ss.getIndex(pos + size - 1));
+            }
+            pos += size;
+        }
+        assertEquals(pos, ss.getPosition(ref.size()));
+        assertEquals(pos, ss.getEndPosition());
+        assertEquals(ref.size(), ss.getIndex(pos));
+    }
+
+    private static void checkConsistent(SizeSequence ss) {
+        int pos = 0;
+        for(int i=0,n=ss.size() ; i<n ; i++) {
+            assertEquals(pos, ss.getPosition(i));
+            pos += ss.getSize(i);
+        }
+        assertEquals(pos, ss.getEndPosition());
+    }
+}
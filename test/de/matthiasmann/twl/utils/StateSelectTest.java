@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2008-2014, Matthias Mann
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Matthias Mann nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.matthiasmann.twl.utils;
+
+import de.matthiasmann.twl.AnimationState;
+import de.matthiasmann.twl.renderer.AnimationState.StateKey;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test for the compiled and cached StateSelect evaluation
+ *
+ * @author Matthias Mann
+ */
+public class StateSelectTest {
+
+    public StateSelectTest() {
+    }
+
+    @Test
+    public void testTable() throws Exception {
+        compareRandom(6, 12345);
+    }
+
+    @Test
+    public void testProgram() throws Exception {
+        compareRandom(12, 4711);
+    }
+
+    @Test
+    public void testInterpreted() throws Exception {
+        compareRandom(20, 815);
+    }
+
+    @Test
+    public void testCacheInvalidation() throws Exception {
+        StateSelect select = create(true,
+                "disabled",
+                "pressed | (armed + hover)",
+                "hover");
+        AnimationState parent = new AnimationState();
+        AnimationState child = new AnimationState(parent);
+
+        assertEquals(3, select.evaluate(child));
+        int modCount = child.getModificationCount();
+
+        parent.setAnimationState(StateKey.get("hover"), true);
+        assertTrue(child.getModificationCount() != modCount);
+        assertEquals(2, select.evaluate(child));
+
+        child.setAnimationState(StateKey.get("armed"), true);
+        assertEquals(1, select.evaluate(child));
+
+        // overriding the parent's state in the child
+        child.setAnimationState(StateKey.get("hover"), false);
+        assertEquals(3, select.evaluate(child));
+        parent.setAnimationState(StateKey.get("disabled"), true);
+        assertEquals(0, select.evaluate(child));
+
+        modCount = child.getModificationCount();
+        child.setAnimationState(StateKey.get("armed"), true);
+        assertEquals(modCount, child.getModificationCount());
+    }
+
+    @Test
+    public void testCacheManySelects() throws Exception {
+        StateSelect[] selects = new StateSelect[10];
+        for(int i=0 ; i<selects.length ; i++) {
+            selects[i] = create(true, "s" + i, "hover");
+        }
+        AnimationState as = new AnimationState();
+        for(int round=0 ; round<3 ; round++) {
+            for(int i=0 ; i<selects.length ; i++) {
+                assertEquals(2, selects[i].evaluate(as));
+            }
+        }
+        as.setAnimationState(StateKey.get("hover"), true);
+        as.setAnimationState(StateKey.get("s3"), true);
+        for(int i=0 ; i<selects.length ; i++) {
+            assertEquals((i == 3) ? 0 : 1, selects[i].evaluate(as));
+        }
+    }
+
+    @Test
+    public void testEquivalenceExhaustive() throws Exception {
+        Random r = new Random(2014);
+        for(int numKeys=1 ; numKeys<=12 ; numKeys++) {
+            StateKey[] keys = new StateKey[numKeys];
+            for(int i=0 ; i<numKeys ; i++) {
+                keys[i] = StateKey.get("stateSelectTest" + i);
+            }
+            for(int test=0 ; test<10 ; test++) {
+                String[] exprs = new String[r.nextInt(9)];
+                for(int i=0 ; i<exprs.length ; i++) {
+                    exprs[i] = randomExpr(r, keys, 3);
+                }
+                StateSelect compiled = create(true, exprs);
+                StateSelect interpreted = create(false, exprs);
+                assertEquals(interpreted.evaluateUncached(null), compiled.evaluateUncached(null));
+                // every combination of active states
+                for(int mask=0 ; mask<(1<<numKeys) ; mask++) {
+                    AnimationState as = new AnimationState();
+                    for(int i=0 ; i<numKeys ; i++) {
+                        as.setAnimationState(keys[i], (mask & (1 << i)) != 0);
+                    }
+                    assertEquals(interpreted.evaluateUncached(as), compiled.evaluateUncached(as));
+                }
+            }
+        }
+    }
+
+    private static void compareRandom(int numKeys, long seed) throws Exception {
+        Random r = new Random(seed);
+        StateKey[] keys = new StateKey[numKeys];
+        for(int i=0 ; i<numKeys ; i++) {
+            keys[i] = StateKey.get("stateSelectTest" + i);
+        }
+        for(int test=0 ; test<20 ; test++) {
+            String[] exprs = new String[1 + r.nextInt(8)];
+            for(int i=0 ; i<exprs.length ; i++) {
+                exprs[i] = randomExpr(r, keys, 2);
+            }
+            StateSelect compiled = create(true, exprs);
+            StateSelect interpreted = create(false, exprs);
+            AnimationState parent = new AnimationState();
+            AnimationState as = new AnimationState(parent);
+            for(int i=0 ; i<200 ; i++) {
+                StateKey key = keys[r.nextInt(numKeys)];
+                (r.nextBoolean() ? parent : as).setAnimationState(key, r.nextBoolean());
+                int expected = interpreted.evaluateUncached(as);
+                assertEquals(expected, compiled.evaluateUncached(as));
+                assertEquals(expected, compiled.evaluate(as));
+                assertEquals(expected, interpreted.evaluate(as));
+            }
+        }
+    }
+
+    private static String randomExpr(Random r, StateKey[] keys, int depth) {
+        StringBuilder sb = new StringBuilder();
+        if(r.nextInt(4) == 0) {
+            sb.append('!');
+        }
+        if(depth == 0 || r.nextInt(3) == 0) {
+            sb.append(keys[r.nextInt(keys.length)].getName());
+        } else {
+            char kind = "|+^".charAt(r.nextInt(3));
+            sb.append('(');
+            for(int i=0,n=2+r.nextInt(3) ; i<n ; i++) {
+                if(i > 0) {
+                    sb.append(kind);
+                }
+                sb.append(randomExpr(r, keys, depth-1));
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    private static StateSelect create(boolean useOptimizer, String ... exprs) throws Exception {
+        StateExpression[] expressions = new StateExpression[exprs.length];
+        for(int i=0 ; i<exprs.length ; i++) {
+            expressions[i] = StateExpression.parse(exprs[i], false);
+        }
+        boolean oldUseOptimizer = StateSelect.isUseOptimizer();
+        StateSelect.setUseOptimizer(useOptimizer);
+        try {
+            return new StateSelect(expressions);
+        } finally {
+            StateSelect.setUseOptimizer(oldUseOptimizer);
+        }
+    }
+}